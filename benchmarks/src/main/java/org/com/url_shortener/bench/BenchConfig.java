@@ -0,0 +1,32 @@
+package org.com.url_shortener.bench;
+
+import java.nio.file.Path;
+import org.com.url_shortener.infra.cfg.AppConfig;
+
+/** Конфигурация для бенчмарков: длинный TTL и лимит, чтобы ссылки не умирали во время замера. */
+final class BenchConfig implements AppConfig {
+  @Override
+  public String baseUrl() {
+    return "http://localhost/";
+  }
+
+  @Override
+  public long ttlSeconds() {
+    return 86_400;
+  }
+
+  @Override
+  public int defaultMaxClicks() {
+    return Integer.MAX_VALUE;
+  }
+
+  @Override
+  public long cleanupIntervalSeconds() {
+    return 30;
+  }
+
+  @Override
+  public Path userUuidFile() {
+    return Path.of("bench.uuid");
+  }
+}
@@ -0,0 +1,85 @@
+package org.com.url_shortener.bench;
+
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.com.url_shortener.core.models.ShortLink;
+import org.com.url_shortener.core.repository.LinkRepository;
+import org.com.url_shortener.infra.cache.CachingLinkRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@code findByCode} по Ципфу напрямую у хранилища и через {@link CachingLinkRepository}: самый
+ * горячий код всегда попадает в одну полосу кэша, так что при 8 потоках видна цена обращения к ней.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class CacheBenchmark {
+  private static final int SAMPLES = 1 << 20;
+
+  @Param({"1000000"})
+  public int size;
+
+  @Param({"memory", "offheap"})
+  public String storage;
+
+  @Param({"none", "cached"})
+  public String cache;
+
+  private LinkRepository repo;
+  private String[] sampledCodes;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    LinkRepository store = Fixtures.repository(storage, size);
+    String[] codes = Fixtures.populate(store, size, 10_000, 0);
+    int[] idx = Fixtures.sampleIndices("zipf", size, SAMPLES, 42);
+    sampledCodes = new String[SAMPLES];
+    for (int i = 0; i < SAMPLES; i++) sampledCodes[i] = codes[idx[i]];
+    repo =
+        switch (cache) {
+          case "none" -> store;
+          case "cached" -> new CachingLinkRepository(store, 65_536, Fixtures.CLOCK);
+          default -> throw new IllegalArgumentException("Unknown cache: " + cache);
+        };
+  }
+
+  @State(Scope.Thread)
+  public static class Cursor {
+    int next = ThreadLocalRandom.current().nextInt(SAMPLES);
+  }
+
+  @Benchmark
+  @Threads(1)
+  public Optional<ShortLink> find1(Cursor c) {
+    return find(c);
+  }
+
+  @Benchmark
+  @Threads(8)
+  public Optional<ShortLink> find8(Cursor c) {
+    return find(c);
+  }
+
+  private Optional<ShortLink> find(Cursor c) {
+    String code = sampledCodes[c.next];
+    c.next = (c.next + 1) & (SAMPLES - 1);
+    return repo.findByCode(code);
+  }
+}
@@ -0,0 +1,66 @@
+package org.com.url_shortener.bench;
+
+import java.util.concurrent.TimeUnit;
+import org.com.url_shortener.core.repository.LinkRepository;
+import org.com.url_shortener.services.CleanupService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Один проход {@link CleanupService#cleanupExpired} по хранилищу, где истекла каждая {@code
+ * expiredEvery}-я ссылка (0 — ни одна: замер холостого прохода). После замера удалённые ссылки
+ * возвращаются, так что каждый вызов видит одинаковое состояние.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = "-Xmx12g")
+public class CleanupBenchmark {
+  @Param({"1000000", "10000000"})
+  public int size;
+
+  @Param({"0", "100"})
+  public int expiredEvery;
+
+  @Param({"memory", "offheap"})
+  public String storage;
+
+  private LinkRepository repo;
+  private CleanupService service;
+  private String[] codes;
+  private int owners;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    repo = Fixtures.repository(storage, size);
+    owners = 10_000;
+    codes = Fixtures.populate(repo, size, owners, expiredEvery);
+    service = new CleanupService(repo, new NoopNotifier(), Fixtures.CLOCK);
+  }
+
+  @Benchmark
+  public int cleanup() {
+    return service.cleanupExpired();
+  }
+
+  @TearDown(Level.Invocation)
+  public void restoreExpired() {
+    if (expiredEvery == 0) return;
+    for (int i = 0; i < size; i += expiredEvery) {
+      repo.save(Fixtures.link(codes[i], Fixtures.owner(i % owners), true));
+    }
+  }
+}
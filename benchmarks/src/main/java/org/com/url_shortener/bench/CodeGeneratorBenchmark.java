@@ -0,0 +1,63 @@
+package org.com.url_shortener.bench;
+
+import java.util.concurrent.TimeUnit;
+import org.com.url_shortener.core.repository.LinkRepository;
+import org.com.url_shortener.infra.InMemoryLinkRepository;
+import org.com.url_shortener.services.CodeGenerator;
+import org.com.url_shortener.services.RandomCodeStrategy;
+import org.com.url_shortener.services.SequenceCodeStrategy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** {@link CodeGenerator#generateUniqueCode} в одном потоке и со всех ядер сразу. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CodeGeneratorBenchmark {
+  @Param({"random", "sequence"})
+  public String strategy;
+
+  /** Ссылок в хранилище: влияет на стоимость проверки существования у random. */
+  @Param({"0", "1000000"})
+  public int prefill;
+
+  private CodeGenerator generator;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    LinkRepository repo = new InMemoryLinkRepository();
+    Fixtures.populate(repo, prefill, 1_000, 0);
+    generator =
+        switch (strategy) {
+          case "random" -> new CodeGenerator(repo, new RandomCodeStrategy(), true);
+          case "sequence" -> new CodeGenerator(repo, new SequenceCodeStrategy(), false);
+          default -> throw new IllegalArgumentException(strategy);
+        };
+  }
+
+  @Benchmark
+  @Threads(1)
+  public String generate1() {
+    return generator.generateUniqueCode();
+  }
+
+  @Benchmark
+  @Threads(Threads.MAX)
+  public String generateAll() {
+    return generator.generateUniqueCode();
+  }
+}
@@ -0,0 +1,74 @@
+package org.com.url_shortener.bench;
+
+import java.time.Clock;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.com.url_shortener.core.models.ShortLink;
+import org.com.url_shortener.core.repository.LinkRepository;
+import org.com.url_shortener.infra.InMemoryLinkRepository;
+import org.com.url_shortener.services.CodeGenerator;
+import org.com.url_shortener.services.LinkService;
+import org.com.url_shortener.services.RandomCodeStrategy;
+import org.com.url_shortener.services.SequenceCodeStrategy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Пропускная способность {@link LinkService#create} при 1, 8 и 32 потоках для обеих стратегий. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CreateBenchmark {
+  private static final String OWNER = UUID.randomUUID().toString();
+  private static final String URL = "https://example.com/some/long/path?with=query";
+
+  @Param({"random", "sequence"})
+  public String strategy;
+
+  private LinkService service;
+
+  @Setup(Level.Iteration)
+  public void setUp() {
+    // свежее хранилище на каждую итерацию, чтобы заполнение не искажало замер
+    LinkRepository repo = new InMemoryLinkRepository();
+    CodeGenerator generator =
+        switch (strategy) {
+          case "random" -> new CodeGenerator(repo, new RandomCodeStrategy(), true);
+          case "sequence" -> new CodeGenerator(repo, new SequenceCodeStrategy(), false);
+          default -> throw new IllegalArgumentException(strategy);
+        };
+    service =
+        new LinkService(repo, new BenchConfig(), generator, new NoopNotifier(), Clock.systemUTC());
+  }
+
+  @Benchmark
+  @Threads(1)
+  public ShortLink create1() {
+    return service.create(OWNER, URL, null);
+  }
+
+  @Benchmark
+  @Threads(8)
+  public ShortLink create8() {
+    return service.create(OWNER, URL, null);
+  }
+
+  @Benchmark
+  @Threads(32)
+  public ShortLink create32() {
+    return service.create(OWNER, URL, null);
+  }
+}
@@ -0,0 +1,88 @@
+package org.com.url_shortener.bench;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import org.com.url_shortener.core.models.ShortLink;
+import org.com.url_shortener.core.repository.LinkRepository;
+import org.com.url_shortener.infra.InMemoryLinkRepository;
+import org.com.url_shortener.infra.offheap.OffHeapLinkRepository;
+import org.com.url_shortener.services.SequenceCodeStrategy;
+
+/** Общие данные для бенчмарков: хранилища, детерминированные коды и владельцы. */
+final class Fixtures {
+  static final Instant NOW = Instant.parse("2025-01-01T00:00:00Z");
+  static final Clock CLOCK = Clock.fixed(NOW, ZoneOffset.UTC);
+
+  private Fixtures() {}
+
+  static LinkRepository repository(String storage, int expectedSize) {
+    return switch (storage) {
+      case "memory" -> new InMemoryLinkRepository();
+      case "offheap" -> new OffHeapLinkRepository(expectedSize);
+      default -> throw new IllegalArgumentException("Unknown storage: " + storage);
+    };
+  }
+
+  static String owner(int i) {
+    return new UUID(0x5EEDL, i).toString();
+  }
+
+  static ShortLink link(String code, String owner, boolean expired) {
+    Instant expiresAt = expired ? NOW.minusSeconds(1) : NOW.plusSeconds(86_400);
+    return new ShortLink(
+        code,
+        owner,
+        "https://example.com/articles/" + code,
+        NOW.minusSeconds(3_600),
+        expiresAt,
+        Integer.MAX_VALUE,
+        0,
+        false);
+  }
+
+  /**
+   * Заполняет хранилище {@code n} ссылками, разложенными по {@code owners} владельцам по кругу.
+   * Каждая {@code expiredEvery}-я ссылка уже истекла (0 — ни одна).
+   *
+   * @return коды в порядке вставки
+   */
+  static String[] populate(LinkRepository repo, int n, int owners, int expiredEvery) {
+    SequenceCodeStrategy codes = new SequenceCodeStrategy(0x5EED, 0);
+    String[] out = new String[n];
+    for (int i = 0; i < n; i++) {
+      out[i] = codes.nextCode();
+      boolean expired = expiredEvery > 0 && i % expiredEvery == 0;
+      repo.save(link(out[i], owner(i % owners), expired));
+    }
+    return out;
+  }
+
+  /** {@code count} индексов из [0, n): равномерно или по Ципфу с показателем {@code s}. */
+  static int[] sampleIndices(String distribution, int n, int count, long seed) {
+    SplittableRandom rnd = new SplittableRandom(seed);
+    int[] out = new int[count];
+    switch (distribution) {
+      case "uniform" -> {
+        for (int i = 0; i < count; i++) out[i] = rnd.nextInt(n);
+      }
+      case "zipf" -> {
+        double[] cdf = new double[n];
+        double sum = 0;
+        for (int k = 0; k < n; k++) {
+          sum += 1.0 / (k + 1);
+          cdf[k] = sum;
+        }
+        for (int i = 0; i < count; i++) {
+          int k = Arrays.binarySearch(cdf, rnd.nextDouble() * sum);
+          out[i] = k >= 0 ? k : Math.min(-k - 1, n - 1);
+        }
+      }
+      default -> throw new IllegalArgumentException("Unknown distribution: " + distribution);
+    }
+    return out;
+  }
+}
@@ -0,0 +1,73 @@
+package org.com.url_shortener.bench;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.com.url_shortener.core.models.ShortLink;
+import org.com.url_shortener.core.repository.LinkRepository;
+import org.com.url_shortener.services.CodeGenerator;
+import org.com.url_shortener.services.LinkService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** {@link LinkService#listByOwner}: первая страница и полный список одного владельца. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx12g")
+public class ListBenchmark {
+  private static final int PAGE = 500;
+
+  @Param({"1000000"})
+  public int size;
+
+  @Param({"10", "1000"})
+  public int linksPerOwner;
+
+  @Param({"memory", "offheap"})
+  public String storage;
+
+  private LinkService service;
+  private int owners;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    LinkRepository repo = Fixtures.repository(storage, size);
+    owners = Math.max(1, size / linksPerOwner);
+    Fixtures.populate(repo, size, owners, 0);
+    service =
+        new LinkService(
+            repo, new BenchConfig(), new CodeGenerator(repo), new NoopNotifier(), Fixtures.CLOCK);
+  }
+
+  @State(Scope.Thread)
+  public static class Cursor {
+    int owner;
+  }
+
+  @Benchmark
+  public List<ShortLink> firstPage(Cursor c) {
+    return service.listByOwner(nextOwner(c), null, PAGE);
+  }
+
+  @Benchmark
+  public List<ShortLink> fullList(Cursor c) {
+    return service.listByOwner(nextOwner(c));
+  }
+
+  private String nextOwner(Cursor c) {
+    c.owner = (c.owner + 1) % owners;
+    return Fixtures.owner(c.owner);
+  }
+}
@@ -0,0 +1,532 @@
+package org.com.url_shortener.bench;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import org.com.url_shortener.core.exceptions.AccessDeniedException;
+import org.com.url_shortener.core.exceptions.LinkNotFoundException;
+import org.com.url_shortener.core.models.RedirectResult;
+import org.com.url_shortener.core.repository.LinkRepository;
+import org.com.url_shortener.http.RedirectHttpServer;
+import org.com.url_shortener.infra.cfg.AppConfig;
+import org.com.url_shortener.infra.metrics.LatencyHistogram;
+import org.com.url_shortener.infra.metrics.MetricsRegistry;
+import org.com.url_shortener.services.CleanupService;
+import org.com.url_shortener.services.CodeGenerator;
+import org.com.url_shortener.services.LinkService;
+
+/**
+ * Долгий нагрузочный прогон {@link LinkService}: смесь create/resolve/list/delete из многих
+ * клиентов, популярность кодов по Ципфу (новые ссылки горячее старых), TTL и фоновая очистка на
+ * ускоренных часах — {@code speedup=60} проживает час TTL за минуту. С {@code http=true} переходы
+ * идут через {@link RedirectHttpServer}.
+ *
+ * <p>Каждые {@code report} секунд печатает пропускную способность и p50/p99/p99.9 по операциям за
+ * интервал, долю промахов, кучу и сборки мусора; в конце — итог за весь прогон.
+ *
+ * <pre>
+ * java -Xmx4g -cp target/benchmarks.jar org.com.url_shortener.bench.LoadGen \
+ *     duration=600 clients=256 virtual=true mix=create:10,resolve:80,list:5,delete:5 \
+ *     ttl=3600 speedup=60 zipf=1.1
+ * </pre>
+ */
+public final class LoadGen {
+  private enum Op {
+    CREATE,
+    RESOLVE,
+    LIST,
+    DELETE
+  }
+
+  private record Options(
+      int durationSeconds,
+      int reportSeconds,
+      int clients,
+      boolean virtualThreads,
+      int[] mix,
+      String storage,
+      int prefill,
+      int owners,
+      int pool,
+      double zipf,
+      long ttlSeconds,
+      int maxClicks,
+      double speedup,
+      int cleanupBatch,
+      boolean http) {
+
+    static Options parse(String[] args) {
+      Map<String, String> kv = new LinkedHashMap<>();
+      kv.put("duration", "60");
+      kv.put("report", "5");
+      kv.put("clients", "8");
+      kv.put("virtual", "false");
+      kv.put("mix", "create:10,resolve:80,list:5,delete:5");
+      kv.put("storage", "memory");
+      kv.put("prefill", "100000");
+      kv.put("owners", "1000");
+      kv.put("pool", "1048576");
+      kv.put("zipf", "1.0");
+      kv.put("ttl", "3600");
+      kv.put("maxClicks", String.valueOf(Integer.MAX_VALUE));
+      kv.put("speedup", "60");
+      kv.put("cleanupBatch", "1000");
+      kv.put("http", "false");
+      for (String arg : args) {
+        int eq = arg.indexOf('=');
+        if (eq < 0 || !kv.containsKey(arg.substring(0, eq))) {
+          throw new IllegalArgumentException("Unknown option: " + arg + "; known: " + kv.keySet());
+        }
+        kv.put(arg.substring(0, eq), arg.substring(eq + 1));
+      }
+      int[] mix = new int[Op.values().length];
+      for (String part : kv.get("mix").split(",")) {
+        String[] p = part.split(":");
+        mix[Op.valueOf(p[0].trim().toUpperCase(Locale.ROOT)).ordinal()] = Integer.parseInt(p[1]);
+      }
+      int pool = Integer.highestOneBit(Integer.parseInt(kv.get("pool")));
+      return new Options(
+          Integer.parseInt(kv.get("duration")),
+          Integer.parseInt(kv.get("report")),
+          Integer.parseInt(kv.get("clients")),
+          Boolean.parseBoolean(kv.get("virtual")),
+          mix,
+          kv.get("storage"),
+          Integer.parseInt(kv.get("prefill")),
+          Integer.parseInt(kv.get("owners")),
+          pool,
+          Double.parseDouble(kv.get("zipf")),
+          Long.parseLong(kv.get("ttl")),
+          Integer.parseInt(kv.get("maxClicks")),
+          Double.parseDouble(kv.get("speedup")),
+          Integer.parseInt(kv.get("cleanupBatch")),
+          Boolean.parseBoolean(kv.get("http")));
+    }
+  }
+
+  /** Часы, которые идут в {@code speed} раз быстрее настенных, начиная с текущего момента. */
+  static final class AcceleratedClock extends Clock {
+    private final Instant origin;
+    private final long originNanos;
+    private final double speed;
+    private final ZoneId zone;
+
+    AcceleratedClock(double speed) {
+      this(Instant.now(), System.nanoTime(), speed, ZoneOffset.UTC);
+    }
+
+    private AcceleratedClock(Instant origin, long originNanos, double speed, ZoneId zone) {
+      this.origin = origin;
+      this.originNanos = originNanos;
+      this.speed = speed;
+      this.zone = zone;
+    }
+
+    @Override
+    public Instant instant() {
+      return origin.plusNanos((long) ((System.nanoTime() - originNanos) * speed));
+    }
+
+    Duration elapsed() {
+      return Duration.between(origin, instant());
+    }
+
+    @Override
+    public ZoneId getZone() {
+      return zone;
+    }
+
+    /** Те же ускоренные часы с тем же началом отсчёта, но в другом поясе. */
+    @Override
+    public Clock withZone(ZoneId zone) {
+      return zone.equals(this.zone) ? this : new AcceleratedClock(origin, originNanos, speed, zone);
+    }
+  }
+
+  private record Entry(String code, String owner) {}
+
+  /**
+   * Кольцо последних созданных ссылок: ранг 0 — самая новая. Удалённые и истёкшие остаются в
+   * кольце, пока их не вытеснят, и дают промахи, как у настоящих клиентов со старыми ссылками.
+   */
+  private static final class LivePool {
+    private final AtomicReferenceArray<Entry> slots;
+    private final AtomicLong head = new AtomicLong();
+    private final int mask;
+    private final double[] cdf;
+
+    LivePool(int capacity, double zipf) {
+      this.slots = new AtomicReferenceArray<>(capacity);
+      this.mask = capacity - 1;
+      this.cdf = new double[capacity];
+      double sum = 0;
+      for (int k = 0; k < capacity; k++) {
+        sum += 1.0 / Math.pow(k + 1, zipf);
+        cdf[k] = sum;
+      }
+    }
+
+    void add(String code, String owner) {
+      slots.set((int) (head.getAndIncrement() & mask), new Entry(code, owner));
+    }
+
+    Entry zipf(SplittableRandom rnd) {
+      int size = size();
+      if (size == 0) return null;
+      double target = rnd.nextDouble() * cdf[size - 1];
+      int lo = 0;
+      int hi = size - 1;
+      while (lo < hi) {
+        int mid = (lo + hi) >>> 1;
+        if (cdf[mid] < target) lo = mid + 1;
+        else hi = mid;
+      }
+      return atRank(lo);
+    }
+
+    Entry uniform(SplittableRandom rnd) {
+      int size = size();
+      return size == 0 ? null : atRank(rnd.nextInt(size));
+    }
+
+    private int size() {
+      return (int) Math.min(head.get(), slots.length());
+    }
+
+    private Entry atRank(int rank) {
+      return slots.get((int) ((head.get() - 1 - rank) & mask));
+    }
+  }
+
+  /** Гистограммы и промахи по операциям за один интервал отчёта (или за весь прогон). */
+  private static final class Window {
+    final long startNanos = System.nanoTime();
+    final LatencyHistogram[] latency = new LatencyHistogram[Op.values().length];
+    final LongAdder[] misses = new LongAdder[Op.values().length];
+
+    Window() {
+      for (int i = 0; i < latency.length; i++) {
+        latency[i] = new LatencyHistogram();
+        misses[i] = new LongAdder();
+      }
+    }
+  }
+
+  private final Options opts;
+  private final AcceleratedClock clock;
+  private final LinkRepository repo;
+  private final LinkService service;
+  private final CleanupService cleanup;
+  private final LivePool pool;
+  private final String[] owners;
+  private final LongAdder created = new LongAdder();
+  private final LongAdder removed = new LongAdder();
+  private final AtomicLong urlSeq = new AtomicLong();
+  private final Window total = new Window();
+  private volatile Window window = new Window();
+  private volatile boolean running = true;
+
+  private HttpClient httpClient;
+  private String httpBase;
+
+  private LoadGen(Options opts) {
+    this.opts = opts;
+    this.clock = new AcceleratedClock(opts.speedup());
+    this.repo = Fixtures.repository(opts.storage(), opts.prefill() * 2);
+    AppConfig config = new LoadConfig(opts.ttlSeconds(), opts.maxClicks());
+    MetricsRegistry metrics = new MetricsRegistry();
+    NoopNotifier notifier = new NoopNotifier();
+    this.service = new LinkService(repo, config, new CodeGenerator(repo), notifier, clock, metrics);
+    this.cleanup = new CleanupService(repo, notifier, clock, metrics);
+    this.pool = new LivePool(opts.pool(), opts.zipf());
+    this.owners = new String[opts.owners()];
+    for (int i = 0; i < owners.length; i++) owners[i] = Fixtures.owner(i);
+  }
+
+  public static void main(String[] args) throws Exception {
+    new LoadGen(Options.parse(args)).run();
+  }
+
+  private void run() throws Exception {
+    System.out.printf(
+        Locale.ROOT,
+        "loadgen: %d s, %d %s clients, mix %s, storage %s, ttl %d s at x%.0f, zipf %.2f%s%n",
+        opts.durationSeconds(),
+        opts.clients(),
+        opts.virtualThreads() ? "virtual" : "platform",
+        mixText(),
+        opts.storage(),
+        opts.ttlSeconds(),
+        opts.speedup(),
+        opts.zipf(),
+        opts.http() ? ", resolve over HTTP" : "");
+    for (int i = 0; i < opts.prefill(); i++) create(owners[i % owners.length]);
+    System.out.println("prefilled " + opts.prefill() + " links");
+
+    RedirectHttpServer server = null;
+    if (opts.http()) {
+      server = new RedirectHttpServer(new InetSocketAddress("127.0.0.1", 0), service, 302);
+      server.start();
+      httpClient =
+          HttpClient.newBuilder()
+              .version(HttpClient.Version.HTTP_1_1)
+              .followRedirects(HttpClient.Redirect.NEVER)
+              .build();
+      httpBase = "http://127.0.0.1:" + server.port() + "/";
+    }
+
+    ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    scheduler.scheduleWithFixedDelay(
+        () ->
+            removed.add(
+                cleanup.cleanupIncremental(opts.cleanupBatch(), Duration.ofMillis(20)).removed()),
+        1,
+        1,
+        TimeUnit.SECONDS);
+
+    List<Thread> clients = new ArrayList<>(opts.clients());
+    Thread.Builder builder =
+        opts.virtualThreads()
+            ? Thread.ofVirtual().name("client-", 0)
+            : Thread.ofPlatform().name("client-", 0);
+    for (int i = 0; i < opts.clients(); i++) {
+      long seed = 0x10AD_0000L + i;
+      clients.add(builder.start(() -> clientLoop(new SplittableRandom(seed))));
+    }
+
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(opts.durationSeconds());
+    Gc gc = new Gc();
+    long peakHeap = 0;
+    long started = System.nanoTime();
+    printHeader();
+    while (System.nanoTime() < deadline) {
+      long sleep =
+          Math.min(opts.reportSeconds() * 1000L, (deadline - System.nanoTime()) / 1_000_000);
+      Thread.sleep(Math.max(1, sleep));
+      Window done = window;
+      window = new Window();
+      MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+      peakHeap = Math.max(peakHeap, heap.getUsed());
+      long elapsed = Math.round((System.nanoTime() - started) / 1e9);
+      report("t=" + elapsed + "s", done, System.nanoTime() - done.startNanos, heap, gc.delta());
+    }
+    running = false;
+    for (Thread t : clients) t.join();
+    scheduler.shutdownNow();
+    if (server != null) server.close();
+
+    System.out.println();
+    printHeader();
+    report(
+        "all",
+        total,
+        System.nanoTime() - total.startNanos,
+        ManagementFactory.getMemoryMXBean().getHeapMemoryUsage(),
+        gc.total());
+    System.out.printf(Locale.ROOT, "peak heap used %d MB%n", peakHeap >> 20);
+  }
+
+  private void clientLoop(SplittableRandom rnd) {
+    int weightSum = 0;
+    for (int w : opts.mix()) weightSum += w;
+    while (running) {
+      int pick = rnd.nextInt(weightSum);
+      int op = 0;
+      while (pick >= opts.mix()[op]) pick -= opts.mix()[op++];
+      long start = System.nanoTime();
+      boolean hit;
+      try {
+        hit = execute(Op.values()[op], rnd);
+      } catch (Exception e) {
+        hit = false;
+      }
+      long nanos = System.nanoTime() - start;
+      Window w = window;
+      w.latency[op].record(nanos);
+      total.latency[op].record(nanos);
+      if (!hit) {
+        w.misses[op].increment();
+        total.misses[op].increment();
+      }
+    }
+  }
+
+  /** Выполняет операцию; {@code false} — промах (нет ссылки, истекла, исчерпана, чужая). */
+  private boolean execute(Op op, SplittableRandom rnd) throws Exception {
+    switch (op) {
+      case CREATE -> {
+        create(owners[rnd.nextInt(owners.length)]);
+        return true;
+      }
+      case RESOLVE -> {
+        Entry e = pool.zipf(rnd);
+        if (e == null) return false;
+        if (httpClient != null) {
+          HttpRequest request = HttpRequest.newBuilder(URI.create(httpBase + e.code())).build();
+          int status =
+              httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+          return status == 302;
+        }
+        RedirectResult result = service.resolve(e.code());
+        if (result instanceof RedirectResult.Expired) removed.increment();
+        return result instanceof RedirectResult.Redirect;
+      }
+      case LIST -> {
+        return !service.listByOwner(owners[rnd.nextInt(owners.length)], null, 100).isEmpty();
+      }
+      case DELETE -> {
+        Entry e = pool.uniform(rnd);
+        if (e == null) return false;
+        try {
+          service.delete(e.owner(), e.code());
+          removed.increment();
+          return true;
+        } catch (LinkNotFoundException | AccessDeniedException ex) {
+          return false;
+        }
+      }
+    }
+    throw new IllegalStateException("Unknown op: " + op);
+  }
+
+  private void create(String owner) {
+    String url = "https://example.com/load/" + urlSeq.incrementAndGet();
+    pool.add(service.create(owner, url, null).getCode(), owner);
+    created.increment();
+  }
+
+  private void printHeader() {
+    StringBuilder sb = new StringBuilder(String.format(Locale.ROOT, "%-8s %-9s", "", "app time"));
+    for (Op op : Op.values()) {
+      if (opts.mix()[op.ordinal()] > 0) {
+        sb.append(String.format(Locale.ROOT, " | %-37s", op.name().toLowerCase(Locale.ROOT)));
+      }
+    }
+    sb.append(" | heap MB   gc      links~   cleanup lag");
+    System.out.println(sb);
+  }
+
+  private void report(String label, Window w, long nanos, MemoryUsage heap, long[] gc) {
+    StringBuilder sb =
+        new StringBuilder(String.format(Locale.ROOT, "%-8s %9s", label, hms(clock.elapsed())));
+    for (Op op : Op.values()) {
+      if (opts.mix()[op.ordinal()] == 0) continue;
+      LatencyHistogram h = w.latency[op.ordinal()];
+      long n = h.count();
+      sb.append(
+          String.format(
+              Locale.ROOT,
+              " | %7s/s %6s %6s %6s %3d%%",
+              human(n * 1e9 / nanos),
+              micros(h.percentileNanos(0.5)),
+              micros(h.percentileNanos(0.99)),
+              micros(h.percentileNanos(0.999)),
+              n == 0 ? 0 : w.misses[op.ordinal()].sum() * 100 / n));
+    }
+    sb.append(
+        String.format(
+            Locale.ROOT,
+            " | %4d/%-4d %3d %5dms %8s %11s",
+            heap.getUsed() >> 20,
+            heap.getCommitted() >> 20,
+            gc[0],
+            gc[1],
+            human(created.sum() - removed.sum()),
+            hms(cleanup.lastLag())));
+    System.out.println(sb);
+  }
+
+  private String mixText() {
+    StringBuilder sb = new StringBuilder();
+    for (Op op : Op.values()) {
+      if (opts.mix()[op.ordinal()] == 0) continue;
+      if (!sb.isEmpty()) sb.append(',');
+      sb.append(op.name().toLowerCase(Locale.ROOT)).append(':').append(opts.mix()[op.ordinal()]);
+    }
+    return sb.toString();
+  }
+
+  private static String hms(Duration d) {
+    return String.format(
+        Locale.ROOT, "%dh%02dm%02ds", d.toHours(), d.toMinutesPart(), d.toSecondsPart());
+  }
+
+  private static String human(double v) {
+    if (v >= 1e6) return String.format(Locale.ROOT, "%.2fM", v / 1e6);
+    if (v >= 1e3) return String.format(Locale.ROOT, "%.1fk", v / 1e3);
+    return String.format(Locale.ROOT, "%.0f", v);
+  }
+
+  private static String micros(long nanos) {
+    if (nanos >= 10_000_000) return (nanos / 1_000_000) + "ms";
+    return String.format(Locale.ROOT, "%.1fus", nanos / 1e3).replace(".0us", "us");
+  }
+
+  /** Сборки мусора и их суммарное время: за интервал и с начала прогона. */
+  private static final class Gc {
+    private final long[] start = read();
+    private long[] last = start;
+
+    long[] delta() {
+      long[] now = read();
+      long[] d = {now[0] - last[0], now[1] - last[1]};
+      last = now;
+      return d;
+    }
+
+    long[] total() {
+      long[] now = read();
+      return new long[] {now[0] - start[0], now[1] - start[1]};
+    }
+
+    private static long[] read() {
+      long count = 0;
+      long millis = 0;
+      for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+        count += Math.max(0, gc.getCollectionCount());
+        millis += Math.max(0, gc.getCollectionTime());
+      }
+      return new long[] {count, millis};
+    }
+  }
+
+  private record LoadConfig(long ttlSeconds, int defaultMaxClicks) implements AppConfig {
+    @Override
+    public String baseUrl() {
+      return "http://localhost/";
+    }
+
+    @Override
+    public long cleanupIntervalSeconds() {
+      return 1;
+    }
+
+    @Override
+    public Path userUuidFile() {
+      return Path.of("loadgen.uuid");
+    }
+  }
+}
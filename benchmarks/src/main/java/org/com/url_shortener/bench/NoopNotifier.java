@@ -0,0 +1,11 @@
+package org.com.url_shortener.bench;
+
+import org.com.url_shortener.services.NotificationService;
+
+final class NoopNotifier implements NotificationService {
+  @Override
+  public void notifyLimitReached(String ownerUuid, String code) {}
+
+  @Override
+  public void notifyExpired(String ownerUuid, String code) {}
+}
@@ -0,0 +1,88 @@
+package org.com.url_shortener.bench;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.com.url_shortener.core.exceptions.LinkNotFoundException;
+import org.com.url_shortener.core.models.RedirectResult;
+import org.com.url_shortener.core.repository.LinkRepository;
+import org.com.url_shortener.services.CodeGenerator;
+import org.com.url_shortener.services.LinkService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link LinkService#resolveForRedirect} с исключениями против {@link LinkService#resolve} с
+ * результатом: на живых кодах ({@code deadShare = 0}) и под ботами, которые в основном бьют в
+ * несуществующие коды.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class RedirectResultBenchmark {
+  private static final int SIZE = 1_000_000;
+  private static final int SAMPLES = 1 << 20;
+
+  /** Доля запросов к несуществующим кодам, в процентах. */
+  @Param({"0", "90"})
+  public int deadShare;
+
+  private LinkService service;
+  private String[] sampledCodes;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    LinkRepository repo = Fixtures.repository("memory", SIZE);
+    String[] codes = Fixtures.populate(repo, SIZE, 10_000, 0);
+    int[] idx = Fixtures.sampleIndices("uniform", SIZE, SAMPLES, 42);
+    SplittableRandom rnd = new SplittableRandom(7);
+    sampledCodes = new String[SAMPLES];
+    for (int i = 0; i < SAMPLES; i++) {
+      sampledCodes[i] = rnd.nextInt(100) < deadShare ? "dead" + i : codes[idx[i]];
+    }
+    service =
+        new LinkService(
+            repo, new BenchConfig(), new CodeGenerator(repo), new NoopNotifier(), Fixtures.CLOCK);
+  }
+
+  @State(Scope.Thread)
+  public static class Cursor {
+    int next = ThreadLocalRandom.current().nextInt(SAMPLES);
+
+    String nextCode(String[] codes) {
+      String code = codes[next];
+      next = (next + 1) & (SAMPLES - 1);
+      return code;
+    }
+  }
+
+  @Benchmark
+  @Threads(8)
+  public String throwing8(Cursor c) {
+    try {
+      return service.resolveForRedirect(c.nextCode(sampledCodes));
+    } catch (LinkNotFoundException e) {
+      return null;
+    }
+  }
+
+  @Benchmark
+  @Threads(8)
+  public RedirectResult result8(Cursor c) {
+    return service.resolve(c.nextCode(sampledCodes));
+  }
+}
@@ -0,0 +1,81 @@
+package org.com.url_shortener.bench;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.com.url_shortener.core.repository.LinkRepository;
+import org.com.url_shortener.services.CodeGenerator;
+import org.com.url_shortener.services.LinkService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link LinkService#resolveForRedirect} по заполненному хранилищу: равномерный доступ и
+ * перекошенный по Ципфу (несколько горячих кодов забирают большую часть запросов).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx12g")
+public class ResolveBenchmark {
+  private static final int SAMPLES = 1 << 20;
+
+  @Param({"1000000", "10000000"})
+  public int size;
+
+  @Param({"uniform", "zipf"})
+  public String distribution;
+
+  @Param({"memory", "offheap"})
+  public String storage;
+
+  private LinkService service;
+  private String[] sampledCodes;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    LinkRepository repo = Fixtures.repository(storage, size);
+    String[] codes = Fixtures.populate(repo, size, 10_000, 0);
+    int[] idx = Fixtures.sampleIndices(distribution, size, SAMPLES, 42);
+    sampledCodes = new String[SAMPLES];
+    for (int i = 0; i < SAMPLES; i++) sampledCodes[i] = codes[idx[i]];
+    service =
+        new LinkService(
+            repo, new BenchConfig(), new CodeGenerator(repo), new NoopNotifier(), Fixtures.CLOCK);
+  }
+
+  @State(Scope.Thread)
+  public static class Cursor {
+    int next = ThreadLocalRandom.current().nextInt(SAMPLES);
+  }
+
+  @Benchmark
+  @Threads(1)
+  public String resolve1(Cursor c) {
+    return resolve(c);
+  }
+
+  @Benchmark
+  @Threads(8)
+  public String resolve8(Cursor c) {
+    return resolve(c);
+  }
+
+  private String resolve(Cursor c) {
+    String code = sampledCodes[c.next];
+    c.next = (c.next + 1) & (SAMPLES - 1);
+    return service.resolveForRedirect(code);
+  }
+}
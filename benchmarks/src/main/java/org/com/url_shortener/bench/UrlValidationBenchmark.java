@@ -0,0 +1,82 @@
+package org.com.url_shortener.bench;
+
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.validator.routines.UrlValidator;
+import org.com.url_shortener.services.HttpUrlValidator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Проверка URL перед созданием ссылки: commons-validator против {@link HttpUrlValidator}. Запускать
+ * с {@code -prof gc}, чтобы увидеть выделения на вызов.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UrlValidationBenchmark {
+  private static final String[] TYPICAL = {
+    "https://example.com/",
+    "https://www.example.org/articles/2024/06/some-long-slug-for-an-article?utm_source=mail",
+    "http://shop.example.co.uk:8080/catalog/item?id=12345&color=red#reviews",
+    "https://docs.example.io/v2/api/reference.html#section-3.1",
+    "http://192.168.10.20/status",
+    "https://пример.рф/страница",
+    "https://example.com/search?q=%D0%BF%D1%80%D0%B8%D0%B2%D0%B5%D1%82",
+    "https://cdn.example.net/static/js/app.min.js?v=3f2a9c",
+  };
+
+  private static final String[] MIXED = {
+    "https://example.com/",
+    "ftp://example.com/file",
+    "https://www.example.org/a/../../etc",
+    "http://example.invalidtld/",
+    "https://example.com/a b",
+    "http://999.1.1.1/",
+    "https://example.com:70000/",
+    "not a url at all",
+  };
+
+  /** typical — реальные адреса, все проходят; mixed — половина отвергается на разных этапах. */
+  @Param({"typical", "mixed"})
+  public String corpus;
+
+  private final UrlValidator commons = new UrlValidator(new String[] {"http", "https"});
+  private String[] urls;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    urls = "typical".equals(corpus) ? TYPICAL : MIXED;
+    for (String url : urls) {
+      if (commons.isValid(url) != HttpUrlValidator.isValid(url)) {
+        throw new IllegalStateException("validators disagree on " + url);
+      }
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(8)
+  public void commons(Blackhole bh) {
+    for (String url : urls) bh.consume(commons.isValid(url));
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(8)
+  public void inHouse(Blackhole bh) {
+    for (String url : urls) bh.consume(HttpUrlValidator.isValid(url));
+  }
+}
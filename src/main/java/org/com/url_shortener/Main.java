@@ -1,50 +1,364 @@
 package org.com.url_shortener;
 
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import org.com.url_shortener.cli.BatchRunner;
 import org.com.url_shortener.cli.CommandLoop;
 import org.com.url_shortener.core.repository.LinkRepository;
 import org.com.url_shortener.core.repository.UserUuidStore;
+import org.com.url_shortener.http.RedirectHttpServer;
 import org.com.url_shortener.infra.FileUserUuidStore;
 import org.com.url_shortener.infra.InMemoryLinkRepository;
+import org.com.url_shortener.infra.bloom.BloomFilteredLinkRepository;
+import org.com.url_shortener.infra.cache.CachingLinkRepository;
 import org.com.url_shortener.infra.cfg.AppConfig;
-import org.com.url_shortener.infra.cfg.PropertiesAppConfig;
+import org.com.url_shortener.infra.cfg.CliBatchMode;
+import org.com.url_shortener.infra.cfg.ReloadingAppConfig;
+import org.com.url_shortener.infra.cfg.RunMode;
+import org.com.url_shortener.infra.cfg.StorageKind;
+import org.com.url_shortener.infra.cluster.ClusterNode;
+import org.com.url_shortener.infra.cluster.Member;
+import org.com.url_shortener.infra.metrics.InstrumentedLinkRepository;
+import org.com.url_shortener.infra.metrics.MetricsRegistry;
+import org.com.url_shortener.infra.offheap.OffHeapLinkRepository;
+import org.com.url_shortener.infra.shard.ShardedLinkRepository;
+import org.com.url_shortener.infra.wal.LogLinkRepository;
 import org.com.url_shortener.services.*;
 
 public final class Main {
-  public static void main(String[] args) {
-    AppConfig config = new PropertiesAppConfig("application.properties");
+  private static final String UNIQUES_FILE = "uniques.bin";
+  private static final long UNIQUES_SAVE_INTERVAL_MINUTES = 5;
 
-    LinkRepository linkRepository = new InMemoryLinkRepository();
+  public static void main(String[] args) throws IOException, InterruptedException {
+    ReloadingAppConfig config = new ReloadingAppConfig("application.properties");
+    Deque<AutoCloseable> resources = new ArrayDeque<>();
+    resources.push(config);
+    MetricsRegistry metrics = new MetricsRegistry();
+
+    LinkRepository linkRepository =
+        decorate(createLinkRepository(config, resources, metrics), config, metrics);
+    if (!config.clusterNodes().isEmpty()) {
+      ClusterNode node = joinCluster(config, linkRepository);
+      resources.push(node);
+      linkRepository = node;
+    }
     UserUuidStore uuidStore = new FileUserUuidStore(config.userUuidFile());
 
-    NotificationService notifier = new ConsoleNotificationService();
+    AsyncNotificationService notifier =
+        new AsyncNotificationService(
+            new ConsoleNotificationService(),
+            config.notifyQueueCapacity(),
+            config.notifyBackpressure());
+    resources.push(notifier);
+    registerNotifierMetrics(notifier, metrics);
     Clock clock = Clock.systemUTC();
 
     UserService userService = new UserService(uuidStore);
-    CodeGenerator codeGenerator = new CodeGenerator(linkRepository);
+    CodeGenerator codeGenerator = createCodeGenerator(config, linkRepository, metrics);
+    ClickAnalytics analytics = createAnalytics(config, clock, metrics);
+    resources.push(analytics);
     LinkService linkService =
-        new LinkService(linkRepository, config, codeGenerator, notifier, clock);
-    var cleanupService = new CleanupService(linkRepository, notifier, clock);
+        new LinkService(linkRepository, config, codeGenerator, notifier, clock, metrics, analytics);
+    if (config.dedupeUrls()) linkService.rebuildDedupeIndex();
+    var cleanupService =
+        new CleanupService(linkRepository, notifier, clock, metrics, linkService::forgetRemoved);
 
     ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
-    scheduler.scheduleAtFixedRate(
+    scheduleCleanup(scheduler, cleanupService, config);
+    resources.push(scheduler::shutdown);
+    if (config.storage() == StorageKind.WAL && analytics.countsUniques()) {
+      persistUniques(
+          config.storageDir().resolve(UNIQUES_FILE),
+          analytics,
+          linkRepository,
+          scheduler,
+          resources);
+    }
+
+    RunMode mode = config.mode();
+    if (mode != RunMode.CLI) {
+      RedirectHttpServer httpServer =
+          new RedirectHttpServer(
+              new InetSocketAddress(config.httpPort()),
+              linkService,
+              config.httpRedirectStatus(),
+              metrics);
+      httpServer.start();
+      resources.push(httpServer);
+      System.out.println("HTTP redirect server: http://localhost:" + httpServer.port() + "/");
+    }
+
+    Runtime.getRuntime().addShutdownHook(new Thread(() -> closeAll(resources), "shutdown"));
+
+    if (mode == RunMode.HTTP) {
+      new CountDownLatch(1).await();
+      return;
+    }
+
+    try {
+      boolean batch =
+          switch (config.cliBatch()) {
+            case AUTO -> stdinIsPiped();
+            case OFF -> false;
+            case TSV, JSONL -> true;
+          };
+      if (batch) {
+        new BatchRunner(config, userService, linkService, config.cliBatch() == CliBatchMode.JSONL)
+            .run(System.in, System.out);
+      } else {
+        new CommandLoop(config, userService, linkService, cleanupService, metrics).run();
+      }
+    } finally {
+      closeAll(resources);
+    }
+  }
+
+  private static LinkRepository createLinkRepository(
+      AppConfig config, Deque<AutoCloseable> resources, MetricsRegistry metrics) {
+    return switch (config.storage()) {
+      case MEMORY -> sharded(config, InMemoryLinkRepository::new);
+      case WAL -> {
+        LogLinkRepository repo =
+            new LogLinkRepository(
+                config.storageDir(),
+                Duration.ofMillis(config.walClickFlushMillis()),
+                config.walCompactThresholdBytes());
+        resources.push(repo);
+        yield repo;
+      }
+      case OFFHEAP -> {
+        List<OffHeapLinkRepository> stores = new ArrayList<>();
+        LinkRepository repo =
+            sharded(
+                config,
+                () -> {
+                  var store =
+                      new OffHeapLinkRepository(
+                          config.offHeapInitialCapacity() / config.storageShards());
+                  stores.add(store);
+                  return store;
+                });
+        metrics.gauge(
+            "offheap_links",
+            "Links stored off-heap",
+            () -> stores.stream().mapToLong(OffHeapLinkRepository::size).sum());
+        metrics.gauge(
+            "offheap_bytes",
+            "Direct memory reserved by the store",
+            () -> stores.stream().mapToLong(OffHeapLinkRepository::offHeapBytes).sum());
+        yield repo;
+      }
+    };
+  }
+
+  /**
+   * Журнал wal остаётся одним: его пишет один поток группового fsync, и число шардов стало бы
+   * частью формата данных на диске.
+   */
+  private static LinkRepository sharded(AppConfig config, Supplier<LinkRepository> shard) {
+    int count = config.storageShards();
+    if (count == 1) return shard.get();
+    List<LinkRepository> shards = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) shards.add(shard.get());
+    return new ShardedLinkRepository(shards);
+  }
+
+  /** Замеры снаружи, под ними фильтр промахов, кэш горячих ссылок и хранилище. */
+  private static LinkRepository decorate(
+      LinkRepository repo, AppConfig config, MetricsRegistry metrics) {
+    // in-memory хранилище и так отвечает из ConcurrentHashMap за наносекунды, слои перед ним лишние
+    if (config.storage() != StorageKind.MEMORY) {
+      if (config.cacheCapacity() > 0) {
+        CachingLinkRepository cache =
+            new CachingLinkRepository(repo, config.cacheCapacity(), Clock.systemUTC());
+        metrics.counter("cache_hits_total", "Hot-link cache hits", () -> cache.stats().hits());
+        metrics.counter(
+            "cache_misses_total", "Hot-link cache misses", () -> cache.stats().misses());
+        metrics.counter(
+            "cache_evictions_total", "Hot-link cache evictions", () -> cache.stats().evictions());
+        metrics.gauge("cache_size", "Hot-link cache entries", () -> cache.stats().size());
+        repo = cache;
+      }
+      if (config.bloomExpectedCodes() > 0) {
+        BloomFilteredLinkRepository bloom =
+            new BloomFilteredLinkRepository(repo, config.bloomExpectedCodes());
+        metrics.counter(
+            "bloom_rejected_total", "Lookups rejected by the Bloom filter", bloom::rejectedLookups);
+        repo = bloom;
+      }
+    }
+    return new InstrumentedLinkRepository(repo, metrics);
+  }
+
+  /**
+   * Состав кластера задаётся статически в конфиге, поэтому при старте перебалансировка не нужна;
+   * смена состава на живых узлах идёт через {@link ClusterNode#updateMembers}.
+   */
+  private static ClusterNode joinCluster(AppConfig config, LinkRepository local)
+      throws IOException {
+    List<Member> members = config.clusterNodes().stream().map(Member::parse).toList();
+    Member self =
+        members.stream()
+            .filter(m -> m.id().equals(config.clusterNodeId()))
+            .findFirst()
+            .orElseThrow(
+                () ->
+                    new IllegalStateException(
+                        "app.cluster.nodeId '"
+                            + config.clusterNodeId()
+                            + "' is not listed in app.cluster.nodes"));
+    InetSocketAddress bind =
+        new InetSocketAddress(self.address().getHostString(), self.address().getPort());
+    ClusterNode node = new ClusterNode(self.id(), bind, local, config.clusterVirtualNodes());
+    node.updateMembers(members);
+    node.completeHandoff();
+    System.out.println("Cluster node " + self.id() + ", members: " + members.size());
+    return node;
+  }
+
+  private static ClickAnalytics createAnalytics(
+      AppConfig config, Clock clock, MetricsRegistry metrics) {
+    if (config.analyticsRetentionMinutes() == 0 && config.analyticsUniquesPrecision() == 0) {
+      return ClickAnalytics.disabled();
+    }
+    ClickAnalytics analytics =
+        new ClickAnalytics(
+            clock, config.analyticsRetentionMinutes(), config.analyticsUniquesPrecision());
+    metrics.gauge(
+        "analytics_tracked_links", "Links with click history in memory", analytics::trackedLinks);
+    metrics.counter(
+        "analytics_clicks_total", "Clicks folded into history", analytics::recordedClicks);
+    metrics.gauge(
+        "analytics_uniques_bytes",
+        "Memory held by unique-visitor sketches",
+        analytics::uniquesBytes);
+    return analytics;
+  }
+
+  /**
+   * Очередной проход очистки планируется после предыдущего с интервалом и порцией из текущего
+   * снимка настроек, так что их правка в файле действует без перезапуска.
+   */
+  private static void scheduleCleanup(
+      ScheduledExecutorService scheduler, CleanupService cleanupService, AppConfig config) {
+    try {
+      scheduler.schedule(
+          () -> {
+            try {
+              cleanupService.cleanupIncremental(
+                  config.cleanupBatchSize(), Duration.ofMillis(config.cleanupBudgetMillis()));
+            } catch (Exception ignored) {
+            }
+            scheduleCleanup(scheduler, cleanupService, config);
+          },
+          config.cleanupIntervalSeconds(),
+          TimeUnit.SECONDS);
+    } catch (RejectedExecutionException ignored) {
+      // планировщик уже остановлен
+    }
+  }
+
+  /**
+   * Скетчи уникальных посетителей хранятся рядом с журналом: читаются при старте, сохраняются
+   * периодически и при остановке (до закрытия хранилища — по нему отбрасываются удалённые ссылки).
+   */
+  private static void persistUniques(
+      Path file,
+      ClickAnalytics analytics,
+      LinkRepository repo,
+      ScheduledExecutorService scheduler,
+      Deque<AutoCloseable> resources) {
+    try {
+      analytics.loadUniques(file);
+    } catch (IOException | RuntimeException e) {
+      System.err.println("[WARN] Cannot load unique visitors from " + file + ": " + e.getMessage());
+    }
+    Runnable save =
         () -> {
           try {
-            cleanupService.cleanupExpired();
-          } catch (Exception ignored) {
+            analytics.saveUniques(file, repo::existsByCode);
+          } catch (IOException | RuntimeException e) {
+            System.err.println("[WARN] Cannot save unique visitors: " + e.getMessage());
           }
-        },
-        config.cleanupIntervalSeconds(),
-        config.cleanupIntervalSeconds(),
-        TimeUnit.SECONDS);
+        };
+    scheduler.scheduleWithFixedDelay(
+        save, UNIQUES_SAVE_INTERVAL_MINUTES, UNIQUES_SAVE_INTERVAL_MINUTES, TimeUnit.MINUTES);
+    resources.push(save::run);
+  }
+
+  private static void registerNotifierMetrics(
+      AsyncNotificationService notifier, MetricsRegistry metrics) {
+    String help = "Notification events by outcome";
+    metrics.counter(
+        "notifications_total{result=\"delivered\"}", help, () -> notifier.stats().delivered());
+    metrics.counter(
+        "notifications_total{result=\"dropped\"}", help, () -> notifier.stats().dropped());
+    metrics.counter(
+        "notifications_total{result=\"failed\"}", help, () -> notifier.stats().failed());
+    metrics.gauge(
+        "notify_latency_max_nanoseconds",
+        "Slowest notification delivery so far",
+        () -> notifier.stats().maxLatencyNanos());
+  }
+
+  private static CodeGenerator createCodeGenerator(
+      AppConfig config, LinkRepository repo, MetricsRegistry metrics) {
+    return switch (config.codeStrategy()) {
+      case RANDOM -> new CodeGenerator(repo, new RandomCodeStrategy(), true, metrics);
+      // счётчик уникален в пределах процесса; сверяемся с хранилищем, только если оно переживает
+      // рестарт или ссылки выдают и другие узлы кластера
+      case SEQUENCE -> {
+        if (config.clusterNodes().isEmpty()) {
+          yield new CodeGenerator(
+              repo, new SequenceCodeStrategy(), config.storage() != StorageKind.MEMORY, metrics);
+        }
+        List<String> ids =
+            config.clusterNodes().stream().map(Member::parse).map(Member::id).toList();
+        yield new CodeGenerator(
+            repo, SequenceCodeStrategy.forClusterNode(ids, config.clusterNodeId()), true, metrics);
+      }
+    };
+  }
 
+  /**
+   * Ввод идёт не с терминала. {@code System.console()} тут не годится: он null и тогда, когда
+   * перенаправлен только вывод ({@code app | tee log}). Без /proc угадать нельзя — остаётся диалог,
+   * пакетный режим включается явно через {@code app.cli.batch}.
+   */
+  private static boolean stdinIsPiped() {
     try {
-      new CommandLoop(config, userService, linkService, cleanupService).run();
-    } finally {
-      scheduler.shutdown();
+      String target = Files.readSymbolicLink(Path.of("/proc/self/fd/0")).toString();
+      return !(target.startsWith("/dev/pts/")
+          || target.startsWith("/dev/tty")
+          || target.equals("/dev/console"));
+    } catch (IOException | UnsupportedOperationException e) {
+      return false;
+    }
+  }
+
+  private static void closeAll(Deque<AutoCloseable> resources) {
+    synchronized (resources) {
+      while (!resources.isEmpty()) {
+        try {
+          resources.pop().close();
+        } catch (Exception e) {
+          System.err.println("[WARN] Shutdown: " + e.getMessage());
+        }
+      }
     }
   }
 }
@@ -0,0 +1,367 @@
+package org.com.url_shortener.cli;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.com.url_shortener.core.exceptions.*;
+import org.com.url_shortener.core.models.ClickHistory;
+import org.com.url_shortener.core.models.RedirectResult;
+import org.com.url_shortener.core.models.ShortLink;
+import org.com.url_shortener.infra.cfg.AppConfig;
+import org.com.url_shortener.services.LinkService;
+import org.com.url_shortener.services.UserService;
+
+/**
+ * Команды CLI из конвейера: без приглашения и без очистки перед каждой командой (её делает
+ * планировщик), ввод и вывод буферизованы. На каждую строку ввода — запись TSV или JSONL с номером
+ * строки и статусом ok/error; {@code list} даёт по записи на ссылку.
+ *
+ * <p>Идущие подряд {@code create} независимы и выполняются параллельно; записи всё равно выходят в
+ * порядке строк. Окно сбрасывается на любой другой команде и когда ввод временно иссяк, так что
+ * программа, которая ждёт ответа перед следующей строкой, его получит. Окно раздаётся кусками по
+ * собственному пулу из числа ядер потоков, а не через общий fork-join: его занимают шарды
+ * хранилища, и вложенные ожидания могли бы выесть его целиком.
+ */
+public final class BatchRunner {
+  private static final int CREATE_WINDOW = 4096;
+  private static final int PARALLEL_THRESHOLD = 64;
+  private static final int IO_BUFFER = 1 << 16;
+  private static final int WORKERS = Runtime.getRuntime().availableProcessors();
+
+  private final AppConfig config;
+  private final UserService userService;
+  private final LinkService linkService;
+  private final boolean jsonl;
+
+  private String ownerUuid;
+  private final List<PendingCreate> window = new ArrayList<>();
+  private ExecutorService workers;
+
+  private record PendingCreate(int line, String[] parts) {}
+
+  public BatchRunner(
+      AppConfig config, UserService userService, LinkService linkService, boolean jsonl) {
+    this.config = config;
+    this.userService = userService;
+    this.linkService = linkService;
+    this.jsonl = jsonl;
+  }
+
+  public void run(InputStream input, OutputStream output) throws IOException {
+    ownerUuid = userService.getOrCreateUserUuid();
+    BufferedReader in =
+        new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8), IO_BUFFER);
+    Writer out =
+        new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8), IO_BUFFER);
+    try {
+      int lineNo = 0;
+      String line;
+      while ((line = in.readLine()) != null) {
+        lineNo++;
+        String trimmed = line.trim();
+        if (trimmed.isEmpty() || trimmed.startsWith("#")) continue;
+        String[] parts = trimmed.split("\\s+");
+        String cmd = parts[0].toLowerCase(Locale.ROOT);
+
+        if (cmd.equals("create")) {
+          window.add(new PendingCreate(lineNo, parts));
+          if (window.size() == CREATE_WINDOW || !in.ready()) flushCreates(out);
+          continue;
+        }
+        flushCreates(out);
+        if (cmd.equals("exit") || cmd.equals("quit")) break;
+        handle(lineNo, cmd, parts, out);
+        if (!in.ready()) out.flush();
+      }
+      flushCreates(out);
+    } finally {
+      if (workers != null) workers.shutdown();
+      out.flush();
+    }
+  }
+
+  private void flushCreates(Writer out) throws IOException {
+    if (window.isEmpty()) return;
+    String[] records = new String[window.size()];
+    String owner = ownerUuid;
+    int chunks = Math.min(WORKERS, records.length / PARALLEL_THRESHOLD);
+    if (chunks <= 1) {
+      for (int i = 0; i < records.length; i++) records[i] = create(owner, window.get(i));
+    } else {
+      List<Callable<Void>> tasks = new ArrayList<>(chunks);
+      for (int c = 0; c < chunks; c++) {
+        int from = (int) ((long) records.length * c / chunks);
+        int to = (int) ((long) records.length * (c + 1) / chunks);
+        tasks.add(
+            () -> {
+              for (int i = from; i < to; i++) records[i] = create(owner, window.get(i));
+              return null;
+            });
+      }
+      runAll(tasks);
+    }
+    for (String r : records) out.write(r);
+    window.clear();
+    out.flush();
+  }
+
+  private ExecutorService workers() {
+    if (workers == null) {
+      AtomicInteger seq = new AtomicInteger();
+      workers =
+          Executors.newFixedThreadPool(
+              WORKERS,
+              r -> {
+                Thread t = new Thread(r, "batch-create-" + seq.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+              });
+    }
+    return workers;
+  }
+
+  private void runAll(List<Callable<Void>> tasks) throws InterruptedIOException {
+    try {
+      for (Future<Void> f : workers().invokeAll(tasks)) f.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while creating links");
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("Batch create failed", e.getCause());
+    }
+  }
+
+  private String create(String owner, PendingCreate pending) {
+    String[] parts = pending.parts();
+    if (parts.length < 2) return usage(pending.line(), usageOf("create"));
+    try {
+      Integer maxClicks = parts.length >= 3 ? Integer.parseInt(parts[2]) : null;
+      ShortLink link = linkService.create(owner, parts[1], maxClicks);
+      return ok(
+          pending.line(),
+          "code",
+          link.getCode(),
+          "shortUrl",
+          config.baseUrl() + "/" + link.getCode(),
+          "maxClicks",
+          link.getMaxClicks(),
+          "expiresAt",
+          link.getExpiresAt().toString());
+    } catch (NumberFormatException e) {
+      return usage(pending.line(), usageOf("create"));
+    } catch (RuntimeException e) {
+      return error(pending.line(), e);
+    }
+  }
+
+  private void handle(int line, String cmd, String[] parts, Writer out) throws IOException {
+    try {
+      switch (cmd) {
+        case "whoami" -> out.write(ok(line, "uuid", ownerUuid));
+        case "logout" -> {
+          ownerUuid = userService.createNewUserAndSwitch();
+          out.write(ok(line, "uuid", ownerUuid));
+        }
+        case "user" -> {
+          String sub = parts.length >= 2 ? parts[1].toLowerCase(Locale.ROOT) : "";
+          if (sub.equals("new")) {
+            ownerUuid = userService.createNewUserAndSwitch();
+          } else if (sub.equals("use") && parts.length >= 3) {
+            ownerUuid = userService.switchTo(parts[2]);
+          } else {
+            out.write(usage(line, usageOf("user")));
+            return;
+          }
+          out.write(ok(line, "uuid", ownerUuid));
+        }
+        case "open" -> {
+          if (parts.length < 2) {
+            out.write(usage(line, usageOf("open")));
+            return;
+          }
+          out.write(open(line, CliArgs.normalizeCode(parts[1])));
+        }
+        case "list" -> list(line, out);
+        case "delete" -> {
+          if (parts.length < 2) {
+            out.write(usage(line, usageOf("delete")));
+            return;
+          }
+          String code = CliArgs.normalizeCode(parts[1]);
+          linkService.delete(ownerUuid, code);
+          out.write(ok(line, "code", code));
+        }
+        case "set-limit" -> {
+          if (parts.length < 3) {
+            out.write(usage(line, usageOf("set-limit")));
+            return;
+          }
+          ShortLink updated =
+              linkService.updateMaxClicks(
+                  ownerUuid, CliArgs.normalizeCode(parts[1]), Integer.parseInt(parts[2]));
+          out.write(ok(line, "code", updated.getCode(), "maxClicks", updated.getMaxClicks()));
+        }
+        case "stats" -> {
+          if (parts.length < 2) {
+            out.write(usage(line, usageOf("stats")));
+            return;
+          }
+          int minutes =
+              parts.length >= 3 ? Integer.parseInt(parts[2]) : CliArgs.STATS_DEFAULT_MINUTES;
+          String code = CliArgs.normalizeCode(parts[1]);
+          ClickHistory history = linkService.clickHistory(ownerUuid, code, minutes);
+          out.write(
+              ok(
+                  line,
+                  "code",
+                  code,
+                  "clicks",
+                  history.total(),
+                  "minutes",
+                  history.perMinute().length,
+                  "uniqueVisitors",
+                  linkService.uniqueVisitors(ownerUuid, code)));
+        }
+        default -> out.write(record(line, false, "error", "unknown", "message", cmd));
+      }
+    } catch (NumberFormatException e) {
+      out.write(usage(line, usageOf(cmd)));
+    } catch (RuntimeException e) {
+      out.write(error(line, e));
+    }
+  }
+
+  private String open(int line, String code) {
+    return switch (linkService.resolve(code, ownerUuid)) {
+      case RedirectResult.Redirect r -> ok(line, "url", r.url());
+      case RedirectResult.NotFound nf ->
+          record(line, false, "error", "not_found", "message", "Ссылка не найдена: " + code);
+      case RedirectResult.Expired ex ->
+          record(line, false, "error", "unavailable", "message", "Ссылка истекла: " + code);
+      case RedirectResult.LimitReached lr ->
+          record(
+              line, false, "error", "unavailable", "message", "Лимит переходов исчерпан: " + code);
+    };
+  }
+
+  private void list(int line, Writer out) throws IOException {
+    String after = null;
+    while (true) {
+      List<ShortLink> page = linkService.listByOwner(ownerUuid, after, CliArgs.LIST_PAGE_SIZE);
+      for (ShortLink l : page) {
+        out.write(
+            ok(
+                line,
+                "code",
+                l.getCode(),
+                "clicks",
+                l.getClicksUsed(),
+                "maxClicks",
+                l.getMaxClicks(),
+                "expiresAt",
+                l.getExpiresAt().toString(),
+                "url",
+                l.getOriginalUrl()));
+      }
+      if (!page.isEmpty()) after = page.get(page.size() - 1).getCode();
+      if (page.size() < CliArgs.LIST_PAGE_SIZE) return;
+    }
+  }
+
+  private String error(int line, RuntimeException e) {
+    String kind =
+        switch (e) {
+          case InvalidUrlException x -> "invalid";
+          case InvalidLimitException x -> "invalid";
+          case AccessDeniedException x -> "denied";
+          case LinkNotFoundException x -> "not_found";
+          case LinkExpiredException x -> "unavailable";
+          case LinkLimitReachedException x -> "unavailable";
+          default -> "failed";
+        };
+    return record(line, false, "error", kind, "message", String.valueOf(e.getMessage()));
+  }
+
+  /** Подсказка по аргументам; ею же отвечаем, когда число в команде не разобралось. */
+  private static String usageOf(String cmd) {
+    return switch (cmd) {
+      case "create" -> "create <url> [maxClicks]";
+      case "user" -> "user new | user use <uuid>";
+      case "open" -> "open <code|shortUrl>";
+      case "delete" -> "delete <code|shortUrl>";
+      case "set-limit" -> "set-limit <code|shortUrl> <newLimit>";
+      case "stats" -> "stats <code|shortUrl> [minutes]";
+      default -> cmd;
+    };
+  }
+
+  private String usage(int line, String usage) {
+    return record(line, false, "error", "invalid", "message", "Использование: " + usage);
+  }
+
+  private String ok(int line, Object... fields) {
+    return record(line, true, fields);
+  }
+
+  /** Строка вывода: поля парами имя/значение; числа в JSONL без кавычек, в TSV имён нет. */
+  private String record(int line, boolean ok, Object... fields) {
+    StringBuilder sb = new StringBuilder(128);
+    if (jsonl) {
+      sb.append("{\"line\":").append(line).append(",\"status\":\"").append(ok ? "ok" : "error");
+      sb.append('"');
+      for (int i = 0; i < fields.length; i += 2) {
+        sb.append(",\"").append(fields[i]).append("\":");
+        Object v = fields[i + 1];
+        if (v instanceof Number) sb.append(v);
+        else appendJsonString(sb, v.toString());
+      }
+      sb.append('}');
+    } else {
+      sb.append(line).append('\t').append(ok ? "ok" : "error");
+      for (int i = 1; i < fields.length; i += 2) {
+        sb.append('\t');
+        String v = fields[i].toString();
+        for (int j = 0; j < v.length(); j++) {
+          char c = v.charAt(j);
+          sb.append(c == '\t' || c == '\n' || c == '\r' ? ' ' : c);
+        }
+      }
+    }
+    return sb.append('\n').toString();
+  }
+
+  private static void appendJsonString(StringBuilder sb, String s) {
+    sb.append('"');
+    for (int i = 0; i < s.length(); i++) {
+      char c = s.charAt(i);
+      switch (c) {
+        case '"' -> sb.append("\\\"");
+        case '\\' -> sb.append("\\\\");
+        case '\n' -> sb.append("\\n");
+        case '\r' -> sb.append("\\r");
+        case '\t' -> sb.append("\\t");
+        default -> {
+          if (c < 0x20) sb.append(String.format("\\u%04x", (int) c));
+          else sb.append(c);
+        }
+      }
+    }
+    sb.append('"');
+  }
+}
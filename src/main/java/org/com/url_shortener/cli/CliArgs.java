@@ -0,0 +1,17 @@
+package org.com.url_shortener.cli;
+
+/** Общее для диалога и пакетного режима: разбор кода из аргумента и размеры по умолчанию. */
+final class CliArgs {
+  static final int LIST_PAGE_SIZE = 500;
+  static final int STATS_DEFAULT_MINUTES = 60;
+
+  private CliArgs() {}
+
+  /** Код из аргумента: подходит и сам код, и короткая ссылка целиком. */
+  static String normalizeCode(String input) {
+    String s = input.trim();
+    int slash = s.lastIndexOf('/');
+    if (slash >= 0 && slash + 1 < s.length()) return s.substring(slash + 1);
+    return s;
+  }
+}
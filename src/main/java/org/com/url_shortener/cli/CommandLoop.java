@@ -1,24 +1,37 @@
 package org.com.url_shortener.cli;
 
 import java.awt.Desktop;
+import java.io.BufferedReader;
+import java.io.IOException;
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
 import java.util.Scanner;
 import org.com.url_shortener.core.exceptions.*;
+import org.com.url_shortener.core.models.BatchCreateResult;
+import org.com.url_shortener.core.models.ClickHistory;
 import org.com.url_shortener.core.models.ShortLink;
 import org.com.url_shortener.infra.cfg.AppConfig;
+import org.com.url_shortener.infra.metrics.MetricsRegistry;
 import org.com.url_shortener.services.CleanupService;
 import org.com.url_shortener.services.LinkService;
 import org.com.url_shortener.services.UserService;
 
 public final class CommandLoop {
+  private static final int IMPORT_BATCH_SIZE = 10_000;
+  private static final int IMPORT_REJECTED_SHOWN = 10;
+
   private final AppConfig config;
   private final UserService userService;
   private final LinkService linkService;
   private final CleanupService cleanupService;
+  private final MetricsRegistry metrics;
 
   private String ownerUuid;
 
@@ -26,11 +39,13 @@ public final class CommandLoop {
       AppConfig config,
       UserService userService,
       LinkService linkService,
-      CleanupService cleanupService) {
+      CleanupService cleanupService,
+      MetricsRegistry metrics) {
     this.config = config;
     this.userService = userService;
     this.linkService = linkService;
     this.cleanupService = cleanupService;
+    this.metrics = metrics;
   }
 
   public void run() {
@@ -86,6 +101,19 @@ public final class CommandLoop {
         System.out.println("UUID: " + ownerUuid);
         return false;
       }
+      case "stats" -> {
+        if (parts.length == 1) {
+          System.out.print(metrics.renderText());
+          return false;
+        }
+        int minutes =
+            parts.length >= 3 ? Integer.parseInt(parts[2]) : CliArgs.STATS_DEFAULT_MINUTES;
+        String code = CliArgs.normalizeCode(parts[1]);
+        printHistory(linkService.clickHistory(ownerUuid, code, minutes));
+        System.out.println(
+            "Уникальных посетителей ≈ " + linkService.uniqueVisitors(ownerUuid, code));
+        return false;
+      }
       case "create" -> {
         if (parts.length < 2) {
           System.out.println("Использование: create <url> [maxClicks]");
@@ -106,13 +134,23 @@ public final class CommandLoop {
                 + link.getExpiresAt());
         return false;
       }
+      case "import" -> {
+        if (parts.length < 2) {
+          System.out.println("Использование: import <file> [maxClicks]");
+          return false;
+        }
+        Integer maxClicks = null;
+        if (parts.length >= 3) maxClicks = Integer.parseInt(parts[2]);
+        importFile(Path.of(parts[1]), maxClicks);
+        return false;
+      }
       case "open" -> {
         if (parts.length < 2) {
           System.out.println("Использование: open <code|shortUrl>");
           return false;
         }
-        String code = normalizeCode(parts[1]);
-        String url = linkService.resolveForRedirect(code);
+        String code = CliArgs.normalizeCode(parts[1]);
+        String url = linkService.resolveForRedirect(code, ownerUuid);
 
         System.out.println("Открываю: " + url);
         openInBrowser(url);
@@ -153,26 +191,31 @@ public final class CommandLoop {
         return false;
       }
       case "list" -> {
-        List<ShortLink> links = linkService.listByOwner(ownerUuid);
-        if (links.isEmpty()) {
-          System.out.println("(пусто)");
-          return false;
-        }
-
         DateTimeFormatter fmt =
             DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss").withZone(ZoneId.systemDefault());
 
-        for (ShortLink l : links) {
-          String status = l.isLimitReached() ? "LIMIT" : "OK";
-          System.out.printf(
-              "%s | %s | clicks %d/%d | exp %s | %s%n",
-              l.getCode(),
-              status,
-              l.getClicksUsed(),
-              l.getMaxClicks(),
-              fmt.format(l.getExpiresAt()),
-              l.getOriginalUrl());
+        String after = null;
+        boolean any = false;
+        while (true) {
+          List<ShortLink> page = linkService.listByOwner(ownerUuid, after, CliArgs.LIST_PAGE_SIZE);
+          for (ShortLink l : page) {
+            String status = l.isLimitReached() ? "LIMIT" : "OK";
+            System.out.printf(
+                "%s | %s | clicks %d/%d | exp %s | %s%n",
+                l.getCode(),
+                status,
+                l.getClicksUsed(),
+                l.getMaxClicks(),
+                fmt.format(l.getExpiresAt()),
+                l.getOriginalUrl());
+          }
+          if (!page.isEmpty()) {
+            any = true;
+            after = page.get(page.size() - 1).getCode();
+          }
+          if (page.size() < CliArgs.LIST_PAGE_SIZE) break;
         }
+        if (!any) System.out.println("(пусто)");
         return false;
       }
       case "delete" -> {
@@ -180,7 +223,7 @@ public final class CommandLoop {
           System.out.println("Использование: delete <code|shortUrl>");
           return false;
         }
-        String code = normalizeCode(parts[1]);
+        String code = CliArgs.normalizeCode(parts[1]);
         linkService.delete(ownerUuid, code);
         System.out.println("OK: удалено " + code);
         return false;
@@ -190,7 +233,7 @@ public final class CommandLoop {
           System.out.println("Использование: set-limit <code|shortUrl> <newLimit>");
           return false;
         }
-        String code = normalizeCode(parts[1]);
+        String code = CliArgs.normalizeCode(parts[1]);
         int newLimit = Integer.parseInt(parts[2]);
         ShortLink updated = linkService.updateMaxClicks(ownerUuid, code, newLimit);
         System.out.println("OK: " + updated.getCode() + " maxClicks=" + updated.getMaxClicks());
@@ -203,15 +246,62 @@ public final class CommandLoop {
     }
   }
 
-  private String formatShort(String code) {
-    return config.baseUrl() + "/" + code;
+  /** Читает файл построчно пакетами, не загружая его целиком; пустые строки и # пропускаются. */
+  private void importFile(Path file, Integer maxClicks) throws IOException {
+    int created = 0;
+    List<String> rejected = new ArrayList<>();
+    int rejectedTotal = 0;
+    try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+      List<String> batch = new ArrayList<>(IMPORT_BATCH_SIZE);
+      String line;
+      while (true) {
+        line = in.readLine();
+        if (line != null) {
+          String url = line.trim();
+          if (!url.isEmpty() && !url.startsWith("#")) batch.add(url);
+        }
+        if (batch.size() == IMPORT_BATCH_SIZE || (line == null && !batch.isEmpty())) {
+          BatchCreateResult result = linkService.createAll(ownerUuid, batch, maxClicks);
+          created += result.created().size();
+          rejectedTotal += result.rejected().size();
+          for (String url : result.rejected()) {
+            if (rejected.size() < IMPORT_REJECTED_SHOWN) rejected.add(url);
+          }
+          batch = new ArrayList<>(IMPORT_BATCH_SIZE);
+        }
+        if (line == null) break;
+      }
+    }
+    System.out.println("OK: создано " + created + ", отклонено " + rejectedTotal);
+    for (String url : rejected) System.out.println("  невалидный URL: " + url);
+    if (rejectedTotal > rejected.size()) {
+      System.out.println("  ... и ещё " + (rejectedTotal - rejected.size()));
+    }
+  }
+
+  /** Итог за окно и непустые минуты; пустые подряд минуты не печатаются. */
+  private void printHistory(ClickHistory history) {
+    DateTimeFormatter fmt =
+        DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm").withZone(ZoneId.systemDefault());
+    int[] perMinute = history.perMinute();
+    System.out.println(
+        history.code()
+            + ": "
+            + history.total()
+            + " переходов за "
+            + perMinute.length
+            + " мин (с "
+            + fmt.format(history.from())
+            + ")");
+    for (int i = 0; i < perMinute.length; i++) {
+      if (perMinute[i] > 0) {
+        System.out.printf("  %s  %d%n", fmt.format(history.minuteAt(i)), perMinute[i]);
+      }
+    }
   }
 
-  private String normalizeCode(String input) {
-    String s = input.trim();
-    int slash = s.lastIndexOf('/');
-    if (slash >= 0 && slash + 1 < s.length()) return s.substring(slash + 1);
-    return s;
+  private String formatShort(String code) {
+    return config.baseUrl() + "/" + code;
   }
 
   private void openInBrowser(String url) {
@@ -238,10 +328,13 @@ public final class CommandLoop {
                   logout                       алиас к user new
 
                   create <url> [maxClicks]     создать короткую ссылку
+                  import <file> [maxClicks]    создать ссылки для всех URL из файла (по строке)
                   open <code|shortUrl>         открыть оригинальный URL (учёт кликов/TTL)
                   list                         список ваших ссылок
                   delete <code|shortUrl>       удалить ссылку (только владелец)
                   set-limit <code> <newLimit>  изменить лимит (только владелец)
+                  stats                        счётчики и задержки сервиса
+                  stats <code> [minutes]       поминутная история переходов по ссылке
                   exit                         выход
                 """);
   }
@@ -0,0 +1,6 @@
+package org.com.url_shortener.core.models;
+
+import java.util.List;
+
+/** Итог пакетного создания: созданные ссылки и отклонённые URL в исходном порядке. */
+public record BatchCreateResult(List<ShortLink> created, List<String> rejected) {}
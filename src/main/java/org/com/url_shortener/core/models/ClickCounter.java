@@ -0,0 +1,114 @@
+package org.com.url_shortener.core.models;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * Изменяемое состояние кликов ссылки, упакованное в один long: старшие 32 бита — maxClicks, бит 31
+ * — флаг отправленного уведомления, младшие 31 бит — clicksUsed. Любой переход — это один CAS без
+ * аллокаций.
+ */
+public final class ClickCounter {
+  public enum Outcome {
+    ACCEPTED,
+    LIMIT_JUST_REACHED,
+    LIMIT_REACHED
+  }
+
+  private static final long CLICKS_MASK = 0x7FFF_FFFFL;
+  private static final long NOTIFIED_BIT = 1L << 31;
+
+  private static final VarHandle STATE;
+
+  static {
+    try {
+      STATE = MethodHandles.lookup().findVarHandle(ClickCounter.class, "state", long.class);
+    } catch (ReflectiveOperationException e) {
+      throw new ExceptionInInitializerError(e);
+    }
+  }
+
+  private volatile long state;
+
+  public ClickCounter(int maxClicks, int clicksUsed, boolean limitNotified) {
+    this.state = pack(maxClicks, clicksUsed, limitNotified);
+  }
+
+  private ClickCounter(long state) {
+    this.state = state;
+  }
+
+  public int maxClicks() {
+    return maxClicksOf(state);
+  }
+
+  public int clicksUsed() {
+    return clicksUsedOf(state);
+  }
+
+  public boolean limitNotified() {
+    return limitNotifiedOf(state);
+  }
+
+  public ClickCounter copy() {
+    return new ClickCounter(state);
+  }
+
+  public Outcome tryClick() {
+    while (true) {
+      long s = state;
+      long ns = clicked(s);
+      if (ns == s) return Outcome.LIMIT_REACHED;
+      if (STATE.compareAndSet(this, s, ns)) return outcome(s, ns);
+    }
+  }
+
+  /** Возвращает true, если с новым лимитом владельца нужно уведомить прямо сейчас. */
+  public boolean changeMaxClicks(int newMaxClicks) {
+    if (newMaxClicks <= 0) throw new IllegalArgumentException("maxClicks must be > 0");
+    while (true) {
+      long s = state;
+      int clicks = clicksUsedOf(s);
+      boolean notified = limitNotifiedOf(s);
+      boolean notifyNow = clicks >= newMaxClicks && !notified;
+      long ns = pack(newMaxClicks, clicks, notified || notifyNow);
+      if (STATE.compareAndSet(this, s, ns)) return notifyNow;
+    }
+  }
+
+  /** Состояние после одного перехода; то же значение, если лимит уже исчерпан. */
+  public static long clicked(long s) {
+    int max = maxClicksOf(s);
+    int clicks = clicksUsedOf(s);
+    if (clicks >= max) return s;
+
+    int next = clicks + 1;
+    boolean notified = limitNotifiedOf(s) || next >= max;
+    return pack(max, next, notified);
+  }
+
+  public static Outcome outcome(long before, long after) {
+    if (before == after) return Outcome.LIMIT_REACHED;
+    return limitNotifiedOf(after) && !limitNotifiedOf(before)
+        ? Outcome.LIMIT_JUST_REACHED
+        : Outcome.ACCEPTED;
+  }
+
+  public static long pack(int maxClicks, int clicksUsed, boolean limitNotified) {
+    return ((long) maxClicks << 32)
+        | (limitNotified ? NOTIFIED_BIT : 0L)
+        | (clicksUsed & CLICKS_MASK);
+  }
+
+  public static int maxClicksOf(long s) {
+    return (int) (s >>> 32);
+  }
+
+  public static int clicksUsedOf(long s) {
+    return (int) (s & CLICKS_MASK);
+  }
+
+  public static boolean limitNotifiedOf(long s) {
+    return (s & NOTIFIED_BIT) != 0;
+  }
+}
@@ -0,0 +1,15 @@
+package org.com.url_shortener.core.models;
+
+import java.time.Instant;
+import java.util.Arrays;
+
+/** Переходы по ссылке поминутно: {@code perMinute[i]} — минута, начинающаяся в {@code from + i}. */
+public record ClickHistory(String code, Instant from, int[] perMinute) {
+  public long total() {
+    return Arrays.stream(perMinute).asLongStream().sum();
+  }
+
+  public Instant minuteAt(int index) {
+    return from.plusSeconds(60L * index);
+  }
+}
@@ -0,0 +1,21 @@
+package org.com.url_shortener.core.models;
+
+/**
+ * Итог перехода по коду без исключений. Отказы — общие экземпляры без сообщений, так что поток
+ * запросов к мёртвым кодам ничего не выделяет.
+ */
+public sealed interface RedirectResult {
+  NotFound NOT_FOUND = new NotFound();
+  Expired EXPIRED = new Expired();
+  LimitReached LIMIT_REACHED = new LimitReached();
+
+  /** Переход засчитан, вести на {@code url}. */
+  record Redirect(String url) implements RedirectResult {}
+
+  record NotFound() implements RedirectResult {}
+
+  /** Ссылка истекла по TTL и удалена этим запросом или раньше. */
+  record Expired() implements RedirectResult {}
+
+  record LimitReached() implements RedirectResult {}
+}
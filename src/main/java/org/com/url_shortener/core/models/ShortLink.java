@@ -9,9 +9,7 @@ public final class ShortLink {
   private final String originalUrl;
   private final Instant createdAt;
   private final Instant expiresAt;
-  private final int maxClicks;
-  private final int clicksUsed;
-  private final boolean limitNotified;
+  private final ClickCounter clicks;
 
   public ShortLink(
       String code,
@@ -31,9 +29,16 @@ public final class ShortLink {
     if (maxClicks <= 0) throw new IllegalArgumentException("maxClicks must be > 0");
     if (clicksUsed < 0) throw new IllegalArgumentException("clicksUsed must be >= 0");
 
-    this.maxClicks = maxClicks;
-    this.clicksUsed = clicksUsed;
-    this.limitNotified = limitNotified;
+    this.clicks = new ClickCounter(maxClicks, clicksUsed, limitNotified);
+  }
+
+  private ShortLink(ShortLink base, ClickCounter clicks) {
+    this.code = base.code;
+    this.ownerUuid = base.ownerUuid;
+    this.originalUrl = base.originalUrl;
+    this.createdAt = base.createdAt;
+    this.expiresAt = base.expiresAt;
+    this.clicks = clicks;
   }
 
   public String getCode() {
@@ -57,15 +62,15 @@ public final class ShortLink {
   }
 
   public int getMaxClicks() {
-    return maxClicks;
+    return clicks.maxClicks();
   }
 
   public int getClicksUsed() {
-    return clicksUsed;
+    return clicks.clicksUsed();
   }
 
   public boolean isLimitNotified() {
-    return limitNotified;
+    return clicks.limitNotified();
   }
 
   public boolean isExpired(Instant now) {
@@ -73,7 +78,19 @@ public final class ShortLink {
   }
 
   public boolean isLimitReached() {
-    return clicksUsed >= maxClicks;
+    return getClicksUsed() >= getMaxClicks();
+  }
+
+  public ClickCounter.Outcome tryClick() {
+    return clicks.tryClick();
+  }
+
+  public boolean changeMaxClicks(int newMaxClicks) {
+    return clicks.changeMaxClicks(newMaxClicks);
+  }
+
+  public ShortLink snapshot() {
+    return new ShortLink(this, clicks.copy());
   }
 
   public ShortLink withClicksUsed(int newClicksUsed, boolean newLimitNotified) {
@@ -83,7 +100,7 @@ public final class ShortLink {
         originalUrl,
         createdAt,
         expiresAt,
-        maxClicks,
+        getMaxClicks(),
         newClicksUsed,
         newLimitNotified);
   }
@@ -96,7 +113,7 @@ public final class ShortLink {
         createdAt,
         expiresAt,
         newMaxClicks,
-        clicksUsed,
-        limitNotified);
+        getClicksUsed(),
+        isLimitNotified());
   }
 }
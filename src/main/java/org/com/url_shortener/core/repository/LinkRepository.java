@@ -1,9 +1,14 @@
 package org.com.url_shortener.core.repository;
 
 import java.time.Instant;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
+import org.com.url_shortener.core.models.ClickCounter;
 import org.com.url_shortener.core.models.ShortLink;
 
 public interface LinkRepository {
@@ -13,11 +18,53 @@ public interface LinkRepository {
 
   void save(ShortLink link);
 
+  default void saveAll(Collection<ShortLink> links) {
+    for (ShortLink link : links) save(link);
+  }
+
   Optional<ShortLink> update(String code, UnaryOperator<ShortLink> updater);
 
+  default ClickCounter.Outcome recordClick(ShortLink link) {
+    return link.tryClick();
+  }
+
   void deleteByCode(String code);
 
+  default void deleteAllByCode(Collection<String> codes) {
+    for (String code : codes) deleteByCode(code);
+  }
+
   List<ShortLink> findByOwner(String ownerUuid);
 
+  default List<ShortLink> findByOwner(String ownerUuid, String afterCode, int limit) {
+    return findByOwner(ownerUuid).stream()
+        .filter(l -> afterCode == null || l.getCode().compareTo(afterCode) > 0)
+        .sorted(Comparator.comparing(ShortLink::getCode))
+        .limit(limit)
+        .toList();
+  }
+
+  default Stream<ShortLink> streamByOwner(String ownerUuid) {
+    return findByOwner(ownerUuid).stream();
+  }
+
   List<ShortLink> findExpired(Instant now);
+
+  /**
+   * Не больше {@code limit} истёкших ссылок — порция для пошаговой очистки. Повторный вызов после
+   * удаления порции возвращает следующую.
+   */
+  default List<ShortLink> findExpired(Instant now, int limit) {
+    return findExpired(now).stream().limit(limit).toList();
+  }
+
+  default long countExpired(Instant now) {
+    return findExpired(now).size();
+  }
+
+  /**
+   * Обход всех ссылок, например для построения вспомогательных индексов. Обязателен: на нём стоят
+   * фильтр Блума и индекс повторов.
+   */
+  void forEach(Consumer<ShortLink> action);
 }
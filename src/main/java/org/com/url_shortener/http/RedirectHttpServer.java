@@ -0,0 +1,168 @@
+package org.com.url_shortener.http;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.com.url_shortener.core.models.RedirectResult;
+import org.com.url_shortener.infra.hll.HyperLogLog;
+import org.com.url_shortener.infra.metrics.MetricsRegistry;
+import org.com.url_shortener.services.LinkService;
+
+public final class RedirectHttpServer implements AutoCloseable {
+  private static final int BACKLOG = 1024;
+  private static final String METRICS_PATH = "/metrics";
+  private static final String PROMETHEUS_CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+  private static final byte[] NOT_FOUND_BODY =
+      "Ссылка не найдена\n".getBytes(StandardCharsets.UTF_8);
+  private static final byte[] GONE_BODY = "Ссылка недоступна\n".getBytes(StandardCharsets.UTF_8);
+
+  private final HttpServer server;
+  private final ExecutorService executor;
+  private final LinkService linkService;
+  private final int redirectStatus;
+  private final MetricsRegistry metrics;
+
+  public RedirectHttpServer(InetSocketAddress address, LinkService linkService, int redirectStatus)
+      throws IOException {
+    this(address, linkService, redirectStatus, null);
+  }
+
+  /** С непустым {@code metrics} сервер отдаёт метрики в формате Prometheus по {@code /metrics}. */
+  public RedirectHttpServer(
+      InetSocketAddress address,
+      LinkService linkService,
+      int redirectStatus,
+      MetricsRegistry metrics)
+      throws IOException {
+    this.linkService = Objects.requireNonNull(linkService);
+    this.redirectStatus = redirectStatus;
+    this.metrics = metrics;
+    this.executor = Executors.newVirtualThreadPerTaskExecutor();
+    this.server = HttpServer.create(address, BACKLOG);
+    this.server.setExecutor(executor);
+    this.server.createContext("/", this::handle);
+    if (metrics != null) this.server.createContext(METRICS_PATH, this::handleMetrics);
+  }
+
+  public void start() {
+    server.start();
+  }
+
+  public int port() {
+    return server.getAddress().getPort();
+  }
+
+  @Override
+  public void close() {
+    server.stop(0);
+    executor.shutdown();
+  }
+
+  private void handle(HttpExchange exchange) throws IOException {
+    try (exchange) {
+      String method = exchange.getRequestMethod();
+      if (!"GET".equals(method) && !"HEAD".equals(method)) {
+        exchange.getResponseHeaders().set("Allow", "GET, HEAD");
+        exchange.sendResponseHeaders(405, -1);
+        return;
+      }
+
+      String code = extractCode(exchange.getRequestURI().getRawPath());
+      if (code == null) {
+        send(exchange, 404, NOT_FOUND_BODY);
+        return;
+      }
+
+      // HEAD шлют боты предпросмотра и мониторинга — он не должен съедать лимит переходов
+      // хеш посетителя считается лениво: отказам и сервису без подсчёта уникальных он не нужен
+      RedirectResult result =
+          "HEAD".equals(method)
+              ? linkService.peek(code)
+              : linkService.resolve(code, () -> HyperLogLog.hash(visitorId(exchange)));
+      String url;
+      switch (result) {
+        case RedirectResult.Redirect r -> url = r.url();
+        case RedirectResult.NotFound n -> {
+          send(exchange, 404, NOT_FOUND_BODY);
+          return;
+        }
+        case RedirectResult.Expired e -> {
+          send(exchange, 410, GONE_BODY);
+          return;
+        }
+        case RedirectResult.LimitReached l -> {
+          send(exchange, 410, GONE_BODY);
+          return;
+        }
+      }
+
+      exchange.getResponseHeaders().set("Location", url);
+      // Каждый переход должен дойти до сервера, иначе клики не посчитаются.
+      exchange.getResponseHeaders().set("Cache-Control", "no-store");
+      exchange.sendResponseHeaders(redirectStatus, -1);
+    }
+  }
+
+  private void handleMetrics(HttpExchange exchange) throws IOException {
+    try (exchange) {
+      if (!METRICS_PATH.equals(exchange.getRequestURI().getRawPath())) {
+        send(exchange, 404, NOT_FOUND_BODY);
+        return;
+      }
+      if (!"GET".equals(exchange.getRequestMethod())) {
+        exchange.getResponseHeaders().set("Allow", "GET");
+        exchange.sendResponseHeaders(405, -1);
+        return;
+      }
+      byte[] body = metrics.renderPrometheus().getBytes(StandardCharsets.UTF_8);
+      exchange.getResponseHeaders().set("Content-Type", PROMETHEUS_CONTENT_TYPE);
+      exchange.sendResponseHeaders(200, body.length);
+      try (OutputStream out = exchange.getResponseBody()) {
+        out.write(body);
+      }
+    }
+  }
+
+  private static void send(HttpExchange exchange, int status, byte[] body) throws IOException {
+    exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+    if ("HEAD".equals(exchange.getRequestMethod())) {
+      exchange.sendResponseHeaders(status, -1);
+      return;
+    }
+    exchange.sendResponseHeaders(status, body.length);
+    try (OutputStream out = exchange.getResponseBody()) {
+      out.write(body);
+    }
+  }
+
+  /**
+   * Посетитель для подсчёта уникальных — адрес клиента и его User-Agent. Заголовкам прокси вроде
+   * X-Forwarded-For не доверяем: их подставляет сам клиент.
+   */
+  private static String visitorId(HttpExchange exchange) {
+    String agent = exchange.getRequestHeaders().getFirst("User-Agent");
+    return exchange.getRemoteAddress().getAddress().getHostAddress()
+        + '|'
+        + (agent == null ? "" : agent);
+  }
+
+  static String extractCode(String rawPath) {
+    if (rawPath == null || rawPath.length() < 2 || rawPath.charAt(0) != '/') return null;
+    int end = rawPath.length();
+    if (rawPath.charAt(end - 1) == '/') end--;
+    if (end <= 1) return null;
+    for (int i = 1; i < end; i++) {
+      char c = rawPath.charAt(i);
+      boolean base62 = (c >= '0' && c <= '9') || (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+      if (!base62) return null;
+    }
+    return rawPath.substring(1, end);
+  }
+}
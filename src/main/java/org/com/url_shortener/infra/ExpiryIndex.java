@@ -0,0 +1,53 @@
+package org.com.url_shortener.infra;
+
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NavigableSet;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import org.com.url_shortener.core.models.ShortLink;
+
+public final class ExpiryIndex {
+  private record Entry(Instant expiresAt, String code) {}
+
+  private static final Comparator<Entry> ORDER =
+      Comparator.comparing(Entry::expiresAt).thenComparing(Entry::code);
+
+  private final ConcurrentSkipListSet<Entry> entries = new ConcurrentSkipListSet<>(ORDER);
+
+  public void add(ShortLink link) {
+    entries.add(new Entry(link.getExpiresAt(), link.getCode()));
+  }
+
+  public void remove(ShortLink link) {
+    entries.remove(new Entry(link.getExpiresAt(), link.getCode()));
+  }
+
+  public void forEachExpired(Instant now, Consumer<String> codeAction) {
+    for (Entry e : expiredView(now)) codeAction.accept(e.code());
+  }
+
+  /** Обходит истёкшие по возрастанию срока, пока {@code codeAction} возвращает true. */
+  public void forEachExpiredWhile(Instant now, Predicate<String> codeAction) {
+    for (Entry e : expiredView(now)) {
+      if (!codeAction.test(e.code())) return;
+    }
+  }
+
+  public long countExpired(Instant now) {
+    return expiredView(now).size();
+  }
+
+  public Optional<Instant> earliest() {
+    Iterator<Entry> it = entries.iterator();
+    return it.hasNext() ? Optional.of(it.next().expiresAt()) : Optional.empty();
+  }
+
+  private NavigableSet<Entry> expiredView(Instant now) {
+    // ShortLink.isExpired: expiresAt <= now, поэтому граница — now + 1ns (исключительно).
+    return entries.headSet(new Entry(now.plusNanos(1), ""), false);
+  }
+}
@@ -3,14 +3,19 @@ package org.com.url_shortener.infra;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
 import org.com.url_shortener.core.models.ShortLink;
 import org.com.url_shortener.core.repository.LinkRepository;
 
 public final class InMemoryLinkRepository implements LinkRepository {
   private final ConcurrentHashMap<String, ShortLink> map = new ConcurrentHashMap<>();
+  private final ExpiryIndex expiryIndex = new ExpiryIndex();
+  private final OwnerIndex ownerIndex = new OwnerIndex();
 
   @Override
   public Optional<ShortLink> findByCode(String code) {
@@ -24,7 +29,13 @@ public final class InMemoryLinkRepository implements LinkRepository {
 
   @Override
   public void save(ShortLink link) {
-    map.put(link.getCode(), link);
+    map.compute(
+        link.getCode(),
+        (k, old) -> {
+          if (old != null) unindex(old);
+          index(link);
+          return link;
+        });
   }
 
   @Override
@@ -39,6 +50,10 @@ public final class InMemoryLinkRepository implements LinkRepository {
           }
           ShortLink nv = updater.apply(v);
           updated[0] = nv;
+          if (nv != v) {
+            unindex(v);
+            if (nv != null) index(nv);
+          }
           return nv;
         });
     return Optional.ofNullable(updated[0]);
@@ -46,24 +61,76 @@ public final class InMemoryLinkRepository implements LinkRepository {
 
   @Override
   public void deleteByCode(String code) {
-    map.remove(code);
+    map.computeIfPresent(
+        code,
+        (k, v) -> {
+          unindex(v);
+          return null;
+        });
   }
 
   @Override
   public List<ShortLink> findByOwner(String ownerUuid) {
+    return streamByOwner(ownerUuid).toList();
+  }
+
+  @Override
+  public List<ShortLink> findByOwner(String ownerUuid, String afterCode, int limit) {
     List<ShortLink> res = new ArrayList<>();
-    for (ShortLink link : map.values()) {
-      if (link.getOwnerUuid().equals(ownerUuid)) res.add(link);
+    for (String code : ownerIndex.page(ownerUuid, afterCode, limit)) {
+      ShortLink link = map.get(code);
+      if (link != null) res.add(link);
     }
     return res;
   }
 
+  @Override
+  public Stream<ShortLink> streamByOwner(String ownerUuid) {
+    return ownerIndex.codes(ownerUuid).map(map::get).filter(Objects::nonNull);
+  }
+
   @Override
   public List<ShortLink> findExpired(Instant now) {
     List<ShortLink> res = new ArrayList<>();
-    for (ShortLink link : map.values()) {
-      if (link.isExpired(now)) res.add(link);
-    }
+    expiryIndex.forEachExpired(
+        now,
+        code -> {
+          ShortLink link = map.get(code);
+          if (link != null && link.isExpired(now)) res.add(link);
+        });
     return res;
   }
+
+  @Override
+  public List<ShortLink> findExpired(Instant now, int limit) {
+    List<ShortLink> res = new ArrayList<>(Math.min(limit, 1024));
+    expiryIndex.forEachExpiredWhile(
+        now,
+        code -> {
+          ShortLink link = map.get(code);
+          if (link != null && link.isExpired(now)) res.add(link);
+          return res.size() < limit;
+        });
+    return res;
+  }
+
+  @Override
+  public long countExpired(Instant now) {
+    return expiryIndex.countExpired(now);
+  }
+
+  @Override
+  public void forEach(Consumer<ShortLink> action) {
+    map.values().forEach(action);
+  }
+
+  private void index(ShortLink link) {
+    expiryIndex.add(link);
+    ownerIndex.add(link);
+  }
+
+  private void unindex(ShortLink link) {
+    expiryIndex.remove(link);
+    ownerIndex.remove(link);
+  }
 }
@@ -0,0 +1,51 @@
+package org.com.url_shortener.infra;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.stream.Stream;
+import org.com.url_shortener.core.models.ShortLink;
+
+public final class OwnerIndex {
+  private final ConcurrentHashMap<String, ConcurrentSkipListSet<String>> codesByOwner =
+      new ConcurrentHashMap<>();
+
+  public void add(ShortLink link) {
+    codesByOwner.compute(
+        link.getOwnerUuid(),
+        (owner, codes) -> {
+          if (codes == null) codes = new ConcurrentSkipListSet<>();
+          codes.add(link.getCode());
+          return codes;
+        });
+  }
+
+  public void remove(ShortLink link) {
+    codesByOwner.computeIfPresent(
+        link.getOwnerUuid(),
+        (owner, codes) -> {
+          codes.remove(link.getCode());
+          return codes.isEmpty() ? null : codes;
+        });
+  }
+
+  public Stream<String> codes(String ownerUuid) {
+    NavigableSet<String> codes = codesByOwner.get(ownerUuid);
+    return codes == null ? Stream.empty() : codes.stream();
+  }
+
+  public List<String> page(String ownerUuid, String afterCode, int limit) {
+    NavigableSet<String> codes = codesByOwner.get(ownerUuid);
+    if (codes == null || limit <= 0) return List.of();
+
+    NavigableSet<String> tail = (afterCode == null) ? codes : codes.tailSet(afterCode, false);
+    List<String> res = new ArrayList<>(Math.min(limit, 64));
+    for (String code : tail) {
+      res.add(code);
+      if (res.size() == limit) break;
+    }
+    return res;
+  }
+}
@@ -0,0 +1,84 @@
+package org.com.url_shortener.infra.bloom;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * Потокобезопасный Bloom-фильтр по строковым ключам. Биты выставляются атомарным OR, поэтому
+ * добавления не блокируют друг друга, а чтение — k volatile-чтений без аллокаций. Удаления не
+ * поддерживаются: устаревшие биты дают только ложноположительные ответы.
+ */
+final class BloomFilter {
+  private static final VarHandle WORDS = MethodHandles.arrayElementVarHandle(long[].class);
+
+  private final long[] words;
+  private final long bitMask;
+  private final int hashes;
+  private final long expectedInsertions;
+
+  BloomFilter(long expectedInsertions, double falsePositiveRate) {
+    if (expectedInsertions <= 0)
+      throw new IllegalArgumentException("expectedInsertions must be > 0");
+    double ln2 = Math.log(2);
+    long optimalBits =
+        (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveRate) / (ln2 * ln2));
+    long bits = Math.max(64, Long.highestOneBit(optimalBits - 1) << 1);
+    if (bits > (1L << 36)) throw new IllegalArgumentException("Bloom filter too large: " + bits);
+    this.words = new long[(int) (bits >>> 6)];
+    this.bitMask = bits - 1;
+    this.hashes = Math.max(1, (int) Math.round(-Math.log(falsePositiveRate) / ln2));
+    this.expectedInsertions = expectedInsertions;
+  }
+
+  long expectedInsertions() {
+    return expectedInsertions;
+  }
+
+  /** Оценка числа добавленных ключей по доле выставленных битов: n ≈ -(m/k)·ln(1 - X/m). */
+  long approximateCount() {
+    long set = 0;
+    for (int i = 0; i < words.length; i++) set += Long.bitCount((long) WORDS.getVolatile(words, i));
+    double bits = bitMask + 1.0;
+    if (set >= bits) return Long.MAX_VALUE;
+    return Math.round(-bits / hashes * Math.log(1 - set / bits));
+  }
+
+  void add(String key) {
+    long h = hash(key);
+    long h1 = h;
+    long h2 = (h >>> 32) | (h << 32) | 1;
+    for (int i = 0; i < hashes; i++) {
+      long bit = (h1 + i * h2) & bitMask;
+      int word = (int) (bit >>> 6);
+      long mask = 1L << bit;
+      if (((long) WORDS.getVolatile(words, word) & mask) == 0) {
+        WORDS.getAndBitwiseOr(words, word, mask);
+      }
+    }
+  }
+
+  /** false — ключа точно нет; true — возможно есть. */
+  boolean mightContain(String key) {
+    long h = hash(key);
+    long h1 = h;
+    long h2 = (h >>> 32) | (h << 32) | 1;
+    for (int i = 0; i < hashes; i++) {
+      long bit = (h1 + i * h2) & bitMask;
+      if (((long) WORDS.getVolatile(words, (int) (bit >>> 6)) & (1L << bit)) == 0) return false;
+    }
+    return true;
+  }
+
+  /** 64-битный FNV-1a по символам с финальным перемешиванием. */
+  private static long hash(String key) {
+    long h = 0xcbf29ce484222325L;
+    for (int i = 0; i < key.length(); i++) {
+      h ^= key.charAt(i);
+      h *= 0x100000001b3L;
+    }
+    h ^= h >>> 33;
+    h *= 0xff51afd7ed558ccdL;
+    h ^= h >>> 33;
+    return h;
+  }
+}
@@ -0,0 +1,203 @@
+package org.com.url_shortener.infra.bloom;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
+import org.com.url_shortener.core.models.ClickCounter;
+import org.com.url_shortener.core.models.ShortLink;
+import org.com.url_shortener.core.repository.LinkRepository;
+
+/**
+ * Отсекает обращения к заведомо несуществующим кодам до хранилища: {@link #findByCode} и {@link
+ * #existsByCode} сначала спрашивают {@link BloomFilter}. Заодно это ускоряет {@code CodeGenerator}:
+ * проверка свободного кода почти всегда заканчивается на фильтре.
+ *
+ * <p>Код попадает в фильтр до записи в хранилище и ещё раз после, поэтому ложноотрицательных
+ * ответов нет и во время перестройки. Удаления фильтр не трогают; когда удалённых набирается много
+ * или ссылок становится больше расчётного, фильтр перестраивается в фоне обходом хранилища.
+ */
+public final class BloomFilteredLinkRepository implements LinkRepository {
+  private static final double FALSE_POSITIVE_RATE = 0.01;
+
+  private final LinkRepository delegate;
+  private final long minExpected;
+  private final AtomicBoolean rebuildScheduled = new AtomicBoolean();
+  private final LongAdder inserted = new LongAdder();
+  private final LongAdder deleted = new LongAdder();
+  private final LongAdder rejected = new LongAdder();
+
+  private volatile BloomFilter current;
+  private volatile BloomFilter pending;
+
+  public BloomFilteredLinkRepository(LinkRepository delegate, long expectedCodes) {
+    this.delegate = Objects.requireNonNull(delegate);
+    this.minExpected = expectedCodes;
+    BloomFilter initial = new BloomFilter(expectedCodes, FALSE_POSITIVE_RATE);
+    delegate.forEach(
+        link -> {
+          initial.add(link.getCode());
+          inserted.increment();
+        });
+    this.current = initial;
+  }
+
+  @Override
+  public Optional<ShortLink> findByCode(String code) {
+    if (!current.mightContain(code)) {
+      rejected.increment();
+      return Optional.empty();
+    }
+    return delegate.findByCode(code);
+  }
+
+  /**
+   * Отказы здесь в {@link #rejectedLookups} не считаются — это в основном пробы генератора кодов.
+   */
+  @Override
+  public boolean existsByCode(String code) {
+    if (!current.mightContain(code)) return false;
+    return delegate.existsByCode(code);
+  }
+
+  @Override
+  public void save(ShortLink link) {
+    String code = link.getCode();
+    addToFilters(code);
+    delegate.save(link);
+    addToFilters(code);
+    inserted.increment();
+    maybeRebuild();
+  }
+
+  @Override
+  public void saveAll(Collection<ShortLink> links) {
+    for (ShortLink link : links) addToFilters(link.getCode());
+    delegate.saveAll(links);
+    for (ShortLink link : links) addToFilters(link.getCode());
+    inserted.add(links.size());
+    maybeRebuild();
+  }
+
+  @Override
+  public Optional<ShortLink> update(String code, UnaryOperator<ShortLink> updater) {
+    if (!current.mightContain(code)) return Optional.empty();
+    boolean[] existed = new boolean[1];
+    Optional<ShortLink> result =
+        delegate.update(
+            code,
+            l -> {
+              existed[0] = true;
+              return updater.apply(l);
+            });
+    if (existed[0] && result.isEmpty()) {
+      deleted.increment();
+      maybeRebuild();
+    }
+    return result;
+  }
+
+  @Override
+  public ClickCounter.Outcome recordClick(ShortLink link) {
+    return delegate.recordClick(link);
+  }
+
+  @Override
+  public void deleteByCode(String code) {
+    delegate.deleteByCode(code);
+    deleted.increment();
+    maybeRebuild();
+  }
+
+  @Override
+  public void deleteAllByCode(Collection<String> codes) {
+    delegate.deleteAllByCode(codes);
+    deleted.add(codes.size());
+    maybeRebuild();
+  }
+
+  @Override
+  public List<ShortLink> findByOwner(String ownerUuid) {
+    return delegate.findByOwner(ownerUuid);
+  }
+
+  @Override
+  public List<ShortLink> findByOwner(String ownerUuid, String afterCode, int limit) {
+    return delegate.findByOwner(ownerUuid, afterCode, limit);
+  }
+
+  @Override
+  public Stream<ShortLink> streamByOwner(String ownerUuid) {
+    return delegate.streamByOwner(ownerUuid);
+  }
+
+  @Override
+  public List<ShortLink> findExpired(Instant now) {
+    return delegate.findExpired(now);
+  }
+
+  @Override
+  public List<ShortLink> findExpired(Instant now, int limit) {
+    return delegate.findExpired(now, limit);
+  }
+
+  @Override
+  public long countExpired(Instant now) {
+    return delegate.countExpired(now);
+  }
+
+  @Override
+  public void forEach(Consumer<ShortLink> action) {
+    delegate.forEach(action);
+  }
+
+  /** Сколько {@link #findByCode} отсечено фильтром, не дойдя до хранилища. */
+  public long rejectedLookups() {
+    return rejected.sum();
+  }
+
+  /** Перестраивает фильтр синхронно; обычно это делается в фоне само. */
+  public synchronized void rebuild() {
+    try {
+      long live = Math.max(0, inserted.sum() - deleted.sum());
+      BloomFilter fresh = new BloomFilter(Math.max(minExpected, live * 2), FALSE_POSITIVE_RATE);
+      long deletedBefore = deleted.sum();
+      // с этого момента каждая завершённая запись попадает и в новый фильтр
+      pending = fresh;
+      delegate.forEach(link -> fresh.add(link.getCode()));
+      // счётчики под новый фильтр: записи, идущие параллельно, в нём уже есть, а удаления во время
+      // обхода могли оставить свои биты — их сохраняем
+      inserted.add(fresh.approximateCount() - inserted.sum());
+      deleted.add(-deletedBefore);
+      current = fresh;
+    } finally {
+      pending = null;
+      rebuildScheduled.set(false);
+    }
+  }
+
+  private void addToFilters(String code) {
+    // pending читается раньше current: увидев null после подмены, запись попадёт в новый current
+    BloomFilter p = pending;
+    current.add(code);
+    if (p != null) p.add(code);
+  }
+
+  private void maybeRebuild() {
+    BloomFilter filter = current;
+    long ins = inserted.sum();
+    long del = deleted.sum();
+    boolean overfilled = ins > filter.expectedInsertions();
+    boolean stale = del > 1024 && del * 2 > ins;
+    if ((overfilled || stale) && rebuildScheduled.compareAndSet(false, true)) {
+      CompletableFuture.runAsync(this::rebuild);
+    }
+  }
+}
@@ -0,0 +1,345 @@
+package org.com.url_shortener.infra.cache;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
+import org.com.url_shortener.core.models.ClickCounter;
+import org.com.url_shortener.core.models.ShortLink;
+import org.com.url_shortener.core.repository.LinkRepository;
+
+/**
+ * Read-through кэш горячих ссылок перед любым {@link LinkRepository}. Ключи разложены по полосам, в
+ * каждой — сегментированный LRU: новая запись попадает в испытательный сегмент и переходит в
+ * защищённый только при повторном обращении, так что разовые коды не вытесняют горячие. Запись
+ * живёт не дольше {@link ShortLink#getExpiresAt()}, любые изменения ссылки через репозиторий её
+ * инвалидируют.
+ *
+ * <p>Попадание не берёт блокировку: значение читается из {@link ConcurrentHashMap}, а обращение
+ * кладётся в маленький кольцевой буфер полосы. Порядок LRU обновляется пачкой, когда буфер
+ * наполовину полон и блокировка полосы свободна; если буфер полон, обращение просто теряется —
+ * горячий код всё равно попадёт в следующие.
+ *
+ * <p>Кэшируется тот же экземпляр, что вернул нижний репозиторий, поэтому переходы по-прежнему
+ * считает он через {@link #recordClick}.
+ */
+public final class CachingLinkRepository implements LinkRepository {
+  private static final int STRIPES = 16;
+  private static final int STRIPE_SHIFT = Integer.SIZE - Integer.numberOfTrailingZeros(STRIPES);
+  private static final double PROTECTED_SHARE = 0.8;
+
+  private final LinkRepository delegate;
+  private final Clock clock;
+  private final Stripe[] stripes = new Stripe[STRIPES];
+
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+
+  public CachingLinkRepository(LinkRepository delegate, int capacity, Clock clock) {
+    if (capacity < STRIPES) throw new IllegalArgumentException("capacity must be >= " + STRIPES);
+    this.delegate = Objects.requireNonNull(delegate);
+    this.clock = Objects.requireNonNull(clock);
+    for (int i = 0; i < STRIPES; i++) stripes[i] = new Stripe(capacity / STRIPES);
+  }
+
+  @Override
+  public Optional<ShortLink> findByCode(String code) {
+    Stripe stripe = stripe(code);
+    ShortLink cached = stripe.index.get(code);
+    if (cached != null) {
+      if (!cached.isExpired(clock.instant())) {
+        hits.increment();
+        stripe.recordAccess(code);
+        return Optional.of(cached);
+      }
+      stripe.removeExpired(code, cached);
+    }
+    long version = stripe.version;
+    misses.increment();
+
+    Optional<ShortLink> loaded = delegate.findByCode(code);
+    if (loaded.isPresent()) stripe.putIfUnchanged(code, loaded.get(), version);
+    return loaded;
+  }
+
+  @Override
+  public boolean existsByCode(String code) {
+    ShortLink cached = stripe(code).index.get(code);
+    if (cached != null && !cached.isExpired(clock.instant())) return true;
+    return delegate.existsByCode(code);
+  }
+
+  @Override
+  public void save(ShortLink link) {
+    try {
+      delegate.save(link);
+    } finally {
+      invalidate(link.getCode());
+    }
+  }
+
+  @Override
+  public void saveAll(Collection<ShortLink> links) {
+    try {
+      delegate.saveAll(links);
+    } finally {
+      for (ShortLink link : links) invalidate(link.getCode());
+    }
+  }
+
+  @Override
+  public Optional<ShortLink> update(String code, UnaryOperator<ShortLink> updater) {
+    try {
+      return delegate.update(code, updater);
+    } finally {
+      invalidate(code);
+    }
+  }
+
+  @Override
+  public ClickCounter.Outcome recordClick(ShortLink link) {
+    return delegate.recordClick(link);
+  }
+
+  @Override
+  public void deleteByCode(String code) {
+    try {
+      delegate.deleteByCode(code);
+    } finally {
+      invalidate(code);
+    }
+  }
+
+  @Override
+  public void deleteAllByCode(Collection<String> codes) {
+    try {
+      delegate.deleteAllByCode(codes);
+    } finally {
+      for (String code : codes) invalidate(code);
+    }
+  }
+
+  @Override
+  public List<ShortLink> findByOwner(String ownerUuid) {
+    return delegate.findByOwner(ownerUuid);
+  }
+
+  @Override
+  public List<ShortLink> findByOwner(String ownerUuid, String afterCode, int limit) {
+    return delegate.findByOwner(ownerUuid, afterCode, limit);
+  }
+
+  @Override
+  public Stream<ShortLink> streamByOwner(String ownerUuid) {
+    return delegate.streamByOwner(ownerUuid);
+  }
+
+  @Override
+  public List<ShortLink> findExpired(Instant now) {
+    return delegate.findExpired(now);
+  }
+
+  @Override
+  public List<ShortLink> findExpired(Instant now, int limit) {
+    return delegate.findExpired(now, limit);
+  }
+
+  @Override
+  public long countExpired(Instant now) {
+    return delegate.countExpired(now);
+  }
+
+  @Override
+  public void forEach(Consumer<ShortLink> action) {
+    delegate.forEach(action);
+  }
+
+  public CacheStats stats() {
+    long size = 0;
+    long evictions = 0;
+    for (Stripe s : stripes) {
+      size += s.index.size();
+      evictions += s.evictions;
+    }
+    return new CacheStats(hits.sum(), misses.sum(), evictions, size);
+  }
+
+  private void invalidate(String code) {
+    stripe(code).invalidate(code);
+  }
+
+  private Stripe stripe(String code) {
+    // полосу выбирают старшие биты: младшие берут хэш-таблицы внутри полосы, и при выборе по ним
+    // все ключи полосы легли бы в 1/16 корзин
+    return stripes[(code.hashCode() * 0x9E3779B9) >>> STRIPE_SHIFT];
+  }
+
+  public record CacheStats(long hits, long misses, long evictions, long size) {
+    public double hitRate() {
+      long total = hits + misses;
+      return total == 0 ? 0 : (double) hits / total;
+    }
+  }
+
+  /**
+   * Полоса: индекс для чтения без блокировок и сегментированный LRU, который меняется только под
+   * {@link #lock}. В LRU лежат те же ключи, что в индексе; вытеснение из LRU убирает ключ и из
+   * индекса.
+   */
+  private static final class Stripe {
+    private final int protectedCapacity;
+    private final int probationCapacity;
+    final ConcurrentHashMap<String, ShortLink> index = new ConcurrentHashMap<>();
+    private final LinkedHashMap<String, ShortLink> probation = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<String, ShortLink> protectedSegment =
+        new LinkedHashMap<>(16, 0.75f, true);
+    private final ReentrantLock lock = new ReentrantLock();
+    private final ReadBuffer reads = new ReadBuffer();
+    volatile long version;
+    volatile long evictions;
+
+    Stripe(int capacity) {
+      this.protectedCapacity = Math.max(1, (int) (capacity * PROTECTED_SHARE));
+      this.probationCapacity = Math.max(1, capacity - protectedCapacity);
+    }
+
+    void recordAccess(String code) {
+      boolean accepted = reads.offer(code);
+      if ((!accepted || reads.pending() >= ReadBuffer.DRAIN_THRESHOLD) && lock.tryLock()) {
+        try {
+          drainReads();
+        } finally {
+          lock.unlock();
+        }
+      }
+    }
+
+    /** Кладёт загруженную ссылку, если за время чтения её не инвалидировали. */
+    void putIfUnchanged(String code, ShortLink link, long seenVersion) {
+      lock.lock();
+      try {
+        drainReads();
+        if (version != seenVersion) return;
+        index.put(code, link);
+        if (protectedSegment.containsKey(code)) {
+          protectedSegment.put(code, link);
+          return;
+        }
+        probation.put(code, link);
+        trimProbation();
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    void removeExpired(String code, ShortLink expired) {
+      lock.lock();
+      try {
+        if (index.remove(code, expired)) removeFromLru(code);
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    void invalidate(String code) {
+      lock.lock();
+      try {
+        index.remove(code);
+        removeFromLru(code);
+        version++;
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    private void drainReads() {
+      reads.drain(this::touch);
+    }
+
+    /** Повторное обращение: из испытательного сегмента — в защищённый, в защищённом — в конец. */
+    private void touch(String code) {
+      ShortLink link = probation.remove(code);
+      if (link != null) {
+        promote(code, link);
+      } else {
+        protectedSegment.get(code);
+      }
+    }
+
+    private void removeFromLru(String code) {
+      if (protectedSegment.remove(code) == null) probation.remove(code);
+    }
+
+    private void promote(String code, ShortLink link) {
+      protectedSegment.put(code, link);
+      if (protectedSegment.size() <= protectedCapacity) return;
+      // самая давняя защищённая запись получает ещё один шанс в испытательном сегменте
+      Map.Entry<String, ShortLink> eldest = protectedSegment.entrySet().iterator().next();
+      protectedSegment.remove(eldest.getKey());
+      probation.put(eldest.getKey(), eldest.getValue());
+      trimProbation();
+    }
+
+    private void trimProbation() {
+      var it = probation.entrySet().iterator();
+      while (probation.size() > probationCapacity && it.hasNext()) {
+        index.remove(it.next().getKey());
+        it.remove();
+        evictions++;
+      }
+    }
+  }
+
+  /**
+   * Кольцевой буфер обращений с потерями: писатели занимают слот CAS-ом по счётчику, читатель
+   * разбирает его под блокировкой полосы. Слот освобождается до того, как сдвигается {@code
+   * drained}, поэтому писатель не затрёт неразобранную запись.
+   */
+  private static final class ReadBuffer {
+    static final int SIZE = 64;
+    static final int DRAIN_THRESHOLD = SIZE / 2;
+
+    private final AtomicReferenceArray<String> slots = new AtomicReferenceArray<>(SIZE);
+    private final AtomicLong written = new AtomicLong();
+    private volatile long drained;
+
+    /** false — буфер полон или слот перехватили, обращение не записано. */
+    boolean offer(String code) {
+      long w = written.get();
+      if (w - drained >= SIZE || !written.compareAndSet(w, w + 1)) return false;
+      slots.lazySet((int) (w & (SIZE - 1)), code);
+      return true;
+    }
+
+    long pending() {
+      return written.get() - drained;
+    }
+
+    /** Вызывается под блокировкой полосы. */
+    void drain(Consumer<String> sink) {
+      long r = drained;
+      long w = written.get();
+      for (; r < w; r++) {
+        int i = (int) (r & (SIZE - 1));
+        String code = slots.get(i);
+        // писатель занял слот, но ещё не записал — дочитаем в следующий раз
+        if (code == null) break;
+        slots.lazySet(i, null);
+        sink.accept(code);
+      }
+      drained = r;
+    }
+  }
+}
@@ -1,15 +1,127 @@
 package org.com.url_shortener.infra.cfg;
 
 import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
 
 public interface AppConfig {
   String baseUrl();
 
+  /** Внешний файл настроек поверх ресурса, который перечитывается при изменении. */
+  default Optional<Path> configFile() {
+    return Optional.empty();
+  }
+
   long ttlSeconds();
 
   int defaultMaxClicks();
 
   long cleanupIntervalSeconds();
 
+  /** Размер порции фоновой очистки. */
+  default int cleanupBatchSize() {
+    return 1000;
+  }
+
+  /** Сколько времени фоновая очистка может занять за один проход. */
+  default long cleanupBudgetMillis() {
+    return 20;
+  }
+
   Path userUuidFile();
+
+  default RunMode mode() {
+    return RunMode.CLI;
+  }
+
+  /**
+   * Команды CLI из конвейера: без приглашения и очистки перед командой, ответ строкой TSV/JSONL.
+   */
+  default CliBatchMode cliBatch() {
+    return CliBatchMode.AUTO;
+  }
+
+  default int httpPort() {
+    return 8080;
+  }
+
+  default int httpRedirectStatus() {
+    return 302;
+  }
+
+  default StorageKind storage() {
+    return StorageKind.MEMORY;
+  }
+
+  default Path storageDir() {
+    return Path.of(System.getProperty("user.home"), ".url-shortener-cli", "data");
+  }
+
+  default long walClickFlushMillis() {
+    return 20;
+  }
+
+  default long walCompactThresholdBytes() {
+    return 64L * 1024 * 1024;
+  }
+
+  default int offHeapInitialCapacity() {
+    return 1 << 16;
+  }
+
+  /** Число независимых шардов для хранилищ memory и offheap; 1 — без шардирования. */
+  default int storageShards() {
+    return 1;
+  }
+
+  /** Идентификатор этого узла в {@link #clusterNodes()}. */
+  default String clusterNodeId() {
+    return "";
+  }
+
+  /** Состав кластера записями {@code id@host:port}; пустой список — одиночный режим. */
+  default List<String> clusterNodes() {
+    return List.of();
+  }
+
+  default int clusterVirtualNodes() {
+    return 128;
+  }
+
+  /** Глубина поминутной истории переходов по ссылке; 0 — история не ведётся. */
+  default int analyticsRetentionMinutes() {
+    return 0;
+  }
+
+  /** Точность скетча уникальных посетителей ссылки (2^p регистров); 0 — не считаются. */
+  default int analyticsUniquesPrecision() {
+    return 0;
+  }
+
+  /** Повторное создание ссылки владельцем на тот же URL возвращает его живую ссылку. */
+  default boolean dedupeUrls() {
+    return false;
+  }
+
+  default CodeStrategyKind codeStrategy() {
+    return CodeStrategyKind.RANDOM;
+  }
+
+  /** Ёмкость кэша горячих ссылок перед хранилищем; 0 — без кэша. */
+  default int cacheCapacity() {
+    return 0;
+  }
+
+  /** Расчётное число кодов для Bloom-фильтра промахов; 0 — без фильтра. */
+  default long bloomExpectedCodes() {
+    return 0;
+  }
+
+  default int notifyQueueCapacity() {
+    return 4096;
+  }
+
+  default BackpressurePolicy notifyBackpressure() {
+    return BackpressurePolicy.CALLER_RUNS;
+  }
 }
@@ -0,0 +1,17 @@
+package org.com.url_shortener.infra.cfg;
+
+import java.util.Locale;
+
+/** Что делать с уведомлением, когда очередь асинхронной доставки заполнена. */
+public enum BackpressurePolicy {
+  /** Отбросить новое уведомление и учесть его в счётчике потерь. */
+  DROP,
+  /** Ждать, пока фоновый поток освободит место. */
+  BLOCK,
+  /** Доставить синхронно в вызывающем потоке. */
+  CALLER_RUNS;
+
+  public static BackpressurePolicy parse(String raw) {
+    return BackpressurePolicy.valueOf(raw.trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+  }
+}
@@ -0,0 +1,18 @@
+package org.com.url_shortener.infra.cfg;
+
+import java.util.Locale;
+
+/**
+ * Пакетный режим CLI: auto — если stdin не терминал (вывод TSV; распознаётся через /proc, на других
+ * системах — диалог), off — всегда диалог.
+ */
+public enum CliBatchMode {
+  AUTO,
+  OFF,
+  TSV,
+  JSONL;
+
+  public static CliBatchMode parse(String raw) {
+    return CliBatchMode.valueOf(raw.trim().toUpperCase(Locale.ROOT));
+  }
+}
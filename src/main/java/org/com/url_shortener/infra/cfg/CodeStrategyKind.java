@@ -0,0 +1,12 @@
+package org.com.url_shortener.infra.cfg;
+
+import java.util.Locale;
+
+public enum CodeStrategyKind {
+  RANDOM,
+  SEQUENCE;
+
+  public static CodeStrategyKind parse(String raw) {
+    return CodeStrategyKind.valueOf(raw.trim().toUpperCase(Locale.ROOT));
+  }
+}
@@ -0,0 +1,77 @@
+package org.com.url_shortener.infra.cfg;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+
+/** Все настройки, разобранные один раз: чтение — обращение к полю без разбора строк. */
+public record ConfigSnapshot(
+    String baseUrl,
+    Optional<Path> configFile,
+    long ttlSeconds,
+    int defaultMaxClicks,
+    long cleanupIntervalSeconds,
+    int cleanupBatchSize,
+    long cleanupBudgetMillis,
+    Path userUuidFile,
+    RunMode mode,
+    CliBatchMode cliBatch,
+    int httpPort,
+    int httpRedirectStatus,
+    StorageKind storage,
+    Path storageDir,
+    long walClickFlushMillis,
+    long walCompactThresholdBytes,
+    int offHeapInitialCapacity,
+    int storageShards,
+    String clusterNodeId,
+    List<String> clusterNodes,
+    int clusterVirtualNodes,
+    int analyticsRetentionMinutes,
+    int analyticsUniquesPrecision,
+    boolean dedupeUrls,
+    CodeStrategyKind codeStrategy,
+    int cacheCapacity,
+    long bloomExpectedCodes,
+    int notifyQueueCapacity,
+    BackpressurePolicy notifyBackpressure)
+    implements AppConfig {
+
+  public ConfigSnapshot {
+    clusterNodes = List.copyOf(clusterNodes);
+  }
+
+  /** Снимает все значения с {@code source}; предупреждения о неверных значениях — один раз. */
+  public static ConfigSnapshot of(AppConfig source) {
+    return new ConfigSnapshot(
+        source.baseUrl(),
+        source.configFile(),
+        source.ttlSeconds(),
+        source.defaultMaxClicks(),
+        source.cleanupIntervalSeconds(),
+        source.cleanupBatchSize(),
+        source.cleanupBudgetMillis(),
+        source.userUuidFile(),
+        source.mode(),
+        source.cliBatch(),
+        source.httpPort(),
+        source.httpRedirectStatus(),
+        source.storage(),
+        source.storageDir(),
+        source.walClickFlushMillis(),
+        source.walCompactThresholdBytes(),
+        source.offHeapInitialCapacity(),
+        source.storageShards(),
+        source.clusterNodeId(),
+        source.clusterNodes(),
+        source.clusterVirtualNodes(),
+        source.analyticsRetentionMinutes(),
+        source.analyticsUniquesPrecision(),
+        source.dedupeUrls(),
+        source.codeStrategy(),
+        source.cacheCapacity(),
+        source.bloomExpectedCodes(),
+        source.notifyQueueCapacity(),
+        source.notifyBackpressure());
+  }
+}
@@ -3,23 +3,72 @@ package org.com.url_shortener.infra.cfg;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
 import java.util.Properties;
+import java.util.function.Function;
+import org.com.url_shortener.infra.hll.HyperLogLog;
 
 public final class PropertiesAppConfig implements AppConfig {
   private static final String DEFAULT_BASE_URL = "short";
   private static final long DEFAULT_TTL_SECONDS = 86400; // 24h
   private static final int DEFAULT_DEFAULT_MAX_CLICKS = 10;
   private static final long DEFAULT_CLEANUP_INTERVAL_SECONDS = 30;
+  private static final int DEFAULT_CLEANUP_BATCH_SIZE = 1000;
+  private static final long DEFAULT_CLEANUP_BUDGET_MILLIS = 20;
   private static final String DEFAULT_USER_UUID_FILE = ".url-shortener-cli/user.uuid";
+  private static final RunMode DEFAULT_MODE = RunMode.CLI;
+  private static final CliBatchMode DEFAULT_CLI_BATCH = CliBatchMode.AUTO;
+  private static final int DEFAULT_HTTP_PORT = 8080;
+  private static final int DEFAULT_HTTP_REDIRECT_STATUS = 302;
+  private static final StorageKind DEFAULT_STORAGE = StorageKind.MEMORY;
+  private static final String DEFAULT_STORAGE_DIR = ".url-shortener-cli/data";
+  private static final long DEFAULT_WAL_CLICK_FLUSH_MILLIS = 20;
+  private static final long DEFAULT_WAL_COMPACT_THRESHOLD_BYTES = 64L * 1024 * 1024;
+  private static final int DEFAULT_OFFHEAP_INITIAL_CAPACITY = 1 << 16;
+  private static final int DEFAULT_STORAGE_SHARDS = 1;
+  private static final int MAX_STORAGE_SHARDS = 1024;
+  private static final int DEFAULT_CLUSTER_VIRTUAL_NODES = 128;
+  private static final int DEFAULT_ANALYTICS_RETENTION_MINUTES = 24 * 60;
+  private static final int MAX_ANALYTICS_RETENTION_MINUTES = 30 * 24 * 60;
+  private static final int DEFAULT_ANALYTICS_UNIQUES_PRECISION = 10;
+  private static final CodeStrategyKind DEFAULT_CODE_STRATEGY = CodeStrategyKind.RANDOM;
+  private static final int DEFAULT_CACHE_CAPACITY = 65_536;
+  private static final long DEFAULT_BLOOM_EXPECTED_CODES = 1_000_000;
+  private static final int DEFAULT_NOTIFY_QUEUE_CAPACITY = 4096;
+  private static final BackpressurePolicy DEFAULT_NOTIFY_BACKPRESSURE =
+      BackpressurePolicy.CALLER_RUNS;
 
   private final Properties props;
+  private final AppConfig previous;
 
   public PropertiesAppConfig(String resourceName) {
-    this.props = new Properties();
+    this(loadResource(resourceName));
+  }
+
+  /** Настройки из готового набора свойств; системные свойства по-прежнему важнее. */
+  public PropertiesAppConfig(Properties props) {
+    this(props, null);
+  }
+
+  /**
+   * @param previous действующие настройки, если набор перечитан на лету: неверное значение ключа
+   *     тогда заменяется прежним, а не встроенным по умолчанию; {@code null} — при старте
+   */
+  public PropertiesAppConfig(Properties props, AppConfig previous) {
+    this.props = props;
+    this.previous = previous;
+  }
+
+  /** Свойства из ресурса classpath; если его нет или он не читается — пустой набор. */
+  public static Properties loadResource(String resourceName) {
+    Properties props = new Properties();
     try (InputStream in =
         PropertiesAppConfig.class.getClassLoader().getResourceAsStream(resourceName)) {
       if (in != null) {
-        this.props.load(in);
+        props.load(in);
       } else {
         System.err.println(
             "[WARN] Config resource not found: " + resourceName + " — using default settings.");
@@ -32,6 +81,7 @@ public final class PropertiesAppConfig implements AppConfig {
               + e.getMessage()
               + ")");
     }
+    return props;
   }
 
   private String get(String key) {
@@ -47,28 +97,42 @@ public final class PropertiesAppConfig implements AppConfig {
     return (v == null || v.isBlank()) ? def : v;
   }
 
-  private long getLongOrDefault(String key, long def) {
+  private long getLongOrDefault(String key, long def, Function<AppConfig, Long> current) {
     String v = get(key);
     if (v == null || v.isBlank()) return def;
     try {
       long parsed = Long.parseLong(v);
-      return parsed > 0 ? parsed : def;
-    } catch (NumberFormatException e) {
-      System.err.println("[WARN] Invalid long for " + key + ": " + v + " — using default " + def);
-      return def;
+      if (parsed > 0) return parsed;
+    } catch (NumberFormatException ignored) {
     }
+    return invalid(key, v, def, current);
   }
 
-  private int getIntOrDefault(String key, int def) {
+  private int getIntOrDefault(String key, int def, Function<AppConfig, Integer> current) {
     String v = get(key);
     if (v == null || v.isBlank()) return def;
     try {
       int parsed = Integer.parseInt(v);
-      return parsed > 0 ? parsed : def;
-    } catch (NumberFormatException e) {
-      System.err.println("[WARN] Invalid int for " + key + ": " + v + " — using default " + def);
-      return def;
+      if (parsed > 0) return parsed;
+    } catch (NumberFormatException ignored) {
     }
+    return invalid(key, v, def, current);
+  }
+
+  /**
+   * Значение ключа отвергнуто: при перечитывании остаётся действующее, иначе берётся встроенное по
+   * умолчанию.
+   */
+  private <T> T invalid(String key, Object value, T def, Function<AppConfig, T> current) {
+    T fallback = previous == null ? def : current.apply(previous);
+    System.err.println(
+        "[WARN] Invalid "
+            + key
+            + ": "
+            + value
+            + (previous == null ? " — using default " : " — keeping current ")
+            + fallback);
+    return fallback;
   }
 
   @Override
@@ -76,28 +140,257 @@ public final class PropertiesAppConfig implements AppConfig {
     return getOrDefault("app.baseUrl", DEFAULT_BASE_URL);
   }
 
+  @Override
+  public Optional<Path> configFile() {
+    String v = get("app.config.file");
+    return (v == null || v.isBlank()) ? Optional.empty() : Optional.of(Path.of(v));
+  }
+
   @Override
   public long ttlSeconds() {
-    return getLongOrDefault("app.ttlSeconds", DEFAULT_TTL_SECONDS);
+    return getLongOrDefault("app.ttlSeconds", DEFAULT_TTL_SECONDS, AppConfig::ttlSeconds);
   }
 
   @Override
   public int defaultMaxClicks() {
-    return getIntOrDefault("app.defaultMaxClicks", DEFAULT_DEFAULT_MAX_CLICKS);
+    return getIntOrDefault(
+        "app.defaultMaxClicks", DEFAULT_DEFAULT_MAX_CLICKS, AppConfig::defaultMaxClicks);
   }
 
   @Override
   public long cleanupIntervalSeconds() {
-    return getLongOrDefault("app.cleanupIntervalSeconds", DEFAULT_CLEANUP_INTERVAL_SECONDS);
+    return getLongOrDefault(
+        "app.cleanupIntervalSeconds",
+        DEFAULT_CLEANUP_INTERVAL_SECONDS,
+        AppConfig::cleanupIntervalSeconds);
   }
 
   @Override
-  public Path userUuidFile() {
-    String raw = getOrDefault("app.userUuidFile", DEFAULT_USER_UUID_FILE);
-    Path p = Path.of(raw);
+  public int cleanupBatchSize() {
+    return getIntOrDefault(
+        "app.cleanup.batchSize", DEFAULT_CLEANUP_BATCH_SIZE, AppConfig::cleanupBatchSize);
+  }
+
+  @Override
+  public long cleanupBudgetMillis() {
+    return getLongOrDefault(
+        "app.cleanup.budgetMillis", DEFAULT_CLEANUP_BUDGET_MILLIS, AppConfig::cleanupBudgetMillis);
+  }
+
+  private Path getHomePathOrDefault(String key, String def) {
+    Path p = Path.of(getOrDefault(key, def));
     if (p.isAbsolute()) return p;
 
     String home = System.getProperty("user.home");
     return Path.of(home).resolve(p);
   }
+
+  @Override
+  public Path userUuidFile() {
+    return getHomePathOrDefault("app.userUuidFile", DEFAULT_USER_UUID_FILE);
+  }
+
+  @Override
+  public RunMode mode() {
+    String v = get("app.mode");
+    if (v == null || v.isBlank()) return DEFAULT_MODE;
+    try {
+      return RunMode.parse(v);
+    } catch (IllegalArgumentException e) {
+      return invalid("app.mode", v, DEFAULT_MODE, AppConfig::mode);
+    }
+  }
+
+  @Override
+  public CliBatchMode cliBatch() {
+    String v = get("app.cli.batch");
+    if (v == null || v.isBlank()) return DEFAULT_CLI_BATCH;
+    try {
+      return CliBatchMode.parse(v);
+    } catch (IllegalArgumentException e) {
+      return invalid("app.cli.batch", v, DEFAULT_CLI_BATCH, AppConfig::cliBatch);
+    }
+  }
+
+  @Override
+  public int httpPort() {
+    return getIntOrDefault("app.http.port", DEFAULT_HTTP_PORT, AppConfig::httpPort);
+  }
+
+  @Override
+  public int httpRedirectStatus() {
+    int status =
+        getIntOrDefault(
+            "app.http.redirectStatus", DEFAULT_HTTP_REDIRECT_STATUS, AppConfig::httpRedirectStatus);
+    if (status == 301 || status == 302 || status == 307) return status;
+    return invalid(
+        "app.http.redirectStatus",
+        status,
+        DEFAULT_HTTP_REDIRECT_STATUS,
+        AppConfig::httpRedirectStatus);
+  }
+
+  @Override
+  public StorageKind storage() {
+    String v = get("app.storage");
+    if (v == null || v.isBlank()) return DEFAULT_STORAGE;
+    try {
+      return StorageKind.parse(v);
+    } catch (IllegalArgumentException e) {
+      return invalid("app.storage", v, DEFAULT_STORAGE, AppConfig::storage);
+    }
+  }
+
+  @Override
+  public Path storageDir() {
+    return getHomePathOrDefault("app.storage.dir", DEFAULT_STORAGE_DIR);
+  }
+
+  @Override
+  public long walClickFlushMillis() {
+    return getLongOrDefault(
+        "app.wal.clickFlushMillis", DEFAULT_WAL_CLICK_FLUSH_MILLIS, AppConfig::walClickFlushMillis);
+  }
+
+  @Override
+  public long walCompactThresholdBytes() {
+    return getLongOrDefault(
+        "app.wal.compactThresholdBytes",
+        DEFAULT_WAL_COMPACT_THRESHOLD_BYTES,
+        AppConfig::walCompactThresholdBytes);
+  }
+
+  @Override
+  public int offHeapInitialCapacity() {
+    return getIntOrDefault(
+        "app.offheap.initialCapacity",
+        DEFAULT_OFFHEAP_INITIAL_CAPACITY,
+        AppConfig::offHeapInitialCapacity);
+  }
+
+  @Override
+  public int storageShards() {
+    int shards =
+        getIntOrDefault("app.storage.shards", DEFAULT_STORAGE_SHARDS, AppConfig::storageShards);
+    if (shards <= MAX_STORAGE_SHARDS) return shards;
+    return invalid("app.storage.shards", shards, DEFAULT_STORAGE_SHARDS, AppConfig::storageShards);
+  }
+
+  @Override
+  public String clusterNodeId() {
+    return getOrDefault("app.cluster.nodeId", "").trim();
+  }
+
+  @Override
+  public List<String> clusterNodes() {
+    String v = get("app.cluster.nodes");
+    if (v == null || v.isBlank()) return List.of();
+    return Arrays.stream(v.split(",")).map(String::trim).filter(s -> !s.isEmpty()).toList();
+  }
+
+  @Override
+  public int clusterVirtualNodes() {
+    return getIntOrDefault(
+        "app.cluster.virtualNodes", DEFAULT_CLUSTER_VIRTUAL_NODES, AppConfig::clusterVirtualNodes);
+  }
+
+  @Override
+  public int analyticsRetentionMinutes() {
+    String v = get("app.analytics.retentionMinutes");
+    if (v == null || v.isBlank()) return DEFAULT_ANALYTICS_RETENTION_MINUTES;
+    try {
+      int parsed = Integer.parseInt(v.trim());
+      if (parsed >= 0 && parsed <= MAX_ANALYTICS_RETENTION_MINUTES) return parsed;
+    } catch (NumberFormatException ignored) {
+    }
+    return invalid(
+        "app.analytics.retentionMinutes",
+        v,
+        DEFAULT_ANALYTICS_RETENTION_MINUTES,
+        AppConfig::analyticsRetentionMinutes);
+  }
+
+  @Override
+  public int analyticsUniquesPrecision() {
+    String v = get("app.analytics.uniquesPrecision");
+    if (v == null || v.isBlank()) return DEFAULT_ANALYTICS_UNIQUES_PRECISION;
+    try {
+      int parsed = Integer.parseInt(v.trim());
+      if (parsed == 0
+          || (parsed >= HyperLogLog.MIN_PRECISION && parsed <= HyperLogLog.MAX_PRECISION)) {
+        return parsed;
+      }
+    } catch (NumberFormatException ignored) {
+    }
+    return invalid(
+        "app.analytics.uniquesPrecision",
+        v,
+        DEFAULT_ANALYTICS_UNIQUES_PRECISION,
+        AppConfig::analyticsUniquesPrecision);
+  }
+
+  @Override
+  public boolean dedupeUrls() {
+    String v = get("app.links.dedupe");
+    if (v == null || v.isBlank()) return false;
+    return switch (v.trim().toLowerCase(Locale.ROOT)) {
+      case "true" -> true;
+      case "false" -> false;
+      default -> invalid("app.links.dedupe", v, false, AppConfig::dedupeUrls);
+    };
+  }
+
+  @Override
+  public CodeStrategyKind codeStrategy() {
+    String v = get("app.codes.strategy");
+    if (v == null || v.isBlank()) return DEFAULT_CODE_STRATEGY;
+    try {
+      return CodeStrategyKind.parse(v);
+    } catch (IllegalArgumentException e) {
+      return invalid("app.codes.strategy", v, DEFAULT_CODE_STRATEGY, AppConfig::codeStrategy);
+    }
+  }
+
+  @Override
+  public int cacheCapacity() {
+    String v = get("app.cache.capacity");
+    if (v == null || v.isBlank()) return DEFAULT_CACHE_CAPACITY;
+    try {
+      int parsed = Integer.parseInt(v.trim());
+      if (parsed >= 0) return parsed;
+    } catch (NumberFormatException ignored) {
+    }
+    return invalid("app.cache.capacity", v, DEFAULT_CACHE_CAPACITY, AppConfig::cacheCapacity);
+  }
+
+  @Override
+  public long bloomExpectedCodes() {
+    String v = get("app.bloom.expectedCodes");
+    if (v == null || v.isBlank()) return DEFAULT_BLOOM_EXPECTED_CODES;
+    try {
+      long parsed = Long.parseLong(v.trim());
+      if (parsed >= 0) return parsed;
+    } catch (NumberFormatException ignored) {
+    }
+    return invalid(
+        "app.bloom.expectedCodes", v, DEFAULT_BLOOM_EXPECTED_CODES, AppConfig::bloomExpectedCodes);
+  }
+
+  @Override
+  public int notifyQueueCapacity() {
+    return getIntOrDefault(
+        "app.notify.queueCapacity", DEFAULT_NOTIFY_QUEUE_CAPACITY, AppConfig::notifyQueueCapacity);
+  }
+
+  @Override
+  public BackpressurePolicy notifyBackpressure() {
+    String v = get("app.notify.backpressure");
+    if (v == null || v.isBlank()) return DEFAULT_NOTIFY_BACKPRESSURE;
+    try {
+      return BackpressurePolicy.parse(v);
+    } catch (IllegalArgumentException e) {
+      return invalid(
+          "app.notify.backpressure", v, DEFAULT_NOTIFY_BACKPRESSURE, AppConfig::notifyBackpressure);
+    }
+  }
 }
@@ -0,0 +1,272 @@
+package org.com.url_shortener.infra.cfg;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.List;
+import java.util.Optional;
+import java.util.Properties;
+
+/**
+ * Настройки, опубликованные неизменяемым {@link ConfigSnapshot} через volatile-ссылку. Снимок
+ * собирается из ресурса, поверх которого кладётся внешний файл {@code app.config.file}; файл
+ * отслеживается WatchService, и после его правки публикуется новый снимок. Ключ с неверным
+ * значением в правке не меняется: остаётся значение прежнего снимка.
+ *
+ * <p>На лету действуют настройки, которые читаются на каждую операцию: TTL и лимит новых ссылок,
+ * интервал и порция очистки, базовый адрес. Хранилище, порты, кластер и прочее разбираются при
+ * старте и до перезапуска не меняются.
+ */
+public final class ReloadingAppConfig implements AppConfig, AutoCloseable {
+  private final String resourceName;
+  private final Path file;
+  private final WatchService watcher;
+  private final Thread watchThread;
+
+  private volatile ConfigSnapshot current;
+
+  public ReloadingAppConfig(String resourceName) throws IOException {
+    this(resourceName, null);
+  }
+
+  /**
+   * @param file внешний файл настроек; {@code null} — взять из {@code app.config.file}
+   */
+  public ReloadingAppConfig(String resourceName, Path file) throws IOException {
+    this.resourceName = resourceName;
+    if (file == null) {
+      file = new PropertiesAppConfig(resourceName).configFile().orElse(null);
+    }
+    this.file = file == null ? null : file.toAbsolutePath();
+    this.current = load();
+    if (this.file == null) {
+      this.watcher = null;
+      this.watchThread = null;
+      return;
+    }
+    this.watcher = this.file.getFileSystem().newWatchService();
+    // каталог, а не файл: редакторы часто пишут новый файл и переименовывают его поверх старого
+    this.file.getParent().register(watcher, ENTRY_CREATE, ENTRY_MODIFY);
+    this.watchThread = Thread.ofPlatform().daemon().name("config-watch").start(this::watchLoop);
+  }
+
+  public ConfigSnapshot snapshot() {
+    return current;
+  }
+
+  /**
+   * Перечитывает ресурс и файл и публикует новый снимок, если что-то изменилось.
+   *
+   * @return был ли опубликован новый снимок
+   */
+  public synchronized boolean reload() {
+    ConfigSnapshot next = load();
+    if (next.equals(current)) return false;
+    current = next;
+    return true;
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (watcher == null) return;
+    watcher.close();
+    try {
+      watchThread.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private ConfigSnapshot load() {
+    Properties props = PropertiesAppConfig.loadResource(resourceName);
+    if (file != null && Files.exists(file)) {
+      Properties overlay = new Properties();
+      try (InputStream in = Files.newInputStream(file)) {
+        overlay.load(in);
+        props.putAll(overlay);
+      } catch (IOException e) {
+        System.err.println(
+            "[WARN] Failed to read config file "
+                + file
+                + " — ignoring it. ("
+                + e.getMessage()
+                + ")");
+      }
+    }
+    // при перечитывании неверный ключ не сбрасывается к умолчанию, а сохраняет действующее значение
+    return ConfigSnapshot.of(new PropertiesAppConfig(props, current));
+  }
+
+  private void watchLoop() {
+    Path name = file.getFileName();
+    while (true) {
+      WatchKey key;
+      try {
+        key = watcher.take();
+      } catch (ClosedWatchServiceException | InterruptedException e) {
+        return;
+      }
+      boolean touched = false;
+      for (WatchEvent<?> event : key.pollEvents()) {
+        if (name.equals(event.context())) touched = true;
+      }
+      key.reset();
+      if (touched && reload()) {
+        System.out.println("Config reloaded from " + file);
+      }
+    }
+  }
+
+  @Override
+  public String baseUrl() {
+    return current.baseUrl();
+  }
+
+  @Override
+  public Optional<Path> configFile() {
+    return current.configFile();
+  }
+
+  @Override
+  public long ttlSeconds() {
+    return current.ttlSeconds();
+  }
+
+  @Override
+  public int defaultMaxClicks() {
+    return current.defaultMaxClicks();
+  }
+
+  @Override
+  public long cleanupIntervalSeconds() {
+    return current.cleanupIntervalSeconds();
+  }
+
+  @Override
+  public int cleanupBatchSize() {
+    return current.cleanupBatchSize();
+  }
+
+  @Override
+  public long cleanupBudgetMillis() {
+    return current.cleanupBudgetMillis();
+  }
+
+  @Override
+  public Path userUuidFile() {
+    return current.userUuidFile();
+  }
+
+  @Override
+  public RunMode mode() {
+    return current.mode();
+  }
+
+  @Override
+  public CliBatchMode cliBatch() {
+    return current.cliBatch();
+  }
+
+  @Override
+  public int httpPort() {
+    return current.httpPort();
+  }
+
+  @Override
+  public int httpRedirectStatus() {
+    return current.httpRedirectStatus();
+  }
+
+  @Override
+  public StorageKind storage() {
+    return current.storage();
+  }
+
+  @Override
+  public Path storageDir() {
+    return current.storageDir();
+  }
+
+  @Override
+  public long walClickFlushMillis() {
+    return current.walClickFlushMillis();
+  }
+
+  @Override
+  public long walCompactThresholdBytes() {
+    return current.walCompactThresholdBytes();
+  }
+
+  @Override
+  public int offHeapInitialCapacity() {
+    return current.offHeapInitialCapacity();
+  }
+
+  @Override
+  public int storageShards() {
+    return current.storageShards();
+  }
+
+  @Override
+  public String clusterNodeId() {
+    return current.clusterNodeId();
+  }
+
+  @Override
+  public List<String> clusterNodes() {
+    return current.clusterNodes();
+  }
+
+  @Override
+  public int clusterVirtualNodes() {
+    return current.clusterVirtualNodes();
+  }
+
+  @Override
+  public int analyticsRetentionMinutes() {
+    return current.analyticsRetentionMinutes();
+  }
+
+  @Override
+  public int analyticsUniquesPrecision() {
+    return current.analyticsUniquesPrecision();
+  }
+
+  @Override
+  public boolean dedupeUrls() {
+    return current.dedupeUrls();
+  }
+
+  @Override
+  public CodeStrategyKind codeStrategy() {
+    return current.codeStrategy();
+  }
+
+  @Override
+  public int cacheCapacity() {
+    return current.cacheCapacity();
+  }
+
+  @Override
+  public long bloomExpectedCodes() {
+    return current.bloomExpectedCodes();
+  }
+
+  @Override
+  public int notifyQueueCapacity() {
+    return current.notifyQueueCapacity();
+  }
+
+  @Override
+  public BackpressurePolicy notifyBackpressure() {
+    return current.notifyBackpressure();
+  }
+}
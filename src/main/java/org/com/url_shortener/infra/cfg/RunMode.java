@@ -0,0 +1,13 @@
+package org.com.url_shortener.infra.cfg;
+
+import java.util.Locale;
+
+public enum RunMode {
+  CLI,
+  HTTP,
+  BOTH;
+
+  public static RunMode parse(String raw) {
+    return RunMode.valueOf(raw.trim().toUpperCase(Locale.ROOT));
+  }
+}
@@ -0,0 +1,13 @@
+package org.com.url_shortener.infra.cfg;
+
+import java.util.Locale;
+
+public enum StorageKind {
+  MEMORY,
+  WAL,
+  OFFHEAP;
+
+  public static StorageKind parse(String raw) {
+    return StorageKind.valueOf(raw.trim().toUpperCase(Locale.ROOT));
+  }
+}
@@ -0,0 +1,560 @@
+package org.com.url_shortener.infra.cluster;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+import org.com.url_shortener.core.models.ClickCounter;
+import org.com.url_shortener.core.models.ShortLink;
+import org.com.url_shortener.core.repository.LinkRepository;
+
+/**
+ * Узел кластера. Пространство кодов поделено между узлами {@link HashRing}; операции с кодом,
+ * которым владеет этот узел, идут в локальное хранилище, остальные пересылаются владельцу по {@link
+ * WireProtocol}. Запросы по владельцу ссылок расходятся по всем узлам.
+ *
+ * <p>{@link #findExpired} и {@link #forEach} видят только локальный срез: каждый узел сам чистит
+ * свои ссылки. При смене состава ({@link #updateMembers}, {@link #rebalance}, {@link
+ * #completeHandoff}) промахи у нового владельца дочитываются у прежнего, пока данные переезжают.
+ */
+public final class ClusterNode implements LinkRepository, AutoCloseable {
+  private static final int REBALANCE_BATCH = 1_000;
+  private static final int CAS_ATTEMPTS = 16;
+
+  private final LinkRepository local;
+  private final int virtualNodes;
+  private final ServerSocket server;
+  private final Member self;
+  private final Thread acceptor;
+  private final Map<String, PeerClient> peers = new ConcurrentHashMap<>();
+  private final Set<Socket> connections = ConcurrentHashMap.newKeySet();
+  // запись в ссылку, которая уже не наша, ждёт, пока rebalance отдаёт свою порцию
+  private final ReadWriteLock handoffFence = new ReentrantReadWriteLock();
+
+  private volatile HashRing ring;
+  private volatile HashRing previous;
+  private volatile boolean closed;
+
+  public ClusterNode(String id, InetSocketAddress bind, LinkRepository local, int virtualNodes)
+      throws IOException {
+    this.local = Objects.requireNonNull(local);
+    this.virtualNodes = virtualNodes;
+    this.server = new ServerSocket();
+    this.server.setReuseAddress(true);
+    this.server.bind(bind, 128);
+    this.self = new Member(id, new InetSocketAddress(bind.getHostString(), server.getLocalPort()));
+    this.ring = new HashRing(List.of(self), virtualNodes);
+    this.acceptor = Thread.ofPlatform().daemon().name("cluster-" + id).start(this::acceptLoop);
+  }
+
+  /** Адрес, на котором узел принимает соседей (с реальным портом, если просили порт 0). */
+  public Member self() {
+    return self;
+  }
+
+  public List<Member> members() {
+    return ring.members();
+  }
+
+  public boolean owns(String code) {
+    return isSelf(ring.ownerOf(code));
+  }
+
+  /**
+   * Переключает узел на новый состав. Прежнее кольцо остаётся запасным для чтения до {@link
+   * #completeHandoff()}.
+   */
+  public void updateMembers(Collection<Member> members) {
+    boolean containsSelf = members.stream().anyMatch(this::isSelf);
+    List<Member> withoutSelf = members.stream().filter(m -> !isSelf(m)).toList();
+    List<Member> resolved = new ArrayList<>(withoutSelf);
+    if (containsSelf) resolved.add(self);
+    previous = ring;
+    ring = new HashRing(resolved, virtualNodes);
+    peers
+        .entrySet()
+        .removeIf(
+            e -> {
+              boolean gone = resolved.stream().noneMatch(m -> m.id().equals(e.getKey()));
+              if (gone) e.getValue().close();
+              return gone;
+            });
+  }
+
+  /**
+   * Отдаёт новым владельцам ссылки, которые больше не принадлежат этому узлу. Каждая порция
+   * перечитывается, отправляется и удаляется под барьером: клики и смена лимита, дошедшие сюда
+   * через прежнее кольцо после обхода, уезжают вместе со ссылкой, а не теряются при удалении.
+   */
+  public int rebalance() {
+    HashRing current = ring;
+    Map<Member, List<String>> moving = new HashMap<>();
+    local.forEach(
+        link -> {
+          Member owner = current.ownerOf(link.getCode());
+          if (!isSelf(owner)) {
+            moving.computeIfAbsent(owner, m -> new ArrayList<>()).add(link.getCode());
+          }
+        });
+
+    int moved = 0;
+    for (Map.Entry<Member, List<String>> e : moving.entrySet()) {
+      List<String> codes = e.getValue();
+      for (int from = 0; from < codes.size(); from += REBALANCE_BATCH) {
+        List<String> batch = codes.subList(from, Math.min(codes.size(), from + REBALANCE_BATCH));
+        handoffFence.writeLock().lock();
+        try {
+          List<ShortLink> fresh = new ArrayList<>(batch.size());
+          for (String code : batch) local.findByCode(code).ifPresent(fresh::add);
+          if (fresh.isEmpty()) continue;
+          client(e.getKey())
+              .call(WireProtocol.SAVE_ALL, out -> WireProtocol.writeLinks(out, fresh), in -> null);
+          // ссылку удаляем только после того, как владелец её принял
+          local.deleteAllByCode(fresh.stream().map(ShortLink::getCode).toList());
+          moved += fresh.size();
+        } finally {
+          handoffFence.writeLock().unlock();
+        }
+      }
+    }
+    return moved;
+  }
+
+  public void completeHandoff() {
+    previous = null;
+  }
+
+  @Override
+  public Optional<ShortLink> findByCode(String code) {
+    Member owner = ring.ownerOf(code);
+    Optional<ShortLink> found = find(owner, code);
+    if (found.isPresent()) return found;
+    Member fallback = handoffOwner(code, owner);
+    if (fallback == null) return found;
+    found = find(fallback, code);
+    // прежний владелец мог как раз отдать ссылку новому
+    return found.isPresent() ? found : find(owner, code);
+  }
+
+  @Override
+  public boolean existsByCode(String code) {
+    Member owner = ring.ownerOf(code);
+    if (exists(owner, code)) return true;
+    Member fallback = handoffOwner(code, owner);
+    return fallback != null && (exists(fallback, code) || exists(owner, code));
+  }
+
+  @Override
+  public void save(ShortLink link) {
+    Member owner = ring.ownerOf(link.getCode());
+    if (isSelf(owner)) local.save(link);
+    else
+      client(owner).call(WireProtocol.SAVE, out -> WireProtocol.writeLink(out, link), in -> null);
+  }
+
+  @Override
+  public void saveAll(Collection<ShortLink> links) {
+    HashRing current = ring;
+    Map<Member, List<ShortLink>> byOwner = new HashMap<>();
+    for (ShortLink link : links) {
+      byOwner.computeIfAbsent(current.ownerOf(link.getCode()), m -> new ArrayList<>()).add(link);
+    }
+    for (Map.Entry<Member, List<ShortLink>> e : byOwner.entrySet()) {
+      if (isSelf(e.getKey())) local.saveAll(e.getValue());
+      else {
+        client(e.getKey())
+            .call(
+                WireProtocol.SAVE_ALL,
+                out -> WireProtocol.writeLinks(out, e.getValue()),
+                in -> null);
+      }
+    }
+  }
+
+  @Override
+  public Optional<ShortLink> update(String code, UnaryOperator<ShortLink> updater) {
+    Member owner = ring.ownerOf(code);
+    Optional<ShortLink> updated = update(owner, code, updater);
+    if (updated.isPresent()) return updated;
+    Member fallback = handoffOwner(code, owner);
+    if (fallback == null) return updated;
+    updated = update(fallback, code, updater);
+    return updated.isPresent() ? updated : update(owner, code, updater);
+  }
+
+  @Override
+  public ClickCounter.Outcome recordClick(ShortLink link) {
+    String code = link.getCode();
+    Member owner = ring.ownerOf(code);
+    ClickCounter.Outcome outcome = recordClick(owner, link);
+    if (outcome == null) {
+      Member fallback = handoffOwner(code, owner);
+      if (fallback != null) {
+        outcome = recordClick(fallback, link);
+        if (outcome == null) outcome = recordClick(owner, link);
+      }
+    }
+    // ссылку удалили между findByCode и переходом — считаем по отсоединённой копии
+    return outcome != null ? outcome : link.tryClick();
+  }
+
+  @Override
+  public void deleteByCode(String code) {
+    Member owner = ring.ownerOf(code);
+    // сначала прежний владелец: если он как раз отдаёт ссылку, удаление у нового её догонит
+    Member fallback = handoffOwner(code, owner);
+    if (fallback != null) delete(fallback, List.of(code));
+    delete(owner, List.of(code));
+  }
+
+  @Override
+  public void deleteAllByCode(Collection<String> codes) {
+    HashRing current = ring;
+    Map<Member, List<String>> byOwner = new HashMap<>();
+    for (String code : codes) {
+      byOwner.computeIfAbsent(current.ownerOf(code), m -> new ArrayList<>()).add(code);
+    }
+    byOwner.forEach(this::delete);
+  }
+
+  @Override
+  public List<ShortLink> findByOwner(String ownerUuid) {
+    List<ShortLink> result = new ArrayList<>(local.findByOwner(ownerUuid));
+    for (Member m : remoteMembers()) {
+      result.addAll(
+          client(m)
+              .call(
+                  WireProtocol.FIND_BY_OWNER,
+                  out -> WireProtocol.writeString(out, ownerUuid),
+                  WireProtocol::readLinks));
+    }
+    return result;
+  }
+
+  @Override
+  public List<ShortLink> findByOwner(String ownerUuid, String afterCode, int limit) {
+    List<ShortLink> result = new ArrayList<>(local.findByOwner(ownerUuid, afterCode, limit));
+    for (Member m : remoteMembers()) {
+      result.addAll(
+          client(m)
+              .call(
+                  WireProtocol.FIND_BY_OWNER_PAGE,
+                  out -> {
+                    WireProtocol.writeString(out, ownerUuid);
+                    WireProtocol.writeString(out, afterCode);
+                    out.writeInt(limit);
+                  },
+                  WireProtocol::readLinks));
+    }
+    return result.stream().sorted(Comparator.comparing(ShortLink::getCode)).limit(limit).toList();
+  }
+
+  @Override
+  public List<ShortLink> findExpired(Instant now) {
+    return local.findExpired(now);
+  }
+
+  @Override
+  public List<ShortLink> findExpired(Instant now, int limit) {
+    return local.findExpired(now, limit);
+  }
+
+  @Override
+  public long countExpired(Instant now) {
+    return local.countExpired(now);
+  }
+
+  @Override
+  public void forEach(Consumer<ShortLink> action) {
+    local.forEach(action);
+  }
+
+  @Override
+  public void close() {
+    closed = true;
+    try {
+      server.close();
+    } catch (IOException ignored) {
+    }
+    for (Socket s : connections) closeQuietly(s);
+    peers.values().forEach(PeerClient::close);
+    try {
+      acceptor.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private Optional<ShortLink> find(Member owner, String code) {
+    if (isSelf(owner)) return local.findByCode(code);
+    return client(owner)
+        .call(
+            WireProtocol.FIND,
+            out -> WireProtocol.writeString(out, code),
+            in -> in.readBoolean() ? Optional.of(WireProtocol.readLink(in)) : Optional.empty());
+  }
+
+  private boolean exists(Member owner, String code) {
+    if (isSelf(owner)) return local.existsByCode(code);
+    return client(owner)
+        .call(
+            WireProtocol.EXISTS,
+            out -> WireProtocol.writeString(out, code),
+            DataInputStream::readBoolean);
+  }
+
+  /**
+   * Обновление на чужом узле: функция применяется к копии, результат записывается, только если
+   * ссылка у владельца не изменилась с момента чтения, иначе попытка повторяется.
+   */
+  private Optional<ShortLink> update(Member owner, String code, UnaryOperator<ShortLink> updater) {
+    if (isSelf(owner)) return fenced(code, () -> local.update(code, updater));
+    PeerClient client = client(owner);
+    for (int attempt = 0; attempt < CAS_ATTEMPTS; attempt++) {
+      Optional<ShortLink> current = find(owner, code);
+      if (current.isEmpty()) return Optional.empty();
+      ShortLink before = current.get();
+      long expectedState =
+          ClickCounter.pack(
+              before.getMaxClicks(), before.getClicksUsed(), before.isLimitNotified());
+      ShortLink next = updater.apply(before);
+      byte result =
+          client.call(
+              WireProtocol.COMPARE_AND_SET,
+              out -> {
+                WireProtocol.writeString(out, code);
+                out.writeLong(expectedState);
+                out.writeBoolean(next != null);
+                if (next != null) WireProtocol.writeLink(out, next);
+              },
+              DataInputStream::readByte);
+      if (result == WireProtocol.CAS_APPLIED) return Optional.ofNullable(next);
+      if (result == WireProtocol.CAS_MISSING) return Optional.empty();
+    }
+    throw new IllegalStateException("Too many concurrent updates of " + code);
+  }
+
+  /** null — ссылки у этого узла нет. */
+  private ClickCounter.Outcome recordClick(Member owner, ShortLink link) {
+    if (isSelf(owner)) return fenced(link.getCode(), () -> recordLocalClick(link.getCode()));
+    int outcome =
+        client(owner)
+            .call(
+                WireProtocol.RECORD_CLICK,
+                out -> WireProtocol.writeString(out, link.getCode()),
+                DataInputStream::readInt);
+    return outcome == WireProtocol.NO_OUTCOME ? null : ClickCounter.Outcome.values()[outcome];
+  }
+
+  private void delete(Member owner, List<String> codes) {
+    if (isSelf(owner)) deleteLocal(codes);
+    else {
+      client(owner)
+          .call(WireProtocol.DELETE_ALL, out -> WireProtocol.writeStrings(out, codes), in -> null);
+    }
+  }
+
+  /** null — ссылки здесь нет. */
+  private ClickCounter.Outcome recordLocalClick(String code) {
+    Optional<ShortLink> stored = local.findByCode(code);
+    return stored.isEmpty() ? null : local.recordClick(stored.get());
+  }
+
+  private void deleteLocal(List<String> codes) {
+    if (codes.stream().allMatch(this::owns)) {
+      local.deleteAllByCode(codes);
+      return;
+    }
+    handoffFence.readLock().lock();
+    try {
+      local.deleteAllByCode(codes);
+    } finally {
+      handoffFence.readLock().unlock();
+    }
+  }
+
+  /**
+   * Локальная запись в ссылку, которой узел больше не владеет, — её могут прямо сейчас отдавать;
+   * ждёт конца порции, а после неё ссылки здесь уже нет. Свои коды барьер не трогает.
+   */
+  private <T> T fenced(String code, Supplier<T> write) {
+    if (owns(code)) return write.get();
+    handoffFence.readLock().lock();
+    try {
+      return write.get();
+    } finally {
+      handoffFence.readLock().unlock();
+    }
+  }
+
+  private Member handoffOwner(String code, Member owner) {
+    HashRing prev = previous;
+    if (prev == null) return null;
+    Member before = prev.ownerOf(code);
+    return before.id().equals(owner.id()) ? null : before;
+  }
+
+  private List<Member> remoteMembers() {
+    return ring.members().stream().filter(m -> !isSelf(m)).toList();
+  }
+
+  private boolean isSelf(Member m) {
+    return m.id().equals(self.id());
+  }
+
+  private PeerClient client(Member m) {
+    PeerClient c = peers.get(m.id());
+    if (c != null && c.peer().equals(m)) return c;
+    PeerClient fresh = new PeerClient(m);
+    PeerClient old = peers.put(m.id(), fresh);
+    if (old != null) old.close();
+    return fresh;
+  }
+
+  private void acceptLoop() {
+    while (!closed) {
+      try {
+        Socket socket = server.accept();
+        socket.setTcpNoDelay(true);
+        connections.add(socket);
+        Thread.ofVirtual().name("cluster-conn-" + self.id()).start(() -> serve(socket));
+      } catch (IOException e) {
+        if (!closed) System.err.println("[WARN] Cluster accept failed: " + e.getMessage());
+      }
+    }
+  }
+
+  private void serve(Socket socket) {
+    try (socket) {
+      DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+      DataOutputStream out =
+          new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+      while (!closed) {
+        byte op;
+        try {
+          op = in.readByte();
+        } catch (EOFException e) {
+          return;
+        }
+        PeerClient.Request reply;
+        try {
+          reply = handle(op, in);
+        } catch (RuntimeException e) {
+          out.writeByte(WireProtocol.STATUS_ERROR);
+          WireProtocol.writeString(out, String.valueOf(e.getMessage()));
+          out.flush();
+          continue;
+        }
+        out.writeByte(WireProtocol.STATUS_OK);
+        reply.write(out);
+        out.flush();
+      }
+    } catch (SocketException e) {
+      // соединение закрыл сосед или мы сами при остановке
+    } catch (IOException e) {
+      if (!closed) System.err.println("[WARN] Cluster connection failed: " + e.getMessage());
+    } finally {
+      connections.remove(socket);
+    }
+  }
+
+  /** Читает аргументы, выполняет операцию на локальном хранилище и возвращает запись ответа. */
+  private PeerClient.Request handle(byte op, DataInputStream in) throws IOException {
+    switch (op) {
+      case WireProtocol.FIND -> {
+        Optional<ShortLink> link = local.findByCode(WireProtocol.readString(in));
+        return out -> {
+          out.writeBoolean(link.isPresent());
+          if (link.isPresent()) WireProtocol.writeLink(out, link.get());
+        };
+      }
+      case WireProtocol.EXISTS -> {
+        boolean exists = local.existsByCode(WireProtocol.readString(in));
+        return out -> out.writeBoolean(exists);
+      }
+      case WireProtocol.SAVE -> {
+        local.save(WireProtocol.readLink(in));
+        return out -> {};
+      }
+      case WireProtocol.SAVE_ALL -> {
+        local.saveAll(WireProtocol.readLinks(in));
+        return out -> {};
+      }
+      case WireProtocol.COMPARE_AND_SET -> {
+        String code = WireProtocol.readString(in);
+        long expectedState = in.readLong();
+        ShortLink next = in.readBoolean() ? WireProtocol.readLink(in) : null;
+        byte[] result = {WireProtocol.CAS_MISSING};
+        fenced(
+            code,
+            () ->
+                local.update(
+                    code,
+                    cur -> {
+                      long state =
+                          ClickCounter.pack(
+                              cur.getMaxClicks(), cur.getClicksUsed(), cur.isLimitNotified());
+                      if (state != expectedState) {
+                        result[0] = WireProtocol.CAS_CONFLICT;
+                        return cur;
+                      }
+                      result[0] = WireProtocol.CAS_APPLIED;
+                      return next;
+                    }));
+        return out -> out.writeByte(result[0]);
+      }
+      case WireProtocol.RECORD_CLICK -> {
+        String code = WireProtocol.readString(in);
+        ClickCounter.Outcome clicked = fenced(code, () -> recordLocalClick(code));
+        int outcome = clicked == null ? WireProtocol.NO_OUTCOME : clicked.ordinal();
+        return out -> out.writeInt(outcome);
+      }
+      case WireProtocol.DELETE_ALL -> {
+        deleteLocal(WireProtocol.readStrings(in));
+        return out -> {};
+      }
+      case WireProtocol.FIND_BY_OWNER -> {
+        List<ShortLink> links = local.findByOwner(WireProtocol.readString(in));
+        return out -> WireProtocol.writeLinks(out, links);
+      }
+      case WireProtocol.FIND_BY_OWNER_PAGE -> {
+        String owner = WireProtocol.readString(in);
+        String after = WireProtocol.readString(in);
+        int limit = in.readInt();
+        List<ShortLink> links = local.findByOwner(owner, after, limit);
+        return out -> WireProtocol.writeLinks(out, links);
+      }
+      // аргументы неизвестной операции не разобрать — соединение дальше не читается
+      default -> throw new IOException("Unknown cluster op: " + op);
+    }
+  }
+
+  private static void closeQuietly(Socket s) {
+    try {
+      s.close();
+    } catch (IOException ignored) {
+    }
+  }
+}
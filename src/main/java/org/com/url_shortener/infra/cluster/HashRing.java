@@ -0,0 +1,69 @@
+package org.com.url_shortener.infra.cluster;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Неизменяемое кольцо консистентного хеширования. Каждый узел занимает {@code virtualNodes} точек
+ * на кольце, код принадлежит первой точке по часовой стрелке от своего хеша. При добавлении или
+ * удалении узла переезжает только доля кодов, приходившаяся на его точки.
+ */
+public final class HashRing {
+  private final List<Member> members;
+  private final long[] points;
+  private final Member[] owners;
+
+  public HashRing(Collection<Member> members, int virtualNodes) {
+    if (members.isEmpty()) throw new IllegalArgumentException("ring needs at least one member");
+    if (virtualNodes <= 0) throw new IllegalArgumentException("virtualNodes must be > 0");
+    this.members = List.copyOf(members);
+
+    int n = members.size() * virtualNodes;
+    Member[] byIndex = this.members.toArray(Member[]::new);
+    long[] raw = new long[n];
+    int[] memberOf = new int[n];
+    for (int m = 0, p = 0; m < byIndex.length; m++) {
+      for (int v = 0; v < virtualNodes; v++, p++) {
+        raw[p] = hash(byIndex[m].id() + "#" + v);
+        memberOf[p] = m;
+      }
+    }
+    // сортируем индексы точек по хешу; совпадения хешей разрешаются порядком узлов
+    Integer[] order = new Integer[n];
+    for (int i = 0; i < n; i++) order[i] = i;
+    Arrays.sort(order, (a, b) -> Long.compare(raw[a], raw[b]));
+    this.points = new long[n];
+    this.owners = new Member[n];
+    for (int i = 0; i < n; i++) {
+      points[i] = raw[order[i]];
+      owners[i] = byIndex[memberOf[order[i]]];
+    }
+  }
+
+  public List<Member> members() {
+    return members;
+  }
+
+  public Member ownerOf(String code) {
+    int i = Arrays.binarySearch(points, hash(code));
+    if (i < 0) i = -i - 1;
+    return owners[i == points.length ? 0 : i];
+  }
+
+  /** 64-битный FNV-1a по байтам UTF-8 с финальным перемешиванием. */
+  static long hash(String key) {
+    long h = 0xcbf29ce484222325L;
+    for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+      h ^= b & 0xff;
+      h *= 0x100000001b3L;
+    }
+    h ^= h >>> 33;
+    h *= 0xff51afd7ed558ccdL;
+    h ^= h >>> 33;
+    h *= 0xc4ceb9fe1a85ec53L;
+    h ^= h >>> 33;
+    return h;
+  }
+}
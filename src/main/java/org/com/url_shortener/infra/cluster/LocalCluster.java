@@ -0,0 +1,77 @@
+package org.com.url_shortener.infra.cluster;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+import org.com.url_shortener.core.repository.LinkRepository;
+
+/**
+ * Кластер из нескольких узлов в одном процессе на loopback-портах — для тестов и экспериментов с
+ * перебалансировкой. Узлы общаются по настоящему TCP, как и в боевом режиме.
+ */
+public final class LocalCluster implements AutoCloseable {
+  private final Supplier<LinkRepository> storage;
+  private final int virtualNodes;
+  private final List<ClusterNode> nodes = new ArrayList<>();
+  private int nextId;
+
+  public LocalCluster(int size, int virtualNodes, Supplier<LinkRepository> storage)
+      throws IOException {
+    this.storage = storage;
+    this.virtualNodes = virtualNodes;
+    for (int i = 0; i < size; i++) nodes.add(start());
+    applyMembership(List.of());
+  }
+
+  public synchronized List<ClusterNode> nodes() {
+    return List.copyOf(nodes);
+  }
+
+  public synchronized ClusterNode node(int index) {
+    return nodes.get(index);
+  }
+
+  /** Запускает новый узел и переносит на него его долю кодов. */
+  public synchronized ClusterNode addNode() throws IOException {
+    ClusterNode node = start();
+    nodes.add(node);
+    applyMembership(List.of());
+    return node;
+  }
+
+  /** Выводит узел из кластера: его ссылки расходятся по оставшимся, после чего он закрывается. */
+  public synchronized void removeNode(ClusterNode node) {
+    if (!nodes.contains(node)) throw new IllegalArgumentException("Unknown node " + node.self());
+    if (nodes.size() == 1) throw new IllegalStateException("Cannot remove the last node");
+    nodes.remove(node);
+    applyMembership(List.of(node));
+    node.close();
+  }
+
+  @Override
+  public synchronized void close() {
+    for (ClusterNode node : nodes) node.close();
+    nodes.clear();
+  }
+
+  private ClusterNode start() throws IOException {
+    InetSocketAddress loopback = new InetSocketAddress(InetAddress.getLoopbackAddress(), 0);
+    return new ClusterNode("node-" + nextId++, loopback, storage.get(), virtualNodes);
+  }
+
+  /**
+   * Смена состава в три шага, как её проводил бы координатор: все узлы переключают кольцо, затем
+   * отдают чужие ссылки, затем забывают прежнее кольцо.
+   */
+  private void applyMembership(List<ClusterNode> leaving) {
+    List<Member> members = nodes.stream().map(ClusterNode::self).toList();
+    List<ClusterNode> involved = new ArrayList<>(nodes);
+    involved.addAll(leaving);
+    for (ClusterNode node : involved) node.updateMembers(members);
+    for (ClusterNode node : involved) node.rebalance();
+    for (ClusterNode node : involved) node.completeHandoff();
+  }
+}
@@ -0,0 +1,26 @@
+package org.com.url_shortener.infra.cluster;
+
+import java.net.InetSocketAddress;
+import java.util.Objects;
+
+/** Узел кластера: стабильный идентификатор и адрес, на котором он принимает запросы соседей. */
+public record Member(String id, InetSocketAddress address) {
+  public Member {
+    Objects.requireNonNull(id);
+    Objects.requireNonNull(address);
+    if (id.isBlank()) throw new IllegalArgumentException("member id must not be blank");
+  }
+
+  /** Разбирает запись вида {@code id@host:port}. */
+  public static Member parse(String raw) {
+    String s = raw.trim();
+    int at = s.indexOf('@');
+    int colon = s.lastIndexOf(':');
+    if (at <= 0 || colon < at) {
+      throw new IllegalArgumentException("Expected id@host:port, got: " + raw);
+    }
+    int port = Integer.parseInt(s.substring(colon + 1));
+    return new Member(
+        s.substring(0, at), InetSocketAddress.createUnresolved(s.substring(at + 1, colon), port));
+  }
+}
@@ -0,0 +1,104 @@
+package org.com.url_shortener.infra.cluster;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.concurrent.ConcurrentLinkedDeque;
+
+/** Клиент к одному соседу: пул постоянных TCP-соединений, запрос-ответ на каждом. */
+final class PeerClient implements AutoCloseable {
+  private static final int CONNECT_TIMEOUT_MILLIS = 2_000;
+  private static final int READ_TIMEOUT_MILLIS = 10_000;
+  private static final int MAX_IDLE = 16;
+
+  private final Member peer;
+  private final ConcurrentLinkedDeque<Connection> idle = new ConcurrentLinkedDeque<>();
+  private volatile boolean closed;
+
+  PeerClient(Member peer) {
+    this.peer = peer;
+  }
+
+  Member peer() {
+    return peer;
+  }
+
+  interface Request {
+    void write(DataOutputStream out) throws IOException;
+  }
+
+  interface Response<T> {
+    T read(DataInputStream in) throws IOException;
+  }
+
+  <T> T call(byte op, Request request, Response<T> response) {
+    if (closed) throw new IllegalStateException("Client to " + peer.id() + " is closed");
+    Connection c = idle.pollFirst();
+    try {
+      if (c == null) c = connect();
+      c.out.writeByte(op);
+      request.write(c.out);
+      c.out.flush();
+      byte status = c.in.readByte();
+      if (status != WireProtocol.STATUS_OK) {
+        String message = WireProtocol.readString(c.in);
+        release(c);
+        throw new IllegalStateException("Node " + peer.id() + " failed: " + message);
+      }
+      T result = response.read(c.in);
+      release(c);
+      return result;
+    } catch (IOException e) {
+      if (c != null) c.close();
+      throw new UncheckedIOException("Node " + peer.id() + " is unreachable", e);
+    }
+  }
+
+  @Override
+  public void close() {
+    closed = true;
+    Connection c;
+    while ((c = idle.pollFirst()) != null) c.close();
+  }
+
+  private void release(Connection c) {
+    if (closed || idle.size() >= MAX_IDLE) c.close();
+    else idle.offerFirst(c);
+  }
+
+  private Connection connect() throws IOException {
+    InetSocketAddress address = peer.address();
+    if (address.isUnresolved()) {
+      address = new InetSocketAddress(address.getHostString(), address.getPort());
+    }
+    Socket socket = new Socket();
+    socket.setTcpNoDelay(true);
+    socket.connect(address, CONNECT_TIMEOUT_MILLIS);
+    socket.setSoTimeout(READ_TIMEOUT_MILLIS);
+    return new Connection(socket);
+  }
+
+  private static final class Connection {
+    final Socket socket;
+    final DataInputStream in;
+    final DataOutputStream out;
+
+    Connection(Socket socket) throws IOException {
+      this.socket = socket;
+      this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+      this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+    }
+
+    void close() {
+      try {
+        socket.close();
+      } catch (IOException ignored) {
+      }
+    }
+  }
+}
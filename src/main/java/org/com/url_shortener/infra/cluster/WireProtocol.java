@@ -0,0 +1,113 @@
+package org.com.url_shortener.infra.cluster;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import org.com.url_shortener.core.models.ShortLink;
+
+/**
+ * Двоичный протокол между узлами: запрос — байт операции и её аргументы, ответ — байт статуса и
+ * результат. Соединение держит один запрос в полёте, параллелизм — за счёт пула соединений.
+ */
+final class WireProtocol {
+  static final byte FIND = 1;
+  static final byte EXISTS = 2;
+  static final byte SAVE = 3;
+  static final byte SAVE_ALL = 4;
+  static final byte COMPARE_AND_SET = 5;
+  static final byte RECORD_CLICK = 6;
+  static final byte DELETE_ALL = 7;
+  static final byte FIND_BY_OWNER = 8;
+  static final byte FIND_BY_OWNER_PAGE = 9;
+
+  static final byte STATUS_OK = 0;
+  static final byte STATUS_ERROR = 1;
+
+  static final byte CAS_MISSING = 0;
+  static final byte CAS_APPLIED = 1;
+  static final byte CAS_CONFLICT = 2;
+
+  static final int NO_OUTCOME = -1;
+
+  private WireProtocol() {}
+
+  static void writeLink(DataOutput out, ShortLink link) throws IOException {
+    writeString(out, link.getCode());
+    writeString(out, link.getOwnerUuid());
+    writeString(out, link.getOriginalUrl());
+    writeInstant(out, link.getCreatedAt());
+    writeInstant(out, link.getExpiresAt());
+    out.writeInt(link.getMaxClicks());
+    out.writeInt(link.getClicksUsed());
+    out.writeBoolean(link.isLimitNotified());
+  }
+
+  static ShortLink readLink(DataInput in) throws IOException {
+    return new ShortLink(
+        readString(in),
+        readString(in),
+        readString(in),
+        readInstant(in),
+        readInstant(in),
+        in.readInt(),
+        in.readInt(),
+        in.readBoolean());
+  }
+
+  static void writeLinks(DataOutput out, Collection<ShortLink> links) throws IOException {
+    out.writeInt(links.size());
+    for (ShortLink link : links) writeLink(out, link);
+  }
+
+  static List<ShortLink> readLinks(DataInput in) throws IOException {
+    int n = in.readInt();
+    List<ShortLink> links = new ArrayList<>(n);
+    for (int i = 0; i < n; i++) links.add(readLink(in));
+    return links;
+  }
+
+  static void writeStrings(DataOutput out, Collection<String> values) throws IOException {
+    out.writeInt(values.size());
+    for (String v : values) writeString(out, v);
+  }
+
+  static List<String> readStrings(DataInput in) throws IOException {
+    int n = in.readInt();
+    List<String> values = new ArrayList<>(n);
+    for (int i = 0; i < n; i++) values.add(readString(in));
+    return values;
+  }
+
+  /** Строка с признаком null: длина -1. */
+  static void writeString(DataOutput out, String s) throws IOException {
+    if (s == null) {
+      out.writeInt(-1);
+      return;
+    }
+    byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  static String readString(DataInput in) throws IOException {
+    int len = in.readInt();
+    if (len < 0) return null;
+    byte[] bytes = new byte[len];
+    in.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  static void writeInstant(DataOutput out, Instant t) throws IOException {
+    out.writeLong(t.getEpochSecond());
+    out.writeInt(t.getNano());
+  }
+
+  static Instant readInstant(DataInput in) throws IOException {
+    return Instant.ofEpochSecond(in.readLong(), in.readInt());
+  }
+}
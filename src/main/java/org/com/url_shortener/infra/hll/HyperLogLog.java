@@ -0,0 +1,228 @@
+package org.com.url_shortener.infra.hll;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * HyperLogLog-оценка числа различных значений. Пока заполнено мало регистров, хранятся только они —
+ * отсортированным {@code int[]} вида {@code индекс << 6 | ранг}; когда такой список становится не
+ * меньше плотного представления, скетч переходит на упакованные 6-битные регистры ({@code 2^p * 6 /
+ * 8} байт, при p = 10 — 768 байт, погрешность около 3%).
+ *
+ * <p>Скетчи с одинаковой точностью сливаются без потерь ({@link #merge}), поэтому частичные скетчи
+ * разных шардов и узлов можно объединить. Методы синхронизированы.
+ */
+public final class HyperLogLog {
+  public static final int MIN_PRECISION = 4;
+  public static final int MAX_PRECISION = 16;
+
+  private static final byte FORMAT_SPARSE = 0;
+  private static final byte FORMAT_DENSE = 1;
+
+  private final int precision;
+  private final int registers;
+  private final int sparseLimit;
+
+  private int[] sparse = new int[4];
+  private int sparseSize;
+  private byte[] dense;
+
+  public HyperLogLog(int precision) {
+    if (precision < MIN_PRECISION || precision > MAX_PRECISION) {
+      throw new IllegalArgumentException("precision must be in [4, 16]: " + precision);
+    }
+    this.precision = precision;
+    this.registers = 1 << precision;
+    this.sparseLimit = denseBytes() / Integer.BYTES;
+  }
+
+  public int precision() {
+    return precision;
+  }
+
+  /** 64-битный хеш значения для {@link #offer(long)}: FNV-1a по UTF-8 с перемешиванием. */
+  public static long hash(String value) {
+    long h = 0xcbf29ce484222325L;
+    for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+      h ^= b & 0xff;
+      h *= 0x100000001b3L;
+    }
+    h ^= h >>> 33;
+    h *= 0xff51afd7ed558ccdL;
+    h ^= h >>> 33;
+    h *= 0xc4ceb9fe1a85ec53L;
+    h ^= h >>> 33;
+    return h;
+  }
+
+  /** Учитывает значение по его 64-битному хешу. */
+  public synchronized void offer(long hash) {
+    int index = (int) (hash >>> (64 - precision));
+    // ранг — позиция первой единицы в оставшихся битах; страж не даёт ему превысить 64 - p + 1
+    int rank = Long.numberOfLeadingZeros((hash << precision) | (1L << (precision - 1))) + 1;
+    set(index, rank);
+  }
+
+  public synchronized long estimate() {
+    double sum = 0;
+    int zeros;
+    if (dense == null) {
+      zeros = registers - sparseSize;
+      sum = zeros;
+      for (int i = 0; i < sparseSize; i++) sum += Math.scalb(1.0, -(sparse[i] & 63));
+    } else {
+      zeros = 0;
+      for (int i = 0; i < registers; i++) {
+        int r = get(i);
+        if (r == 0) zeros++;
+        sum += Math.scalb(1.0, -r);
+      }
+    }
+    double raw = alpha() * registers * registers / sum;
+    // на малых значениях точнее линейный подсчёт по пустым регистрам
+    if (raw <= 2.5 * registers && zeros > 0) {
+      return Math.round(registers * Math.log((double) registers / zeros));
+    }
+    return Math.round(raw);
+  }
+
+  /** Добавляет к этому скетчу все значения другого. */
+  public void merge(HyperLogLog other) {
+    if (other == this) return;
+    if (other.precision != precision) {
+      throw new IllegalArgumentException(
+          "Cannot merge precision " + other.precision + " into " + precision);
+    }
+    int[] packed = other.packedRegisters();
+    synchronized (this) {
+      for (int e : packed) set(e >>> 6, e & 63);
+    }
+  }
+
+  public synchronized boolean isSparse() {
+    return dense == null;
+  }
+
+  /** Память под регистры без заголовка объекта. */
+  public synchronized int sizeInBytes() {
+    return dense == null ? sparseSize * Integer.BYTES : dense.length;
+  }
+
+  /** Формат: байт представления, байт точности, затем записи разреженного списка или регистры. */
+  public synchronized byte[] toBytes() {
+    if (dense != null) {
+      return ByteBuffer.allocate(2 + dense.length)
+          .put(FORMAT_DENSE)
+          .put((byte) precision)
+          .put(dense)
+          .array();
+    }
+    ByteBuffer out = ByteBuffer.allocate(2 + Integer.BYTES + sparseSize * Integer.BYTES);
+    out.put(FORMAT_SPARSE).put((byte) precision).putInt(sparseSize);
+    for (int i = 0; i < sparseSize; i++) out.putInt(sparse[i]);
+    return out.array();
+  }
+
+  public static HyperLogLog fromBytes(byte[] bytes) {
+    ByteBuffer in = ByteBuffer.wrap(bytes);
+    byte format = in.get();
+    HyperLogLog hll = new HyperLogLog(in.get());
+    switch (format) {
+      case FORMAT_DENSE -> {
+        hll.dense = new byte[hll.denseBytes()];
+        in.get(hll.dense);
+      }
+      case FORMAT_SPARSE -> {
+        int n = in.getInt();
+        if (n < 0 || n > hll.registers) throw new IllegalArgumentException("Bad sparse size " + n);
+        for (int i = 0; i < n; i++) {
+          int e = in.getInt();
+          hll.set(e >>> 6, e & 63);
+        }
+      }
+      default -> throw new IllegalArgumentException("Unknown HyperLogLog format: " + format);
+    }
+    return hll;
+  }
+
+  /** Непустые регистры в виде {@code индекс << 6 | ранг}. */
+  private synchronized int[] packedRegisters() {
+    if (dense == null) return Arrays.copyOf(sparse, sparseSize);
+    int[] out = new int[registers];
+    int n = 0;
+    for (int i = 0; i < registers; i++) {
+      int r = get(i);
+      if (r != 0) out[n++] = (i << 6) | r;
+    }
+    return Arrays.copyOf(out, n);
+  }
+
+  private void set(int index, int rank) {
+    if (dense != null) {
+      if (get(index) < rank) put(index, rank);
+      return;
+    }
+    int pos = search(index);
+    if (pos >= 0) {
+      if ((sparse[pos] & 63) < rank) sparse[pos] = (index << 6) | rank;
+      return;
+    }
+    pos = -pos - 1;
+    if (sparseSize == sparse.length) sparse = Arrays.copyOf(sparse, sparse.length * 2);
+    System.arraycopy(sparse, pos, sparse, pos + 1, sparseSize - pos);
+    sparse[pos] = (index << 6) | rank;
+    sparseSize++;
+    if (sparseSize >= sparseLimit) promote();
+  }
+
+  private int search(int index) {
+    int lo = 0;
+    int hi = sparseSize - 1;
+    while (lo <= hi) {
+      int mid = (lo + hi) >>> 1;
+      int at = sparse[mid] >>> 6;
+      if (at < index) lo = mid + 1;
+      else if (at > index) hi = mid - 1;
+      else return mid;
+    }
+    return -(lo + 1);
+  }
+
+  private void promote() {
+    dense = new byte[denseBytes()];
+    for (int i = 0; i < sparseSize; i++) put(sparse[i] >>> 6, sparse[i] & 63);
+    sparse = null;
+    sparseSize = 0;
+  }
+
+  private int get(int index) {
+    int bit = index * 6;
+    int i = bit >>> 3;
+    int word = (dense[i] & 0xff) | (i + 1 < dense.length ? (dense[i + 1] & 0xff) << 8 : 0);
+    return (word >>> (bit & 7)) & 63;
+  }
+
+  private void put(int index, int value) {
+    int bit = index * 6;
+    int i = bit >>> 3;
+    int shift = bit & 7;
+    int word = (dense[i] & 0xff) | (i + 1 < dense.length ? (dense[i + 1] & 0xff) << 8 : 0);
+    word = (word & ~(63 << shift)) | (value << shift);
+    dense[i] = (byte) word;
+    if (i + 1 < dense.length) dense[i + 1] = (byte) (word >>> 8);
+  }
+
+  private int denseBytes() {
+    return registers * 6 / 8;
+  }
+
+  private double alpha() {
+    return switch (registers) {
+      case 16 -> 0.673;
+      case 32 -> 0.697;
+      case 64 -> 0.709;
+      default -> 0.7213 / (1 + 1.079 / registers);
+    };
+  }
+}
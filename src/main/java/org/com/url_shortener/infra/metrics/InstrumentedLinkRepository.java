@@ -0,0 +1,182 @@
+package org.com.url_shortener.infra.metrics;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
+import org.com.url_shortener.core.models.ClickCounter;
+import org.com.url_shortener.core.models.ShortLink;
+import org.com.url_shortener.core.repository.LinkRepository;
+
+/**
+ * Замеряет время операций обёрнутого репозитория: по гистограмме {@code repo_op_seconds} на
+ * операцию. Обходы ({@link #forEach}, {@link #streamByOwner}) не замеряются — их длительность
+ * определяет вызывающий код.
+ */
+public final class InstrumentedLinkRepository implements LinkRepository {
+  private final LinkRepository delegate;
+  private final LatencyHistogram findByCode;
+  private final LatencyHistogram existsByCode;
+  private final LatencyHistogram save;
+  private final LatencyHistogram update;
+  private final LatencyHistogram recordClick;
+  private final LatencyHistogram delete;
+  private final LatencyHistogram findByOwner;
+  private final LatencyHistogram findExpired;
+
+  public InstrumentedLinkRepository(LinkRepository delegate, MetricsRegistry metrics) {
+    this.delegate = Objects.requireNonNull(delegate);
+    this.findByCode = op(metrics, "find_by_code");
+    this.existsByCode = op(metrics, "exists_by_code");
+    this.save = op(metrics, "save");
+    this.update = op(metrics, "update");
+    this.recordClick = op(metrics, "record_click");
+    this.delete = op(metrics, "delete");
+    this.findByOwner = op(metrics, "find_by_owner");
+    this.findExpired = op(metrics, "find_expired");
+  }
+
+  @Override
+  public Optional<ShortLink> findByCode(String code) {
+    long start = System.nanoTime();
+    try {
+      return delegate.findByCode(code);
+    } finally {
+      findByCode.record(System.nanoTime() - start);
+    }
+  }
+
+  @Override
+  public boolean existsByCode(String code) {
+    long start = System.nanoTime();
+    try {
+      return delegate.existsByCode(code);
+    } finally {
+      existsByCode.record(System.nanoTime() - start);
+    }
+  }
+
+  @Override
+  public void save(ShortLink link) {
+    long start = System.nanoTime();
+    try {
+      delegate.save(link);
+    } finally {
+      save.record(System.nanoTime() - start);
+    }
+  }
+
+  @Override
+  public void saveAll(Collection<ShortLink> links) {
+    long start = System.nanoTime();
+    try {
+      delegate.saveAll(links);
+    } finally {
+      save.record(System.nanoTime() - start);
+    }
+  }
+
+  @Override
+  public Optional<ShortLink> update(String code, UnaryOperator<ShortLink> updater) {
+    long start = System.nanoTime();
+    try {
+      return delegate.update(code, updater);
+    } finally {
+      update.record(System.nanoTime() - start);
+    }
+  }
+
+  @Override
+  public ClickCounter.Outcome recordClick(ShortLink link) {
+    long start = System.nanoTime();
+    try {
+      return delegate.recordClick(link);
+    } finally {
+      recordClick.record(System.nanoTime() - start);
+    }
+  }
+
+  @Override
+  public void deleteByCode(String code) {
+    long start = System.nanoTime();
+    try {
+      delegate.deleteByCode(code);
+    } finally {
+      delete.record(System.nanoTime() - start);
+    }
+  }
+
+  @Override
+  public void deleteAllByCode(Collection<String> codes) {
+    long start = System.nanoTime();
+    try {
+      delegate.deleteAllByCode(codes);
+    } finally {
+      delete.record(System.nanoTime() - start);
+    }
+  }
+
+  @Override
+  public List<ShortLink> findByOwner(String ownerUuid) {
+    long start = System.nanoTime();
+    try {
+      return delegate.findByOwner(ownerUuid);
+    } finally {
+      findByOwner.record(System.nanoTime() - start);
+    }
+  }
+
+  @Override
+  public List<ShortLink> findByOwner(String ownerUuid, String afterCode, int limit) {
+    long start = System.nanoTime();
+    try {
+      return delegate.findByOwner(ownerUuid, afterCode, limit);
+    } finally {
+      findByOwner.record(System.nanoTime() - start);
+    }
+  }
+
+  @Override
+  public Stream<ShortLink> streamByOwner(String ownerUuid) {
+    return delegate.streamByOwner(ownerUuid);
+  }
+
+  @Override
+  public List<ShortLink> findExpired(Instant now) {
+    long start = System.nanoTime();
+    try {
+      return delegate.findExpired(now);
+    } finally {
+      findExpired.record(System.nanoTime() - start);
+    }
+  }
+
+  @Override
+  public List<ShortLink> findExpired(Instant now, int limit) {
+    long start = System.nanoTime();
+    try {
+      return delegate.findExpired(now, limit);
+    } finally {
+      findExpired.record(System.nanoTime() - start);
+    }
+  }
+
+  @Override
+  public long countExpired(Instant now) {
+    return delegate.countExpired(now);
+  }
+
+  @Override
+  public void forEach(Consumer<ShortLink> action) {
+    delegate.forEach(action);
+  }
+
+  private static LatencyHistogram op(MetricsRegistry metrics, String op) {
+    return metrics.histogram(
+        "repo_op_seconds{op=\"" + op + "\"}", "Repository operation latency by operation");
+  }
+}
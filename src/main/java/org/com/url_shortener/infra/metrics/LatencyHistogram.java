@@ -0,0 +1,81 @@
+package org.com.url_shortener.infra.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Лог-линейная гистограмма задержек в наносекундах, как в HdrHistogram: каждая степень двойки
+ * делится на 8 корзин, относительная погрешность квантилей не больше 12,5%. Запись — вычисление
+ * индекса и один атомарный инкремент в строке своей полосы, без аллокаций.
+ */
+public final class LatencyHistogram {
+  private static final int SUB_BITS = 3;
+  private static final int SUB_BUCKETS = 1 << SUB_BITS;
+  private static final int BUCKETS = (65 - SUB_BITS) * SUB_BUCKETS;
+  private static final int STRIPES = 4;
+  // строки полос разнесены, чтобы соседние полосы не делили кэш-линию
+  private static final int ROW = BUCKETS + 16;
+
+  private final AtomicLongArray counts = new AtomicLongArray(ROW * STRIPES);
+  private final LongAdder count = new LongAdder();
+  private final LongAdder sum = new LongAdder();
+  private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+  public void record(long nanos) {
+    if (nanos < 0) nanos = 0;
+    int row = (int) (Thread.currentThread().threadId() & (STRIPES - 1)) * ROW;
+    counts.getAndIncrement(row + index(nanos));
+    count.increment();
+    sum.add(nanos);
+    max.accumulate(nanos);
+  }
+
+  public long count() {
+    return count.sum();
+  }
+
+  public long sumNanos() {
+    return sum.sum();
+  }
+
+  public long maxNanos() {
+    return max.get();
+  }
+
+  /** Оценка квантиля q ∈ [0, 1] сверху: верхняя граница корзины, но не больше максимума. */
+  public long percentileNanos(double q) {
+    long[] merged = new long[BUCKETS];
+    long total = 0;
+    for (int s = 0; s < STRIPES; s++) {
+      for (int i = 0; i < BUCKETS; i++) {
+        long c = counts.get(s * ROW + i);
+        merged[i] += c;
+        total += c;
+      }
+    }
+    if (total == 0) return 0;
+    long rank = Math.max(1, (long) Math.ceil(q * total));
+    long seen = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      seen += merged[i];
+      if (seen >= rank) return Math.min(upperBound(i), maxNanos());
+    }
+    return maxNanos();
+  }
+
+  static int index(long v) {
+    if (v < SUB_BUCKETS) return (int) v;
+    int exp = 63 - Long.numberOfLeadingZeros(v);
+    int sub = (int) (v >>> (exp - SUB_BITS)) & (SUB_BUCKETS - 1);
+    return (exp - SUB_BITS + 1) * SUB_BUCKETS + sub;
+  }
+
+  static long upperBound(int index) {
+    if (index < SUB_BUCKETS) return index;
+    int exp = index / SUB_BUCKETS + SUB_BITS - 1;
+    int sub = index % SUB_BUCKETS;
+    long lower = (long) (SUB_BUCKETS + sub) << (exp - SUB_BITS);
+    return lower + (1L << (exp - SUB_BITS)) - 1;
+  }
+}
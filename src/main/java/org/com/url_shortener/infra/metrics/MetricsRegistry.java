@@ -0,0 +1,131 @@
+package org.com.url_shortener.infra.metrics;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Реестр метрик. Имя может содержать метки в синтаксисе Prometheus: {@code
+ * redirects_total{result="ok"}}; метрики с одним базовым именем выводятся одним семейством.
+ * Получать метрики из реестра стоит один раз при создании сервиса, а не на каждом вызове.
+ */
+public final class MetricsRegistry {
+  private static final String PREFIX = "url_shortener_";
+  private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+  private final Map<String, Metric> metrics = new ConcurrentSkipListMap<>();
+
+  public Counter counter(String name, String help) {
+    return (Counter) register(name, help, "counter", new Counter()).value;
+  }
+
+  public LatencyHistogram histogram(String name, String help) {
+    return (LatencyHistogram) register(name, help, "summary", new LatencyHistogram()).value;
+  }
+
+  /** Счётчик, который ведёт сам компонент (например, статистика кэша). */
+  public void counter(String name, String help, LongSupplier value) {
+    metrics.put(name, new Metric(help, "counter", value));
+  }
+
+  public void gauge(String name, String help, LongSupplier value) {
+    metrics.put(name, new Metric(help, "gauge", value));
+  }
+
+  /** Текстовый формат экспозиции Prometheus; задержки — в секундах. */
+  public String renderPrometheus() {
+    StringBuilder out = new StringBuilder(4096);
+    String lastFamily = null;
+    for (Map.Entry<String, Metric> e : metrics.entrySet()) {
+      String name = e.getKey();
+      Metric m = e.getValue();
+      String family = family(name);
+      if (!family.equals(lastFamily)) {
+        out.append("# HELP ").append(PREFIX).append(family).append(' ').append(m.help).append('\n');
+        out.append("# TYPE ").append(PREFIX).append(family).append(' ').append(m.type).append('\n');
+        lastFamily = family;
+      }
+      switch (m.value) {
+        case Counter c -> line(out, name, "", c.get());
+        case LongSupplier g -> line(out, name, "", g.getAsLong());
+        case LatencyHistogram h -> {
+          for (double q : QUANTILES) {
+            out.append(PREFIX).append(withLabel(name, "quantile=\"" + q + "\"")).append(' ');
+            out.append(seconds(h.percentileNanos(q))).append('\n');
+          }
+          out.append(PREFIX).append(suffixed(name, "_sum")).append(' ');
+          out.append(seconds(h.sumNanos())).append('\n');
+          line(out, name, "_count", h.count());
+        }
+        default -> throw new IllegalStateException("Unknown metric type: " + m.value);
+      }
+    }
+    return out.toString();
+  }
+
+  /** Краткая сводка для CLI. */
+  public String renderText() {
+    StringBuilder out = new StringBuilder(2048);
+    for (Map.Entry<String, Metric> e : metrics.entrySet()) {
+      String name = e.getKey();
+      switch (e.getValue().value) {
+        case Counter c -> out.append(String.format(Locale.ROOT, "%-48s %d%n", name, c.get()));
+        case LongSupplier g ->
+            out.append(String.format(Locale.ROOT, "%-48s %d%n", name, g.getAsLong()));
+        case LatencyHistogram h ->
+            out.append(
+                String.format(
+                    Locale.ROOT,
+                    "%-48s n=%d p50=%s p99=%s max=%s%n",
+                    name,
+                    h.count(),
+                    human(h.percentileNanos(0.5)),
+                    human(h.percentileNanos(0.99)),
+                    human(h.maxNanos())));
+        default -> {}
+      }
+    }
+    return out.toString();
+  }
+
+  private Metric register(String name, String help, String type, Object value) {
+    Metric m = metrics.computeIfAbsent(name, n -> new Metric(help, type, value));
+    if (!m.type.equals(type)) {
+      throw new IllegalArgumentException("Metric " + name + " already registered as " + m.type);
+    }
+    return m;
+  }
+
+  private static void line(StringBuilder out, String name, String suffix, long value) {
+    out.append(PREFIX).append(suffixed(name, suffix)).append(' ').append(value).append('\n');
+  }
+
+  private static String family(String name) {
+    int brace = name.indexOf('{');
+    return brace < 0 ? name : name.substring(0, brace);
+  }
+
+  private static String suffixed(String name, String suffix) {
+    int brace = name.indexOf('{');
+    return brace < 0 ? name + suffix : name.substring(0, brace) + suffix + name.substring(brace);
+  }
+
+  private static String withLabel(String name, String label) {
+    int brace = name.indexOf('{');
+    if (brace < 0) return name + "{" + label + "}";
+    return name.substring(0, name.length() - 1) + "," + label + "}";
+  }
+
+  private static String seconds(long nanos) {
+    return Double.toString(nanos / 1e9);
+  }
+
+  private static String human(long nanos) {
+    if (nanos < 10_000) return nanos + "ns";
+    if (nanos < 10_000_000) return (nanos / 1_000) + "us";
+    return (nanos / 1_000_000) + "ms";
+  }
+
+  private record Metric(String help, String type, Object value) {}
+}
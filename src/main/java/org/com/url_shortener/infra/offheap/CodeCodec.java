@@ -0,0 +1,43 @@
+package org.com.url_shortener.infra.offheap;
+
+/**
+ * Биективное кодирование base62-кодов длиной до 10 символов в long. Перед старшей цифрой стоит
+ * единица-маркер, поэтому коды разной длины не пересекаются и 0 никогда не бывает ключом.
+ */
+public final class CodeCodec {
+  public static final int MAX_LENGTH = 10;
+  private static final char[] ALPHABET =
+      "0123456789abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ".toCharArray();
+
+  private CodeCodec() {}
+
+  /** Возвращает ключ или 0, если код не base62 или слишком длинный. */
+  public static long encode(String code) {
+    int len = code.length();
+    if (len == 0 || len > MAX_LENGTH) return 0;
+    long v = 1;
+    for (int i = 0; i < len; i++) {
+      int d = digit(code.charAt(i));
+      if (d < 0) return 0;
+      v = v * 62 + d;
+    }
+    return v;
+  }
+
+  public static String decode(long key) {
+    char[] buf = new char[MAX_LENGTH];
+    int pos = MAX_LENGTH;
+    while (key > 1) {
+      buf[--pos] = ALPHABET[(int) (key % 62)];
+      key /= 62;
+    }
+    return new String(buf, pos, MAX_LENGTH - pos);
+  }
+
+  private static int digit(char c) {
+    if (c >= '0' && c <= '9') return c - '0';
+    if (c >= 'a' && c <= 'z') return c - 'a' + 10;
+    if (c >= 'A' && c <= 'Z') return c - 'A' + 36;
+    return -1;
+  }
+}
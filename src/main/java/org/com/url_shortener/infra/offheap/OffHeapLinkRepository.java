@@ -0,0 +1,567 @@
+package org.com.url_shortener.infra.offheap;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.UUID;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+import org.com.url_shortener.core.models.ClickCounter;
+import org.com.url_shortener.core.models.ShortLink;
+import org.com.url_shortener.core.repository.LinkRepository;
+
+/**
+ * Хранилище ссылок вне кучи: открытая адресация по ключу {@link CodeCodec}, каждая ссылка — слот из
+ * шести long в direct-буфере, URL — в {@link UrlArena}. Владелец в каноническом виде UUID хранится
+ * двумя long, прочие строки владельцев интернируются. Время хранится в секундах: createdAt
+ * округляется вниз, expiresAt — вверх, чтобы ссылка не истекла раньше срока.
+ *
+ * <p>Запись под эксклюзивной блокировкой, чтение и переходы — под разделяемой; счётчик переходов
+ * меняется CAS прямо в слоте.
+ *
+ * <p>Индексов по владельцу и сроку жизни, как в {@code InMemoryLinkRepository}, здесь нет: они
+ * держали бы по объекту на ссылку в куче, ради ухода из которой хранилище и сделано. Поэтому {@link
+ * #findByOwner} и {@link #countExpired} проходят всю таблицу, а {@link #findExpired(Instant, int)}
+ * продолжает обход с места прошлой порции.
+ */
+public final class OffHeapLinkRepository implements LinkRepository {
+  private static final VarHandle LONGS =
+      MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+  private static final int SLOT_BYTES = 48;
+  private static final int CODE = 0;
+  private static final int OWNER_HI = 8;
+  private static final int OWNER_LO = 16;
+  private static final int URL = 24;
+  private static final int TIMES = 32;
+  private static final int CLICKS = 40;
+
+  private static final int CHUNK_SLOTS_BITS = 20;
+  private static final long MAX_CAPACITY = 1L << 34;
+  private static final long OWNER_INTERNED = 1L << 63;
+  private static final long UNSIGNED_INT = 0xFFFF_FFFFL;
+
+  private final StampedLock lock = new StampedLock();
+  private final Map<String, Integer> ownerIds = new HashMap<>();
+  private final List<String> ownerNames = new ArrayList<>();
+
+  private Table table;
+  private UrlArena arena = new UrlArena();
+  private long size;
+  private volatile long minExpirySeconds = Long.MAX_VALUE;
+  // подсказка, откуда продолжать поиск истёкших; гонка между читателями безвредна
+  private volatile long expiryScanCursor;
+
+  public OffHeapLinkRepository() {
+    this(1 << 16);
+  }
+
+  public OffHeapLinkRepository(int initialCapacity) {
+    if (initialCapacity <= 0) throw new IllegalArgumentException("initialCapacity must be > 0");
+    long slots = Math.max(16, initialCapacity * 10L / 7);
+    this.table = new Table(Long.highestOneBit(slots * 2 - 1));
+  }
+
+  @Override
+  public Optional<ShortLink> findByCode(String code) {
+    long key = CodeCodec.encode(code);
+    if (key == 0) return Optional.empty();
+    long stamp = lock.readLock();
+    try {
+      long slot = table.find(key);
+      return slot < 0 ? Optional.empty() : Optional.of(materialize(slot));
+    } finally {
+      lock.unlockRead(stamp);
+    }
+  }
+
+  @Override
+  public boolean existsByCode(String code) {
+    long key = CodeCodec.encode(code);
+    if (key == 0) return false;
+    long stamp = lock.readLock();
+    try {
+      return table.find(key) >= 0;
+    } finally {
+      lock.unlockRead(stamp);
+    }
+  }
+
+  @Override
+  public void save(ShortLink link) {
+    long key = requireKey(link.getCode());
+    long stamp = lock.writeLock();
+    try {
+      long slot = table.find(key);
+      if (slot >= 0) {
+        arena.release(table.get(slot, URL) & ~OWNER_INTERNED);
+      } else {
+        if (size + 1 > table.capacity * 7 / 10) resize();
+        slot = table.insert(key);
+        size++;
+      }
+      write(slot, link, arena.append(link.getOriginalUrl()));
+      compactArenaIfNeeded();
+    } finally {
+      lock.unlockWrite(stamp);
+    }
+  }
+
+  /** Весь пакет под одной блокировкой, таблица заранее растёт до нужного размера. */
+  @Override
+  public void saveAll(Collection<ShortLink> links) {
+    long[] keys = new long[links.size()];
+    int i = 0;
+    for (ShortLink link : links) keys[i++] = requireKey(link.getCode());
+    long stamp = lock.writeLock();
+    try {
+      while (size + keys.length > table.capacity * 7 / 10) resize();
+      i = 0;
+      for (ShortLink link : links) {
+        long key = keys[i++];
+        long slot = table.find(key);
+        if (slot >= 0) {
+          arena.release(table.get(slot, URL) & ~OWNER_INTERNED);
+        } else {
+          slot = table.insert(key);
+          size++;
+        }
+        write(slot, link, arena.append(link.getOriginalUrl()));
+      }
+      compactArenaIfNeeded();
+    } finally {
+      lock.unlockWrite(stamp);
+    }
+  }
+
+  @Override
+  public Optional<ShortLink> update(String code, UnaryOperator<ShortLink> updater) {
+    long key = CodeCodec.encode(code);
+    if (key == 0) return Optional.empty();
+    long stamp = lock.writeLock();
+    try {
+      long slot = table.find(key);
+      if (slot < 0) return Optional.empty();
+      ShortLink current = materialize(slot);
+      ShortLink next = updater.apply(current);
+      long urlRef = table.get(slot, URL) & ~OWNER_INTERNED;
+      if (next == null) {
+        arena.release(urlRef);
+        table.remove(slot);
+        size--;
+      } else {
+        if (!next.getOriginalUrl().equals(current.getOriginalUrl())) {
+          arena.release(urlRef);
+          urlRef = arena.append(next.getOriginalUrl());
+        }
+        write(slot, next, urlRef);
+      }
+      compactArenaIfNeeded();
+      return Optional.ofNullable(next);
+    } finally {
+      lock.unlockWrite(stamp);
+    }
+  }
+
+  @Override
+  public ClickCounter.Outcome recordClick(ShortLink link) {
+    long key = CodeCodec.encode(link.getCode());
+    long stamp = lock.readLock();
+    try {
+      long slot = key == 0 ? -1 : table.find(key);
+      // ссылку удалили между findByCode и переходом — считаем по отсоединённой копии
+      if (slot < 0) return link.tryClick();
+      while (true) {
+        long s = table.getVolatile(slot, CLICKS);
+        long ns = ClickCounter.clicked(s);
+        if (ns == s) return ClickCounter.Outcome.LIMIT_REACHED;
+        if (table.compareAndSet(slot, CLICKS, s, ns)) return ClickCounter.outcome(s, ns);
+      }
+    } finally {
+      lock.unlockRead(stamp);
+    }
+  }
+
+  @Override
+  public void deleteByCode(String code) {
+    long key = CodeCodec.encode(code);
+    if (key == 0) return;
+    long stamp = lock.writeLock();
+    try {
+      long slot = table.find(key);
+      if (slot < 0) return;
+      arena.release(table.get(slot, URL) & ~OWNER_INTERNED);
+      table.remove(slot);
+      size--;
+      compactArenaIfNeeded();
+    } finally {
+      lock.unlockWrite(stamp);
+    }
+  }
+
+  @Override
+  public List<ShortLink> findByOwner(String ownerUuid) {
+    return findByOwner(ownerUuid, null, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Страница за один проход: {@code limit} наименьших кодов после {@code afterCode} держатся в
+   * куче, материализуются и сортируются только они, а не все ссылки владельца.
+   */
+  @Override
+  public List<ShortLink> findByOwner(String ownerUuid, String afterCode, int limit) {
+    if (limit <= 0) return List.of();
+    PriorityQueue<PageEntry> page =
+        new PriorityQueue<>(Comparator.comparing(PageEntry::code).reversed());
+    List<ShortLink> out;
+    long stamp = lock.readLock();
+    try {
+      long hi;
+      long lo;
+      boolean interned;
+      UUID uuid = parseCanonicalUuid(ownerUuid);
+      if (uuid != null) {
+        hi = uuid.getMostSignificantBits();
+        lo = uuid.getLeastSignificantBits();
+        interned = false;
+      } else {
+        Integer id = ownerIds.get(ownerUuid);
+        if (id == null) return new ArrayList<>();
+        hi = 0;
+        lo = id;
+        interned = true;
+      }
+      for (long slot = 0; slot < table.capacity; slot++) {
+        long key = table.get(slot, CODE);
+        if (key == 0) continue;
+        if (table.get(slot, OWNER_LO) != lo || table.get(slot, OWNER_HI) != hi) continue;
+        if (((table.get(slot, URL) & OWNER_INTERNED) != 0) != interned) continue;
+        String code = CodeCodec.decode(key);
+        if (afterCode != null && code.compareTo(afterCode) <= 0) continue;
+        if (page.size() == limit) {
+          if (code.compareTo(page.peek().code()) >= 0) continue;
+          page.poll();
+        }
+        page.add(new PageEntry(code, slot));
+      }
+      out = new ArrayList<>(page.size());
+      for (PageEntry e : page) out.add(materialize(e.slot()));
+    } finally {
+      lock.unlockRead(stamp);
+    }
+    out.sort(Comparator.comparing(ShortLink::getCode));
+    return out;
+  }
+
+  @Override
+  public List<ShortLink> findExpired(Instant now) {
+    return findExpired(now, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Обход таблицы продолжается с места, где остановилась прошлая порция, иначе каждая порция заново
+   * проходила бы уже вычищенное начало таблицы.
+   */
+  @Override
+  public List<ShortLink> findExpired(Instant now, int limit) {
+    List<ShortLink> out = new ArrayList<>();
+    long nowSeconds = now.getEpochSecond();
+    if (nowSeconds < minExpirySeconds) return out;
+    long stamp = lock.readLock();
+    try {
+      long capacity = table.capacity;
+      long slot = expiryScanCursor & (capacity - 1);
+      long nextMin = Long.MAX_VALUE;
+      for (long scanned = 0; scanned < capacity; scanned++, slot = (slot + 1) & (capacity - 1)) {
+        if (table.get(slot, CODE) == 0) continue;
+        long expires = table.get(slot, TIMES) & UNSIGNED_INT;
+        if (expires > nowSeconds) {
+          nextMin = Math.min(nextMin, expires);
+        } else {
+          out.add(materialize(slot));
+          if (out.size() == limit) {
+            expiryScanCursor = slot + 1;
+            return out;
+          }
+        }
+      }
+      // полный круг под read-lock: сохранений не было, поэтому нижняя граница точная
+      minExpirySeconds = out.isEmpty() ? nextMin : Math.min(nextMin, nowSeconds);
+    } finally {
+      lock.unlockRead(stamp);
+    }
+    return out;
+  }
+
+  @Override
+  public long countExpired(Instant now) {
+    long nowSeconds = now.getEpochSecond();
+    if (nowSeconds < minExpirySeconds) return 0;
+    long stamp = lock.readLock();
+    try {
+      long count = 0;
+      for (long slot = 0; slot < table.capacity; slot++) {
+        if (table.get(slot, CODE) != 0 && (table.get(slot, TIMES) & UNSIGNED_INT) <= nowSeconds) {
+          count++;
+        }
+      }
+      return count;
+    } finally {
+      lock.unlockRead(stamp);
+    }
+  }
+
+  /** Обход под read-lock: action не должен писать в этот же репозиторий. */
+  @Override
+  public void forEach(Consumer<ShortLink> action) {
+    long stamp = lock.readLock();
+    try {
+      for (long slot = 0; slot < table.capacity; slot++) {
+        if (table.get(slot, CODE) != 0) action.accept(materialize(slot));
+      }
+    } finally {
+      lock.unlockRead(stamp);
+    }
+  }
+
+  public long size() {
+    long stamp = lock.readLock();
+    try {
+      return size;
+    } finally {
+      lock.unlockRead(stamp);
+    }
+  }
+
+  /** Байты вне кучи, зарезервированные под таблицу и арену URL. */
+  public long offHeapBytes() {
+    long stamp = lock.readLock();
+    try {
+      return table.capacity * SLOT_BYTES + arena.reservedBytes();
+    } finally {
+      lock.unlockRead(stamp);
+    }
+  }
+
+  private void write(long slot, ShortLink link, long urlRef) {
+    long hi;
+    long lo;
+    UUID uuid = parseCanonicalUuid(link.getOwnerUuid());
+    if (uuid != null) {
+      hi = uuid.getMostSignificantBits();
+      lo = uuid.getLeastSignificantBits();
+    } else {
+      hi = 0;
+      lo = internOwner(link.getOwnerUuid());
+      urlRef |= OWNER_INTERNED;
+    }
+    long created = toSeconds(link.getCreatedAt(), false);
+    long expires = toSeconds(link.getExpiresAt(), true);
+
+    table.set(slot, OWNER_HI, hi);
+    table.set(slot, OWNER_LO, lo);
+    table.set(slot, URL, urlRef);
+    table.set(slot, TIMES, created << 32 | expires);
+    table.setVolatile(
+        slot,
+        CLICKS,
+        ClickCounter.pack(link.getMaxClicks(), link.getClicksUsed(), link.isLimitNotified()));
+    if (expires < minExpirySeconds) minExpirySeconds = expires;
+  }
+
+  private ShortLink materialize(long slot) {
+    long urlField = table.get(slot, URL);
+    long hi = table.get(slot, OWNER_HI);
+    long lo = table.get(slot, OWNER_LO);
+    String owner =
+        (urlField & OWNER_INTERNED) != 0 ? ownerNames.get((int) lo) : new UUID(hi, lo).toString();
+    long times = table.get(slot, TIMES);
+    long clicks = table.getVolatile(slot, CLICKS);
+    return new ShortLink(
+        CodeCodec.decode(table.get(slot, CODE)),
+        owner,
+        arena.read(urlField & ~OWNER_INTERNED),
+        Instant.ofEpochSecond(times >>> 32),
+        Instant.ofEpochSecond(times & UNSIGNED_INT),
+        ClickCounter.maxClicksOf(clicks),
+        ClickCounter.clicksUsedOf(clicks),
+        ClickCounter.limitNotifiedOf(clicks));
+  }
+
+  private int internOwner(String owner) {
+    Integer id = ownerIds.get(owner);
+    if (id != null) return id;
+    int next = ownerNames.size();
+    ownerNames.add(owner);
+    ownerIds.put(owner, next);
+    return next;
+  }
+
+  private void resize() {
+    if (table.capacity * 2 > MAX_CAPACITY)
+      throw new IllegalStateException("Off-heap store is full");
+    Table old = table;
+    Table next = new Table(old.capacity * 2);
+    for (long slot = 0; slot < old.capacity; slot++) {
+      long key = old.get(slot, CODE);
+      if (key == 0) continue;
+      long target = next.insert(key);
+      for (int field = OWNER_HI; field < SLOT_BYTES; field += 8) {
+        next.set(target, field, old.get(slot, field));
+      }
+    }
+    table = next;
+  }
+
+  private void compactArenaIfNeeded() {
+    if (!arena.needsCompaction()) return;
+    UrlArena next = new UrlArena();
+    for (long slot = 0; slot < table.capacity; slot++) {
+      if (table.get(slot, CODE) == 0) continue;
+      long field = table.get(slot, URL);
+      long ref = next.append(arena.bytes(field & ~OWNER_INTERNED));
+      table.set(slot, URL, ref | (field & OWNER_INTERNED));
+    }
+    arena = next;
+  }
+
+  private static long requireKey(String code) {
+    long key = CodeCodec.encode(code);
+    if (key == 0) throw new IllegalArgumentException("Code is not base62 or too long: " + code);
+    return key;
+  }
+
+  private static long toSeconds(Instant t, boolean roundUp) {
+    long s = t.getEpochSecond();
+    if (roundUp && t.getNano() > 0) s++;
+    if (s < 0 || s > UNSIGNED_INT) {
+      throw new IllegalArgumentException("Timestamp out of supported range: " + t);
+    }
+    return s;
+  }
+
+  /** UUID только в каноническом виде (36 символов, строчные hex), иначе null. */
+  static UUID parseCanonicalUuid(String s) {
+    if (s.length() != 36) return null;
+    long hi = 0;
+    long lo = 0;
+    int digits = 0;
+    for (int i = 0; i < 36; i++) {
+      char c = s.charAt(i);
+      if (i == 8 || i == 13 || i == 18 || i == 23) {
+        if (c != '-') return null;
+        continue;
+      }
+      int d;
+      if (c >= '0' && c <= '9') d = c - '0';
+      else if (c >= 'a' && c <= 'f') d = c - 'a' + 10;
+      else return null;
+      if (digits < 16) hi = hi << 4 | d;
+      else lo = lo << 4 | d;
+      digits++;
+    }
+    return new UUID(hi, lo);
+  }
+
+  private static long mix(long key) {
+    key ^= key >>> 33;
+    key *= 0xff51afd7ed558ccdL;
+    key ^= key >>> 33;
+    key *= 0xc4ceb9fe1a85ec53L;
+    return key ^ (key >>> 33);
+  }
+
+  private record PageEntry(String code, long slot) {}
+
+  /** Таблица с линейным пробированием; пустой слот — нулевой код. */
+  private static final class Table {
+    final long capacity;
+    private final long mask;
+    private final ByteBuffer[] chunks;
+    private final int chunkBits;
+
+    Table(long capacity) {
+      this.capacity = capacity;
+      this.mask = capacity - 1;
+      this.chunkBits = Math.min(CHUNK_SLOTS_BITS, Long.numberOfTrailingZeros(capacity));
+      int count = (int) (capacity >>> chunkBits);
+      this.chunks = new ByteBuffer[count];
+      for (int i = 0; i < count; i++) {
+        chunks[i] = ByteBuffer.allocateDirect((1 << chunkBits) * SLOT_BYTES);
+      }
+    }
+
+    long find(long key) {
+      long slot = mix(key) & mask;
+      while (true) {
+        long k = get(slot, CODE);
+        if (k == key) return slot;
+        if (k == 0) return -1;
+        slot = (slot + 1) & mask;
+      }
+    }
+
+    long insert(long key) {
+      long slot = mix(key) & mask;
+      while (get(slot, CODE) != 0) slot = (slot + 1) & mask;
+      set(slot, CODE, key);
+      return slot;
+    }
+
+    /** Удаление со сдвигом назад: цепочки пробирования остаются без дыр и без tombstones. */
+    void remove(long slot) {
+      long hole = slot;
+      long next = (slot + 1) & mask;
+      while (true) {
+        long key = get(next, CODE);
+        if (key == 0) break;
+        long home = mix(key) & mask;
+        if (((next - home) & mask) >= ((next - hole) & mask)) {
+          for (int field = 0; field < SLOT_BYTES; field += 8) set(hole, field, get(next, field));
+          hole = next;
+        }
+        next = (next + 1) & mask;
+      }
+      set(hole, CODE, 0);
+    }
+
+    long get(long slot, int field) {
+      return (long) LONGS.get(chunk(slot), offset(slot, field));
+    }
+
+    long getVolatile(long slot, int field) {
+      return (long) LONGS.getVolatile(chunk(slot), offset(slot, field));
+    }
+
+    void set(long slot, int field, long value) {
+      LONGS.set(chunk(slot), offset(slot, field), value);
+    }
+
+    void setVolatile(long slot, int field, long value) {
+      LONGS.setVolatile(chunk(slot), offset(slot, field), value);
+    }
+
+    boolean compareAndSet(long slot, int field, long expected, long value) {
+      return LONGS.compareAndSet(chunk(slot), offset(slot, field), expected, value);
+    }
+
+    private ByteBuffer chunk(long slot) {
+      return chunks[(int) (slot >>> chunkBits)];
+    }
+
+    private int offset(long slot, int field) {
+      return (int) (slot & ((1L << chunkBits) - 1)) * SLOT_BYTES + field;
+    }
+  }
+}
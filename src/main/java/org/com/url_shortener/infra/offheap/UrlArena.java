@@ -0,0 +1,72 @@
+package org.com.url_shortener.infra.offheap;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Append-only хранилище байтов URL в direct-буферах. Ссылка на URL — long: младшие 39 бит —
+ * смещение, следующие 24 бита — длина. Освобождённое место учитывается как мусор и возвращается
+ * перестройкой арены. Не потокобезопасен: запись только под write-lock владельца.
+ */
+final class UrlArena {
+  static final int MAX_URL_BYTES = (1 << 24) - 1;
+  private static final int CHUNK_BITS = 25;
+  private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+  private static final long OFFSET_MASK = (1L << 39) - 1;
+
+  private final List<ByteBuffer> chunks = new ArrayList<>();
+  private int tail = CHUNK_SIZE;
+  private long liveBytes;
+  private long garbageBytes;
+
+  long append(byte[] bytes) {
+    if (bytes.length > MAX_URL_BYTES) {
+      throw new IllegalArgumentException("URL is too long: " + bytes.length + " bytes");
+    }
+    if (tail + bytes.length > CHUNK_SIZE) {
+      chunks.add(ByteBuffer.allocateDirect(CHUNK_SIZE));
+      tail = 0;
+    }
+    long offset = ((long) (chunks.size() - 1) << CHUNK_BITS) | tail;
+    chunks.get(chunks.size() - 1).put(tail, bytes);
+    tail += bytes.length;
+    liveBytes += bytes.length;
+    return ((long) bytes.length << 39) | offset;
+  }
+
+  long append(String url) {
+    return append(url.getBytes(StandardCharsets.UTF_8));
+  }
+
+  byte[] bytes(long ref) {
+    int len = length(ref);
+    long offset = ref & OFFSET_MASK;
+    byte[] out = new byte[len];
+    chunks.get((int) (offset >>> CHUNK_BITS)).get((int) (offset & (CHUNK_SIZE - 1)), out);
+    return out;
+  }
+
+  String read(long ref) {
+    return new String(bytes(ref), StandardCharsets.UTF_8);
+  }
+
+  void release(long ref) {
+    int len = length(ref);
+    liveBytes -= len;
+    garbageBytes += len;
+  }
+
+  boolean needsCompaction() {
+    return garbageBytes > (64L << 20) && garbageBytes > liveBytes;
+  }
+
+  long reservedBytes() {
+    return (long) chunks.size() * CHUNK_SIZE;
+  }
+
+  private static int length(long ref) {
+    return (int) (ref >>> 39);
+  }
+}
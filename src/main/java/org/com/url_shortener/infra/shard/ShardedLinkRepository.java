@@ -0,0 +1,229 @@
+package org.com.url_shortener.infra.shard;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
+import org.com.url_shortener.core.models.ClickCounter;
+import org.com.url_shortener.core.models.ShortLink;
+import org.com.url_shortener.core.repository.LinkRepository;
+
+/**
+ * Разбивает ссылки на N независимых хранилищ по хешу кода. Операции с одним кодом идут ровно в один
+ * шард, поэтому писатели разных шардов не делят ни таблицу, ни блокировки. Запросы по владельцу и
+ * по сроку жизни расходятся по всем шардам параллельно через fork-join и собираются обратно.
+ */
+public final class ShardedLinkRepository implements LinkRepository {
+  private final LinkRepository[] shards;
+  private final ForkJoinPool pool;
+
+  public ShardedLinkRepository(List<? extends LinkRepository> shards) {
+    this(shards, ForkJoinPool.commonPool());
+  }
+
+  public ShardedLinkRepository(List<? extends LinkRepository> shards, ForkJoinPool pool) {
+    if (shards.isEmpty()) throw new IllegalArgumentException("at least one shard is required");
+    this.shards = shards.toArray(LinkRepository[]::new);
+    this.pool = Objects.requireNonNull(pool);
+  }
+
+  public int shardCount() {
+    return shards.length;
+  }
+
+  @Override
+  public Optional<ShortLink> findByCode(String code) {
+    return shardFor(code).findByCode(code);
+  }
+
+  @Override
+  public boolean existsByCode(String code) {
+    return shardFor(code).existsByCode(code);
+  }
+
+  @Override
+  public void save(ShortLink link) {
+    shardFor(link.getCode()).save(link);
+  }
+
+  @Override
+  public void saveAll(Collection<ShortLink> links) {
+    List<List<ShortLink>> byShard = partition(links, ShortLink::getCode);
+    fanOut(
+        i -> {
+          if (!byShard.get(i).isEmpty()) shards[i].saveAll(byShard.get(i));
+          return List.of();
+        });
+  }
+
+  @Override
+  public Optional<ShortLink> update(String code, UnaryOperator<ShortLink> updater) {
+    return shardFor(code).update(code, updater);
+  }
+
+  @Override
+  public ClickCounter.Outcome recordClick(ShortLink link) {
+    return shardFor(link.getCode()).recordClick(link);
+  }
+
+  @Override
+  public void deleteByCode(String code) {
+    shardFor(code).deleteByCode(code);
+  }
+
+  @Override
+  public void deleteAllByCode(Collection<String> codes) {
+    List<List<String>> byShard = partition(codes, Function.identity());
+    fanOut(
+        i -> {
+          if (!byShard.get(i).isEmpty()) shards[i].deleteAllByCode(byShard.get(i));
+          return List.of();
+        });
+  }
+
+  @Override
+  public List<ShortLink> findByOwner(String ownerUuid) {
+    return fanOut(i -> shards[i].findByOwner(ownerUuid));
+  }
+
+  /**
+   * Каждый шард отдаёт свою первую страницу: вся страница может прийти из одного шарда, поэтому у
+   * каждого просим {@code limit}, то есть читаем до N×limit ссылок. Страницы шардов уже
+   * отсортированы по коду и сливаются k-путевым слиянием, пока не наберётся {@code limit}.
+   */
+  @Override
+  @SuppressWarnings("unchecked")
+  public List<ShortLink> findByOwner(String ownerUuid, String afterCode, int limit) {
+    List<ShortLink>[] pages = new List[shards.length];
+    fanOut(
+        i -> {
+          pages[i] = shards[i].findByOwner(ownerUuid, afterCode, limit);
+          return List.of();
+        });
+
+    PriorityQueue<PageCursor> heads =
+        new PriorityQueue<>(shards.length, Comparator.comparing(PageCursor::code));
+    for (List<ShortLink> page : pages) {
+      if (!page.isEmpty()) heads.add(new PageCursor(page, 0));
+    }
+    List<ShortLink> result = new ArrayList<>(Math.min(limit, 1024));
+    while (result.size() < limit && !heads.isEmpty()) {
+      PageCursor head = heads.poll();
+      result.add(head.page.get(head.pos));
+      if (head.pos + 1 < head.page.size()) heads.add(new PageCursor(head.page, head.pos + 1));
+    }
+    return result;
+  }
+
+  @Override
+  public Stream<ShortLink> streamByOwner(String ownerUuid) {
+    return Stream.of(shards).flatMap(s -> s.streamByOwner(ownerUuid));
+  }
+
+  @Override
+  public List<ShortLink> findExpired(Instant now) {
+    return fanOut(i -> shards[i].findExpired(now));
+  }
+
+  /**
+   * Порция берётся поровну со всех шардов, чтобы ни один не копил хвост истёкших. Шард не добирает
+   * за соседей, поэтому порция бывает короче {@code limit}, даже когда истёкшие ещё есть; пустая
+   * порция по-прежнему значит, что их не осталось.
+   */
+  @Override
+  public List<ShortLink> findExpired(Instant now, int limit) {
+    int perShard = Math.ceilDiv(limit, shards.length);
+    List<ShortLink> batch = fanOut(i -> shards[i].findExpired(now, perShard));
+    return batch.size() <= limit ? batch : batch.subList(0, limit);
+  }
+
+  @Override
+  public long countExpired(Instant now) {
+    long count = 0;
+    for (LinkRepository shard : shards) count += shard.countExpired(now);
+    return count;
+  }
+
+  @Override
+  public void forEach(Consumer<ShortLink> action) {
+    for (LinkRepository shard : shards) shard.forEach(action);
+  }
+
+  private LinkRepository shardFor(String code) {
+    return shards[shardIndex(code, shards.length)];
+  }
+
+  /**
+   * Номер шарда по старшим битам перемешанного хеша. Младшие биты {@code hashCode} брать нельзя:
+   * внутри шарда они были бы одинаковыми, и хеш-таблица шарда заполняла бы лишь часть корзин.
+   */
+  static int shardIndex(String code, int shardCount) {
+    int h = code.hashCode() * 0x9E3779B9;
+    h ^= h >>> 15;
+    h *= 0x85EBCA6B;
+    h ^= h >>> 13;
+    return (int) (((h & 0xFFFF_FFFFL) * shardCount) >>> 32);
+  }
+
+  private <T> List<List<T>> partition(Collection<T> items, Function<T, String> code) {
+    List<List<T>> byShard = new ArrayList<>(shards.length);
+    for (int i = 0; i < shards.length; i++) byShard.add(new ArrayList<>());
+    for (T item : items) byShard.get(shardIndex(code.apply(item), shards.length)).add(item);
+    return byShard;
+  }
+
+  private List<ShortLink> fanOut(ShardQuery query) {
+    if (shards.length == 1) return query.apply(0);
+    return pool.invoke(new FanOut(query, 0, shards.length));
+  }
+
+  private record PageCursor(List<ShortLink> page, int pos) {
+    String code() {
+      return page.get(pos).getCode();
+    }
+  }
+
+  @FunctionalInterface
+  private interface ShardQuery {
+    List<ShortLink> apply(int shard);
+  }
+
+  /**
+   * Делит диапазон шардов пополам, пока в задаче не останется один шард. ForkJoinTask формально
+   * Serializable, но задача живёт только в пуле и держит несериализуемый запрос.
+   */
+  @SuppressWarnings("serial")
+  private static final class FanOut extends RecursiveTask<List<ShortLink>> {
+    private final ShardQuery query;
+    private final int from;
+    private final int to;
+
+    FanOut(ShardQuery query, int from, int to) {
+      this.query = query;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected List<ShortLink> compute() {
+      if (to - from == 1) return query.apply(from);
+      int mid = (from + to) >>> 1;
+      FanOut left = new FanOut(query, from, mid);
+      left.fork();
+      List<ShortLink> right = new FanOut(query, mid, to).compute();
+      List<ShortLink> merged = new ArrayList<>(left.join());
+      merged.addAll(right);
+      return merged;
+    }
+  }
+}
@@ -0,0 +1,330 @@
+package org.com.url_shortener.infra.wal;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
+import org.com.url_shortener.core.models.ShortLink;
+import org.com.url_shortener.core.repository.LinkRepository;
+import org.com.url_shortener.infra.InMemoryLinkRepository;
+
+/**
+ * Два слоя: изменяемый {@link InMemoryLinkRepository} поверх неизменяемого {@link MappedSnapshot}.
+ * Запись из снимка переносится в память при первом обращении и дальше живёт только там; удаления
+ * скрывают записи снимка через tombstones.
+ *
+ * <p>После смены снимка из памяти выгружаются записи, совпадающие с новым снимком, — память держит
+ * только то, что изменилось после него. Выгруженный экземпляр мог остаться у вызывающего (переход
+ * считается прямо на нём), поэтому до сборки мусора он хранится по слабой ссылке и при следующем
+ * обращении возвращается в память вместо свежей копии из снимка.
+ */
+final class LayeredLinkStore implements LinkRepository {
+  private static final int STRIPES = 64;
+
+  private final InMemoryLinkRepository memory = new InMemoryLinkRepository();
+  private final Set<String> tombstones = ConcurrentHashMap.newKeySet();
+  private final Set<String> loadedOwners = ConcurrentHashMap.newKeySet();
+  private final Object[] locks = new Object[STRIPES];
+  private final ReadWriteLock baseLock = new ReentrantReadWriteLock();
+  private final Object expiryLock = new Object();
+  private final ConcurrentHashMap<String, EvictedRef> evicted = new ConcurrentHashMap<>();
+  private final ReferenceQueue<ShortLink> collected = new ReferenceQueue<>();
+
+  private volatile MappedSnapshot base;
+  private volatile boolean snapshotting;
+  private long expiryCursor = Long.MIN_VALUE;
+
+  LayeredLinkStore(MappedSnapshot base) {
+    this.base = base;
+    for (int i = 0; i < STRIPES; i++) locks[i] = new Object();
+  }
+
+  @Override
+  public Optional<ShortLink> findByCode(String code) {
+    ShortLink link = memory.findByCode(code).orElse(null);
+    if (link != null || base == null) return Optional.ofNullable(link);
+    return Optional.ofNullable(loadFromBase(code));
+  }
+
+  @Override
+  public boolean existsByCode(String code) {
+    if (memory.existsByCode(code)) return true;
+    MappedSnapshot current = base;
+    // отсутствие в неизменяемом снимке проверяется без блокировки
+    if (current == null || !current.contains(code)) return false;
+    baseLock.readLock().lock();
+    try {
+      MappedSnapshot b = base;
+      return b != null && !tombstones.contains(code) && b.contains(code);
+    } finally {
+      baseLock.readLock().unlock();
+    }
+  }
+
+  @Override
+  public void save(ShortLink link) {
+    synchronized (lock(link.getCode())) {
+      memory.save(link);
+      evicted.remove(link.getCode());
+    }
+  }
+
+  @Override
+  public Optional<ShortLink> update(String code, UnaryOperator<ShortLink> updater) {
+    if (findByCode(code).isEmpty()) return Optional.empty();
+    synchronized (lock(code)) {
+      // между поиском и блокировкой запись могли выгрузить после смены снимка; baseLock здесь не
+      // нужен — результат изменения всё равно уходит в журнал
+      if (!memory.existsByCode(code) && !tombstones.contains(code)) {
+        ShortLink alive = evictedInstance(code);
+        ShortLink stored = alive != null ? alive : base == null ? null : base.find(code);
+        if (stored == null) return Optional.empty();
+        memory.save(stored);
+        evicted.remove(code);
+      }
+      boolean[] existed = new boolean[1];
+      Optional<ShortLink> result =
+          memory.update(
+              code,
+              l -> {
+                existed[0] = true;
+                return updater.apply(l);
+              });
+      if (existed[0] && result.isEmpty()) tombstones.add(code);
+      return result;
+    }
+  }
+
+  @Override
+  public void deleteByCode(String code) {
+    synchronized (lock(code)) {
+      memory.deleteByCode(code);
+      evicted.remove(code);
+      // флаг читается до base: если снимок уже сменился, base — уже новый снимок
+      if (snapshotting || inBase(code)) tombstones.add(code);
+    }
+  }
+
+  @Override
+  public List<ShortLink> findByOwner(String ownerUuid) {
+    loadOwner(ownerUuid);
+    return memory.findByOwner(ownerUuid);
+  }
+
+  @Override
+  public List<ShortLink> findByOwner(String ownerUuid, String afterCode, int limit) {
+    loadOwner(ownerUuid);
+    return memory.findByOwner(ownerUuid, afterCode, limit);
+  }
+
+  @Override
+  public Stream<ShortLink> streamByOwner(String ownerUuid) {
+    loadOwner(ownerUuid);
+    return memory.streamByOwner(ownerUuid);
+  }
+
+  @Override
+  public List<ShortLink> findExpired(Instant now) {
+    loadExpiring(now.getEpochSecond());
+    return memory.findExpired(now);
+  }
+
+  @Override
+  public List<ShortLink> findExpired(Instant now, int limit) {
+    loadExpiring(now.getEpochSecond());
+    return memory.findExpired(now, limit);
+  }
+
+  @Override
+  public long countExpired(Instant now) {
+    loadExpiring(now.getEpochSecond());
+    return memory.countExpired(now);
+  }
+
+  /**
+   * Все живые ссылки обоих слоёв — источник для нового снимка. Весь обход идёт под записью
+   * baseLock: перенос из снимка в память (он берёт чтение) не пишется в журнал, и ссылка,
+   * перенесённая между проходами по памяти и по снимку, не попала бы ни в один из них. Промахи по
+   * кодам, которых в снимке нет, блокировку не ждут.
+   */
+  @Override
+  public void forEach(Consumer<ShortLink> action) {
+    baseLock.writeLock().lock();
+    try {
+      memory.forEach(action);
+      MappedSnapshot b = base;
+      if (b == null) return;
+      b.forEach(
+          link -> {
+            String code = link.getCode();
+            if (memory.existsByCode(code) || tombstones.contains(code)) return;
+            ShortLink alive = evictedInstance(code);
+            action.accept(alive != null ? alive : link);
+          });
+    } finally {
+      baseLock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Начинается запись нового снимка: до {@link #replaceBase} удаления ставят tombstone всегда,
+   * ссылка могла попасть в пишущийся снимок.
+   */
+  void beginSnapshot() {
+    snapshotting = true;
+  }
+
+  void replaceBase(MappedSnapshot next) {
+    // тот же порядок блокировок, что в loadExpiring
+    synchronized (expiryLock) {
+      baseLock.writeLock().lock();
+      try {
+        base = next;
+        tombstones.removeIf(code -> !next.contains(code));
+        evictUnchanged(next);
+        // выгруженное придётся поднимать из снимка заново
+        loadedOwners.clear();
+        expiryCursor = Long.MIN_VALUE;
+        snapshotting = false;
+      } finally {
+        baseLock.writeLock().unlock();
+      }
+    }
+  }
+
+  /** Сколько записей лежит в памяти; для тестов. */
+  int memorySize() {
+    int[] n = new int[1];
+    memory.forEach(link -> n[0]++);
+    return n[0];
+  }
+
+  int tombstoneCount() {
+    return tombstones.size();
+  }
+
+  /** Выгружает из памяти записи, которые в новом снимке лежат в том же виде. */
+  private void evictUnchanged(MappedSnapshot next) {
+    List<String> codes = new ArrayList<>();
+    memory.forEach(link -> codes.add(link.getCode()));
+    for (String code : codes) {
+      synchronized (lock(code)) {
+        ShortLink current = memory.findByCode(code).orElse(null);
+        if (current == null || !sameState(current, next.find(code))) continue;
+        memory.deleteByCode(code);
+        evicted.put(code, new EvictedRef(code, current, collected));
+      }
+    }
+    expungeCollected();
+  }
+
+  private ShortLink loadFromBase(String code) {
+    MappedSnapshot current = base;
+    // в снимке кода нет — переносить нечего, блокировка не нужна
+    if (current == null || !current.contains(code)) return memory.findByCode(code).orElse(null);
+    baseLock.readLock().lock();
+    try {
+      MappedSnapshot b = base;
+      if (b == null || tombstones.contains(code)) return memory.findByCode(code).orElse(null);
+      ShortLink stored = b.find(code);
+      return stored == null ? memory.findByCode(code).orElse(null) : promote(stored);
+    } finally {
+      baseLock.readLock().unlock();
+    }
+  }
+
+  private void loadOwner(String ownerUuid) {
+    if (base == null || loadedOwners.contains(ownerUuid)) return;
+    baseLock.readLock().lock();
+    try {
+      MappedSnapshot b = base;
+      if (b != null) b.forEachByOwner(ownerUuid, this::promote);
+      loadedOwners.add(ownerUuid);
+    } finally {
+      baseLock.readLock().unlock();
+    }
+  }
+
+  private void loadExpiring(long nowSeconds) {
+    if (base == null) return;
+    synchronized (expiryLock) {
+      if (nowSeconds <= expiryCursor) return;
+      baseLock.readLock().lock();
+      try {
+        MappedSnapshot b = base;
+        if (b != null) b.forEachExpiring(expiryCursor, nowSeconds, this::promote);
+        expiryCursor = nowSeconds;
+      } finally {
+        baseLock.readLock().unlock();
+      }
+    }
+  }
+
+  /**
+   * Переносит запись снимка в память, если она ещё не там и не удалена. Если прежний экземпляр
+   * выгружен, но ещё жив, возвращается он: на нём могли быть переходы после выгрузки.
+   */
+  private ShortLink promote(ShortLink stored) {
+    String code = stored.getCode();
+    expungeCollected();
+    synchronized (lock(code)) {
+      ShortLink current = memory.findByCode(code).orElse(null);
+      if (current != null) return current;
+      if (tombstones.contains(code)) return null;
+      ShortLink alive = evictedInstance(code);
+      ShortLink promoted = alive != null ? alive : stored;
+      memory.save(promoted);
+      evicted.remove(code);
+      return promoted;
+    }
+  }
+
+  private ShortLink evictedInstance(String code) {
+    EvictedRef ref = evicted.get(code);
+    return ref == null ? null : ref.get();
+  }
+
+  private void expungeCollected() {
+    EvictedRef ref;
+    while ((ref = (EvictedRef) collected.poll()) != null) evicted.remove(ref.code, ref);
+  }
+
+  private boolean inBase(String code) {
+    MappedSnapshot b = base;
+    return b != null && b.contains(code);
+  }
+
+  private static boolean sameState(ShortLink a, ShortLink b) {
+    return b != null
+        && a.getClicksUsed() == b.getClicksUsed()
+        && a.isLimitNotified() == b.isLimitNotified()
+        && a.getMaxClicks() == b.getMaxClicks()
+        && a.getExpiresAt().equals(b.getExpiresAt())
+        && a.getCreatedAt().equals(b.getCreatedAt())
+        && Objects.equals(a.getOwnerUuid(), b.getOwnerUuid())
+        && Objects.equals(a.getOriginalUrl(), b.getOriginalUrl());
+  }
+
+  private static final class EvictedRef extends WeakReference<ShortLink> {
+    final String code;
+
+    EvictedRef(String code, ShortLink link, ReferenceQueue<ShortLink> queue) {
+      super(link, queue);
+      this.code = code;
+    }
+  }
+
+  private Object lock(String code) {
+    return locks[code.hashCode() & (STRIPES - 1)];
+  }
+}
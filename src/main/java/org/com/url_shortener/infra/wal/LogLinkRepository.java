@@ -0,0 +1,279 @@
+package org.com.url_shortener.infra.wal;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import org.com.url_shortener.core.models.ClickCounter;
+import org.com.url_shortener.core.models.ShortLink;
+import org.com.url_shortener.core.repository.LinkRepository;
+
+/**
+ * Хранилище ссылок с журналом: состояние живёт в {@link InMemoryLinkRepository}, а каждое изменение
+ * пишется в WAL. save/update/delete возвращаются после fsync своей пачки, клики копятся в памяти и
+ * сбрасываются в журнал раз в {@code clickFlushInterval}. Когда сегмент журнала вырастает больше
+ * {@code compactThresholdBytes}, состояние сбрасывается в снимок, а старые сегменты удаляются.
+ */
+public final class LogLinkRepository implements LinkRepository, AutoCloseable {
+  private static final String SNAPSHOT = "snapshot.bin";
+  private static final Pattern SEGMENT = Pattern.compile("wal-(\\d+)\\.log");
+  private static final int STRIPES = 64;
+
+  private final Path dir;
+  private final long compactThresholdBytes;
+  private final LayeredLinkStore store;
+  private final Object[] locks = new Object[STRIPES];
+  private final ConcurrentHashMap<String, ShortLink> dirtyClicks = new ConcurrentHashMap<>();
+  private final WriteAheadLog wal;
+  private final ScheduledExecutorService background;
+  private final AtomicBoolean closed = new AtomicBoolean(false);
+
+  public LogLinkRepository(Path dir, Duration clickFlushInterval, long compactThresholdBytes) {
+    this.dir = dir;
+    this.compactThresholdBytes = compactThresholdBytes;
+    for (int i = 0; i < STRIPES; i++) locks[i] = new Object();
+
+    try {
+      Files.createDirectories(dir);
+      Path snapshot = dir.resolve(SNAPSHOT);
+      MappedSnapshot base = Files.exists(snapshot) ? MappedSnapshot.open(snapshot) : null;
+      long first = (base == null) ? 1 : base.firstSegment();
+      this.store = new LayeredLinkStore(base);
+
+      long next = first;
+      for (long seg : listSegments()) {
+        Path file = WriteAheadLog.segmentPath(dir, seg);
+        if (seg < first) {
+          Files.delete(file);
+          continue;
+        }
+        WriteAheadLog.replay(file, record -> WalCodec.apply(record, store));
+        next = seg + 1;
+      }
+      this.wal = new WriteAheadLog(dir, next);
+    } catch (IOException e) {
+      throw new IllegalStateException("Failed to open link store in " + dir, e);
+    }
+
+    this.background =
+        Executors.newSingleThreadScheduledExecutor(
+            r -> {
+              Thread t = new Thread(r, "wal-maintenance");
+              t.setDaemon(true);
+              return t;
+            });
+    long period = Math.max(1, clickFlushInterval.toMillis());
+    background.scheduleWithFixedDelay(this::maintain, period, period, TimeUnit.MILLISECONDS);
+  }
+
+  @Override
+  public Optional<ShortLink> findByCode(String code) {
+    return store.findByCode(code);
+  }
+
+  @Override
+  public boolean existsByCode(String code) {
+    return store.existsByCode(code);
+  }
+
+  @Override
+  public void save(ShortLink link) {
+    CompletableFuture<Void> synced;
+    synchronized (lock(link.getCode())) {
+      store.save(link);
+      synced = wal.append(WalCodec.save(link));
+    }
+    WriteAheadLog.await(synced);
+  }
+
+  /** Все записи уходят в журнал сразу и попадают в общие групповые fsync. */
+  @Override
+  public void saveAll(Collection<ShortLink> links) {
+    List<CompletableFuture<Void>> pending = new ArrayList<>(links.size());
+    for (ShortLink link : links) {
+      synchronized (lock(link.getCode())) {
+        store.save(link);
+        pending.add(wal.append(WalCodec.save(link)));
+      }
+    }
+    for (CompletableFuture<Void> synced : pending) WriteAheadLog.await(synced);
+  }
+
+  @Override
+  public Optional<ShortLink> update(String code, UnaryOperator<ShortLink> updater) {
+    CompletableFuture<Void> synced = null;
+    Optional<ShortLink> result;
+    synchronized (lock(code)) {
+      boolean[] existed = new boolean[1];
+      result =
+          store.update(
+              code,
+              l -> {
+                existed[0] = true;
+                return updater.apply(l);
+              });
+      if (result.isPresent()) {
+        synced = wal.append(WalCodec.save(result.get()));
+      } else if (existed[0]) {
+        dirtyClicks.remove(code);
+        synced = wal.append(WalCodec.delete(code));
+      }
+    }
+    if (synced != null) WriteAheadLog.await(synced);
+    return result;
+  }
+
+  @Override
+  public ClickCounter.Outcome recordClick(ShortLink link) {
+    ClickCounter.Outcome outcome = link.tryClick();
+    if (outcome != ClickCounter.Outcome.LIMIT_REACHED) dirtyClicks.put(link.getCode(), link);
+    return outcome;
+  }
+
+  @Override
+  public void deleteByCode(String code) {
+    CompletableFuture<Void> synced = deleteAsync(code);
+    if (synced != null) WriteAheadLog.await(synced);
+  }
+
+  @Override
+  public void deleteAllByCode(Collection<String> codes) {
+    List<CompletableFuture<Void>> pending = new ArrayList<>();
+    for (String code : codes) {
+      CompletableFuture<Void> synced = deleteAsync(code);
+      if (synced != null) pending.add(synced);
+    }
+    for (CompletableFuture<Void> synced : pending) WriteAheadLog.await(synced);
+  }
+
+  @Override
+  public List<ShortLink> findByOwner(String ownerUuid) {
+    return store.findByOwner(ownerUuid);
+  }
+
+  @Override
+  public List<ShortLink> findByOwner(String ownerUuid, String afterCode, int limit) {
+    return store.findByOwner(ownerUuid, afterCode, limit);
+  }
+
+  @Override
+  public Stream<ShortLink> streamByOwner(String ownerUuid) {
+    return store.streamByOwner(ownerUuid);
+  }
+
+  @Override
+  public List<ShortLink> findExpired(Instant now) {
+    return store.findExpired(now);
+  }
+
+  @Override
+  public List<ShortLink> findExpired(Instant now, int limit) {
+    return store.findExpired(now, limit);
+  }
+
+  @Override
+  public long countExpired(Instant now) {
+    return store.countExpired(now);
+  }
+
+  @Override
+  public void forEach(Consumer<ShortLink> action) {
+    store.forEach(action);
+  }
+
+  public synchronized void compact() {
+    flushClicks();
+    long first = wal.rotate();
+    store.beginSnapshot();
+    try {
+      Path snapshot = dir.resolve(SNAPSHOT);
+      MappedSnapshot.write(snapshot, first, store::forEach);
+      store.replaceBase(MappedSnapshot.open(snapshot));
+      for (long seg : listSegments()) {
+        if (seg < first) Files.deleteIfExists(WriteAheadLog.segmentPath(dir, seg));
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException("Failed to compact link store in " + dir, e);
+    }
+  }
+
+  @Override
+  public void close() {
+    if (!closed.compareAndSet(false, true)) return;
+    background.shutdown();
+    try {
+      background.awaitTermination(10, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    flushClicks();
+    wal.close();
+  }
+
+  private CompletableFuture<Void> deleteAsync(String code) {
+    synchronized (lock(code)) {
+      boolean[] existed = new boolean[1];
+      store.update(
+          code,
+          l -> {
+            existed[0] = true;
+            return null;
+          });
+      if (!existed[0]) return null;
+      dirtyClicks.remove(code);
+      return wal.append(WalCodec.delete(code));
+    }
+  }
+
+  private void maintain() {
+    try {
+      flushClicks();
+      if (wal.segmentBytes() >= compactThresholdBytes) compact();
+    } catch (Exception e) {
+      System.err.println("[WARN] WAL maintenance failed: " + e.getMessage());
+    }
+  }
+
+  private void flushClicks() {
+    for (var e : dirtyClicks.entrySet()) {
+      String code = e.getKey();
+      ShortLink link = e.getValue();
+      synchronized (lock(code)) {
+        if (!dirtyClicks.remove(code, link)) continue;
+        if (store.findByCode(code).orElse(null) != link) continue;
+        wal.append(WalCodec.clicks(code, link.getClicksUsed(), link.isLimitNotified()));
+      }
+    }
+  }
+
+  private Object lock(String code) {
+    return locks[code.hashCode() & (STRIPES - 1)];
+  }
+
+  private List<Long> listSegments() throws IOException {
+    try (Stream<Path> files = Files.list(dir)) {
+      return files
+          .map(p -> SEGMENT.matcher(p.getFileName().toString()))
+          .filter(Matcher::matches)
+          .map(m -> Long.parseLong(m.group(1)))
+          .sorted()
+          .toList();
+    }
+  }
+}
@@ -0,0 +1,351 @@
+package org.com.url_shortener.infra.wal;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.function.Consumer;
+import org.com.url_shortener.core.models.ShortLink;
+
+/**
+ * Бинарный снимок хранилища, который открывается через {@link MappedByteBuffer} и читается лениво:
+ * при старте ничего не парсится, страницы подтягиваются ОС при первых обращениях.
+ *
+ * <pre>
+ * header (64 байта): magic, version, firstSegment, count,
+ *                    dataOffset, codeIndexOffset, ownerIndexOffset, expiryIndexOffset
+ * data:    записи [code][owner][url][created][expires][maxClicks][clicksUsed][notified]
+ * indexes: три отсортированных массива пар (long key, long recordOffset):
+ *          hash(code), hash(owner), expiresAt (epoch seconds)
+ * </pre>
+ */
+final class MappedSnapshot {
+  private static final int MAGIC = 0x55534E32; // "USN2"
+  private static final int VERSION = 2;
+  private static final int HEADER_SIZE = 64;
+  private static final int ENTRY_SIZE = 16;
+  private static final long CHUNK_SIZE = 1L << 30;
+
+  private final ByteBuffer[] chunks;
+  private final long firstSegment;
+  private final long count;
+  private final long codeIndex;
+  private final long ownerIndex;
+  private final long expiryIndex;
+
+  private MappedSnapshot(ByteBuffer[] chunks) {
+    this.chunks = chunks;
+    if (getInt(0) != MAGIC) throw new IllegalStateException("Not a snapshot file");
+    int version = getInt(4);
+    if (version != VERSION) {
+      throw new IllegalStateException("Unsupported snapshot version: " + version);
+    }
+    this.firstSegment = getLong(8);
+    this.count = getLong(16);
+    this.codeIndex = getLong(32);
+    this.ownerIndex = getLong(40);
+    this.expiryIndex = getLong(48);
+  }
+
+  static MappedSnapshot open(Path file) throws IOException {
+    try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+      long size = ch.size();
+      int n = (int) ((size + CHUNK_SIZE - 1) / CHUNK_SIZE);
+      ByteBuffer[] chunks = new ByteBuffer[n];
+      for (int i = 0; i < n; i++) {
+        long pos = i * CHUNK_SIZE;
+        chunks[i] = ch.map(FileChannel.MapMode.READ_ONLY, pos, Math.min(CHUNK_SIZE, size - pos));
+      }
+      return new MappedSnapshot(chunks);
+    }
+  }
+
+  long firstSegment() {
+    return firstSegment;
+  }
+
+  long count() {
+    return count;
+  }
+
+  ShortLink find(String code) {
+    long key = hash(code);
+    for (long i = lowerBound(codeIndex, key); i < count; i++) {
+      long entry = codeIndex + i * ENTRY_SIZE;
+      if (getLong(entry) != key) break;
+      long record = getLong(entry + 8);
+      if (codeEquals(record, code)) return readRecord(record);
+    }
+    return null;
+  }
+
+  boolean contains(String code) {
+    long key = hash(code);
+    for (long i = lowerBound(codeIndex, key); i < count; i++) {
+      long entry = codeIndex + i * ENTRY_SIZE;
+      if (getLong(entry) != key) break;
+      if (codeEquals(getLong(entry + 8), code)) return true;
+    }
+    return false;
+  }
+
+  void forEachByOwner(String ownerUuid, Consumer<ShortLink> action) {
+    long key = hash(ownerUuid);
+    for (long i = lowerBound(ownerIndex, key); i < count; i++) {
+      long entry = ownerIndex + i * ENTRY_SIZE;
+      if (getLong(entry) != key) break;
+      ShortLink link = readRecord(getLong(entry + 8));
+      if (link.getOwnerUuid().equals(ownerUuid)) action.accept(link);
+    }
+  }
+
+  /** Ссылки с expiresAt в секундах из полуинтервала (fromExclusive, toInclusive]. */
+  void forEachExpiring(long fromExclusive, long toInclusive, Consumer<ShortLink> action) {
+    if (fromExclusive == Long.MAX_VALUE) return;
+    long start = lowerBound(expiryIndex, fromExclusive + 1);
+    for (long i = start; i < count; i++) {
+      long entry = expiryIndex + i * ENTRY_SIZE;
+      if (getLong(entry) > toInclusive) break;
+      action.accept(readRecord(getLong(entry + 8)));
+    }
+  }
+
+  void forEach(Consumer<ShortLink> action) {
+    long pos = HEADER_SIZE;
+    for (long i = 0; i < count; i++) {
+      action.accept(readRecord(pos));
+      pos = skipRecord(pos);
+    }
+  }
+
+  // --- запись ---
+
+  static void write(Path file, long firstSegment, Consumer<Consumer<ShortLink>> source)
+      throws IOException {
+    Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+    IndexBuilder codes = new IndexBuilder();
+    IndexBuilder owners = new IndexBuilder();
+    IndexBuilder expiries = new IndexBuilder();
+
+    try (FileChannel ch =
+        FileChannel.open(
+            tmp,
+            StandardOpenOption.CREATE,
+            StandardOpenOption.TRUNCATE_EXISTING,
+            StandardOpenOption.WRITE)) {
+      DataOutputStream out =
+          new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(ch), 1 << 16));
+      out.write(new byte[HEADER_SIZE]);
+
+      long[] written = {HEADER_SIZE};
+      IOException[] failure = new IOException[1];
+      source.accept(
+          link -> {
+            if (failure[0] != null) return;
+            try {
+              long offset = written[0];
+              written[0] += writeRecord(out, link);
+              codes.add(hash(link.getCode()), offset);
+              owners.add(hash(link.getOwnerUuid()), offset);
+              expiries.add(link.getExpiresAt().getEpochSecond(), offset);
+            } catch (IOException e) {
+              failure[0] = e;
+            }
+          });
+      if (failure[0] != null) throw failure[0];
+
+      long pad = (ENTRY_SIZE - written[0] % ENTRY_SIZE) % ENTRY_SIZE;
+      out.write(new byte[(int) pad]);
+      long codeOffset = written[0] + pad;
+      codes.writeSorted(out);
+      long ownerOffset = codeOffset + codes.size * (long) ENTRY_SIZE;
+      owners.writeSorted(out);
+      long expiryOffset = ownerOffset + owners.size * (long) ENTRY_SIZE;
+      expiries.writeSorted(out);
+      out.flush();
+
+      ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+      header.putInt(MAGIC).putInt(VERSION).putLong(firstSegment).putLong(codes.size);
+      header.putLong(HEADER_SIZE).putLong(codeOffset).putLong(ownerOffset).putLong(expiryOffset);
+      header.clear();
+      while (header.hasRemaining()) ch.write(header, header.position());
+      ch.force(true);
+    }
+    Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  private static long writeRecord(DataOutputStream out, ShortLink link) throws IOException {
+    long size = 33;
+    size += writeString(out, link.getCode());
+    size += writeString(out, link.getOwnerUuid());
+    size += writeString(out, link.getOriginalUrl());
+    out.writeLong(link.getCreatedAt().getEpochSecond());
+    out.writeInt(link.getCreatedAt().getNano());
+    out.writeLong(link.getExpiresAt().getEpochSecond());
+    out.writeInt(link.getExpiresAt().getNano());
+    out.writeInt(link.getMaxClicks());
+    out.writeInt(link.getClicksUsed());
+    out.writeBoolean(link.isLimitNotified());
+    return size;
+  }
+
+  private static int writeString(DataOutputStream out, String s) throws IOException {
+    byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+    return 4 + bytes.length;
+  }
+
+  // --- чтение ---
+
+  private ShortLink readRecord(long pos) {
+    int codeLen = getInt(pos);
+    String code = getString(pos + 4, codeLen);
+    pos += 4 + codeLen;
+    int ownerLen = getInt(pos);
+    String owner = getString(pos + 4, ownerLen);
+    pos += 4 + ownerLen;
+    int urlLen = getInt(pos);
+    String url = getString(pos + 4, urlLen);
+    pos += 4 + urlLen;
+
+    Instant createdAt = Instant.ofEpochSecond(getLong(pos), getInt(pos + 8));
+    Instant expiresAt = Instant.ofEpochSecond(getLong(pos + 12), getInt(pos + 20));
+    int maxClicks = getInt(pos + 24);
+    int clicksUsed = getInt(pos + 28);
+    boolean notified = getByte(pos + 32) != 0;
+    return new ShortLink(code, owner, url, createdAt, expiresAt, maxClicks, clicksUsed, notified);
+  }
+
+  private long skipRecord(long pos) {
+    for (int field = 0; field < 3; field++) pos += 4 + getInt(pos);
+    return pos + 33;
+  }
+
+  private boolean codeEquals(long record, String code) {
+    return getString(record + 4, getInt(record)).equals(code);
+  }
+
+  private long lowerBound(long index, long key) {
+    long lo = 0;
+    long hi = count;
+    while (lo < hi) {
+      long mid = (lo + hi) >>> 1;
+      if (getLong(index + mid * ENTRY_SIZE) < key) lo = mid + 1;
+      else hi = mid;
+    }
+    return lo;
+  }
+
+  private byte getByte(long pos) {
+    return chunks[(int) (pos / CHUNK_SIZE)].get((int) (pos % CHUNK_SIZE));
+  }
+
+  private int getInt(long pos) {
+    int off = (int) (pos % CHUNK_SIZE);
+    ByteBuffer chunk = chunks[(int) (pos / CHUNK_SIZE)];
+    if (off + 4 <= chunk.limit()) return chunk.getInt(off);
+    int v = 0;
+    for (int i = 0; i < 4; i++) v = (v << 8) | (getByte(pos + i) & 0xFF);
+    return v;
+  }
+
+  private long getLong(long pos) {
+    int off = (int) (pos % CHUNK_SIZE);
+    ByteBuffer chunk = chunks[(int) (pos / CHUNK_SIZE)];
+    if (off + 8 <= chunk.limit()) return chunk.getLong(off);
+    long v = 0;
+    for (int i = 0; i < 8; i++) v = (v << 8) | (getByte(pos + i) & 0xFF);
+    return v;
+  }
+
+  private String getString(long pos, int len) {
+    byte[] bytes = new byte[len];
+    int off = (int) (pos % CHUNK_SIZE);
+    ByteBuffer chunk = chunks[(int) (pos / CHUNK_SIZE)];
+    if (off + len <= chunk.limit()) {
+      chunk.get(off, bytes);
+    } else {
+      for (int i = 0; i < len; i++) bytes[i] = getByte(pos + i);
+    }
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  static long hash(String s) {
+    long h = 0xcbf29ce484222325L;
+    for (int i = 0; i < s.length(); i++) {
+      h ^= s.charAt(i);
+      h *= 0x100000001b3L;
+    }
+    h ^= h >>> 33;
+    h *= 0xff51afd7ed558ccdL;
+    h ^= h >>> 33;
+    return h;
+  }
+
+  private static final class IndexBuilder {
+    long[] keys = new long[1024];
+    long[] offsets = new long[1024];
+    int size;
+
+    void add(long key, long offset) {
+      if (size == keys.length) {
+        keys = Arrays.copyOf(keys, size * 2);
+        offsets = Arrays.copyOf(offsets, size * 2);
+      }
+      keys[size] = key;
+      offsets[size] = offset;
+      size++;
+    }
+
+    void writeSorted(DataOutputStream out) throws IOException {
+      sort(0, size - 1);
+      for (int i = 0; i < size; i++) {
+        out.writeLong(keys[i]);
+        out.writeLong(offsets[i]);
+      }
+    }
+
+    private void sort(int lo, int hi) {
+      while (hi - lo > 16) {
+        long pivot = keys[(lo + hi) >>> 1];
+        int i = lo;
+        int j = hi;
+        while (i <= j) {
+          while (keys[i] < pivot) i++;
+          while (keys[j] > pivot) j--;
+          if (i <= j) swap(i++, j--);
+        }
+        if (j - lo < hi - i) {
+          sort(lo, j);
+          lo = i;
+        } else {
+          sort(i, hi);
+          hi = j;
+        }
+      }
+      for (int i = lo + 1; i <= hi; i++) {
+        for (int k = i; k > lo && keys[k - 1] > keys[k]; k--) swap(k, k - 1);
+      }
+    }
+
+    private void swap(int a, int b) {
+      long k = keys[a];
+      keys[a] = keys[b];
+      keys[b] = k;
+      long o = offsets[a];
+      offsets[a] = offsets[b];
+      offsets[b] = o;
+    }
+  }
+}
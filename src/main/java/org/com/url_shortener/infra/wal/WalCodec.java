@@ -0,0 +1,128 @@
+package org.com.url_shortener.infra.wal;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import org.com.url_shortener.core.models.ShortLink;
+import org.com.url_shortener.core.repository.LinkRepository;
+
+final class WalCodec {
+  static final byte SAVE = 1;
+  static final byte DELETE = 2;
+  static final byte CLICKS = 3;
+
+  private WalCodec() {}
+
+  static byte[] save(ShortLink link) {
+    return encode(
+        out -> {
+          out.writeByte(SAVE);
+          writeLink(out, link);
+        });
+  }
+
+  static byte[] delete(String code) {
+    return encode(
+        out -> {
+          out.writeByte(DELETE);
+          writeString(out, code);
+        });
+  }
+
+  static byte[] clicks(String code, int clicksUsed, boolean limitNotified) {
+    return encode(
+        out -> {
+          out.writeByte(CLICKS);
+          writeString(out, code);
+          out.writeInt(clicksUsed);
+          out.writeBoolean(limitNotified);
+        });
+  }
+
+  static void apply(byte[] record, LinkRepository target) {
+    try {
+      DataInputStream in = new DataInputStream(new ByteArrayInputStream(record));
+      byte type = in.readByte();
+      switch (type) {
+        case SAVE -> target.save(readLink(in));
+        case DELETE -> target.deleteByCode(readString(in));
+        case CLICKS -> {
+          String code = readString(in);
+          int clicksUsed = in.readInt();
+          boolean notified = in.readBoolean();
+          target.update(code, l -> l.withClicksUsed(clicksUsed, notified));
+        }
+        default -> throw new IllegalStateException("Unknown WAL record type: " + type);
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  static void writeLink(DataOutput out, ShortLink link) throws IOException {
+    writeString(out, link.getCode());
+    writeString(out, link.getOwnerUuid());
+    writeString(out, link.getOriginalUrl());
+    writeInstant(out, link.getCreatedAt());
+    writeInstant(out, link.getExpiresAt());
+    out.writeInt(link.getMaxClicks());
+    out.writeInt(link.getClicksUsed());
+    out.writeBoolean(link.isLimitNotified());
+  }
+
+  static ShortLink readLink(DataInput in) throws IOException {
+    return new ShortLink(
+        readString(in),
+        readString(in),
+        readString(in),
+        readInstant(in),
+        readInstant(in),
+        in.readInt(),
+        in.readInt(),
+        in.readBoolean());
+  }
+
+  private static void writeString(DataOutput out, String s) throws IOException {
+    byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  private static String readString(DataInput in) throws IOException {
+    byte[] bytes = new byte[in.readInt()];
+    in.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private static void writeInstant(DataOutput out, Instant t) throws IOException {
+    out.writeLong(t.getEpochSecond());
+    out.writeInt(t.getNano());
+  }
+
+  private static Instant readInstant(DataInput in) throws IOException {
+    return Instant.ofEpochSecond(in.readLong(), in.readInt());
+  }
+
+  private interface Writer {
+    void write(DataOutputStream out) throws IOException;
+  }
+
+  private static byte[] encode(Writer writer) {
+    try {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+      DataOutputStream out = new DataOutputStream(bytes);
+      writer.write(out);
+      out.flush();
+      return bytes.toByteArray();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+}
@@ -0,0 +1,282 @@
+package org.com.url_shortener.infra.wal;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only журнал с групповым коммитом: один поток-писатель забирает из очереди всё, что
+ * накопилось, пишет пачкой и делает один {@code force} на всю пачку.
+ *
+ * <p>Формат записи: {@code [int length][int crc32c][payload]}.
+ *
+ * <p>Если запись или {@code force} падают, сегмент обрезается до конца последней синхронизированной
+ * пачки, чтобы посреди файла не осталось рваной записи, на которой остановится {@link #replay}.
+ * Если не удаётся и обрезать, журнал переходит в состояние отказа и больше не принимает записи.
+ */
+final class WriteAheadLog implements AutoCloseable {
+  private static final int MAX_BATCH = 8192;
+
+  private record Entry(byte[] payload, long rotateTo, CompletableFuture<Void> done) {}
+
+  /** Открывает файл сегмента; в тестах подменяется, чтобы сымитировать сбой диска. */
+  interface SegmentOpener {
+    FileChannel open(Path file) throws IOException;
+  }
+
+  private static final Entry STOP = new Entry(null, -1, null);
+
+  private final Path dir;
+  private final SegmentOpener opener;
+  private final BlockingQueue<Entry> queue = new LinkedBlockingQueue<>();
+  private final Thread writer;
+
+  private FileChannel channel;
+  private volatile long segment;
+  private volatile long segmentBytes;
+  private volatile boolean closed;
+  private volatile Throwable failure;
+  private long syncedBytes;
+  private ByteBuffer buf = ByteBuffer.allocateDirect(1 << 16);
+
+  WriteAheadLog(Path dir, long segment) throws IOException {
+    this(
+        dir,
+        segment,
+        file ->
+            FileChannel.open(
+                file,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND));
+  }
+
+  WriteAheadLog(Path dir, long segment, SegmentOpener opener) throws IOException {
+    this.dir = dir;
+    this.opener = opener;
+    this.segment = segment;
+    this.channel = openSegment(segment);
+    this.writer = new Thread(this::writeLoop, "wal-writer");
+    this.writer.setDaemon(true);
+    this.writer.start();
+  }
+
+  static Path segmentPath(Path dir, long segment) {
+    return dir.resolve(String.format("wal-%06d.log", segment));
+  }
+
+  long segment() {
+    return segment;
+  }
+
+  long segmentBytes() {
+    return segmentBytes;
+  }
+
+  /** Ставит запись в очередь; future завершается, когда запись на диске (после fsync). */
+  CompletableFuture<Void> append(byte[] payload) {
+    ensureWritable();
+    CompletableFuture<Void> done = new CompletableFuture<>();
+    queue.add(new Entry(payload, -1, done));
+    return done;
+  }
+
+  void appendAndSync(byte[] payload) {
+    await(append(payload));
+  }
+
+  /** Переключает запись на новый сегмент и возвращает его номер. */
+  long rotate() {
+    ensureWritable();
+    CompletableFuture<Void> done = new CompletableFuture<>();
+    long next = segment + 1;
+    queue.add(new Entry(null, next, done));
+    await(done);
+    return next;
+  }
+
+  @Override
+  public void close() {
+    if (closed) return;
+    closed = true;
+    queue.add(STOP);
+    try {
+      writer.join();
+      channel.close();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (IOException e) {
+      throw new IllegalStateException("Failed to close WAL segment in " + dir, e);
+    }
+  }
+
+  private void ensureWritable() {
+    if (closed) throw new IllegalStateException("WAL is closed");
+    Throwable f = failure;
+    if (f != null) throw new IllegalStateException("WAL is failed after an I/O error in " + dir, f);
+  }
+
+  static void await(CompletableFuture<Void> f) {
+    try {
+      f.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while waiting for WAL sync", e);
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("WAL write failed", e.getCause());
+    }
+  }
+
+  private FileChannel openSegment(long seg) throws IOException {
+    FileChannel ch = opener.open(segmentPath(dir, seg));
+    segmentBytes = ch.size();
+    syncedBytes = segmentBytes;
+    return ch;
+  }
+
+  private void writeLoop() {
+    List<Entry> batch = new ArrayList<>();
+    CRC32C crc = new CRC32C();
+    boolean running = true;
+    while (running) {
+      int acked = 0;
+      try {
+        batch.add(queue.take());
+        queue.drainTo(batch, MAX_BATCH - 1);
+        if (failure != null) throw failure;
+
+        for (int i = 0; i < batch.size(); i++) {
+          Entry e = batch.get(i);
+          if (e == STOP) {
+            running = false;
+          } else if (e.payload() != null) {
+            frame(e.payload(), crc);
+          } else {
+            sync();
+            channel.close();
+            channel = openSegment(e.rotateTo());
+            segment = e.rotateTo();
+            // всё до переключения уже на диске в старом сегменте
+            acked = complete(batch, acked, i + 1);
+          }
+        }
+        sync();
+        complete(batch, acked, batch.size());
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        running = false;
+      } catch (Throwable t) {
+        if (batch.contains(STOP)) running = false;
+        recover(t);
+        for (int i = acked; i < batch.size(); i++) {
+          Entry e = batch.get(i);
+          if (e.done() != null) e.done().completeExceptionally(t);
+        }
+      } finally {
+        batch.clear();
+      }
+    }
+  }
+
+  private void sync() throws IOException {
+    flush();
+    channel.force(false);
+    syncedBytes = segmentBytes;
+  }
+
+  private static int complete(List<Entry> batch, int from, int to) {
+    for (int i = from; i < to; i++) {
+      Entry e = batch.get(i);
+      if (e.done() != null) e.done().complete(null);
+    }
+    return to;
+  }
+
+  /** Откатывает сегмент к последней синхронизированной пачке; если не вышло, журнал отказывает. */
+  private void recover(Throwable cause) {
+    buf.clear();
+    if (failure != null) return;
+    try {
+      channel.truncate(syncedBytes);
+      channel.force(false);
+      segmentBytes = syncedBytes;
+    } catch (Throwable t) {
+      t.addSuppressed(cause);
+      failure = t;
+      System.err.println("[WARN] WAL " + segmentPath(dir, segment) + " failed: " + t);
+    }
+  }
+
+  private void frame(byte[] payload, CRC32C crc) throws IOException {
+    int need = 8 + payload.length;
+    if (buf.remaining() < need) {
+      flush();
+      if (buf.capacity() < need) buf = ByteBuffer.allocateDirect(Integer.highestOneBit(need) << 1);
+    }
+    crc.reset();
+    crc.update(payload);
+    buf.putInt(payload.length);
+    buf.putInt((int) crc.getValue());
+    buf.put(payload);
+  }
+
+  private void flush() throws IOException {
+    buf.flip();
+    while (buf.hasRemaining()) segmentBytes += channel.write(buf);
+    buf.clear();
+  }
+
+  /** Читает сегмент до первой битой (недописанной) записи. */
+  static void replay(Path file, Consumer<byte[]> sink) throws IOException {
+    try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+      ByteBuffer header = ByteBuffer.allocate(8);
+      CRC32C crc = new CRC32C();
+      long pos = 0;
+      long size = ch.size();
+      while (pos + 8 <= size) {
+        header.clear();
+        readFully(ch, header, pos);
+        header.flip();
+        int len = header.getInt();
+        int expected = header.getInt();
+        if (len < 0 || pos + 8 + len > size) break;
+
+        ByteBuffer body = ByteBuffer.allocate(len);
+        readFully(ch, body, pos + 8);
+        crc.reset();
+        crc.update(body.array());
+        if ((int) crc.getValue() != expected) break;
+
+        sink.accept(body.array());
+        pos += 8 + len;
+      }
+      if (pos < size) {
+        System.err.println(
+            "[WARN] WAL "
+                + file
+                + ": torn tail at offset "
+                + pos
+                + ", ignoring "
+                + (size - pos)
+                + " bytes");
+      }
+    }
+  }
+
+  private static void readFully(FileChannel ch, ByteBuffer dst, long pos) throws IOException {
+    while (dst.hasRemaining()) {
+      int n = ch.read(dst, pos + dst.position());
+      if (n < 0) throw new IOException("Unexpected end of WAL segment");
+    }
+  }
+}
@@ -0,0 +1,154 @@
+package org.com.url_shortener.services;
+
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import org.com.url_shortener.infra.cfg.BackpressurePolicy;
+
+/**
+ * Декоратор, который выносит доставку уведомлений из потока запроса: события кладутся в {@link
+ * RingBuffer}, фоновый поток разбирает их пачками и передаёт обёрнутому сервису. При заполненной
+ * очереди поведение задаёт {@link BackpressurePolicy}.
+ */
+public final class AsyncNotificationService implements NotificationService, AutoCloseable {
+  private static final int DRAIN_BATCH = 256;
+  private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+  private final NotificationService delegate;
+  private final BackpressurePolicy policy;
+  private final RingBuffer<Event> queue;
+  private final Thread worker;
+
+  private final LongAdder enqueued = new LongAdder();
+  private final LongAdder delivered = new LongAdder();
+  private final LongAdder dropped = new LongAdder();
+  private final LongAdder failed = new LongAdder();
+  private final LongAdder latencyNanosTotal = new LongAdder();
+  private final LongAccumulator latencyNanosMax = new LongAccumulator(Math::max, 0);
+
+  private volatile boolean idle;
+  private volatile boolean closed;
+
+  public AsyncNotificationService(
+      NotificationService delegate, int capacity, BackpressurePolicy policy) {
+    this.delegate = Objects.requireNonNull(delegate);
+    this.policy = Objects.requireNonNull(policy);
+    this.queue = new RingBuffer<>(capacity);
+    this.worker = Thread.ofPlatform().daemon().name("notify-dispatch").start(this::drainLoop);
+  }
+
+  @Override
+  public void notifyLimitReached(String ownerUuid, String code) {
+    submit(new Event(true, ownerUuid, code, System.nanoTime()));
+  }
+
+  @Override
+  public void notifyExpired(String ownerUuid, String code) {
+    submit(new Event(false, ownerUuid, code, System.nanoTime()));
+  }
+
+  public Stats stats() {
+    long count = delivered.sum();
+    return new Stats(
+        enqueued.sum(),
+        count,
+        dropped.sum(),
+        failed.sum(),
+        count == 0 ? 0 : latencyNanosTotal.sum() / count,
+        latencyNanosMax.get());
+  }
+
+  /** Перестаёт принимать события, доставляет уже поставленные и останавливает поток. */
+  @Override
+  public void close() {
+    if (closed) return;
+    closed = true;
+    LockSupport.unpark(worker);
+    try {
+      worker.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    drainRemaining();
+  }
+
+  private void submit(Event e) {
+    if (closed) {
+      deliver(e);
+      return;
+    }
+    while (!queue.offer(e)) {
+      switch (policy) {
+        case DROP -> {
+          dropped.increment();
+          return;
+        }
+        case CALLER_RUNS -> {
+          deliver(e);
+          return;
+        }
+        case BLOCK -> {
+          if (closed) {
+            deliver(e);
+            return;
+          }
+          LockSupport.unpark(worker);
+          Thread.onSpinWait();
+        }
+      }
+    }
+    enqueued.increment();
+    if (closed) drainRemaining(); // поток доставки мог завершиться, пока мы ставили событие
+    else if (idle) LockSupport.unpark(worker);
+  }
+
+  private void drainRemaining() {
+    Event e;
+    while ((e = queue.poll()) != null) deliver(e);
+  }
+
+  private void drainLoop() {
+    while (true) {
+      int n = 0;
+      Event e;
+      while (n < DRAIN_BATCH && (e = queue.poll()) != null) {
+        deliver(e);
+        n++;
+      }
+      if (n > 0) continue;
+      if (closed && queue.isEmpty()) return;
+
+      idle = true;
+      // повторная проверка после флага: иначе событие, поставленное между poll и park, ждало бы
+      // таймаут
+      if (queue.isEmpty() && !closed) LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+      idle = false;
+    }
+  }
+
+  private void deliver(Event e) {
+    try {
+      if (e.limitReached()) delegate.notifyLimitReached(e.ownerUuid(), e.code());
+      else delegate.notifyExpired(e.ownerUuid(), e.code());
+      long latency = System.nanoTime() - e.createdNanos();
+      delivered.increment();
+      latencyNanosTotal.add(latency);
+      latencyNanosMax.accumulate(latency);
+    } catch (RuntimeException ex) {
+      failed.increment();
+    }
+  }
+
+  private record Event(boolean limitReached, String ownerUuid, String code, long createdNanos) {}
+
+  /** Счётчики доставки; задержка — от вызова notify* до завершения доставки. */
+  public record Stats(
+      long enqueued,
+      long delivered,
+      long dropped,
+      long failed,
+      long avgLatencyNanos,
+      long maxLatencyNanos) {}
+}
@@ -1,30 +1,137 @@
 package org.com.url_shortener.services;
 
 import java.time.Clock;
+import java.time.Duration;
 import java.time.Instant;
 import java.util.List;
 import java.util.Objects;
+import java.util.function.Consumer;
 import org.com.url_shortener.core.models.ShortLink;
 import org.com.url_shortener.core.repository.LinkRepository;
+import org.com.url_shortener.infra.metrics.Counter;
+import org.com.url_shortener.infra.metrics.LatencyHistogram;
+import org.com.url_shortener.infra.metrics.MetricsRegistry;
 
+/**
+ * Удаляет истёкшие ссылки порциями, не собирая их все в один список. {@link #cleanupExpired()}
+ * вычищает всё; {@link #cleanupIncremental} останавливается по бюджету времени и сообщает, сколько
+ * истёкших осталось на следующий проход.
+ */
 public final class CleanupService {
+  private static final int FULL_PASS_BATCH = 1024;
+
   private final LinkRepository repo;
   private final NotificationService notifier;
   private final Clock clock;
+  private final Consumer<ShortLink> onRemoved;
+
+  private final Counter runs;
+  private final Counter removed;
+  private final Counter stalled;
+  private final LatencyHistogram duration;
+
+  private volatile Duration lastLag = Duration.ZERO;
+  private volatile long lastBacklog;
 
   public CleanupService(LinkRepository repo, NotificationService notifier, Clock clock) {
+    this(repo, notifier, clock, new MetricsRegistry());
+  }
+
+  public CleanupService(
+      LinkRepository repo, NotificationService notifier, Clock clock, MetricsRegistry metrics) {
+    this(repo, notifier, clock, metrics, link -> {});
+  }
+
+  /**
+   * @param onRemoved вызывается для каждой удалённой ссылки — чтобы сервис сбросил всё, что держит
+   *     по её коду (аналитику), ведь удаление идёт мимо него
+   */
+  public CleanupService(
+      LinkRepository repo,
+      NotificationService notifier,
+      Clock clock,
+      MetricsRegistry metrics,
+      Consumer<ShortLink> onRemoved) {
     this.repo = Objects.requireNonNull(repo);
     this.notifier = Objects.requireNonNull(notifier);
     this.clock = Objects.requireNonNull(clock);
+    this.onRemoved = Objects.requireNonNull(onRemoved);
+
+    this.runs = metrics.counter("cleanup_runs_total", "Cleanup passes");
+    this.removed = metrics.counter("cleanup_removed_total", "Links removed by TTL cleanup");
+    this.stalled =
+        metrics.counter(
+            "cleanup_stalled_total", "Cleanup passes stopped because the store kept expired links");
+    this.duration = metrics.histogram("cleanup_duration_seconds", "Cleanup pass duration");
+    metrics.gauge(
+        "cleanup_lag_milliseconds",
+        "Age of the oldest expired link removed by the last pass",
+        () -> lastLag.toMillis());
+    metrics.gauge("cleanup_backlog", "Expired links left for the next pass", () -> lastBacklog);
   }
 
   public int cleanupExpired() {
+    return run(FULL_PASS_BATCH, Long.MAX_VALUE).removed();
+  }
+
+  /**
+   * Порции по {@code batchSize} ссылок, пока не кончатся истёкшие или бюджет. Бюджет проверяется
+   * между порциями, поэтому проход может превысить его на время одной порции.
+   */
+  public Report cleanupIncremental(int batchSize, Duration budget) {
+    if (batchSize <= 0) throw new IllegalArgumentException("batchSize must be > 0");
+    return run(batchSize, budget.toNanos());
+  }
+
+  public Duration lastLag() {
+    return lastLag;
+  }
+
+  public long lastBacklog() {
+    return lastBacklog;
+  }
+
+  private Report run(int batchSize, long budgetNanos) {
+    long start = System.nanoTime();
     Instant now = clock.instant();
-    List<ShortLink> expired = repo.findExpired(now);
-    for (ShortLink link : expired) {
-      repo.deleteByCode(link.getCode());
-      notifier.notifyExpired(link.getOwnerUuid(), link.getCode());
+    Instant oldest = now;
+    int removedCount = 0;
+    boolean drained = false;
+
+    while (true) {
+      List<ShortLink> batch = repo.findExpired(now, batchSize);
+      if (batch.isEmpty()) {
+        drained = true;
+        break;
+      }
+      repo.deleteAllByCode(batch.stream().map(ShortLink::getCode).toList());
+      // хранилище могло удалить не всё: считаем и оповещаем только о том, чего больше нет
+      int before = removedCount;
+      for (ShortLink link : batch) {
+        if (repo.existsByCode(link.getCode())) continue;
+        onRemoved.accept(link);
+        notifier.notifyExpired(link.getOwnerUuid(), link.getCode());
+        if (link.getExpiresAt().isBefore(oldest)) oldest = link.getExpiresAt();
+        removedCount++;
+      }
+      // порция не сдвинулась — следующий findExpired вернёт её же, цикл не кончится
+      if (removedCount == before) {
+        stalled.inc();
+        break;
+      }
+      if (System.nanoTime() - start >= budgetNanos) break;
     }
-    return expired.size();
+
+    // хвост считаем, только если не успели всё: подсчёт проходит по оставшимся истёкшим
+    long backlog = drained ? 0 : repo.countExpired(now);
+    lastLag = Duration.between(oldest, now);
+    lastBacklog = backlog;
+    runs.inc();
+    removed.add(removedCount);
+    duration.record(System.nanoTime() - start);
+    return new Report(removedCount, backlog);
   }
+
+  /** Итог прохода: сколько удалено и сколько истёкших осталось. */
+  public record Report(int removed, long backlog) {}
 }
@@ -0,0 +1,358 @@
+package org.com.url_shortener.services;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Predicate;
+import org.com.url_shortener.core.models.ClickHistory;
+import org.com.url_shortener.infra.hll.HyperLogLog;
+
+/**
+ * Поминутная история переходов по каждой ссылке за последние {@code retentionMinutes} минут.
+ *
+ * <p>На пути редиректа событие только дописывается в буфер своей полосы (полоса выбирается по
+ * потоку, как в {@link org.com.url_shortener.infra.metrics.LatencyHistogram}: поток на запрос у
+ * HTTP-сервера виртуальный, и по-настоящему поточные буферы жили бы один запрос). Заполненные
+ * буферы и раз в секунду все остальные разбирает фоновый поток и раскладывает по рядам.
+ *
+ * <p>Ряд ссылки — кольцо {@code int[retentionMinutes]}, создаётся при первом переходе и удаляется,
+ * когда последний переход старше окна хранения, так что память на ссылку ограничена {@code 4 *
+ * retentionMinutes} байт.
+ *
+ * <p>Уникальные посетители ссылки считаются {@link HyperLogLog}-скетчем по хешу посетителя, который
+ * едет в том же буфере. Скетч живёт, пока живёт ссылка: по окну хранения не удаляется, сохраняется
+ * в файл ({@link #saveUniques}) и отбрасывается, когда ссылки больше нет.
+ */
+public final class ClickAnalytics implements AutoCloseable {
+  private static final int STRIPES = 16;
+  private static final int BUFFER_EVENTS = 256;
+  private static final long FLUSH_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+  private static final int UNIQUES_FILE_MAGIC = 0x484c4c31; // "HLL1"
+
+  private final Clock clock;
+  private final int retentionMinutes;
+  private final int uniquesPrecision;
+  private final Stripe[] stripes;
+  private final ConcurrentLinkedQueue<Batch> full = new ConcurrentLinkedQueue<>();
+  private final Map<String, Series> series = new ConcurrentHashMap<>();
+  private final Map<String, HyperLogLog> uniques = new ConcurrentHashMap<>();
+  private final Object flushLock = new Object();
+  private final LongAdder recorded = new LongAdder();
+  private final Thread flusher;
+
+  private volatile boolean closed;
+
+  public ClickAnalytics(Clock clock, int retentionMinutes) {
+    this(clock, retentionMinutes, 0);
+  }
+
+  /**
+   * @param retentionMinutes глубина поминутной истории; 0 — история не ведётся
+   * @param uniquesPrecision точность скетча уникальных посетителей; 0 — не считаются
+   */
+  public ClickAnalytics(Clock clock, int retentionMinutes, int uniquesPrecision) {
+    if (retentionMinutes < 0) throw new IllegalArgumentException("retentionMinutes must be >= 0");
+    if (uniquesPrecision != 0
+        && (uniquesPrecision < HyperLogLog.MIN_PRECISION
+            || uniquesPrecision > HyperLogLog.MAX_PRECISION)) {
+      throw new IllegalArgumentException("uniquesPrecision must be 0 or in [4, 16]");
+    }
+    if (retentionMinutes == 0 && uniquesPrecision == 0) {
+      throw new IllegalArgumentException("Nothing to record: use ClickAnalytics.disabled()");
+    }
+    this.clock = Objects.requireNonNull(clock);
+    this.retentionMinutes = retentionMinutes;
+    this.uniquesPrecision = uniquesPrecision;
+    this.stripes = new Stripe[STRIPES];
+    for (int i = 0; i < STRIPES; i++) stripes[i] = new Stripe();
+    this.flusher = Thread.ofPlatform().daemon().name("click-analytics").start(this::flushLoop);
+  }
+
+  private ClickAnalytics() {
+    this.clock = Clock.systemUTC();
+    this.retentionMinutes = 0;
+    this.uniquesPrecision = 0;
+    this.stripes = null;
+    this.flusher = null;
+  }
+
+  /** Аналитика выключена: переходы не записываются, история пустая. */
+  public static ClickAnalytics disabled() {
+    return new ClickAnalytics();
+  }
+
+  public boolean enabled() {
+    return stripes != null;
+  }
+
+  public int retentionMinutes() {
+    return retentionMinutes;
+  }
+
+  public boolean countsUniques() {
+    return uniquesPrecision != 0;
+  }
+
+  public void record(String code) {
+    record(code, 0);
+  }
+
+  /**
+   * @param visitorHash хеш посетителя ({@link HyperLogLog#hash}); 0 — посетитель неизвестен
+   */
+  public void record(String code, long visitorHash) {
+    if (stripes == null || closed) return;
+    int minute = (int) (clock.millis() / 60_000);
+    Stripe stripe = stripes[(int) (Thread.currentThread().threadId() & (STRIPES - 1))];
+    Batch filled = stripe.append(code, minute, visitorHash);
+    if (filled != null) {
+      full.add(filled);
+      if (full.size() > STRIPES) LockSupport.unpark(flusher);
+    }
+  }
+
+  /** История за последние {@code minutes} минут, включая текущую, с учётом ещё не разобранных. */
+  public ClickHistory history(String code, int minutes) {
+    int window = Math.max(1, retentionMinutes == 0 ? minutes : Math.min(minutes, retentionMinutes));
+    long nowMinute = clock.millis() / 60_000;
+    long fromMinute = nowMinute - window + 1;
+    int[] counts = new int[window];
+    if (stripes != null) {
+      flush();
+      Series s = series.get(code);
+      if (s != null) s.read(fromMinute, counts);
+    }
+    return new ClickHistory(code, Instant.ofEpochSecond(fromMinute * 60), counts);
+  }
+
+  /** Оценка числа уникальных посетителей ссылки с учётом ещё не разобранных переходов. */
+  public long uniqueVisitors(String code) {
+    if (uniquesPrecision == 0) return 0;
+    flush();
+    HyperLogLog hll = uniques.get(code);
+    return hll == null ? 0 : hll.estimate();
+  }
+
+  /** Скетч ссылки в переносимом виде, например для слияния с данными другого узла. */
+  public byte[] uniquesSketch(String code) {
+    if (uniquesPrecision == 0) return null;
+    flush();
+    HyperLogLog hll = uniques.get(code);
+    return hll == null ? null : hll.toBytes();
+  }
+
+  /** Вливает скетч, снятый на другом шарде или узле, в скетч ссылки. */
+  public void mergeUniques(String code, byte[] sketch) {
+    if (uniquesPrecision == 0) return;
+    merge(code, HyperLogLog.fromBytes(sketch));
+  }
+
+  private void merge(String code, HyperLogLog other) {
+    uniques.computeIfAbsent(code, c -> new HyperLogLog(uniquesPrecision)).merge(other);
+  }
+
+  /** Ссылка удалена — её скетч больше не нужен. */
+  public void forget(String code) {
+    uniques.remove(code);
+    series.remove(code);
+  }
+
+  /** Память под регистры всех скетчей. */
+  public long uniquesBytes() {
+    long total = 0;
+    for (HyperLogLog hll : uniques.values()) total += hll.sizeInBytes();
+    return total;
+  }
+
+  /**
+   * Сохраняет скетчи ссылок, для которых {@code keep} верно, остальные выбрасывает и из памяти.
+   * Файл пишется рядом и подменяется атомарно.
+   */
+  public synchronized void saveUniques(Path file, Predicate<String> keep) throws IOException {
+    if (uniquesPrecision == 0) return;
+    flush();
+    uniques.keySet().removeIf(keep.negate());
+    Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+    try (DataOutputStream out =
+        new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+      out.writeInt(UNIQUES_FILE_MAGIC);
+      for (Map.Entry<String, HyperLogLog> e : uniques.entrySet()) {
+        byte[] bytes = e.getValue().toBytes();
+        out.writeBoolean(true);
+        out.writeUTF(e.getKey());
+        out.writeInt(bytes.length);
+        out.write(bytes);
+      }
+      out.writeBoolean(false);
+    }
+    Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  /** Вливает скетчи из файла {@link #saveUniques}; отсутствующий файл — не ошибка. */
+  public void loadUniques(Path file) throws IOException {
+    if (uniquesPrecision == 0 || !Files.exists(file)) return;
+    try (DataInputStream in =
+        new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+      if (in.readInt() != UNIQUES_FILE_MAGIC) throw new IOException("Not a uniques file: " + file);
+      while (in.readBoolean()) {
+        String code = in.readUTF();
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        HyperLogLog hll = HyperLogLog.fromBytes(bytes);
+        // после смены точности старые скетчи не сливаются — начинаем заново
+        if (hll.precision() == uniquesPrecision) merge(code, hll);
+      }
+    }
+  }
+
+  /** Сколько ссылок сейчас имеют ряд в памяти. */
+  public int trackedLinks() {
+    return series.size();
+  }
+
+  public long recordedClicks() {
+    return recorded.sum();
+  }
+
+  /** Разбирает все буферы синхронно. */
+  public void flush() {
+    if (stripes == null) return;
+    synchronized (flushLock) {
+      Batch b;
+      while ((b = full.poll()) != null) apply(b);
+      for (Stripe stripe : stripes) {
+        Batch partial = stripe.takePartial();
+        if (partial != null) apply(partial);
+      }
+    }
+  }
+
+  @Override
+  public void close() {
+    if (flusher == null || closed) return;
+    closed = true;
+    LockSupport.unpark(flusher);
+    try {
+      flusher.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    flush();
+  }
+
+  private void apply(Batch b) {
+    for (int i = 0; i < b.size; i++) {
+      String code = b.codes[i];
+      if (retentionMinutes != 0) {
+        series.computeIfAbsent(code, c -> new Series(retentionMinutes)).add(b.minutes[i]);
+      }
+      if (uniquesPrecision != 0 && b.visitors[i] != 0) {
+        uniques.computeIfAbsent(code, c -> new HyperLogLog(uniquesPrecision)).offer(b.visitors[i]);
+      }
+      b.codes[i] = null;
+    }
+    recorded.add(b.size);
+  }
+
+  private void flushLoop() {
+    long lastEviction = System.nanoTime();
+    while (!closed) {
+      LockSupport.parkNanos(this, FLUSH_INTERVAL_NANOS);
+      try {
+        flush();
+        if (retentionMinutes != 0
+            && System.nanoTime() - lastEviction > TimeUnit.MINUTES.toNanos(1)) {
+          evictIdle(clock.millis() / 60_000);
+          lastEviction = System.nanoTime();
+        }
+      } catch (RuntimeException e) {
+        System.err.println("[WARN] Click analytics flush failed: " + e.getMessage());
+      }
+    }
+  }
+
+  private void evictIdle(long nowMinute) {
+    // под тем же замком, что и разбор буферов, иначе переход в удаляемый ряд потерялся бы
+    synchronized (flushLock) {
+      series.values().removeIf(s -> s.lastMinute() <= nowMinute - retentionMinutes);
+    }
+  }
+
+  /** Буфер событий полосы; заполненный отдаётся целиком, вместо него берётся новый. */
+  private static final class Stripe {
+    private Batch current = new Batch();
+
+    synchronized Batch append(String code, int minute, long visitor) {
+      Batch b = current;
+      b.codes[b.size] = code;
+      b.minutes[b.size] = minute;
+      b.visitors[b.size] = visitor;
+      if (++b.size < BUFFER_EVENTS) return null;
+      current = new Batch();
+      return b;
+    }
+
+    synchronized Batch takePartial() {
+      if (current.size == 0) return null;
+      Batch b = current;
+      current = new Batch();
+      return b;
+    }
+  }
+
+  private static final class Batch {
+    final String[] codes = new String[BUFFER_EVENTS];
+    final int[] minutes = new int[BUFFER_EVENTS];
+    final long[] visitors = new long[BUFFER_EVENTS];
+    int size;
+  }
+
+  /** Кольцо поминутных счётчиков; ячейка минуты m — {@code m mod length}. */
+  private static final class Series {
+    private final int[] counts;
+    private long lastMinute = Long.MIN_VALUE;
+
+    Series(int minutes) {
+      this.counts = new int[minutes];
+    }
+
+    synchronized void add(long minute) {
+      int n = counts.length;
+      if (minute > lastMinute) {
+        // ячейки пропущенных минут хранят значения прошлого круга — обнуляем
+        long gap = lastMinute == Long.MIN_VALUE ? n : Math.min(n, minute - lastMinute);
+        for (long m = minute - gap + 1; m <= minute; m++) counts[Math.floorMod(m, n)] = 0;
+        lastMinute = minute;
+      } else if (minute <= lastMinute - n) {
+        return; // старше окна хранения
+      }
+      counts[Math.floorMod(minute, n)]++;
+    }
+
+    synchronized void read(long fromMinute, int[] out) {
+      int n = counts.length;
+      for (int i = 0; i < out.length; i++) {
+        long m = fromMinute + i;
+        if (m <= lastMinute && m > lastMinute - n) out[i] = counts[Math.floorMod(m, n)];
+      }
+    }
+
+    synchronized long lastMinute() {
+      return lastMinute;
+    }
+  }
+}
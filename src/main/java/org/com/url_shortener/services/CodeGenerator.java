@@ -1,31 +1,86 @@
 package org.com.url_shortener.services;
 
-import java.security.SecureRandom;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Set;
 import org.com.url_shortener.core.repository.LinkRepository;
+import org.com.url_shortener.infra.metrics.Counter;
+import org.com.url_shortener.infra.metrics.MetricsRegistry;
 
 public final class CodeGenerator {
-  private static final char[] ALPHABET =
-      "0123456789abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ".toCharArray();
-  private final SecureRandom rnd = new SecureRandom();
+  static final int CODE_LENGTH = 8;
+
+  /** 62^8 — число различных 8-символьных base62 кодов. */
+  static final long KEYSPACE = 218_340_105_584_896L;
+
+  private static final byte[] ALPHABET =
+      "0123456789abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ"
+          .getBytes(StandardCharsets.US_ASCII);
+
   private final LinkRepository repo;
+  private final CodeStrategy strategy;
+  private final boolean verifyUnique;
+  private final Counter generated;
+  private final Counter collisions;
 
   public CodeGenerator(LinkRepository repo) {
+    this(repo, new RandomCodeStrategy(), true);
+  }
+
+  public CodeGenerator(LinkRepository repo, CodeStrategy strategy, boolean verifyUnique) {
+    this(repo, strategy, verifyUnique, new MetricsRegistry());
+  }
+
+  /**
+   * @param verifyUnique проверять код в хранилище. Для стратегий с {@link
+   *     CodeStrategy#uniqueByConstruction()} нужно только когда ссылки переживают рестарт.
+   */
+  public CodeGenerator(
+      LinkRepository repo, CodeStrategy strategy, boolean verifyUnique, MetricsRegistry metrics) {
     this.repo = repo;
+    this.strategy = strategy;
+    this.verifyUnique = verifyUnique || !strategy.uniqueByConstruction();
+    this.generated = metrics.counter("codes_generated_total", "Short codes handed out");
+    this.collisions = metrics.counter("code_collisions_total", "Generated codes already taken");
   }
 
   public String generateUniqueCode() {
+    generated.inc();
+    if (!verifyUnique) return strategy.nextCode();
     for (int attempt = 0; attempt < 10_000; attempt++) {
-      String code = randomBase62(8);
+      String code = strategy.nextCode();
       if (!repo.existsByCode(code)) return code;
+      collisions.inc();
     }
     throw new IllegalStateException("Failed to generate unique code (too many collisions)");
   }
 
-  private String randomBase62(int len) {
-    char[] out = new char[len];
-    for (int i = 0; i < len; i++) {
-      out[i] = ALPHABET[rnd.nextInt(ALPHABET.length)];
+  /** Пакет кодов, различных между собой и (при проверке) свободных в хранилище. */
+  public String[] generateUniqueCodes(int count) {
+    String[] codes = strategy.nextCodes(count);
+    generated.add(count);
+    if (!verifyUnique) return codes;
+    Set<String> seen = new HashSet<>(count * 2);
+    for (int i = 0; i < count; i++) {
+      int attempt = 0;
+      while (!seen.add(codes[i]) || repo.existsByCode(codes[i])) {
+        collisions.inc();
+        if (++attempt >= 10_000) {
+          throw new IllegalStateException("Failed to generate unique code (too many collisions)");
+        }
+        codes[i] = strategy.nextCode();
+      }
+    }
+    return codes;
+  }
+
+  /** Число из [0, 62^8) в 8-символьный base62 код, старшая цифра первой. */
+  static String toCode(long value) {
+    byte[] out = new byte[CODE_LENGTH];
+    for (int i = CODE_LENGTH - 1; i >= 0; i--) {
+      out[i] = ALPHABET[(int) (value % 62)];
+      value /= 62;
     }
-    return new String(out);
+    return new String(out, StandardCharsets.ISO_8859_1);
   }
 }
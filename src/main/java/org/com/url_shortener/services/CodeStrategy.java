@@ -0,0 +1,17 @@
+package org.com.url_shortener.services;
+
+/** Источник кандидатов в короткие коды. Реализации должны быть потокобезопасными. */
+public interface CodeStrategy {
+  String nextCode();
+
+  default String[] nextCodes(int count) {
+    String[] out = new String[count];
+    for (int i = 0; i < count; i++) out[i] = nextCode();
+    return out;
+  }
+
+  /** true, если стратегия сама гарантирует уникальность и проверка в хранилище не нужна. */
+  default boolean uniqueByConstruction() {
+    return false;
+  }
+}
@@ -0,0 +1,353 @@
+package org.com.url_shortener.services;
+
+import java.net.IDN;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.apache.commons.validator.routines.DomainValidator;
+import org.apache.commons.validator.routines.DomainValidator.ArrayType;
+import org.apache.commons.validator.routines.UrlValidator;
+
+/**
+ * Проверка и нормализация http/https URL за один проход по строке, без регулярных выражений и без
+ * выделения памяти для обычных адресов.
+ *
+ * <p>Принимает и отклоняет ровно то же, что {@code new UrlValidator(new String[] {"http",
+ * "https"})} из commons-validator: те же правила {@link java.net.URI} для символов и escape-пар,
+ * тот же список доменов верхнего уровня, IPv4, порт до 65535, запрет "//" и выхода за корень в
+ * пути. Хост с не-ASCII символами переводится в punycode через {@link IDN}, как у commons. Редкие
+ * формы — userinfo ({@code user@host}) и IPv6 в скобках — отдаются самому commons-validator.
+ */
+public final class HttpUrlValidator {
+  private static final UrlValidator FALLBACK = new UrlValidator(new String[] {"http", "https"});
+
+  private static final int MAX_DOMAIN_LENGTH = 253;
+  private static final int MAX_LABEL_LENGTH = 63;
+  private static final int MAX_PORT = 0xFFFF;
+
+  /** Символы пути по RFC 2396 без escape-пар: unreserved, ":@&=+$,", ";/". */
+  private static final boolean[] PATH = chars("-_.!~*'():@&=+$,;/");
+
+  /** Символы запроса и фрагмента (uric): unreserved и reserved с "[]". */
+  private static final boolean[] URIC = chars("-_.!~*'();/?:@&=+$,[]");
+
+  /** Символы authority, допустимые для java.net.URI (кроме "@[]", которые уходят в commons). */
+  private static final boolean[] AUTHORITY = chars("-_.!~*'();:&=+$,");
+
+  private static final TldTable TLDS = new TldTable(knownTlds());
+
+  private static final boolean IDN_KEEPS_TRAILING_DOT = "a.".equals(IDN.toASCII("a."));
+
+  private HttpUrlValidator() {}
+
+  public static boolean isValid(String url) {
+    if (url == null) return false;
+    int n = url.length();
+    int colon = schemeEnd(url);
+    if (colon < 0 || !url.startsWith("//", colon + 1)) return false;
+
+    int authStart = colon + 3;
+    int authEnd = authStart;
+    boolean ascii = true;
+    for (; authEnd < n; authEnd++) {
+      char c = url.charAt(authEnd);
+      if (c == '/' || c == '?' || c == '#') break;
+      if (c == '@' || c == '[') return FALLBACK.isValid(url);
+      if (c > 0x7F) ascii = false;
+    }
+    if (authEnd == authStart) return false;
+
+    int pathEnd = authEnd;
+    while (pathEnd < n && url.charAt(pathEnd) != '?' && url.charAt(pathEnd) != '#') pathEnd++;
+    int queryEnd = pathEnd;
+    while (queryEnd < n && url.charAt(queryEnd) != '#') queryEnd++;
+
+    if (ascii) {
+      if (!isValidAuthority(url, authStart, authEnd)) return false;
+    } else {
+      if (!uriChars(url, authStart, authEnd, AUTHORITY, true)) return false;
+      String converted = toAscii(url.substring(authStart, authEnd));
+      if (!isValidAuthority(converted, 0, converted.length())) return false;
+    }
+    if (!isValidPath(url, authEnd, pathEnd)) return false;
+    if (pathEnd < queryEnd && !uriChars(url, pathEnd + 1, queryEnd, URIC, true)) return false;
+    return queryEnd == n || uriChars(url, queryEnd + 1, n, URIC, true);
+  }
+
+  /**
+   * Схема и хост в нижнем регистре, порт по умолчанию (и пустой) убран, пустой путь заменён на "/";
+   * путь, запрос и фрагмент не трогаются. Если менять нечего, возвращается та же строка.
+   */
+  public static String normalize(String url) {
+    int colon = schemeEnd(url);
+    if (colon < 0 || !url.startsWith("//", colon + 1)) return url;
+    int n = url.length();
+    int authStart = colon + 3;
+    int authEnd = authStart;
+    while (authEnd < n && "/?#".indexOf(url.charAt(authEnd)) < 0) authEnd++;
+
+    int hostStart = url.lastIndexOf('@', authEnd - 1) + 1;
+    if (hostStart < authStart) hostStart = authStart;
+    int hostEnd;
+    if (hostStart < authEnd && url.charAt(hostStart) == '[') {
+      hostEnd = url.indexOf(']', hostStart);
+      hostEnd = hostEnd < 0 || hostEnd >= authEnd ? authEnd : hostEnd + 1;
+    } else {
+      hostEnd = hostStart;
+      while (hostEnd < authEnd && url.charAt(hostEnd) != ':') hostEnd++;
+    }
+    boolean https = colon == 5;
+    boolean dropPort = hostEnd < authEnd && isDefaultPort(url, hostEnd + 1, authEnd, https);
+    boolean emptyPath = authEnd == n || url.charAt(authEnd) != '/';
+
+    if (!dropPort && !emptyPath && !hasUpper(url, 0, colon) && !hasUpper(url, hostStart, hostEnd)) {
+      return url;
+    }
+    StringBuilder sb = new StringBuilder(n + 1);
+    appendLower(sb, url, 0, colon);
+    sb.append(url, colon, hostStart);
+    appendLower(sb, url, hostStart, hostEnd);
+    if (!dropPort) sb.append(url, hostEnd, authEnd);
+    if (emptyPath) sb.append('/');
+    sb.append(url, authEnd, n);
+    return sb.toString();
+  }
+
+  /** Индекс ':' после схемы http или https в любом регистре, иначе -1. */
+  private static int schemeEnd(String url) {
+    if (url.length() < 5 || !lowerIs(url, 0, 'h') || !lowerIs(url, 1, 't')) return -1;
+    if (!lowerIs(url, 2, 't') || !lowerIs(url, 3, 'p')) return -1;
+    if (url.charAt(4) == ':') return 4;
+    return lowerIs(url, 4, 's') && url.length() > 5 && url.charAt(5) == ':' ? 5 : -1;
+  }
+
+  private static boolean lowerIs(String s, int i, char lower) {
+    // только ASCII: equalsIgnoreCase сочла бы 'ſ' равной 's'
+    return (s.charAt(i) | 0x20) == lower;
+  }
+
+  /** authority вида host[:port] из ASCII: домен с известным TLD или IPv4, порт до 65535. */
+  private static boolean isValidAuthority(String s, int from, int to) {
+    int hostEnd = from;
+    while (hostEnd < to && isHostChar(s.charAt(hostEnd))) hostEnd++;
+    if (hostEnd < to) {
+      if (s.charAt(hostEnd) != ':') return false;
+      int port = 0;
+      for (int i = hostEnd + 1; i < to; i++) {
+        char c = s.charAt(i);
+        if (c < '0' || c > '9') return false;
+        port = port * 10 + (c - '0');
+        if (port > MAX_PORT) return false;
+      }
+    }
+    return isDomain(s, from, hostEnd) || isIPv4(s, from, hostEnd);
+  }
+
+  private static boolean isDomain(String s, int from, int to) {
+    if (to - from > MAX_DOMAIN_LENGTH) return false;
+    if (to > from && s.charAt(to - 1) == '.') to--;
+    int labels = 0;
+    int labelStart = from;
+    for (int i = from; i <= to; i++) {
+      if (i < to && s.charAt(i) != '.') continue;
+      int len = i - labelStart;
+      if (len == 0 || len > MAX_LABEL_LENGTH) return false;
+      if (!isAlnum(s.charAt(labelStart)) || !isAlnum(s.charAt(i - 1))) return false;
+      for (int j = labelStart + 1; j < i - 1; j++) {
+        if (!isAlnum(s.charAt(j)) && s.charAt(j) != '-') return false;
+      }
+      labels++;
+      if (i < to) labelStart = i + 1;
+    }
+    return labels >= 2 && isAlpha(s.charAt(labelStart)) && TLDS.contains(s, labelStart, to);
+  }
+
+  private static boolean isIPv4(String s, int from, int to) {
+    int octets = 0;
+    int start = from;
+    for (int i = from; i <= to; i++) {
+      if (i < to && s.charAt(i) != '.') {
+        char c = s.charAt(i);
+        if (c < '0' || c > '9' || i - start >= 3) return false;
+        continue;
+      }
+      int len = i - start;
+      if (len == 0 || (len > 1 && s.charAt(start) == '0')) return false;
+      int value = 0;
+      for (int j = start; j < i; j++) value = value * 10 + (s.charAt(j) - '0');
+      if (value > 255 || ++octets > 4) return false;
+      start = i + 1;
+    }
+    return octets == 4;
+  }
+
+  private static boolean isValidPath(String s, int from, int to) {
+    if (!uriChars(s, from, to, PATH, false)) return false;
+    boolean dotSegment = false;
+    for (int i = from; i < to; i++) {
+      char c = s.charAt(i);
+      if (c == '/' && i + 1 < to) {
+        char next = s.charAt(i + 1);
+        if (next == '/') return false;
+        if (next == '.') dotSegment = true;
+      } else if (c == '%' && (s.charAt(i + 1) == '2')) {
+        char low = (char) (s.charAt(i + 2) | 0x20);
+        if (low == 'e' || low == 'f')
+          dotSegment = true; // %2E и %2F после декодирования — '.' и '/'
+      }
+    }
+    return !dotSegment || !escapesRoot(s.substring(from, to));
+  }
+
+  /** Уходит ли путь выше корня после нормализации — та же проверка, что у commons. */
+  private static boolean escapesRoot(String path) {
+    try {
+      String norm = new URI(null, "localhost", path, null).normalize().getPath();
+      return norm.startsWith("/../") || norm.equals("/..");
+    } catch (URISyntaxException e) {
+      return true;
+    }
+  }
+
+  /**
+   * Все символы из {@code allowed} или escape-пары %HH; не-ASCII — только если {@code other} и
+   * символ видимый (правила java.net.URI).
+   */
+  private static boolean uriChars(String s, int from, int to, boolean[] allowed, boolean other) {
+    for (int i = from; i < to; i++) {
+      char c = s.charAt(i);
+      if (c < 0x80) {
+        if (isAlnum(c) || allowed[c]) continue;
+        if (c != '%' || i + 2 >= to) return false;
+        if (!isHex(s.charAt(i + 1)) || !isHex(s.charAt(i + 2))) return false;
+        i += 2;
+      } else if (!other || c == 0x80 || Character.isSpaceChar(c) || Character.isISOControl(c)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** Как DomainValidator.unicodeToASCII: IDN для всей authority, с поправкой на конечную точку. */
+  private static String toAscii(String input) {
+    try {
+      String ascii = IDN.toASCII(input);
+      if (IDN_KEEPS_TRAILING_DOT || input.isEmpty()) return ascii;
+      return switch (input.charAt(input.length() - 1)) {
+        case '.', '。', '．', '｡' -> ascii + ".";
+        default -> ascii;
+      };
+    } catch (IllegalArgumentException e) {
+      return input;
+    }
+  }
+
+  private static boolean isDefaultPort(String s, int from, int to, boolean https) {
+    int port = 0;
+    for (int i = from; i < to; i++) {
+      char c = s.charAt(i);
+      if (c < '0' || c > '9') return false;
+      port = port * 10 + (c - '0');
+      if (port > MAX_PORT) return false;
+    }
+    return from == to || port == (https ? 443 : 80);
+  }
+
+  private static boolean hasUpper(String s, int from, int to) {
+    for (int i = from; i < to; i++) {
+      char c = s.charAt(i);
+      if (c >= 'A' && c <= 'Z') return true;
+    }
+    return false;
+  }
+
+  private static void appendLower(StringBuilder sb, String s, int from, int to) {
+    for (int i = from; i < to; i++) {
+      char c = s.charAt(i);
+      sb.append(c >= 'A' && c <= 'Z' ? (char) (c + 32) : c);
+    }
+  }
+
+  private static boolean isHostChar(char c) {
+    return isAlnum(c) || c == '-' || c == '.';
+  }
+
+  private static boolean isAlpha(char c) {
+    return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+  }
+
+  private static boolean isAlnum(char c) {
+    return isAlpha(c) || (c >= '0' && c <= '9');
+  }
+
+  private static boolean isHex(char c) {
+    return (c >= '0' && c <= '9') || ((c | 0x20) >= 'a' && (c | 0x20) <= 'f');
+  }
+
+  private static boolean[] chars(String allowed) {
+    boolean[] table = new boolean[128];
+    for (int i = 0; i < allowed.length(); i++) table[allowed.charAt(i)] = true;
+    return table;
+  }
+
+  /** TLD, которые признаёт DomainValidator по умолчанию, с учётом его переопределений. */
+  private static Set<String> knownTlds() {
+    Set<String> tlds =
+        new HashSet<>(List.of(DomainValidator.getTLDEntries(ArrayType.INFRASTRUCTURE_RO)));
+    tlds.addAll(
+        withOverrides(
+            DomainValidator.getTLDEntries(ArrayType.GENERIC_RO),
+            DomainValidator.getTLDEntries(ArrayType.GENERIC_PLUS),
+            DomainValidator.getTLDEntries(ArrayType.GENERIC_MINUS)));
+    tlds.addAll(
+        withOverrides(
+            DomainValidator.getTLDEntries(ArrayType.COUNTRY_CODE_RO),
+            DomainValidator.getTLDEntries(ArrayType.COUNTRY_CODE_PLUS),
+            DomainValidator.getTLDEntries(ArrayType.COUNTRY_CODE_MINUS)));
+    return tlds;
+  }
+
+  private static Set<String> withOverrides(String[] base, String[] plus, String[] minus) {
+    Set<String> out = new HashSet<>(List.of(base));
+    out.addAll(List.of(plus));
+    List.of(minus).forEach(out::remove);
+    return out;
+  }
+
+  /** Открытая адресация по строкам в нижнем регистре; поиск по диапазону без подстроки. */
+  private static final class TldTable {
+    private final String[] slots;
+    private final int mask;
+
+    TldTable(Set<String> tlds) {
+      int capacity = Integer.highestOneBit(Math.max(4, tlds.size() * 4) - 1) << 1;
+      this.slots = new String[capacity];
+      this.mask = capacity - 1;
+      for (String tld : tlds) {
+        int i = hash(tld, 0, tld.length()) & mask;
+        while (slots[i] != null) i = (i + 1) & mask;
+        slots[i] = tld;
+      }
+    }
+
+    boolean contains(String s, int from, int to) {
+      int len = to - from;
+      for (int i = hash(s, from, to) & mask; slots[i] != null; i = (i + 1) & mask) {
+        String tld = slots[i];
+        if (tld.length() == len && tld.regionMatches(true, 0, s, from, len)) return true;
+      }
+      return false;
+    }
+
+    private static int hash(String s, int from, int to) {
+      int h = 0;
+      for (int i = from; i < to; i++) {
+        char c = s.charAt(i);
+        h = 31 * h + (c >= 'A' && c <= 'Z' ? c + 32 : c);
+      }
+      return h ^ (h >>> 16);
+    }
+  }
+}
@@ -2,14 +2,28 @@ package org.com.url_shortener.services;
 
 import java.time.Clock;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
-import org.apache.commons.validator.routines.UrlValidator;
+import java.util.function.LongSupplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import org.com.url_shortener.core.exceptions.*;
+import org.com.url_shortener.core.models.BatchCreateResult;
+import org.com.url_shortener.core.models.ClickHistory;
+import org.com.url_shortener.core.models.RedirectResult;
 import org.com.url_shortener.core.models.ShortLink;
 import org.com.url_shortener.core.repository.LinkRepository;
 import org.com.url_shortener.infra.cfg.AppConfig;
+import org.com.url_shortener.infra.hll.HyperLogLog;
+import org.com.url_shortener.infra.metrics.Counter;
+import org.com.url_shortener.infra.metrics.LatencyHistogram;
+import org.com.url_shortener.infra.metrics.MetricsRegistry;
 
 public final class LinkService {
   private final LinkRepository repo;
@@ -17,8 +31,22 @@ public final class LinkService {
   private final CodeGenerator codeGenerator;
   private final NotificationService notifier;
   private final Clock clock;
-
-  private final UrlValidator urlValidator = new UrlValidator(new String[] {"http", "https"});
+  private final ClickAnalytics analytics;
+  private final UrlDedupeIndex dedupe;
+
+  private static final int PARALLEL_VALIDATION_THRESHOLD = 1024;
+  private static final LongSupplier NO_VISITOR = () -> 0;
+
+  private final Counter created;
+  private final Counter rejectedUrls;
+  private final Counter redirectsOk;
+  private final Counter redirectsNotFound;
+  private final Counter redirectsExpired;
+  private final Counter redirectsLimited;
+  private final Counter limitReached;
+  private final Counter deduplicated;
+  private final LatencyHistogram createLatency;
+  private final LatencyHistogram redirectLatency;
 
   public LinkService(
       LinkRepository repo,
@@ -26,18 +54,60 @@ public final class LinkService {
       CodeGenerator codeGenerator,
       NotificationService notifier,
       Clock clock) {
+    this(repo, config, codeGenerator, notifier, clock, new MetricsRegistry());
+  }
+
+  public LinkService(
+      LinkRepository repo,
+      AppConfig config,
+      CodeGenerator codeGenerator,
+      NotificationService notifier,
+      Clock clock,
+      MetricsRegistry metrics) {
+    this(repo, config, codeGenerator, notifier, clock, metrics, ClickAnalytics.disabled());
+  }
+
+  public LinkService(
+      LinkRepository repo,
+      AppConfig config,
+      CodeGenerator codeGenerator,
+      NotificationService notifier,
+      Clock clock,
+      MetricsRegistry metrics,
+      ClickAnalytics analytics) {
     this.repo = Objects.requireNonNull(repo);
+    this.analytics = Objects.requireNonNull(analytics);
     this.config = Objects.requireNonNull(config);
     this.codeGenerator = Objects.requireNonNull(codeGenerator);
     this.notifier = Objects.requireNonNull(notifier);
     this.clock = Objects.requireNonNull(clock);
+    this.dedupe = config.dedupeUrls() ? new UrlDedupeIndex() : null;
+
+    this.created = metrics.counter("links_created_total", "Created short links");
+    this.rejectedUrls = metrics.counter("urls_rejected_total", "URLs rejected by validation");
+    String redirects = "Redirect attempts by result";
+    this.redirectsOk = metrics.counter("redirects_total{result=\"ok\"}", redirects);
+    this.redirectsNotFound = metrics.counter("redirects_total{result=\"not_found\"}", redirects);
+    this.redirectsExpired = metrics.counter("redirects_total{result=\"expired\"}", redirects);
+    this.redirectsLimited = metrics.counter("redirects_total{result=\"limit\"}", redirects);
+    this.limitReached = metrics.counter("limit_reached_total", "Links that hit their click limit");
+    this.deduplicated =
+        metrics.counter("links_deduplicated_total", "Creates answered with an existing link");
+    if (dedupe != null) {
+      metrics.gauge("dedupe_index_entries", "Entries in the URL dedupe index", dedupe::size);
+    }
+    this.createLatency = metrics.histogram("create_latency_seconds", "LinkService.create latency");
+    this.redirectLatency =
+        metrics.histogram("redirect_latency_seconds", "LinkService.resolveForRedirect latency");
   }
 
   public ShortLink create(String ownerUuid, String url, Integer maxClicksOrNull) {
     Objects.requireNonNull(ownerUuid);
     Objects.requireNonNull(url);
+    long start = System.nanoTime();
 
-    if (!urlValidator.isValid(url)) {
+    if (!HttpUrlValidator.isValid(url)) {
+      rejectedUrls.inc();
       throw new InvalidUrlException("Невалидный URL (нужен http/https): " + url);
     }
 
@@ -45,6 +115,15 @@ public final class LinkService {
     if (maxClicks <= 0) throw new InvalidLimitException("Лимит переходов должен быть > 0");
 
     Instant now = clock.instant();
+    if (dedupe != null) {
+      ShortLink existing = findDuplicate(ownerUuid, url, maxClicks, now);
+      if (existing != null) {
+        deduplicated.inc();
+        createLatency.record(System.nanoTime() - start);
+        return existing;
+      }
+      url = dedupe.intern(url);
+    }
     Instant expiresAt = now.plusSeconds(config.ttlSeconds());
 
     String code = codeGenerator.generateUniqueCode();
@@ -52,51 +131,239 @@ public final class LinkService {
     ShortLink link = new ShortLink(code, ownerUuid, url, now, expiresAt, maxClicks, 0, false);
 
     repo.save(link);
+    if (dedupe != null) dedupe.put(ownerUuid, url, code);
+    created.inc();
+    createLatency.record(System.nanoTime() - start);
     return link;
   }
 
-  public String resolveForRedirect(String code) {
-    Objects.requireNonNull(code);
+  /**
+   * Пакетное создание для импорта: URL проверяются параллельно, коды резервируются одним пакетом,
+   * ссылки сохраняются одним вызовом {@link LinkRepository#saveAll}. Невалидные URL не прерывают
+   * пакет, а попадают в {@link BatchCreateResult#rejected()}.
+   */
+  public BatchCreateResult createAll(String ownerUuid, List<String> urls, Integer maxClicksOrNull) {
+    Objects.requireNonNull(ownerUuid);
+    Objects.requireNonNull(urls);
+
+    int maxClicks = (maxClicksOrNull != null) ? maxClicksOrNull : config.defaultMaxClicks();
+    if (maxClicks <= 0) throw new InvalidLimitException("Лимит переходов должен быть > 0");
+
+    Stream<String> stream =
+        urls.size() >= PARALLEL_VALIDATION_THRESHOLD ? urls.parallelStream() : urls.stream();
+    Map<Boolean, List<String>> byValidity =
+        stream.collect(Collectors.partitioningBy(u -> u != null && HttpUrlValidator.isValid(u)));
+    List<String> valid = byValidity.get(true);
+
     Instant now = clock.instant();
+    List<ShortLink> reused = new ArrayList<>();
+    if (dedupe != null) {
+      // повторы внутри пакета получают одну новую ссылку
+      Set<String> seen = new HashSet<>();
+      List<String> fresh = new ArrayList<>(valid.size());
+      for (String url : valid) {
+        ShortLink existing = findDuplicate(ownerUuid, url, maxClicks, now);
+        if (existing != null) reused.add(existing);
+        else if (seen.add(HttpUrlValidator.normalize(url))) fresh.add(dedupe.intern(url));
+      }
+      valid = fresh;
+    }
+    Instant expiresAt = now.plusSeconds(config.ttlSeconds());
+    String[] codes = codeGenerator.generateUniqueCodes(valid.size());
 
-    AtomicReference<String> urlRef = new AtomicReference<>();
-    AtomicReference<RuntimeException> exRef = new AtomicReference<>(null);
+    List<ShortLink> links = new ArrayList<>(valid.size() + reused.size());
+    for (int i = 0; i < codes.length; i++) {
+      links.add(
+          new ShortLink(codes[i], ownerUuid, valid.get(i), now, expiresAt, maxClicks, 0, false));
+    }
+    repo.saveAll(links);
+    if (dedupe != null) {
+      for (ShortLink link : links) dedupe.put(ownerUuid, link.getOriginalUrl(), link.getCode());
+    }
+    created.add(links.size());
+    deduplicated.add(reused.size());
+    rejectedUrls.add(byValidity.get(false).size());
+    links.addAll(reused);
+    return new BatchCreateResult(links, byValidity.get(false));
+  }
 
-    repo.update(
-        code,
+  /**
+   * Заполняет индекс повторов по уже сохранённым ссылкам (после перезапуска с журналом).
+   *
+   * @return сколько ссылок попало в индекс
+   */
+  public int rebuildDedupeIndex() {
+    if (dedupe == null) return 0;
+    Instant now = clock.instant();
+    int[] indexed = {0};
+    repo.forEach(
         link -> {
-          urlRef.set(link.getOriginalUrl());
-
-          if (link.isExpired(now)) {
-            notifier.notifyExpired(link.getOwnerUuid(), link.getCode());
-            exRef.set(new LinkExpiredException("Ссылка истекла по времени жизни (TTL) и удалена"));
-            return null;
+          if (!link.isExpired(now)) {
+            dedupe.put(link.getOwnerUuid(), link.getOriginalUrl(), link.getCode());
+            indexed[0]++;
           }
+        });
+    return indexed[0];
+  }
 
-          if (link.isLimitReached()) {
-            exRef.set(
-                new LinkLimitReachedException("Лимит переходов исчерпан — ссылка недоступна"));
-            return link;
-          }
+  /** Живая ссылка владельца на тот же URL с тем же лимитом, ещё не исчерпанным, либо null. */
+  private ShortLink findDuplicate(String ownerUuid, String url, int maxClicks, Instant now) {
+    String code = dedupe.lookup(ownerUuid, url);
+    if (code == null) return null;
+    ShortLink link = repo.findByCode(code).orElse(null);
+    if (link == null
+        || !link.getOwnerUuid().equals(ownerUuid)
+        || !HttpUrlValidator.normalize(link.getOriginalUrl())
+            .equals(HttpUrlValidator.normalize(url))
+        || link.isExpired(now)
+        || link.getMaxClicks() != maxClicks
+        || link.getClicksUsed() >= maxClicks) {
+      return null;
+    }
+    return link;
+  }
 
-          int newClicks = link.getClicksUsed() + 1;
-          boolean notifyNow = (newClicks >= link.getMaxClicks()) && !link.isLimitNotified();
+  public String resolveForRedirect(String code) {
+    return resolveForRedirect(code, null);
+  }
 
-          ShortLink updated = link.withClicksUsed(newClicks, link.isLimitNotified() || notifyNow);
+  /**
+   * То же, что {@link #resolve(String, String)}, но отказ — исключением с сообщением для
+   * пользователя.
+   */
+  public String resolveForRedirect(String code, String visitorId) {
+    return switch (resolve(code, visitorId)) {
+      case RedirectResult.Redirect r -> r.url();
+      case RedirectResult.NotFound n ->
+          throw new LinkNotFoundException("Ссылка не найдена: " + code);
+      case RedirectResult.Expired e ->
+          throw new LinkExpiredException("Ссылка истекла по времени жизни (TTL) и удалена");
+      case RedirectResult.LimitReached l ->
+          throw new LinkLimitReachedException("Лимит переходов исчерпан — ссылка недоступна");
+    };
+  }
 
-          if (notifyNow) {
-            notifier.notifyLimitReached(link.getOwnerUuid(), link.getCode());
-          }
+  public RedirectResult resolve(String code) {
+    return resolve(code, NO_VISITOR);
+  }
+
+  /**
+   * @param visitorId кто переходит (адрес и клиент, id пользователя) — для подсчёта уникальных
+   *     посетителей; {@code null}, если неизвестно
+   */
+  public RedirectResult resolve(String code, String visitorId) {
+    return resolve(code, visitorId == null ? NO_VISITOR : () -> HyperLogLog.hash(visitorId));
+  }
+
+  /**
+   * Засчитывает переход и возвращает адрес либо причину отказа — без исключений и строк, для
+   * горячего пути HTTP-сервера.
+   *
+   * @param visitorHash хеш посетителя ({@link HyperLogLog#hash}), 0 — неизвестен; вызывается только
+   *     для состоявшегося перехода и только если уникальные посетители считаются
+   */
+  public RedirectResult resolve(String code, LongSupplier visitorHash) {
+    Objects.requireNonNull(code);
+    long start = System.nanoTime();
+    try {
+      Instant now = clock.instant();
+
+      ShortLink link = repo.findByCode(code).orElse(null);
+      if (link == null) {
+        redirectsNotFound.inc();
+        return RedirectResult.NOT_FOUND;
+      }
+
+      if (link.isExpired(now)) {
+        redirectsExpired.inc();
+        expire(code);
+        return RedirectResult.EXPIRED;
+      }
+
+      switch (repo.recordClick(link)) {
+        case LIMIT_REACHED -> {
+          redirectsLimited.inc();
+          return RedirectResult.LIMIT_REACHED;
+        }
+        case LIMIT_JUST_REACHED -> {
+          limitReached.inc();
+          notifier.notifyLimitReached(link.getOwnerUuid(), link.getCode());
+        }
+        case ACCEPTED -> {}
+      }
+      redirectsOk.inc();
+      analytics.record(code, analytics.countsUniques() ? visitorHash.getAsLong() : 0);
+      return new RedirectResult.Redirect(link.getOriginalUrl());
+    } finally {
+      redirectLatency.record(System.nanoTime() - start);
+    }
+  }
+
+  /**
+   * Куда ведёт ссылка — без учёта перехода: клик не засчитывается, аналитика и уведомления не
+   * трогаются, истёкшая ссылка не удаляется. Для HEAD-запросов ботов предпросмотра и мониторинга.
+   */
+  public RedirectResult peek(String code) {
+    Objects.requireNonNull(code);
+    ShortLink link = repo.findByCode(code).orElse(null);
+    if (link == null) return RedirectResult.NOT_FOUND;
+    if (link.isExpired(clock.instant())) return RedirectResult.EXPIRED;
+    if (link.isLimitReached()) return RedirectResult.LIMIT_REACHED;
+    return new RedirectResult.Redirect(link.getOriginalUrl());
+  }
 
-          return updated;
+  /**
+   * Ссылку удалили в обход сервиса (очистка по TTL) — её аналитика и запись в индексе повторов
+   * больше не нужны.
+   */
+  public void forgetRemoved(ShortLink link) {
+    analytics.forget(link.getCode());
+    if (dedupe != null) dedupe.remove(link.getOwnerUuid(), link.getOriginalUrl(), link.getCode());
+  }
+
+  private void expire(String code) {
+    AtomicReference<ShortLink> removedRef = new AtomicReference<>(null);
+    repo.update(
+        code,
+        link -> {
+          removedRef.set(link);
+          return null;
         });
 
-    RuntimeException ex = exRef.get();
-    if (ex != null) throw ex;
+    ShortLink removed = removedRef.get();
+    if (removed != null) {
+      forgetRemoved(removed);
+      notifier.notifyExpired(removed.getOwnerUuid(), removed.getCode());
+    }
+  }
+
+  /** Поминутная история переходов за последние {@code minutes} минут; только для владельца. */
+  public ClickHistory clickHistory(String ownerUuid, String code, int minutes) {
+    Objects.requireNonNull(ownerUuid);
+    Objects.requireNonNull(code);
+    if (minutes <= 0) throw new IllegalArgumentException("minutes must be > 0");
+
+    ShortLink link =
+        repo.findByCode(code)
+            .orElseThrow(() -> new LinkNotFoundException("Ссылка не найдена: " + code));
+    if (!link.getOwnerUuid().equals(ownerUuid)) {
+      throw new AccessDeniedException("Статистику видит только владелец ссылки");
+    }
+    return analytics.history(code, minutes);
+  }
 
-    String url = urlRef.get();
-    if (url == null) throw new LinkNotFoundException("Ссылка не найдена: " + code);
-    return url;
+  /** Оценка числа уникальных посетителей ссылки; только для владельца. */
+  public long uniqueVisitors(String ownerUuid, String code) {
+    Objects.requireNonNull(ownerUuid);
+    Objects.requireNonNull(code);
+
+    ShortLink link =
+        repo.findByCode(code)
+            .orElseThrow(() -> new LinkNotFoundException("Ссылка не найдена: " + code));
+    if (!link.getOwnerUuid().equals(ownerUuid)) {
+      throw new AccessDeniedException("Статистику видит только владелец ссылки");
+    }
+    return analytics.uniqueVisitors(code);
   }
 
   public List<ShortLink> listByOwner(String ownerUuid) {
@@ -104,6 +371,12 @@ public final class LinkService {
     return repo.findByOwner(ownerUuid);
   }
 
+  public List<ShortLink> listByOwner(String ownerUuid, String afterCode, int limit) {
+    Objects.requireNonNull(ownerUuid);
+    if (limit <= 0) throw new IllegalArgumentException("limit must be > 0");
+    return repo.findByOwner(ownerUuid, afterCode, limit);
+  }
+
   public void delete(String ownerUuid, String code) {
     Objects.requireNonNull(ownerUuid);
     Objects.requireNonNull(code);
@@ -116,6 +389,7 @@ public final class LinkService {
       throw new AccessDeniedException("Удалять может только владелец ссылки");
     }
     repo.deleteByCode(code);
+    forgetRemoved(link);
   }
 
   public ShortLink updateMaxClicks(String ownerUuid, String code, int newLimit) {
@@ -125,6 +399,7 @@ public final class LinkService {
 
     AtomicReference<RuntimeException> exRef = new AtomicReference<>(null);
     AtomicReference<ShortLink> updatedRef = new AtomicReference<>(null);
+    AtomicBoolean notifyRef = new AtomicBoolean(false);
 
     repo.update(
         code,
@@ -134,21 +409,21 @@ public final class LinkService {
             return link;
           }
 
-          ShortLink updated = link.withMaxClicks(newLimit);
-
-          if (updated.getClicksUsed() >= updated.getMaxClicks() && !updated.isLimitNotified()) {
-            notifier.notifyLimitReached(updated.getOwnerUuid(), updated.getCode());
-            updated = updated.withClicksUsed(updated.getClicksUsed(), true);
-          }
-
-          updatedRef.set(updated);
-          return updated;
+          notifyRef.set(link.changeMaxClicks(newLimit));
+          updatedRef.set(link);
+          return link;
         });
 
     if (updatedRef.get() == null && exRef.get() == null) {
       throw new LinkNotFoundException("Ссылка не найдена: " + code);
     }
     if (exRef.get() != null) throw exRef.get();
-    return updatedRef.get();
+
+    ShortLink updated = updatedRef.get();
+    if (notifyRef.get()) {
+      limitReached.inc();
+      notifier.notifyLimitReached(updated.getOwnerUuid(), updated.getCode());
+    }
+    return updated;
   }
 }
@@ -0,0 +1,34 @@
+package org.com.url_shortener.services;
+
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+
+/**
+ * Случайные коды из криптостойкого генератора. Генераторы разложены по полосам по id потока, чтобы
+ * параллельные создания не упирались в один общий экземпляр; на код уходит один {@code nextLong}.
+ */
+public final class RandomCodeStrategy implements CodeStrategy {
+  private final SecureRandom[] stripes;
+
+  public RandomCodeStrategy() {
+    int n = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors()) * 2 - 1);
+    stripes = new SecureRandom[n];
+    for (int i = 0; i < n; i++) stripes[i] = newRandom();
+  }
+
+  @Override
+  public String nextCode() {
+    SecureRandom rnd = stripes[(int) Thread.currentThread().threadId() & (stripes.length - 1)];
+    // смещение от остатка по модулю ~1e-5, для коротких кодов несущественно
+    return CodeGenerator.toCode(Long.remainderUnsigned(rnd.nextLong(), CodeGenerator.KEYSPACE));
+  }
+
+  private static SecureRandom newRandom() {
+    try {
+      // у DRBG своё состояние на экземпляр, NativePRNG делит один на весь процесс
+      return SecureRandom.getInstance("DRBG");
+    } catch (NoSuchAlgorithmException e) {
+      return new SecureRandom();
+    }
+  }
+}
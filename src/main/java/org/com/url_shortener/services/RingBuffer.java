@@ -0,0 +1,78 @@
+package org.com.url_shortener.services;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Ограниченная lock-free очередь для многих производителей и потребителей (схема Вьюкова): у каждой
+ * ячейки свой номер последовательности, так что захват позиции — один CAS, а заполненность и
+ * пустота определяются без общего счётчика размера.
+ */
+final class RingBuffer<E> {
+  private final AtomicReferenceArray<E> items;
+  private final AtomicLongArray sequence;
+  private final int mask;
+  private final AtomicLong tail = new AtomicLong();
+  private final AtomicLong head = new AtomicLong();
+
+  RingBuffer(int capacity) {
+    if (capacity < 2) throw new IllegalArgumentException("capacity must be >= 2");
+    int size = Integer.highestOneBit(capacity - 1) << 1;
+    items = new AtomicReferenceArray<>(size);
+    sequence = new AtomicLongArray(size);
+    for (int i = 0; i < size; i++) sequence.set(i, i);
+    mask = size - 1;
+  }
+
+  int capacity() {
+    return mask + 1;
+  }
+
+  /** false, если очередь заполнена. */
+  boolean offer(E e) {
+    long pos = tail.get();
+    while (true) {
+      int i = (int) pos & mask;
+      long diff = sequence.get(i) - pos;
+      if (diff == 0) {
+        if (tail.compareAndSet(pos, pos + 1)) {
+          items.set(i, e);
+          sequence.set(i, pos + 1);
+          return true;
+        }
+        pos = tail.get();
+      } else if (diff < 0) {
+        return false;
+      } else {
+        pos = tail.get();
+      }
+    }
+  }
+
+  /** null, если очередь пуста. */
+  E poll() {
+    long pos = head.get();
+    while (true) {
+      int i = (int) pos & mask;
+      long diff = sequence.get(i) - (pos + 1);
+      if (diff == 0) {
+        if (head.compareAndSet(pos, pos + 1)) {
+          E e = items.get(i);
+          items.set(i, null);
+          sequence.set(i, pos + mask + 1);
+          return e;
+        }
+        pos = head.get();
+      } else if (diff < 0) {
+        return null;
+      } else {
+        pos = head.get();
+      }
+    }
+  }
+
+  boolean isEmpty() {
+    return head.get() >= tail.get();
+  }
+}
@@ -0,0 +1,117 @@
+package org.com.url_shortener.services;
+
+import java.security.SecureRandom;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Уникальные коды без обращения к хранилищу: поток берёт из общего счётчика блок номеров и раздаёт
+ * их локально, а номер переводится в код ключевой перестановкой пространства 62^8 (сеть Фейстеля на
+ * 48 битах с обходом циклов), поэтому соседние номера дают непохожие коды.
+ *
+ * <p>Уникальность гарантирована в пределах одного процесса. Счётчик стартует со случайной точки,
+ * так что после рестарта пересечение с прошлыми кодами маловероятно, но для долговременного
+ * хранилища проверку существования лучше оставить включённой.
+ */
+public final class SequenceCodeStrategy implements CodeStrategy {
+  private static final int BLOCK = 1024;
+  private static final int HALF_BITS = 24;
+  private static final long HALF_MASK = (1L << HALF_BITS) - 1;
+  private static final int ROUNDS = 4;
+
+  private final AtomicLong nextBlock;
+  private final long[] roundKeys = new long[ROUNDS];
+  private final ThreadLocal<long[]> local = ThreadLocal.withInitial(() -> new long[2]);
+
+  public SequenceCodeStrategy() {
+    this(
+        new SecureRandom().nextLong(),
+        Long.remainderUnsigned(new SecureRandom().nextLong(), CodeGenerator.KEYSPACE));
+  }
+
+  public SequenceCodeStrategy(long key, long start) {
+    this.nextBlock = new AtomicLong(start);
+    long k = key;
+    for (int i = 0; i < ROUNDS; i++) {
+      k = mix(k + 0x9E3779B97F4A7C15L);
+      roundKeys[i] = k;
+    }
+  }
+
+  /**
+   * Стратегия узла кластера. Перестановка у всех узлов одна (ключ выводится из состава), а счётчик
+   * каждого узла стартует в своей доле пространства номеров — доли раздаются по порядку id. Пока
+   * состав не менялся, коды разных узлов не совпадают. Старт внутри доли случайный, чтобы рестарт
+   * узла не повторял прежние коды, а после смены состава доли сдвигаются — поэтому в кластере
+   * проверка существования всё равно остаётся включённой.
+   */
+  public static SequenceCodeStrategy forClusterNode(Collection<String> memberIds, String selfId) {
+    List<String> ids = memberIds.stream().distinct().sorted().toList();
+    int index = ids.indexOf(selfId);
+    if (index < 0) throw new IllegalArgumentException("Node " + selfId + " is not a member");
+    long key = 0;
+    for (String id : ids) {
+      for (int i = 0; i < id.length(); i++) key = key * 31 + id.charAt(i);
+      key = mix(key);
+    }
+    long share = CodeGenerator.KEYSPACE / ids.size();
+    long offset = Long.remainderUnsigned(new SecureRandom().nextLong(), share / 2);
+    return new SequenceCodeStrategy(key, share * index + offset);
+  }
+
+  @Override
+  public String nextCode() {
+    long[] range = local.get(); // {следующий, конец блока}
+    if (range[0] == range[1]) {
+      range[0] = nextBlock.getAndAdd(BLOCK);
+      range[1] = range[0] + BLOCK;
+    }
+    long n = Long.remainderUnsigned(range[0]++, CodeGenerator.KEYSPACE);
+    return CodeGenerator.toCode(permute(n));
+  }
+
+  /** Большие пакеты берут из счётчика один непрерывный диапазон. */
+  @Override
+  public String[] nextCodes(int count) {
+    if (count < BLOCK) return CodeStrategy.super.nextCodes(count);
+    long first = nextBlock.getAndAdd(count);
+    String[] out = new String[count];
+    for (int i = 0; i < count; i++) {
+      long n = Long.remainderUnsigned(first + i, CodeGenerator.KEYSPACE);
+      out[i] = CodeGenerator.toCode(permute(n));
+    }
+    return out;
+  }
+
+  @Override
+  public boolean uniqueByConstruction() {
+    return true;
+  }
+
+  /** Биекция [0, 62^8) → [0, 62^8). */
+  long permute(long n) {
+    do {
+      n = feistel(n);
+    } while (n >= CodeGenerator.KEYSPACE);
+    return n;
+  }
+
+  private long feistel(long v) {
+    long left = v >>> HALF_BITS;
+    long right = v & HALF_MASK;
+    for (long k : roundKeys) {
+      long f = mix(right ^ k) & HALF_MASK;
+      long next = left ^ f;
+      left = right;
+      right = next;
+    }
+    return left << HALF_BITS | right;
+  }
+
+  private static long mix(long z) {
+    z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+    z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+    return z ^ (z >>> 31);
+  }
+}
@@ -0,0 +1,75 @@
+package org.com.url_shortener.services;
+
+import java.lang.ref.WeakReference;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Индекс (владелец, нормализованный URL) → код для повторного использования живых ссылок и
+ * интернирование строк URL между владельцами.
+ *
+ * <p>Ключ — 64-битный хеш, самих строк индекс не держит; совпадение хеша — только кандидат, его
+ * проверяет {@link LinkService} по сохранённой ссылке. Запись снимается, когда ссылку удаляют или
+ * она истекает; устаревшая запись (например, лимит исчерпан) не мешает — проверка её отбрасывает, а
+ * новая ссылка перезаписывает.
+ *
+ * <p>Интернированные строки держатся слабыми ссылками и уходят вместе с последней ссылкой на URL.
+ */
+final class UrlDedupeIndex {
+  private static final int INTERN_STRIPES = 16;
+
+  private final Map<Long, String> codes = new ConcurrentHashMap<>();
+
+  private final InternStripe[] interned = new InternStripe[INTERN_STRIPES];
+
+  /** Именованный тип полосы — массив параметризованных Map без raw-типа не создать. */
+  private static final class InternStripe extends WeakHashMap<String, WeakReference<String>> {}
+
+  UrlDedupeIndex() {
+    for (int i = 0; i < INTERN_STRIPES; i++) interned[i] = new InternStripe();
+  }
+
+  /** Код-кандидат для этого владельца и URL либо {@code null}. */
+  String lookup(String ownerUuid, String url) {
+    return codes.get(key(ownerUuid, url));
+  }
+
+  void put(String ownerUuid, String url, String code) {
+    codes.put(key(ownerUuid, url), code);
+  }
+
+  void remove(String ownerUuid, String url, String code) {
+    codes.remove(key(ownerUuid, url), code);
+  }
+
+  int size() {
+    return codes.size();
+  }
+
+  /** Один экземпляр строки на одинаковые URL всех владельцев. */
+  String intern(String url) {
+    InternStripe stripe = interned[url.hashCode() & (INTERN_STRIPES - 1)];
+    synchronized (stripe) {
+      WeakReference<String> ref = stripe.get(url);
+      String existing = ref == null ? null : ref.get();
+      if (existing != null) return existing;
+      stripe.put(url, new WeakReference<>(url));
+      return url;
+    }
+  }
+
+  private static long key(String ownerUuid, String url) {
+    long h = 0xcbf29ce484222325L;
+    for (byte b :
+        (ownerUuid + '\n' + HttpUrlValidator.normalize(url)).getBytes(StandardCharsets.UTF_8)) {
+      h ^= b & 0xff;
+      h *= 0x100000001b3L;
+    }
+    h ^= h >>> 33;
+    h *= 0xff51afd7ed558ccdL;
+    h ^= h >>> 33;
+    return h;
+  }
+}
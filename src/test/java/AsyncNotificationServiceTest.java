@@ -0,0 +1,92 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.IntStream;
+import org.com.url_shortener.infra.cfg.BackpressurePolicy;
+import org.com.url_shortener.services.AsyncNotificationService;
+import org.com.url_shortener.services.NotificationService;
+import org.junit.jupiter.api.Test;
+
+class AsyncNotificationServiceTest {
+
+  static class RecordingNotifier implements NotificationService {
+    final List<String> events = new CopyOnWriteArrayList<>();
+    final CountDownLatch gate;
+
+    RecordingNotifier(CountDownLatch gate) {
+      this.gate = gate;
+    }
+
+    @Override
+    public void notifyLimitReached(String ownerUuid, String code) {
+      await();
+      events.add("limit:" + code);
+    }
+
+    @Override
+    public void notifyExpired(String ownerUuid, String code) {
+      await();
+      events.add("expired:" + code);
+    }
+
+    private void await() {
+      try {
+        gate.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  @Test
+  void deliversEveryEvent_fromManyProducers_beforeCloseReturns() throws Exception {
+    RecordingNotifier target = new RecordingNotifier(new CountDownLatch(0));
+    AsyncNotificationService async =
+        new AsyncNotificationService(target, 64, BackpressurePolicy.BLOCK);
+
+    ExecutorService pool = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<?>> futures =
+          IntStream.range(0, 4)
+              .<Future<?>>mapToObj(
+                  t ->
+                      pool.submit(
+                          () -> {
+                            for (int i = 0; i < 1000; i++) async.notifyExpired("u", t + "-" + i);
+                          }))
+              .toList();
+      for (Future<?> f : futures) f.get();
+    } finally {
+      pool.shutdownNow();
+    }
+    async.close();
+
+    assertEquals(4000, target.events.size());
+    AsyncNotificationService.Stats stats = async.stats();
+    assertEquals(4000, stats.delivered());
+    assertEquals(0, stats.dropped());
+  }
+
+  @Test
+  void dropPolicy_countsEventsThatDidNotFit() {
+    CountDownLatch gate = new CountDownLatch(1);
+    RecordingNotifier target = new RecordingNotifier(gate);
+    AsyncNotificationService async =
+        new AsyncNotificationService(target, 4, BackpressurePolicy.DROP);
+
+    // поток доставки застрял на первом событии, в очередь помещается ещё 4
+    for (int i = 0; i < 20; i++) async.notifyLimitReached("u", "c" + i);
+    gate.countDown();
+    async.close();
+
+    AsyncNotificationService.Stats stats = async.stats();
+    assertTrue(stats.dropped() >= 15, "dropped=" + stats.dropped());
+    assertEquals(20, stats.delivered() + stats.dropped());
+    assertEquals(stats.delivered(), target.events.size());
+  }
+}
@@ -0,0 +1,111 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.util.Optional;
+import org.com.url_shortener.cli.BatchRunner;
+import org.com.url_shortener.core.repository.LinkRepository;
+import org.com.url_shortener.core.repository.UserUuidStore;
+import org.com.url_shortener.infra.InMemoryLinkRepository;
+import org.com.url_shortener.services.CodeGenerator;
+import org.com.url_shortener.services.LinkService;
+import org.com.url_shortener.services.UserService;
+import org.junit.jupiter.api.Test;
+
+class BatchRunnerTest {
+
+  private static final class MemoryUuidStore implements UserUuidStore {
+    private String uuid = "owner-1";
+
+    @Override
+    public Optional<String> load() {
+      return Optional.ofNullable(uuid);
+    }
+
+    @Override
+    public String saveNew(String uuid) {
+      this.uuid = uuid;
+      return uuid;
+    }
+  }
+
+  private final LinkRepository repo = new InMemoryLinkRepository();
+  private final LinkServiceTest.TestConfig config = new LinkServiceTest.TestConfig();
+  private final LinkService service =
+      new LinkService(
+          repo,
+          config,
+          new CodeGenerator(repo),
+          new LinkServiceTest.TestNotifier(),
+          Clock.systemUTC());
+  private final UserService users = new UserService(new MemoryUuidStore());
+
+  private String[] run(boolean jsonl, String script) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    new BatchRunner(config, users, service, jsonl)
+        .run(new ByteArrayInputStream(script.getBytes(StandardCharsets.UTF_8)), out);
+    return out.toString(StandardCharsets.UTF_8).split("\n");
+  }
+
+  @Test
+  void parallelCreates_keepInputOrder_andErrorsAreRecords() throws IOException {
+    StringBuilder script = new StringBuilder();
+    for (int i = 0; i < 500; i++) {
+      script.append("create https://example.com/page/").append(i).append(" 3\n");
+    }
+    script.append("create not-a-url\n").append("# комментарий\n\n").append("whoami\n");
+
+    String[] out = run(false, script.toString());
+    assertEquals(502, out.length);
+    for (int i = 0; i < 500; i++) {
+      String[] cols = out[i].split("\t");
+      assertEquals(String.valueOf(i + 1), cols[0]);
+      assertEquals("ok", cols[1]);
+      assertEquals("clck.ru/" + cols[2], cols[3]);
+      assertEquals("3", cols[4]);
+      assertEquals(
+          "https://example.com/page/" + i, repo.findByCode(cols[2]).orElseThrow().getOriginalUrl());
+    }
+    assertTrue(out[500].startsWith("501\terror\tinvalid\t"), out[500]);
+    assertEquals("504\tok\towner-1", out[501]);
+  }
+
+  @Test
+  void jsonl_reportsRedirectsAndOwnerChecks() throws IOException {
+    String code = run(false, "create https://example.com/a 1\n")[0].split("\t")[2];
+
+    String[] out =
+        run(
+            true,
+            "open clck.ru/"
+                + code
+                + "\nopen "
+                + code
+                + "\nuser new\ndelete "
+                + code
+                + "\nfrobnicate\n");
+    assertEquals("{\"line\":1,\"status\":\"ok\",\"url\":\"https://example.com/a\"}", out[0]);
+    assertTrue(out[1].startsWith("{\"line\":2,\"status\":\"error\",\"error\":\"unavailable\""));
+    assertTrue(out[2].startsWith("{\"line\":3,\"status\":\"ok\",\"uuid\":\""));
+    assertTrue(out[3].startsWith("{\"line\":4,\"status\":\"error\",\"error\":\"denied\""));
+    assertEquals(
+        "{\"line\":5,\"status\":\"error\",\"error\":\"unknown\",\"message\":\"frobnicate\"}",
+        out[4]);
+  }
+
+  @Test
+  void badNumbers_answerWithUsage() throws IOException {
+    String code = run(false, "create https://example.com/a 1\n")[0].split("\t")[2];
+
+    String[] out =
+        run(
+            false,
+            "create https://example.com/b x\nset-limit " + code + " many\nstats " + code + " y\n");
+    assertEquals("1\terror\tinvalid\tИспользование: create <url> [maxClicks]", out[0]);
+    assertEquals("2\terror\tinvalid\tИспользование: set-limit <code|shortUrl> <newLimit>", out[1]);
+    assertEquals("3\terror\tinvalid\tИспользование: stats <code|shortUrl> [minutes]", out[2]);
+  }
+}
@@ -0,0 +1,107 @@
+import static org.com.url_shortener.TestLinks.link;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+import org.com.url_shortener.core.models.ShortLink;
+import org.com.url_shortener.core.repository.LinkRepository;
+import org.com.url_shortener.infra.InMemoryLinkRepository;
+import org.com.url_shortener.infra.bloom.BloomFilteredLinkRepository;
+import org.junit.jupiter.api.Test;
+
+class BloomFilteredLinkRepositoryTest {
+
+  /** Считает обращения к хранилищу за findByCode/existsByCode. */
+  static class CountingRepository implements LinkRepository {
+    final InMemoryLinkRepository inner = new InMemoryLinkRepository();
+    final AtomicInteger lookups = new AtomicInteger();
+
+    @Override
+    public Optional<ShortLink> findByCode(String code) {
+      lookups.incrementAndGet();
+      return inner.findByCode(code);
+    }
+
+    @Override
+    public boolean existsByCode(String code) {
+      lookups.incrementAndGet();
+      return inner.existsByCode(code);
+    }
+
+    @Override
+    public void save(ShortLink link) {
+      inner.save(link);
+    }
+
+    @Override
+    public Optional<ShortLink> update(String code, UnaryOperator<ShortLink> updater) {
+      return inner.update(code, updater);
+    }
+
+    @Override
+    public void deleteByCode(String code) {
+      inner.deleteByCode(code);
+    }
+
+    @Override
+    public List<ShortLink> findByOwner(String ownerUuid) {
+      return inner.findByOwner(ownerUuid);
+    }
+
+    @Override
+    public List<ShortLink> findExpired(Instant now) {
+      return inner.findExpired(now);
+    }
+
+    @Override
+    public void forEach(Consumer<ShortLink> action) {
+      inner.forEach(action);
+    }
+  }
+
+  @Test
+  void unknownCodes_areRejectedWithoutTouchingStore() {
+    CountingRepository store = new CountingRepository();
+    store.save(link("preexisting", "owner", 60));
+    BloomFilteredLinkRepository repo = new BloomFilteredLinkRepository(store, 10_000);
+    for (int i = 0; i < 1000; i++) repo.save(link("known" + i, "owner", 60));
+
+    for (int i = 0; i < 1000; i++) assertTrue(repo.findByCode("known" + i).isPresent());
+    assertTrue(repo.existsByCode("preexisting"));
+    int before = store.lookups.get();
+
+    int misses = 0;
+    for (int i = 0; i < 10_000; i++) {
+      if (repo.findByCode("bot" + i).isEmpty()) misses++;
+    }
+    assertEquals(10_000, misses);
+    // при 1% ложноположительных до хранилища доходит лишь малая доля промахов
+    assertTrue(store.lookups.get() - before < 500, "lookups=" + (store.lookups.get() - before));
+    assertTrue(repo.rejectedLookups() > 9_500);
+
+    // пробы свободных кодов через existsByCode в метрику отказов не попадают
+    long rejected = repo.rejectedLookups();
+    for (int i = 0; i < 1000; i++) assertFalse(repo.existsByCode("free" + i));
+    assertEquals(rejected, repo.rejectedLookups());
+  }
+
+  @Test
+  void rebuild_keepsLiveCodes_andGrowsPastExpectedSize() {
+    CountingRepository store = new CountingRepository();
+    BloomFilteredLinkRepository repo = new BloomFilteredLinkRepository(store, 100);
+    for (int i = 0; i < 5000; i++) repo.save(link("c" + i, "owner", 60));
+    for (int i = 0; i < 5000; i += 2) repo.deleteByCode("c" + i);
+
+    repo.rebuild();
+
+    for (int i = 1; i < 5000; i += 2) assertTrue(repo.existsByCode("c" + i), "c" + i);
+    int before = store.lookups.get();
+    for (int i = 0; i < 5000; i += 2) assertFalse(repo.existsByCode("c" + i));
+    // после перестройки удалённые коды снова отсекаются фильтром
+    assertTrue(store.lookups.get() - before < 250, "lookups=" + (store.lookups.get() - before));
+  }
+}
@@ -0,0 +1,130 @@
+import static org.com.url_shortener.TestLinks.NOW;
+import static org.com.url_shortener.TestLinks.link;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.com.url_shortener.core.models.ShortLink;
+import org.com.url_shortener.infra.cache.CachingLinkRepository;
+import org.com.url_shortener.infra.offheap.OffHeapLinkRepository;
+import org.junit.jupiter.api.Test;
+
+class CachingLinkRepositoryTest {
+
+  @Test
+  void findByCode_servesHits_andInvalidatesOnUpdateAndDelete() {
+    OffHeapLinkRepository store = new OffHeapLinkRepository();
+    CachingLinkRepository repo =
+        new CachingLinkRepository(store, 64, Clock.fixed(NOW, ZoneOffset.UTC));
+    repo.save(link("abc", "owner", "https://a.com", 60));
+
+    ShortLink first = repo.findByCode("abc").orElseThrow();
+    assertSame(first, repo.findByCode("abc").orElseThrow());
+
+    repo.update("abc", l -> link("abc", "owner", "https://b.com", 60));
+    assertEquals("https://b.com", repo.findByCode("abc").orElseThrow().getOriginalUrl());
+
+    repo.deleteByCode("abc");
+    assertTrue(repo.findByCode("abc").isEmpty());
+
+    CachingLinkRepository.CacheStats stats = repo.stats();
+    assertEquals(1, stats.hits());
+    assertEquals(3, stats.misses());
+  }
+
+  @Test
+  void expiredEntry_isNotServedFromCache() {
+    OffHeapLinkRepository store = new OffHeapLinkRepository();
+    Instant[] now = {NOW};
+    Clock clock =
+        new Clock() {
+          @Override
+          public ZoneId getZone() {
+            return ZoneOffset.UTC;
+          }
+
+          @Override
+          public Clock withZone(ZoneId zone) {
+            return this;
+          }
+
+          @Override
+          public Instant instant() {
+            return now[0];
+          }
+        };
+    CachingLinkRepository repo = new CachingLinkRepository(store, 64, clock);
+    repo.save(link("ttl", "owner", "https://a.com", 10));
+    repo.findByCode("ttl");
+
+    now[0] = NOW.plusSeconds(10);
+    repo.findByCode("ttl");
+    assertEquals(0, repo.stats().hits());
+  }
+
+  @Test
+  void scanOfColdCodes_doesNotEvictHotOnes() {
+    OffHeapLinkRepository store = new OffHeapLinkRepository();
+    CachingLinkRepository repo =
+        new CachingLinkRepository(store, 16, Clock.fixed(NOW, ZoneOffset.UTC));
+    for (int i = 0; i < 500; i++) repo.save(link("c" + i, "owner", "https://x.com/" + i, 60));
+
+    repo.findByCode("c0");
+    repo.findByCode("c0"); // второе обращение переводит в защищённый сегмент
+    for (int i = 1; i < 500; i++) repo.findByCode("c" + i);
+
+    long hitsBefore = repo.stats().hits();
+    repo.findByCode("c0");
+    assertEquals(hitsBefore + 1, repo.stats().hits());
+    assertTrue(repo.stats().evictions() > 0);
+  }
+
+  @Test
+  void concurrentHitsOnHotCodes_areCounted_andSeeUpdates() throws Exception {
+    OffHeapLinkRepository store = new OffHeapLinkRepository();
+    CachingLinkRepository repo =
+        new CachingLinkRepository(store, 64, Clock.fixed(NOW, ZoneOffset.UTC));
+    for (int i = 0; i < 4; i++) repo.save(link("hot" + i, "owner", "https://x.com/" + i, 60));
+
+    int threads = 8;
+    int lookups = 50_000;
+    ExecutorService pool = Executors.newFixedThreadPool(threads + 1);
+    try {
+      List<Future<?>> readers = new ArrayList<>();
+      for (int t = 0; t < threads; t++) {
+        readers.add(
+            pool.submit(
+                () -> {
+                  for (int i = 0; i < lookups; i++) {
+                    assertTrue(repo.findByCode("hot" + (i & 3)).isPresent());
+                  }
+                }));
+      }
+      Future<?> writer =
+          pool.submit(
+              () -> {
+                for (int v = 0; v < 200; v++) {
+                  String url = "https://y.com/" + v;
+                  repo.update("hot0", l -> link("hot0", "owner", url, 60));
+                }
+              });
+      writer.get();
+      for (Future<?> f : readers) f.get();
+    } finally {
+      pool.shutdownNow();
+    }
+
+    assertEquals("https://y.com/199", repo.findByCode("hot0").orElseThrow().getOriginalUrl());
+    CachingLinkRepository.CacheStats stats = repo.stats();
+    assertEquals((long) threads * lookups + 1, stats.hits() + stats.misses());
+    assertTrue(stats.hitRate() > 0.9, "hit rate " + stats.hitRate());
+    assertEquals(4, stats.size());
+  }
+}
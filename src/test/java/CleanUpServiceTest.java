@@ -1,14 +1,22 @@
 import static org.junit.jupiter.api.Assertions.*;
 
 import java.time.Clock;
+import java.time.Duration;
 import java.time.Instant;
 import java.time.ZoneOffset;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
 import org.com.url_shortener.core.models.ShortLink;
 import org.com.url_shortener.core.repository.LinkRepository;
 import org.com.url_shortener.infra.InMemoryLinkRepository;
+import org.com.url_shortener.infra.metrics.MetricsRegistry;
 import org.com.url_shortener.services.CleanupService;
+import org.com.url_shortener.services.ClickAnalytics;
+import org.com.url_shortener.services.CodeGenerator;
+import org.com.url_shortener.services.LinkService;
 import org.com.url_shortener.services.NotificationService;
 import org.junit.jupiter.api.Test;
 
@@ -106,4 +114,189 @@ class CleanupServiceTest {
     assertTrue(repo.findByCode("ACT12345").isPresent());
     assertTrue(notifier.events.isEmpty());
   }
+
+  @Test
+  void cleanupExpired_skipsDeletedLinks_andReportsLag() {
+    LinkRepository repo = new InMemoryLinkRepository();
+    CapturingNotifier notifier = new CapturingNotifier();
+
+    Instant now = Instant.parse("2025-01-01T00:00:10Z");
+    Clock clock = Clock.fixed(now, ZoneOffset.UTC);
+
+    CleanupService cleanup = new CleanupService(repo, notifier, clock);
+
+    for (int i = 0; i < 3; i++) {
+      repo.save(
+          new ShortLink(
+              "EXP0000" + i,
+              "ownerA",
+              "https://example.com/" + i,
+              now.minusSeconds(200),
+              now.minusSeconds(30 * (i + 1)),
+              10,
+              0,
+              false));
+    }
+    repo.deleteByCode("EXP00002");
+
+    int removed = cleanup.cleanupExpired();
+
+    assertEquals(2, removed);
+    assertEquals(Duration.ofSeconds(60), cleanup.lastLag());
+    assertTrue(repo.findExpired(now).isEmpty());
+    assertEquals(0, cleanup.cleanupExpired());
+    assertEquals(Duration.ZERO, cleanup.lastLag());
+  }
+
+  @Test
+  void cleanupIncremental_removesBoundedBatches_earliestFirst_andReportsBacklog() {
+    LinkRepository repo = new InMemoryLinkRepository();
+    CapturingNotifier notifier = new CapturingNotifier();
+
+    Instant now = Instant.parse("2025-01-01T00:00:10Z");
+    CleanupService cleanup = new CleanupService(repo, notifier, Clock.fixed(now, ZoneOffset.UTC));
+
+    for (int i = 0; i < 25; i++) {
+      repo.save(
+          new ShortLink(
+              String.format("EXP%05d", i),
+              "ownerA",
+              "https://example.com/" + i,
+              now.minusSeconds(1000),
+              now.minusSeconds(100 - i),
+              10,
+              0,
+              false));
+    }
+
+    // нулевой бюджет — ровно одна порция за проход
+    CleanupService.Report first = cleanup.cleanupIncremental(10, Duration.ZERO);
+    assertEquals(10, first.removed());
+    assertEquals(15, first.backlog());
+    assertEquals(15, cleanup.lastBacklog());
+    assertEquals(Duration.ofSeconds(100), cleanup.lastLag());
+    assertEquals("EXP00009", notifier.events.get(9).code());
+
+    CleanupService.Report rest = cleanup.cleanupIncremental(10, Duration.ofSeconds(10));
+    assertEquals(15, rest.removed());
+    assertEquals(0, rest.backlog());
+    assertEquals(25, notifier.events.size());
+    assertEquals(0, repo.countExpired(now));
+  }
+
+  @Test
+  void cleanup_dropsAnalyticsOfRemovedLinks() {
+    LinkRepository repo = new InMemoryLinkRepository();
+    CapturingNotifier notifier = new CapturingNotifier();
+    Instant now = Instant.parse("2025-01-01T00:00:10Z");
+    Clock clock = Clock.fixed(now, ZoneOffset.UTC);
+
+    try (ClickAnalytics analytics = new ClickAnalytics(clock, 60, 10)) {
+      LinkService links =
+          new LinkService(
+              repo,
+              new LinkServiceTest.TestConfig(),
+              new CodeGenerator(repo),
+              notifier,
+              clock,
+              new MetricsRegistry(),
+              analytics);
+      ShortLink link = links.create("ownerA", "https://example.com/a", 5);
+      links.resolve(link.getCode(), "visitor");
+      analytics.flush();
+      assertEquals(1, analytics.trackedLinks());
+
+      repo.save(
+          new ShortLink(
+              link.getCode(),
+              "ownerA",
+              link.getOriginalUrl(),
+              now.minusSeconds(100),
+              now.minusSeconds(1),
+              5,
+              1,
+              false));
+      new CleanupService(repo, notifier, clock, new MetricsRegistry(), links::forgetRemoved)
+          .cleanupExpired();
+
+      assertEquals(0, analytics.trackedLinks());
+      assertEquals(0, analytics.uniqueVisitors(link.getCode()));
+    }
+  }
+
+  @Test
+  void cleanup_countsOnlyDeletedLinks_andStopsWhenRepositoryStalls() {
+    Instant now = Instant.parse("2025-01-01T00:00:10Z");
+    InMemoryLinkRepository inner = new InMemoryLinkRepository();
+    // нечётные коды удаление молча пропускает — findExpired раз за разом отдаёт их снова
+    LinkRepository repo =
+        new LinkRepository() {
+          @Override
+          public Optional<ShortLink> findByCode(String code) {
+            return inner.findByCode(code);
+          }
+
+          @Override
+          public boolean existsByCode(String code) {
+            return inner.existsByCode(code);
+          }
+
+          @Override
+          public void save(ShortLink link) {
+            inner.save(link);
+          }
+
+          @Override
+          public Optional<ShortLink> update(String code, UnaryOperator<ShortLink> updater) {
+            return inner.update(code, updater);
+          }
+
+          @Override
+          public void deleteByCode(String code) {
+            if ((code.charAt(code.length() - 1) - '0') % 2 == 0) inner.deleteByCode(code);
+          }
+
+          @Override
+          public List<ShortLink> findByOwner(String ownerUuid) {
+            return inner.findByOwner(ownerUuid);
+          }
+
+          @Override
+          public List<ShortLink> findExpired(Instant now) {
+            return inner.findExpired(now);
+          }
+
+          @Override
+          public void forEach(Consumer<ShortLink> action) {
+            inner.forEach(action);
+          }
+        };
+    for (int i = 0; i < 5; i++) {
+      repo.save(
+          new ShortLink(
+              "EXP0000" + i,
+              "ownerA",
+              "https://example.com/" + i,
+              now.minusSeconds(100),
+              now.minusSeconds(1),
+              10,
+              0,
+              false));
+    }
+    CapturingNotifier notifier = new CapturingNotifier();
+    MetricsRegistry metrics = new MetricsRegistry();
+    CleanupService cleanup =
+        new CleanupService(repo, notifier, Clock.fixed(now, ZoneOffset.UTC), metrics);
+
+    int removed = assertTimeoutPreemptively(Duration.ofSeconds(5), cleanup::cleanupExpired);
+    assertEquals(3, removed);
+    assertEquals(
+        List.of("EXP00000", "EXP00002", "EXP00004"),
+        notifier.events.stream().map(CapturingNotifier.Event::code).sorted().toList());
+
+    CleanupService.Report report = cleanup.cleanupIncremental(2, Duration.ofSeconds(1));
+    assertEquals(0, report.removed());
+    assertEquals(2, report.backlog());
+    assertTrue(metrics.renderPrometheus().contains("url_shortener_cleanup_stalled_total 2\n"));
+  }
 }
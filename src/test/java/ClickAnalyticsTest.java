@@ -0,0 +1,102 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import org.com.url_shortener.core.exceptions.AccessDeniedException;
+import org.com.url_shortener.core.models.ClickHistory;
+import org.com.url_shortener.core.models.ShortLink;
+import org.com.url_shortener.infra.InMemoryLinkRepository;
+import org.com.url_shortener.infra.metrics.MetricsRegistry;
+import org.com.url_shortener.services.ClickAnalytics;
+import org.com.url_shortener.services.CodeGenerator;
+import org.com.url_shortener.services.LinkService;
+import org.junit.jupiter.api.Test;
+
+class ClickAnalyticsTest {
+
+  /** Часы, которые тест двигает вручную. */
+  static final class ManualClock extends Clock {
+    final AtomicLong millis;
+
+    ManualClock(Instant start) {
+      this.millis = new AtomicLong(start.toEpochMilli());
+    }
+
+    void advanceMinutes(long minutes) {
+      millis.addAndGet(minutes * 60_000);
+    }
+
+    @Override
+    public ZoneId getZone() {
+      return ZoneOffset.UTC;
+    }
+
+    @Override
+    public Clock withZone(ZoneId zone) {
+      return this;
+    }
+
+    @Override
+    public Instant instant() {
+      return Instant.ofEpochMilli(millis.get());
+    }
+  }
+
+  @Test
+  void redirects_areBucketedPerMinute_andOldMinutesRollOff() throws Exception {
+    ManualClock clock = new ManualClock(Instant.parse("2025-01-01T00:00:00Z"));
+    InMemoryLinkRepository repo = new InMemoryLinkRepository();
+    try (ClickAnalytics analytics = new ClickAnalytics(clock, 5)) {
+      LinkService svc =
+          new LinkService(
+              repo,
+              new RedirectHttpServerTest.TestConfig() {
+                @Override
+                public long ttlSeconds() {
+                  return 3600;
+                }
+              },
+              new CodeGenerator(repo),
+              new RedirectHttpServerTest.NoopNotifier(),
+              clock,
+              new MetricsRegistry(),
+              analytics);
+      ShortLink link = svc.create("owner", "https://example.com", 1000);
+      String code = link.getCode();
+
+      // переходы из нескольких потоков в одну минуту
+      List<Thread> threads = new ArrayList<>();
+      for (int t = 0; t < 4; t++) {
+        threads.add(
+            Thread.ofPlatform()
+                .start(
+                    () -> {
+                      for (int i = 0; i < 100; i++) svc.resolveForRedirect(code);
+                    }));
+      }
+      for (Thread t : threads) t.join();
+      clock.advanceMinutes(2);
+      for (int i = 0; i < 7; i++) svc.resolveForRedirect(code);
+
+      ClickHistory h = svc.clickHistory("owner", code, 3);
+      assertArrayEquals(new int[] {400, 0, 7}, h.perMinute());
+      assertEquals(Instant.parse("2025-01-01T00:00:00Z"), h.from());
+      assertEquals(407, h.total());
+
+      // окно хранения 5 минут: запрос шире обрезается, старые минуты выпадают
+      clock.advanceMinutes(4);
+      svc.resolveForRedirect(code);
+      ClickHistory later = svc.clickHistory("owner", code, 60);
+      assertArrayEquals(new int[] {7, 0, 0, 0, 1}, later.perMinute());
+      assertEquals(8, later.total());
+
+      assertThrows(AccessDeniedException.class, () -> svc.clickHistory("other", code, 5));
+      assertEquals(1, analytics.trackedLinks());
+    }
+  }
+}
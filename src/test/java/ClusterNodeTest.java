@@ -0,0 +1,137 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import org.com.url_shortener.core.models.ClickCounter;
+import org.com.url_shortener.core.models.ShortLink;
+import org.com.url_shortener.infra.InMemoryLinkRepository;
+import org.com.url_shortener.infra.cluster.ClusterNode;
+import org.com.url_shortener.infra.cluster.LocalCluster;
+import org.com.url_shortener.services.CodeGenerator;
+import org.com.url_shortener.services.LinkService;
+import org.com.url_shortener.services.SequenceCodeStrategy;
+import org.junit.jupiter.api.Test;
+
+class ClusterNodeTest {
+  private static final Clock CLOCK =
+      Clock.fixed(Instant.parse("2025-01-01T00:00:00Z"), ZoneOffset.UTC);
+
+  private static LinkService service(ClusterNode node) {
+    return new LinkService(
+        node,
+        new RedirectHttpServerTest.TestConfig(),
+        new CodeGenerator(node),
+        new RedirectHttpServerTest.NoopNotifier(),
+        CLOCK);
+  }
+
+  private static long localCount(ClusterNode node) {
+    long[] n = {0};
+    node.forEach(l -> n[0]++);
+    return n[0];
+  }
+
+  @Test
+  void linksArePartitioned_andReachableFromAnyNode_acrossMembershipChanges() throws Exception {
+    try (LocalCluster cluster = new LocalCluster(3, 64, InMemoryLinkRepository::new)) {
+      LinkService entry = service(cluster.node(0));
+      List<String> codes = new ArrayList<>();
+      for (int i = 0; i < 300; i++) {
+        codes.add(entry.create("owner", "https://example.com/" + i, 5).getCode());
+      }
+
+      for (ClusterNode node : cluster.nodes()) {
+        assertTrue(localCount(node) > 30, "every node owns a share of codes");
+      }
+      assertEquals(300, entry.listByOwner("owner").size());
+
+      // переход через другой узел считается у владельца
+      String code = codes.get(0);
+      assertEquals("https://example.com/0", service(cluster.node(2)).resolveForRedirect(code));
+      assertEquals(1, cluster.node(1).findByCode(code).orElseThrow().getClicksUsed());
+      ShortLink raised = entry.updateMaxClicks("owner", code, 9);
+      assertEquals(9, raised.getMaxClicks());
+      assertEquals(9, cluster.node(2).findByCode(code).orElseThrow().getMaxClicks());
+
+      ClusterNode added = cluster.addNode();
+      assertTrue(localCount(added) > 0, "new node takes over part of the ring");
+      for (ClusterNode node : cluster.nodes()) {
+        node.forEach(l -> assertTrue(node.owns(l.getCode())));
+      }
+
+      cluster.removeNode(cluster.node(0));
+      LinkService survivor = service(cluster.node(1));
+      for (String c : codes) assertTrue(cluster.node(0).existsByCode(c), c);
+      assertEquals(300, survivor.listByOwner("owner").size());
+      assertEquals(1, cluster.node(2).findByCode(code).orElseThrow().getClicksUsed());
+
+      survivor.delete("owner", code);
+      for (ClusterNode node : cluster.nodes()) assertFalse(node.existsByCode(code));
+    }
+  }
+
+  @Test
+  void rebalance_keepsClicksRecordedWhileLinksMove() throws Exception {
+    try (LocalCluster cluster = new LocalCluster(2, 64, InMemoryLinkRepository::new)) {
+      ClusterNode entry = cluster.node(0);
+      LinkService svc = service(entry);
+      List<String> codes = new ArrayList<>();
+      for (int i = 0; i < 2_000; i++) {
+        codes.add(svc.create("owner", "https://example.com/" + i, 1_000_000).getCode());
+      }
+
+      AtomicBoolean done = new AtomicBoolean();
+      AtomicLong clicks = new AtomicLong();
+      AtomicReference<Throwable> failure = new AtomicReference<>();
+      Thread clicker =
+          Thread.ofPlatform()
+              .start(
+                  () -> {
+                    try {
+                      while (!done.get()) {
+                        for (String code : codes) {
+                          ShortLink link = entry.findByCode(code).orElseThrow();
+                          assertEquals(ClickCounter.Outcome.ACCEPTED, entry.recordClick(link));
+                          clicks.incrementAndGet();
+                        }
+                      }
+                    } catch (Throwable t) {
+                      failure.set(t);
+                    }
+                  });
+      for (int i = 0; i < 3; i++) cluster.addNode();
+      done.set(true);
+      clicker.join();
+      assertNull(failure.get());
+
+      long stored = 0;
+      for (String code : codes) stored += entry.findByCode(code).orElseThrow().getClicksUsed();
+      assertEquals(clicks.get(), stored);
+    }
+  }
+
+  @Test
+  void sequenceCodes_ofDifferentNodes_neverOverlap() throws Exception {
+    try (LocalCluster cluster = new LocalCluster(2, 64, InMemoryLinkRepository::new)) {
+      List<String> ids = cluster.nodes().stream().map(n -> n.self().id()).toList();
+      Set<String> seen = new HashSet<>();
+      for (ClusterNode node : cluster.nodes()) {
+        CodeGenerator codes =
+            new CodeGenerator(
+                node, SequenceCodeStrategy.forClusterNode(ids, node.self().id()), false);
+        for (String code : codes.generateUniqueCodes(50_000)) {
+          assertTrue(seen.add(code), code);
+        }
+      }
+      assertEquals(100_000, seen.size());
+    }
+  }
+}
@@ -3,11 +3,20 @@ import static org.junit.jupiter.api.Assertions.*;
 import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 import java.util.function.UnaryOperator;
+import java.util.stream.IntStream;
 import org.com.url_shortener.core.models.ShortLink;
 import org.com.url_shortener.core.repository.LinkRepository;
+import org.com.url_shortener.infra.InMemoryLinkRepository;
 import org.com.url_shortener.services.CodeGenerator;
+import org.com.url_shortener.services.SequenceCodeStrategy;
 import org.junit.jupiter.api.Test;
 
 class CodeGeneratorTest {
@@ -50,6 +59,11 @@ class CodeGeneratorTest {
           public List<ShortLink> findExpired(Instant now) {
             throw new UnsupportedOperationException();
           }
+
+          @Override
+          public void forEach(Consumer<ShortLink> action) {
+            throw new UnsupportedOperationException();
+          }
         };
 
     CodeGenerator gen = new CodeGenerator(repo);
@@ -101,6 +115,11 @@ class CodeGeneratorTest {
           public List<ShortLink> findExpired(Instant now) {
             throw new UnsupportedOperationException();
           }
+
+          @Override
+          public void forEach(Consumer<ShortLink> action) {
+            throw new UnsupportedOperationException();
+          }
         };
 
     CodeGenerator gen = new CodeGenerator(repo);
@@ -149,10 +168,46 @@ class CodeGeneratorTest {
           public List<ShortLink> findExpired(Instant now) {
             throw new UnsupportedOperationException();
           }
+
+          @Override
+          public void forEach(Consumer<ShortLink> action) {
+            throw new UnsupportedOperationException();
+          }
         };
 
     CodeGenerator gen = new CodeGenerator(repo);
 
     assertThrows(IllegalStateException.class, gen::generateUniqueCode);
   }
+
+  @Test
+  void sequenceStrategy_uniqueAcrossThreads() throws Exception {
+    LinkRepository repo = new InMemoryLinkRepository();
+    // старт у самого конца пространства: счётчик должен перейти через 62^8 без повторов
+    CodeGenerator gen =
+        new CodeGenerator(repo, new SequenceCodeStrategy(42, 218_340_105_584_896L - 5_000), false);
+
+    Set<String> codes = ConcurrentHashMap.newKeySet();
+    ExecutorService pool = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<?>> futures =
+          IntStream.range(0, 8)
+              .<Future<?>>mapToObj(
+                  t ->
+                      pool.submit(
+                          () -> {
+                            for (int i = 0; i < 20_000; i++) {
+                              String code = gen.generateUniqueCode();
+                              assertTrue(code.matches("^[0-9A-Za-z]{8}$"), code);
+                              assertTrue(codes.add(code), "duplicate " + code);
+                            }
+                          }))
+              .toList();
+      for (Future<?> f : futures) f.get();
+    } finally {
+      pool.shutdownNow();
+    }
+
+    assertEquals(160_000, codes.size());
+  }
 }
@@ -0,0 +1,70 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Set;
+import org.com.url_shortener.infra.hll.HyperLogLog;
+import org.com.url_shortener.services.ClickAnalytics;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class HyperLogLogTest {
+
+  private static HyperLogLog sketch(int from, int to) {
+    HyperLogLog hll = new HyperLogLog(10);
+    for (int i = from; i < to; i++) hll.offer(HyperLogLog.hash("visitor-" + i));
+    return hll;
+  }
+
+  @Test
+  void smallSets_staySparse_andLargeSetsPromoteWithinErrorBound() {
+    HyperLogLog small = sketch(0, 50);
+    for (int i = 0; i < 50; i++) small.offer(HyperLogLog.hash("visitor-" + i)); // повторы
+    assertTrue(small.isSparse());
+    assertTrue(small.sizeInBytes() <= 50 * Integer.BYTES);
+    assertEquals(50, small.estimate(), 2);
+
+    HyperLogLog large = sketch(0, 100_000);
+    assertFalse(large.isSparse());
+    assertEquals(768, large.sizeInBytes());
+    assertEquals(100_000, large.estimate(), 100_000 * 0.05);
+  }
+
+  @Test
+  void merge_estimatesUnion_andSurvivesSerialization() {
+    HyperLogLog a = sketch(0, 30_000);
+    HyperLogLog b = HyperLogLog.fromBytes(sketch(20_000, 50_000).toBytes());
+    HyperLogLog sparse = HyperLogLog.fromBytes(sketch(49_990, 50_010).toBytes());
+    assertTrue(sparse.isSparse());
+
+    a.merge(b);
+    a.merge(sparse);
+    assertEquals(50_010, a.estimate(), 50_010 * 0.05);
+    assertEquals(a.estimate(), HyperLogLog.fromBytes(a.toBytes()).estimate());
+    assertThrows(IllegalArgumentException.class, () -> a.merge(new HyperLogLog(12)));
+  }
+
+  @Test
+  void analytics_persistsSketchesOnlyForLiveLinks(@TempDir Path dir) throws Exception {
+    Path file = dir.resolve("uniques.bin");
+    var clock = new ClickAnalyticsTest.ManualClock(Instant.parse("2025-01-01T00:00:00Z"));
+    try (ClickAnalytics analytics = new ClickAnalytics(clock, 0, 10)) {
+      for (int i = 0; i < 300; i++) {
+        analytics.record("live", HyperLogLog.hash("ip-" + (i % 100)));
+        analytics.record("gone", HyperLogLog.hash("ip-" + i));
+      }
+      analytics.record("live"); // посетитель неизвестен — не считается
+      assertEquals(100, analytics.uniqueVisitors("live"), 3);
+      analytics.saveUniques(file, Set.of("live")::contains);
+      assertEquals(0, analytics.uniqueVisitors("gone"));
+    }
+    assertTrue(Files.size(file) > 0);
+
+    try (ClickAnalytics restored = new ClickAnalytics(clock, 0, 10)) {
+      restored.loadUniques(file);
+      assertEquals(100, restored.uniqueVisitors("live"), 3);
+      assertEquals(0, restored.uniqueVisitors("gone"));
+    }
+  }
+}
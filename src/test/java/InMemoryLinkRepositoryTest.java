@@ -0,0 +1,49 @@
+import static org.com.url_shortener.TestLinks.link;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import org.com.url_shortener.core.models.ShortLink;
+import org.com.url_shortener.infra.InMemoryLinkRepository;
+import org.junit.jupiter.api.Test;
+
+class InMemoryLinkRepositoryTest {
+
+  @Test
+  void findByOwner_usesIndex_consistentWithSaveUpdateDelete() {
+    InMemoryLinkRepository repo = new InMemoryLinkRepository();
+    repo.save(link("AAAA0001", "ownerA", 60));
+    repo.save(link("AAAA0002", "ownerA", 60));
+    repo.save(link("BBBB0001", "ownerB", 60));
+
+    assertEquals(2, repo.findByOwner("ownerA").size());
+    assertEquals(1, repo.findByOwner("ownerB").size());
+
+    repo.update("AAAA0002", l -> link("AAAA0002", "ownerB", 60));
+    assertEquals(List.of("AAAA0001"), codes(repo.findByOwner("ownerA")));
+    assertEquals(2, repo.findByOwner("ownerB").size());
+
+    repo.deleteByCode("AAAA0001");
+    assertTrue(repo.findByOwner("ownerA").isEmpty());
+    assertEquals(0, repo.streamByOwner("ownerA").count());
+  }
+
+  @Test
+  void findByOwner_paged_walksAllLinksInCodeOrder() {
+    InMemoryLinkRepository repo = new InMemoryLinkRepository();
+    for (int i = 9; i >= 0; i--) repo.save(link("CODE000" + i, "ownerA", 60));
+    repo.save(link("OTHER001", "ownerB", 60));
+
+    List<ShortLink> first = repo.findByOwner("ownerA", null, 4);
+    assertEquals(List.of("CODE0000", "CODE0001", "CODE0002", "CODE0003"), codes(first));
+
+    List<ShortLink> second = repo.findByOwner("ownerA", "CODE0003", 4);
+    assertEquals(List.of("CODE0004", "CODE0005", "CODE0006", "CODE0007"), codes(second));
+
+    List<ShortLink> last = repo.findByOwner("ownerA", "CODE0007", 4);
+    assertEquals(List.of("CODE0008", "CODE0009"), codes(last));
+  }
+
+  private static List<String> codes(List<ShortLink> links) {
+    return links.stream().map(ShortLink::getCode).toList();
+  }
+}
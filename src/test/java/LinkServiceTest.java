@@ -4,11 +4,22 @@ import java.nio.file.Path;
 import java.time.Clock;
 import java.time.Instant;
 import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
 import org.com.url_shortener.core.exceptions.*;
+import org.com.url_shortener.core.models.BatchCreateResult;
+import org.com.url_shortener.core.models.RedirectResult;
 import org.com.url_shortener.core.models.ShortLink;
 import org.com.url_shortener.core.repository.LinkRepository;
 import org.com.url_shortener.infra.InMemoryLinkRepository;
 import org.com.url_shortener.infra.cfg.AppConfig;
+import org.com.url_shortener.infra.metrics.MetricsRegistry;
+import org.com.url_shortener.services.ClickAnalytics;
 import org.com.url_shortener.services.CodeGenerator;
 import org.com.url_shortener.services.LinkService;
 import org.com.url_shortener.services.NotificationService;
@@ -48,12 +59,12 @@ class LinkServiceTest {
     int limit = 0;
 
     @Override
-    public void notifyLimitReached(String ownerUuid, String code) {
+    public synchronized void notifyLimitReached(String ownerUuid, String code) {
       limit++;
     }
 
     @Override
-    public void notifyExpired(String ownerUuid, String code) {
+    public synchronized void notifyExpired(String ownerUuid, String code) {
       expired++;
     }
   }
@@ -114,6 +125,79 @@ class LinkServiceTest {
     assertTrue(repo.findByCode(l.getCode()).isEmpty());
   }
 
+  @Test
+  void dedupeIndex_shrinksOnExpiryDeleteAndCleanup() {
+    LinkRepository repo = new InMemoryLinkRepository();
+    ClickAnalyticsTest.ManualClock clock =
+        new ClickAnalyticsTest.ManualClock(Instant.parse("2025-01-01T00:00:00Z"));
+    TestConfig config =
+        new TestConfig() {
+          @Override
+          public boolean dedupeUrls() {
+            return true;
+          }
+        };
+    MetricsRegistry metrics = new MetricsRegistry();
+    LinkService svc =
+        new LinkService(repo, config, new CodeGenerator(repo), new TestNotifier(), clock, metrics);
+
+    ShortLink a = svc.create("u1", "https://example.com/a", null);
+    ShortLink b = svc.create("u1", "https://example.com/b", null);
+    ShortLink c = svc.create("u1", "https://example.com/c", null);
+    assertTrue(metrics.renderPrometheus().contains("url_shortener_dedupe_index_entries 3\n"));
+
+    svc.delete("u1", b.getCode());
+    assertTrue(metrics.renderPrometheus().contains("url_shortener_dedupe_index_entries 2\n"));
+
+    clock.advanceMinutes(1);
+    assertEquals(RedirectResult.EXPIRED, svc.resolve(a.getCode()));
+    assertTrue(metrics.renderPrometheus().contains("url_shortener_dedupe_index_entries 1\n"));
+
+    repo.deleteByCode(c.getCode());
+    svc.forgetRemoved(c);
+    assertTrue(metrics.renderPrometheus().contains("url_shortener_dedupe_index_entries 0\n"));
+  }
+
+  @Test
+  void resolve_hashesVisitorOnlyForCountedRedirects() {
+    LinkRepository repo = new InMemoryLinkRepository();
+    ClickAnalyticsTest.ManualClock clock =
+        new ClickAnalyticsTest.ManualClock(Instant.parse("2025-01-01T00:00:00Z"));
+    AtomicInteger hashed = new AtomicInteger();
+    LongSupplier visitor =
+        () -> {
+          hashed.incrementAndGet();
+          return 42;
+        };
+
+    try (ClickAnalytics analytics = new ClickAnalytics(clock, 0, 10)) {
+      LinkService svc =
+          new LinkService(
+              repo,
+              new TestConfig(),
+              new CodeGenerator(repo),
+              new TestNotifier(),
+              clock,
+              new MetricsRegistry(),
+              analytics);
+      ShortLink once = svc.create("u1", "https://example.com/once", 1);
+      ShortLink later = svc.create("u1", "https://example.com/later", 5);
+
+      assertSame(RedirectResult.NOT_FOUND, svc.resolve("nope", visitor));
+      assertInstanceOf(RedirectResult.Redirect.class, svc.resolve(once.getCode(), visitor));
+      assertSame(RedirectResult.LIMIT_REACHED, svc.resolve(once.getCode(), visitor));
+      clock.advanceMinutes(1);
+      assertSame(RedirectResult.EXPIRED, svc.resolve(later.getCode(), visitor));
+      assertEquals(1, hashed.get());
+    }
+
+    LinkService noUniques =
+        new LinkService(repo, new TestConfig(), new CodeGenerator(repo), new TestNotifier(), clock);
+    ShortLink plain = noUniques.create("u1", "https://example.com/plain", 5);
+    assertInstanceOf(RedirectResult.Redirect.class, noUniques.resolve(plain.getCode(), visitor));
+    assertEquals(1, hashed.get());
+  }
+
   @Test
   void owner_canDelete_nonOwner_cannot() {
     LinkRepository repo = new InMemoryLinkRepository();
@@ -127,4 +211,145 @@ class LinkServiceTest {
     assertThrows(AccessDeniedException.class, () -> svc.delete("u2", l.getCode()));
     assertDoesNotThrow(() -> svc.delete("u1", l.getCode()));
   }
+
+  @Test
+  void concurrentRedirects_neverExceedLimit_andNotifyOnce() throws Exception {
+    LinkRepository repo = new InMemoryLinkRepository();
+    TestNotifier notifier = new TestNotifier();
+    Clock clock = Clock.fixed(Instant.parse("2025-01-01T00:00:00Z"), ZoneOffset.UTC);
+
+    LinkService svc =
+        new LinkService(repo, new TestConfig(), new CodeGenerator(repo), notifier, clock);
+    ShortLink l = svc.create("u1", "https://example.com", 1000);
+
+    AtomicInteger ok = new AtomicInteger();
+    AtomicInteger blocked = new AtomicInteger();
+    ExecutorService pool = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < 8; t++) {
+        futures.add(
+            pool.submit(
+                () -> {
+                  for (int i = 0; i < 250; i++) {
+                    try {
+                      svc.resolveForRedirect(l.getCode());
+                      ok.incrementAndGet();
+                    } catch (LinkLimitReachedException e) {
+                      blocked.incrementAndGet();
+                    }
+                  }
+                }));
+      }
+      for (Future<?> f : futures) f.get();
+    } finally {
+      pool.shutdown();
+    }
+
+    assertEquals(1000, ok.get());
+    assertEquals(1000, blocked.get());
+    assertEquals(1000, repo.findByCode(l.getCode()).orElseThrow().getClicksUsed());
+    assertEquals(1, notifier.limit);
+  }
+
+  @Test
+  void raisingLimit_afterReached_unblocksLink_withoutSecondNotification() {
+    LinkRepository repo = new InMemoryLinkRepository();
+    TestNotifier notifier = new TestNotifier();
+    Clock clock = Clock.fixed(Instant.parse("2025-01-01T00:00:00Z"), ZoneOffset.UTC);
+
+    LinkService svc =
+        new LinkService(repo, new TestConfig(), new CodeGenerator(repo), notifier, clock);
+    ShortLink l = svc.create("u1", "https://example.com", 1);
+
+    svc.resolveForRedirect(l.getCode());
+    assertEquals(1, notifier.limit);
+
+    ShortLink updated = svc.updateMaxClicks("u1", l.getCode(), 2);
+    assertEquals(2, updated.getMaxClicks());
+    assertDoesNotThrow(() -> svc.resolveForRedirect(l.getCode()));
+    assertThrows(LinkLimitReachedException.class, () -> svc.resolveForRedirect(l.getCode()));
+    assertEquals(1, notifier.limit);
+  }
+
+  @Test
+  void createAll_savesValidUrls_andReportsRejected() {
+    LinkRepository repo = new InMemoryLinkRepository();
+    Clock clock = Clock.fixed(Instant.parse("2025-01-01T00:00:00Z"), ZoneOffset.UTC);
+    LinkService svc =
+        new LinkService(repo, new TestConfig(), new CodeGenerator(repo), new TestNotifier(), clock);
+
+    List<String> urls = new ArrayList<>();
+    for (int i = 0; i < 3000; i++) urls.add("https://example.com/" + i);
+    urls.add("not a url");
+    urls.add("ftp://example.com/file");
+
+    BatchCreateResult result = svc.createAll("u1", urls, 7);
+
+    assertEquals(3000, result.created().size());
+    assertEquals(List.of("not a url", "ftp://example.com/file"), result.rejected());
+    assertEquals(3000, result.created().stream().map(ShortLink::getCode).distinct().count());
+    assertEquals(3000, repo.findByOwner("u1").size());
+    ShortLink first = repo.findByCode(result.created().get(0).getCode()).orElseThrow();
+    assertEquals("https://example.com/0", first.getOriginalUrl());
+    assertEquals(7, first.getMaxClicks());
+  }
+
+  @Test
+  void dedupe_returnsLiveLinkForSameOwnerAndUrl_andSharesUrlAcrossOwners() {
+    LinkRepository repo = new InMemoryLinkRepository();
+    Clock clock = Clock.fixed(Instant.parse("2025-01-01T00:00:00Z"), ZoneOffset.UTC);
+    TestConfig config =
+        new TestConfig() {
+          @Override
+          public boolean dedupeUrls() {
+            return true;
+          }
+        };
+    LinkService svc =
+        new LinkService(repo, config, new CodeGenerator(repo), new TestNotifier(), clock);
+
+    ShortLink first = svc.create("u1", "https://Example.com:443", null);
+    ShortLink again = svc.create("u1", "https://example.com/", null);
+    assertEquals(first.getCode(), again.getCode());
+    assertNotEquals(first.getCode(), svc.create("u1", "https://example.com/", 5).getCode());
+
+    ShortLink other = svc.create("u2", "https://Example.com:443", null);
+    assertNotEquals(first.getCode(), other.getCode());
+    assertSame(first.getOriginalUrl(), other.getOriginalUrl());
+
+    // исчерпанная ссылка не переиспользуется
+    svc.resolveForRedirect(first.getCode());
+    svc.resolveForRedirect(first.getCode());
+    ShortLink fresh = svc.create("u1", "https://example.com/", null);
+    assertNotEquals(first.getCode(), fresh.getCode());
+
+    BatchCreateResult batch =
+        svc.createAll(
+            "u1",
+            List.of("https://example.com", "https://a.example.org/x", "https://A.example.org/x"),
+            null);
+    assertEquals(2, batch.created().size());
+    assertTrue(batch.created().stream().anyMatch(l -> l.getCode().equals(fresh.getCode())));
+    assertEquals(4, repo.findByOwner("u1").size());
+  }
+
+  @Test
+  void resolve_reportsOutcomesWithoutThrowing() {
+    LinkRepository repo = new InMemoryLinkRepository();
+    var clock = new ClickAnalyticsTest.ManualClock(Instant.parse("2025-01-01T00:00:00Z"));
+    LinkService svc =
+        new LinkService(repo, new TestConfig(), new CodeGenerator(repo), new TestNotifier(), clock);
+
+    assertSame(RedirectResult.NOT_FOUND, svc.resolve("nope"));
+    ShortLink limited = svc.create("u1", "https://example.com/a", 1);
+    assertEquals(
+        new RedirectResult.Redirect("https://example.com/a"), svc.resolve(limited.getCode()));
+    assertSame(RedirectResult.LIMIT_REACHED, svc.resolve(limited.getCode()));
+
+    ShortLink expiring = svc.create("u1", "https://example.com/b", null);
+    clock.advanceMinutes(1);
+    assertSame(RedirectResult.EXPIRED, svc.resolve(expiring.getCode()));
+    assertThrows(LinkNotFoundException.class, () -> svc.resolveForRedirect(expiring.getCode()));
+  }
 }
@@ -0,0 +1,176 @@
+import static org.com.url_shortener.TestLinks.link;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.stream.Stream;
+import org.com.url_shortener.core.models.ClickCounter;
+import org.com.url_shortener.core.models.ShortLink;
+import org.com.url_shortener.infra.wal.LogLinkRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class LogLinkRepositoryTest {
+
+  @TempDir Path dir;
+
+  private LogLinkRepository open() {
+    return new LogLinkRepository(dir, Duration.ofMillis(5), 1L << 30);
+  }
+
+  @Test
+  void reopen_replaysSavesClicksUpdatesAndDeletes() {
+    try (LogLinkRepository repo = open()) {
+      repo.save(link("AAAA0001", "ownerA", 60));
+      repo.save(link("AAAA0002", "ownerA", 60));
+      repo.save(link("AAAA0003", "ownerB", 60));
+
+      ShortLink a = repo.findByCode("AAAA0001").orElseThrow();
+      assertEquals(ClickCounter.Outcome.ACCEPTED, repo.recordClick(a));
+      assertEquals(ClickCounter.Outcome.ACCEPTED, repo.recordClick(a));
+
+      repo.update(
+          "AAAA0002",
+          l -> {
+            l.changeMaxClicks(7);
+            return l;
+          });
+      repo.deleteByCode("AAAA0003");
+    }
+
+    try (LogLinkRepository repo = open()) {
+      ShortLink a = repo.findByCode("AAAA0001").orElseThrow();
+      assertEquals(2, a.getClicksUsed());
+      assertEquals(7, repo.findByCode("AAAA0002").orElseThrow().getMaxClicks());
+      assertTrue(repo.findByCode("AAAA0003").isEmpty());
+      assertEquals(2, repo.findByOwner("ownerA").size());
+    }
+  }
+
+  @Test
+  void compact_writesSnapshot_andDropsOldSegments() throws Exception {
+    try (LogLinkRepository repo = open()) {
+      for (int i = 0; i < 100; i++) repo.save(link(String.format("CODE%04d", i), "ownerA", 60));
+      repo.compact();
+      repo.deleteByCode("CODE0000");
+    }
+
+    try (Stream<Path> files = Files.list(dir)) {
+      assertEquals(1, files.filter(p -> p.getFileName().toString().startsWith("wal-")).count());
+    }
+    assertTrue(Files.exists(dir.resolve("snapshot.bin")));
+
+    try (LogLinkRepository repo = open()) {
+      assertEquals(99, repo.findByOwner("ownerA").size());
+      assertTrue(repo.findByCode("CODE0000").isEmpty());
+    }
+  }
+
+  @Test
+  void compact_keepsLinksPromotedFromSnapshotDuringTheScan() throws Exception {
+    int n = 20_000;
+    try (LogLinkRepository repo = open()) {
+      for (int i = 0; i < n; i++) repo.save(link(String.format("CODE%05d", i), "ownerA", 60));
+      repo.compact();
+    }
+
+    // после переоткрытия все ссылки лежат только в снимке; чтения переносят их в память,
+    // пока параллельно идут сжатия
+    try (LogLinkRepository repo = open()) {
+      Thread reader =
+          Thread.ofPlatform()
+              .start(
+                  () -> {
+                    for (int i = 0; i < n; i++) repo.findByCode(String.format("CODE%05d", i));
+                  });
+      while (reader.isAlive()) repo.compact();
+      reader.join();
+    }
+
+    try (LogLinkRepository repo = open()) {
+      for (int i = 0; i < n; i++) {
+        String code = String.format("CODE%05d", i);
+        assertTrue(repo.findByCode(code).isPresent(), code);
+      }
+    }
+  }
+
+  @Test
+  void clickOnLinkHeldAcrossCompaction_isKept() {
+    try (LogLinkRepository repo = open()) {
+      repo.save(link("AAAA0001", "ownerA", 60));
+      ShortLink held = repo.findByCode("AAAA0001").orElseThrow();
+      repo.compact();
+
+      assertEquals(ClickCounter.Outcome.ACCEPTED, repo.recordClick(held));
+      assertEquals(1, repo.findByCode("AAAA0001").orElseThrow().getClicksUsed());
+    }
+    try (LogLinkRepository repo = open()) {
+      assertEquals(1, repo.findByCode("AAAA0001").orElseThrow().getClicksUsed());
+    }
+  }
+
+  @Test
+  void reopen_ignoresTornTail() throws Exception {
+    try (LogLinkRepository repo = open()) {
+      repo.save(link("AAAA0001", "ownerA", 60));
+    }
+    Path segment;
+    try (Stream<Path> files = Files.list(dir)) {
+      segment = files.filter(p -> p.getFileName().toString().startsWith("wal-")).findFirst().get();
+    }
+    Files.write(segment, new byte[] {0, 0, 0, 42, 1, 2}, StandardOpenOption.APPEND);
+
+    try (LogLinkRepository repo = open()) {
+      assertTrue(repo.findByCode("AAAA0001").isPresent());
+      repo.save(link("AAAA0002", "ownerA", 60));
+    }
+    try (LogLinkRepository repo = open()) {
+      assertEquals(2, repo.findByOwner("ownerA").size());
+    }
+  }
+
+  @Test
+  void reopenFromSnapshot_servesLookupsOwnersAndExpiryLazily() {
+    Instant t0 = Instant.parse("2025-01-01T00:00:00Z");
+    try (LogLinkRepository repo = open()) {
+      for (int i = 0; i < 50; i++) {
+        repo.save(
+            new ShortLink(
+                String.format("CODE%04d", i),
+                i % 2 == 0 ? "ownerA" : "ownerB",
+                "https://example.com/" + i,
+                t0,
+                t0.plusSeconds(i < 10 ? 30 : 3600),
+                5,
+                i % 3,
+                false));
+      }
+      repo.compact();
+    }
+
+    try (LogLinkRepository repo = open()) {
+      assertTrue(repo.existsByCode("CODE0042"));
+      assertEquals(2, repo.findByCode("CODE0041").orElseThrow().getClicksUsed());
+      assertEquals(25, repo.findByOwner("ownerA").size());
+      assertEquals(10, repo.findExpired(t0.plusSeconds(60)).size());
+
+      repo.deleteByCode("CODE0040");
+      repo.deleteByCode("CODE0001");
+      assertFalse(repo.existsByCode("CODE0040"));
+      assertEquals(24, repo.findByOwner("ownerA").size());
+      repo.compact();
+      assertFalse(repo.existsByCode("CODE0040"));
+    }
+
+    try (LogLinkRepository repo = open()) {
+      assertFalse(repo.existsByCode("CODE0040"));
+      assertFalse(repo.existsByCode("CODE0001"));
+      assertEquals(24, repo.findByOwner("ownerA").size());
+      assertEquals(24, repo.findByOwner("ownerB").size());
+    }
+  }
+}
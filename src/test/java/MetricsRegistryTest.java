@@ -0,0 +1,67 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import org.com.url_shortener.core.exceptions.LinkNotFoundException;
+import org.com.url_shortener.core.models.ShortLink;
+import org.com.url_shortener.infra.InMemoryLinkRepository;
+import org.com.url_shortener.infra.metrics.InstrumentedLinkRepository;
+import org.com.url_shortener.infra.metrics.LatencyHistogram;
+import org.com.url_shortener.infra.metrics.MetricsRegistry;
+import org.com.url_shortener.services.CodeGenerator;
+import org.com.url_shortener.services.LinkService;
+import org.com.url_shortener.services.RandomCodeStrategy;
+import org.junit.jupiter.api.Test;
+
+class MetricsRegistryTest {
+
+  @Test
+  void histogram_percentilesWithinBucketError() {
+    LatencyHistogram h = new LatencyHistogram();
+    for (long v = 1; v <= 100_000; v++) h.record(v * 1_000);
+
+    assertEquals(100_000, h.count());
+    assertEquals(100_000_000, h.maxNanos());
+    for (double q : new double[] {0.5, 0.9, 0.99, 0.999}) {
+      double exact = q * 100_000_000;
+      long estimate = h.percentileNanos(q);
+      assertTrue(estimate >= exact, "q=" + q + " estimate=" + estimate);
+      assertTrue(estimate <= exact * 1.125, "q=" + q + " estimate=" + estimate);
+    }
+    assertEquals(100_000_000, h.percentileNanos(1.0));
+  }
+
+  @Test
+  void linkService_countsOutcomes_andRendersPrometheus() {
+    MetricsRegistry metrics = new MetricsRegistry();
+    var repo = new InstrumentedLinkRepository(new InMemoryLinkRepository(), metrics);
+    var clock = Clock.fixed(Instant.parse("2025-01-01T00:00:00Z"), ZoneOffset.UTC);
+    var svc =
+        new LinkService(
+            repo,
+            new RedirectHttpServerTest.TestConfig(),
+            new CodeGenerator(repo, new RandomCodeStrategy(), true, metrics),
+            new RedirectHttpServerTest.NoopNotifier(),
+            clock,
+            metrics);
+
+    ShortLink link = svc.create("owner", "https://example.com", 1);
+    svc.resolveForRedirect(link.getCode());
+    assertThrows(LinkNotFoundException.class, () -> svc.resolveForRedirect("missing"));
+
+    String text = metrics.renderPrometheus();
+    assertTrue(text.contains("# TYPE url_shortener_redirects_total counter\n"));
+    assertTrue(text.contains("url_shortener_links_created_total 1\n"));
+    assertTrue(text.contains("url_shortener_codes_generated_total 1\n"));
+    assertTrue(text.contains("url_shortener_limit_reached_total 1\n"));
+    assertTrue(text.contains("url_shortener_redirects_total{result=\"ok\"} 1\n"));
+    assertTrue(text.contains("url_shortener_redirects_total{result=\"not_found\"} 1\n"));
+    assertTrue(text.contains("url_shortener_redirect_latency_seconds_count 2\n"));
+    assertTrue(text.contains("url_shortener_redirect_latency_seconds{quantile=\"0.99\"} "));
+    assertTrue(text.contains("url_shortener_repo_op_seconds_count{op=\"find_by_code\"} 2\n"));
+    assertEquals(
+        1,
+        text.lines().filter(l -> l.equals("# TYPE url_shortener_repo_op_seconds summary")).count());
+  }
+}
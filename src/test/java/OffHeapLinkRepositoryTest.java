@@ -0,0 +1,116 @@
+import static org.com.url_shortener.TestLinks.NOW;
+import static org.com.url_shortener.TestLinks.link;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import org.com.url_shortener.core.models.ClickCounter;
+import org.com.url_shortener.core.models.ShortLink;
+import org.com.url_shortener.infra.offheap.CodeCodec;
+import org.com.url_shortener.infra.offheap.OffHeapLinkRepository;
+import org.junit.jupiter.api.Test;
+
+class OffHeapLinkRepositoryTest {
+
+  @Test
+  void codeCodec_roundTrip() {
+    for (String code : List.of("0", "a", "Z", "00000000", "zZ09aA", "ZZZZZZZZZZ")) {
+      long key = CodeCodec.encode(code);
+      assertNotEquals(0, key);
+      assertEquals(code, CodeCodec.decode(key));
+    }
+    assertEquals(0, CodeCodec.encode("abc-def"));
+    assertEquals(0, CodeCodec.encode("ZZZZZZZZZZZ"));
+  }
+
+  @Test
+  void saveFindUpdateDelete_survivesResizeAndBackwardShift() {
+    OffHeapLinkRepository repo = new OffHeapLinkRepository(4);
+    String owner = UUID.randomUUID().toString();
+    for (int i = 0; i < 1000; i++) repo.save(link("c" + i, owner, 60));
+    repo.save(link("named01", "not-a-uuid", 60));
+
+    assertEquals(1001, repo.size());
+    ShortLink found = repo.findByCode("c500").orElseThrow();
+    assertEquals(owner, found.getOwnerUuid());
+    assertEquals("https://example.com/c500", found.getOriginalUrl());
+    assertEquals(NOW.plusSeconds(60), found.getExpiresAt());
+    assertEquals("not-a-uuid", repo.findByCode("named01").orElseThrow().getOwnerUuid());
+
+    for (int i = 0; i < 1000; i += 2) repo.deleteByCode("c" + i);
+    for (int i = 0; i < 1000; i++) assertEquals(i % 2 == 1, repo.existsByCode("c" + i));
+
+    repo.update("c1", l -> new ShortLink("c1", owner, "https://other.org", NOW, NOW, 7, 3, false));
+    ShortLink updated = repo.findByCode("c1").orElseThrow();
+    assertEquals("https://other.org", updated.getOriginalUrl());
+    assertEquals(3, updated.getClicksUsed());
+
+    assertEquals(500, repo.findByOwner(owner).size());
+    assertEquals(1, repo.findByOwner("not-a-uuid").size());
+    assertTrue(repo.findByOwner("unknown").isEmpty());
+  }
+
+  @Test
+  void recordClick_countsInSlot_andFindExpired() {
+    OffHeapLinkRepository repo = new OffHeapLinkRepository();
+    String owner = UUID.randomUUID().toString();
+    repo.save(link("live", owner, 3600));
+    repo.save(link("gone", owner, 10));
+
+    ShortLink live = repo.findByCode("live").orElseThrow();
+    for (int i = 0; i < 4; i++) assertEquals(ClickCounter.Outcome.ACCEPTED, repo.recordClick(live));
+    assertEquals(ClickCounter.Outcome.LIMIT_JUST_REACHED, repo.recordClick(live));
+    assertEquals(ClickCounter.Outcome.LIMIT_REACHED, repo.recordClick(live));
+    assertEquals(5, repo.findByCode("live").orElseThrow().getClicksUsed());
+
+    assertTrue(repo.findExpired(NOW.plusSeconds(5)).isEmpty());
+    List<ShortLink> expired = repo.findExpired(NOW.plusSeconds(10));
+    assertEquals(List.of("gone"), expired.stream().map(ShortLink::getCode).toList());
+
+    for (int i = 0; i < 20; i++) repo.save(link("old" + i, owner, 5));
+    assertEquals(21, repo.countExpired(NOW.plusSeconds(10)));
+    int drained = 0;
+    List<ShortLink> batch;
+    while (!(batch = repo.findExpired(NOW.plusSeconds(10), 8)).isEmpty()) {
+      assertTrue(batch.size() <= 8);
+      drained += batch.size();
+      repo.deleteAllByCode(batch.stream().map(ShortLink::getCode).toList());
+    }
+    assertEquals(21, drained);
+    assertTrue(repo.existsByCode("live"));
+  }
+
+  @Test
+  void findByOwner_pagesInCodeOrder_forUuidAndInternedOwners() {
+    OffHeapLinkRepository repo = new OffHeapLinkRepository(8);
+    String uuidOwner = UUID.randomUUID().toString();
+    List<String> expected = new ArrayList<>();
+    for (int i = 0; i < 250; i++) {
+      String code = String.format("c%03d", (i * 37) % 250);
+      repo.save(link(code, i % 2 == 0 ? uuidOwner : "plain-owner", 3600));
+      if (i % 2 == 0) expected.add(code);
+    }
+    expected.sort(null);
+
+    for (String owner : List.of(uuidOwner, "plain-owner")) {
+      List<String> all = codes(repo.findByOwner(owner));
+      List<String> paged = new ArrayList<>();
+      String after = null;
+      List<ShortLink> page;
+      while (!(page = repo.findByOwner(owner, after, 10)).isEmpty()) {
+        assertTrue(page.size() <= 10);
+        paged.addAll(codes(page));
+        after = page.get(page.size() - 1).getCode();
+      }
+      assertEquals(125, all.size());
+      assertEquals(all, paged);
+    }
+    assertEquals(expected, codes(repo.findByOwner(uuidOwner)));
+    assertTrue(repo.findByOwner("nobody", null, 10).isEmpty());
+  }
+
+  private static List<String> codes(List<ShortLink> links) {
+    return links.stream().map(ShortLink::getCode).toList();
+  }
+}
@@ -0,0 +1,148 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import org.com.url_shortener.core.models.ShortLink;
+import org.com.url_shortener.core.repository.LinkRepository;
+import org.com.url_shortener.http.RedirectHttpServer;
+import org.com.url_shortener.infra.InMemoryLinkRepository;
+import org.com.url_shortener.infra.cfg.AppConfig;
+import org.com.url_shortener.services.CodeGenerator;
+import org.com.url_shortener.services.LinkService;
+import org.com.url_shortener.services.NotificationService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class RedirectHttpServerTest {
+
+  static class TestConfig implements AppConfig {
+    @Override
+    public String baseUrl() {
+      return "clck.ru";
+    }
+
+    @Override
+    public long ttlSeconds() {
+      return 10;
+    }
+
+    @Override
+    public int defaultMaxClicks() {
+      return 1;
+    }
+
+    @Override
+    public long cleanupIntervalSeconds() {
+      return 1;
+    }
+
+    @Override
+    public Path userUuidFile() {
+      return Path.of("build/tmp/user.uuid");
+    }
+  }
+
+  static class NoopNotifier implements NotificationService {
+    @Override
+    public void notifyLimitReached(String ownerUuid, String code) {}
+
+    @Override
+    public void notifyExpired(String ownerUuid, String code) {}
+  }
+
+  private final Instant now = Instant.parse("2025-01-01T00:00:00Z");
+  private LinkRepository repo;
+  private LinkService svc;
+  private RedirectHttpServer server;
+  private HttpClient client;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    repo = new InMemoryLinkRepository();
+    svc =
+        new LinkService(
+            repo,
+            new TestConfig(),
+            new CodeGenerator(repo),
+            new NoopNotifier(),
+            Clock.fixed(now, ZoneOffset.UTC));
+    server = new RedirectHttpServer(new InetSocketAddress("127.0.0.1", 0), svc, 302);
+    server.start();
+    client = HttpClient.newBuilder().followRedirects(HttpClient.Redirect.NEVER).build();
+  }
+
+  @AfterEach
+  void tearDown() {
+    server.close();
+  }
+
+  private HttpResponse<String> get(String path) throws Exception {
+    HttpRequest req =
+        HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + server.port() + path)).build();
+    return client.send(req, HttpResponse.BodyHandlers.ofString());
+  }
+
+  @Test
+  void get_redirectsToOriginalUrl_thenGoneWhenLimitReached() throws Exception {
+    ShortLink link = svc.create("u1", "https://example.com/a", 1);
+
+    HttpResponse<String> first = get("/" + link.getCode());
+    assertEquals(302, first.statusCode());
+    assertEquals("https://example.com/a", first.headers().firstValue("Location").orElseThrow());
+
+    HttpResponse<String> second = get("/" + link.getCode());
+    assertEquals(410, second.statusCode());
+  }
+
+  @Test
+  void head_answersLikeGet_withoutConsumingClicks() throws Exception {
+    ShortLink link = svc.create("u1", "https://example.com/h", 1);
+    HttpRequest head =
+        HttpRequest.newBuilder(
+                URI.create("http://127.0.0.1:" + server.port() + "/" + link.getCode()))
+            .method("HEAD", HttpRequest.BodyPublishers.noBody())
+            .build();
+
+    for (int i = 0; i < 3; i++) {
+      HttpResponse<Void> resp = client.send(head, HttpResponse.BodyHandlers.discarding());
+      assertEquals(302, resp.statusCode());
+      assertEquals("https://example.com/h", resp.headers().firstValue("Location").orElseThrow());
+    }
+    assertEquals(0, repo.findByCode(link.getCode()).orElseThrow().getClicksUsed());
+
+    assertEquals(302, get("/" + link.getCode()).statusCode());
+    assertEquals(410, client.send(head, HttpResponse.BodyHandlers.discarding()).statusCode());
+  }
+
+  @Test
+  void get_returnsGone_forExpiredLink() throws Exception {
+    repo.save(
+        new ShortLink(
+            "EXP12345",
+            "u1",
+            "https://example.com/e",
+            now.minusSeconds(100),
+            now.minusSeconds(1),
+            5,
+            0,
+            false));
+
+    assertEquals(410, get("/EXP12345").statusCode());
+    assertTrue(repo.findByCode("EXP12345").isEmpty());
+  }
+
+  @Test
+  void get_returnsNotFound_forUnknownOrMalformedCode() throws Exception {
+    assertEquals(404, get("/NOPE1234").statusCode());
+    assertEquals(404, get("/").statusCode());
+    assertEquals(404, get("/a-b").statusCode());
+  }
+}
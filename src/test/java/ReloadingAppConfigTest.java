@@ -0,0 +1,47 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.com.url_shortener.infra.cfg.ConfigSnapshot;
+import org.com.url_shortener.infra.cfg.ReloadingAppConfig;
+import org.com.url_shortener.infra.cfg.RunMode;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ReloadingAppConfigTest {
+
+  @Test
+  void fileOverridesResource_andEditsArePublishedAsNewSnapshot(@TempDir Path dir) throws Exception {
+    Path file = dir.resolve("override.properties");
+    Files.writeString(file, "app.ttlSeconds=120\napp.defaultMaxClicks=oops\n");
+
+    try (ReloadingAppConfig config = new ReloadingAppConfig("no-such.properties", file)) {
+      ConfigSnapshot first = config.snapshot();
+      assertEquals(120, config.ttlSeconds());
+      assertEquals(10, config.defaultMaxClicks()); // неверное значение — значение по умолчанию
+      assertFalse(config.reload());
+      assertSame(first, config.snapshot());
+
+      Files.writeString(file, "app.ttlSeconds=300\napp.defaultMaxClicks=4\n");
+      long deadline = System.nanoTime() + 10_000_000_000L;
+      while (config.ttlSeconds() != 300 && System.nanoTime() < deadline) Thread.sleep(20);
+      assertEquals(300, config.ttlSeconds(), "watcher publishes the edit");
+      assertEquals(4, config.defaultMaxClicks());
+      assertNotSame(first, config.snapshot());
+    }
+  }
+
+  @Test
+  void malformedValueOnReload_keepsCurrentValue(@TempDir Path dir) throws Exception {
+    Path file = dir.resolve("override.properties");
+    Files.writeString(file, "app.ttlSeconds=120\napp.defaultMaxClicks=4\napp.mode=http\n");
+
+    try (ReloadingAppConfig config = new ReloadingAppConfig("no-such.properties", file)) {
+      Files.writeString(file, "app.ttlSeconds=300\napp.defaultMaxClicks=-1\napp.mode=bogus\n");
+      config.reload();
+      assertEquals(300, config.ttlSeconds());
+      assertEquals(4, config.defaultMaxClicks());
+      assertEquals(RunMode.HTTP, config.mode());
+    }
+  }
+}
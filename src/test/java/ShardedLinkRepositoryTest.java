@@ -0,0 +1,100 @@
+import static org.com.url_shortener.TestLinks.NOW;
+import static org.com.url_shortener.TestLinks.link;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.com.url_shortener.core.models.ShortLink;
+import org.com.url_shortener.infra.InMemoryLinkRepository;
+import org.com.url_shortener.infra.shard.ShardedLinkRepository;
+import org.junit.jupiter.api.Test;
+
+class ShardedLinkRepositoryTest {
+
+  private static List<InMemoryLinkRepository> shards(int n) {
+    List<InMemoryLinkRepository> shards = new ArrayList<>();
+    for (int i = 0; i < n; i++) shards.add(new InMemoryLinkRepository());
+    return shards;
+  }
+
+  /** 1000 ссылок поровну у владельцев a и b, сроки 10/11/12 секунд. */
+  private static ShardedLinkRepository filled(List<InMemoryLinkRepository> shards) {
+    ShardedLinkRepository repo = new ShardedLinkRepository(shards);
+    List<ShortLink> links = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) links.add(link("c" + i, i % 2 == 0 ? "a" : "b", 10 + i % 3));
+    repo.saveAll(links);
+    return repo;
+  }
+
+  @Test
+  void routesEachCodeToOneShard_andSpreadsThemEvenly() {
+    List<InMemoryLinkRepository> shards = shards(8);
+    ShardedLinkRepository repo = filled(shards);
+    repo.save(link("single", "a", 3600));
+
+    int total = 0;
+    for (InMemoryLinkRepository shard : shards) {
+      int size = shard.findByOwner("a").size() + shard.findByOwner("b").size();
+      assertTrue(size > 60 && size < 190, "shard size " + size);
+      total += size;
+    }
+    assertEquals(1001, total);
+    assertTrue(repo.existsByCode("c999"));
+    assertEquals("b", repo.findByCode("c999").orElseThrow().getOwnerUuid());
+
+    repo.deleteAllByCode(List.of("c0", "c1", "single"));
+    repo.update("c2", l -> null);
+    assertFalse(repo.existsByCode("c0"));
+    assertFalse(repo.existsByCode("single"));
+    assertFalse(repo.existsByCode("c2"));
+    assertEquals(997, repo.findByOwner("a").size() + repo.findByOwner("b").size());
+  }
+
+  @Test
+  void ownerPages_mergeShardsInCodeOrder() {
+    ShardedLinkRepository repo = filled(shards(8));
+
+    assertEquals(500, repo.findByOwner("a").size());
+    assertEquals(500, repo.streamByOwner("b").count());
+
+    List<String> page = repo.findByOwner("a", "c5", 3).stream().map(ShortLink::getCode).toList();
+    assertEquals(List.of("c50", "c500", "c502"), page);
+
+    // постраничный обход отдаёт каждую ссылку владельца ровно один раз, по возрастанию кода
+    List<String> walked = new ArrayList<>();
+    String after = null;
+    while (true) {
+      List<ShortLink> next = repo.findByOwner("b", after, 64);
+      if (next.isEmpty()) break;
+      for (ShortLink l : next) walked.add(l.getCode());
+      after = next.get(next.size() - 1).getCode();
+    }
+    assertEquals(500, walked.size());
+    assertEquals(walked.stream().sorted().toList(), walked);
+  }
+
+  @Test
+  void expiredBatches_takeFromAllShards_untilDrained() {
+    ShardedLinkRepository repo = filled(shards(8));
+    Instant now = NOW.plusSeconds(10);
+    assertEquals(334, repo.findExpired(now).size());
+
+    // 10 не делится на 8 шардов: с округлением вверх порция не обрезается до 8
+    List<ShortLink> first = repo.findExpired(now, 10);
+    assertTrue(first.size() <= 10);
+    assertTrue(first.size() > 8, "batch " + first.size());
+
+    Set<String> removed = new HashSet<>();
+    while (true) {
+      List<ShortLink> batch = repo.findExpired(now, 10);
+      if (batch.isEmpty()) break;
+      for (ShortLink l : batch) assertTrue(removed.add(l.getCode()), l.getCode());
+      repo.deleteAllByCode(batch.stream().map(ShortLink::getCode).toList());
+    }
+    assertEquals(334, removed.size());
+    assertEquals(0, repo.countExpired(now));
+  }
+}
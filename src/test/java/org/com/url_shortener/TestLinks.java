@@ -0,0 +1,19 @@
+package org.com.url_shortener;
+
+import java.time.Instant;
+import org.com.url_shortener.core.models.ShortLink;
+
+/** Ссылки для тестов хранилищ: все созданы в {@link #NOW}, лимит — 5 переходов. */
+public final class TestLinks {
+  public static final Instant NOW = Instant.parse("2025-01-01T00:00:00Z");
+
+  private TestLinks() {}
+
+  public static ShortLink link(String code, String owner, long ttlSeconds) {
+    return link(code, owner, "https://example.com/" + code, ttlSeconds);
+  }
+
+  public static ShortLink link(String code, String owner, String url, long ttlSeconds) {
+    return new ShortLink(code, owner, url, NOW, NOW.plusSeconds(ttlSeconds), 5, 0, false);
+  }
+}
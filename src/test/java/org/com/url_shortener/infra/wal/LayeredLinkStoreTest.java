@@ -0,0 +1,80 @@
+package org.com.url_shortener.infra.wal;
+
+import static org.com.url_shortener.TestLinks.link;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import org.com.url_shortener.core.models.ShortLink;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class LayeredLinkStoreTest {
+
+  @TempDir Path dir;
+
+  private MappedSnapshot snapshot(LayeredLinkStore store, String name) throws IOException {
+    Path file = dir.resolve(name);
+    store.beginSnapshot();
+    MappedSnapshot.write(file, 1, store::forEach);
+    return MappedSnapshot.open(file);
+  }
+
+  @Test
+  void replaceBase_evictsOnlyLinksUnchangedSinceTheSnapshot() throws IOException {
+    LayeredLinkStore store = new LayeredLinkStore(null);
+    for (int i = 0; i < 10; i++) store.save(link("CODE000" + i, "ownerA", 60));
+    MappedSnapshot next = snapshot(store, "s1.bin");
+
+    ShortLink clicked = store.findByCode("CODE0001").orElseThrow();
+    clicked.tryClick();
+    store.replaceBase(next);
+
+    assertEquals(1, store.memorySize());
+    assertEquals(1, store.findByCode("CODE0001").orElseThrow().getClicksUsed());
+    assertEquals(10, store.findByOwner("ownerA").size());
+    assertEquals(10, store.memorySize());
+  }
+
+  @Test
+  void clickOnEvictedInstance_survivesPromotion() throws IOException {
+    LayeredLinkStore store = new LayeredLinkStore(null);
+    store.save(link("CODE0001", "ownerA", 60));
+    ShortLink held = store.findByCode("CODE0001").orElseThrow();
+    store.replaceBase(snapshot(store, "s1.bin"));
+    assertEquals(0, store.memorySize());
+
+    held.tryClick();
+    assertSame(held, store.findByCode("CODE0001").orElseThrow());
+    assertEquals(1, store.findByCode("CODE0001").orElseThrow().getClicksUsed());
+  }
+
+  @Test
+  void delete_addsTombstoneOnlyForLinksInTheSnapshot() throws IOException {
+    LayeredLinkStore store = new LayeredLinkStore(null);
+    store.save(link("CODE0001", "ownerA", 60));
+    store.replaceBase(snapshot(store, "s1.bin"));
+
+    store.save(link("CODE0002", "ownerA", 60));
+    store.deleteByCode("CODE0002");
+    assertEquals(0, store.tombstoneCount());
+
+    store.deleteByCode("CODE0001");
+    assertEquals(1, store.tombstoneCount());
+    assertTrue(store.findByCode("CODE0001").isEmpty());
+    assertFalse(store.existsByCode("CODE0001"));
+  }
+
+  @Test
+  void deleteDuringSnapshotWrite_hidesTheLinkFromTheNewSnapshot() throws IOException {
+    LayeredLinkStore store = new LayeredLinkStore(null);
+    store.save(link("CODE0001", "ownerA", 60));
+    MappedSnapshot next = snapshot(store, "s1.bin");
+
+    // снимок уже записан, но ещё не подменён — удалённая ссылка в нём есть
+    store.deleteByCode("CODE0001");
+    store.replaceBase(next);
+
+    assertTrue(store.findByCode("CODE0001").isEmpty());
+  }
+}
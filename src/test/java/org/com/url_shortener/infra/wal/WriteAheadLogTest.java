@@ -0,0 +1,173 @@
+package org.com.url_shortener.infra.wal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class WriteAheadLogTest {
+
+  @TempDir Path dir;
+
+  private static byte[] bytes(String s) {
+    return s.getBytes(StandardCharsets.UTF_8);
+  }
+
+  private List<String> replay() throws IOException {
+    List<String> out = new ArrayList<>();
+    WriteAheadLog.replay(
+        WriteAheadLog.segmentPath(dir, 1), r -> out.add(new String(r, StandardCharsets.UTF_8)));
+    return out;
+  }
+
+  @Test
+  void failedWrite_isTruncated_andLaterRecordsSurviveReplay() throws IOException {
+    FailingChannel[] channel = new FailingChannel[1];
+    try (WriteAheadLog wal =
+        new WriteAheadLog(dir, 1, file -> channel[0] = new FailingChannel(file, false))) {
+      wal.appendAndSync(bytes("first"));
+
+      channel[0].failNextWrite = true;
+      assertThrows(IllegalStateException.class, () -> wal.appendAndSync(bytes("lost")));
+
+      wal.appendAndSync(bytes("second"));
+    }
+
+    assertEquals(List.of("first", "second"), replay());
+  }
+
+  @Test
+  void failedTruncate_marksLogFailed_andRejectsAppends() throws IOException {
+    FailingChannel[] channel = new FailingChannel[1];
+    try (WriteAheadLog wal =
+        new WriteAheadLog(dir, 1, file -> channel[0] = new FailingChannel(file, true))) {
+      wal.appendAndSync(bytes("first"));
+
+      channel[0].failNextWrite = true;
+      assertThrows(IllegalStateException.class, () -> wal.appendAndSync(bytes("lost")));
+      assertThrows(IllegalStateException.class, () -> wal.append(bytes("second")));
+    }
+
+    assertEquals(List.of("first"), replay());
+  }
+
+  /** Канал, который по флагу дописывает половину буфера и падает, как при сбое диска. */
+  private static final class FailingChannel extends FileChannel {
+    private final FileChannel delegate;
+    private final boolean failTruncate;
+    volatile boolean failNextWrite;
+
+    FailingChannel(Path file, boolean failTruncate) throws IOException {
+      this.delegate =
+          FileChannel.open(
+              file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+      this.failTruncate = failTruncate;
+    }
+
+    @Override
+    public int write(ByteBuffer src) throws IOException {
+      if (!failNextWrite) return delegate.write(src);
+      failNextWrite = false;
+      ByteBuffer half = src.slice(src.position(), Math.max(1, src.remaining() / 2));
+      delegate.write(half);
+      throw new IOException("simulated disk failure");
+    }
+
+    @Override
+    public FileChannel truncate(long size) throws IOException {
+      if (failTruncate) throw new IOException("simulated truncate failure");
+      delegate.truncate(size);
+      return this;
+    }
+
+    @Override
+    public void force(boolean metaData) throws IOException {
+      delegate.force(metaData);
+    }
+
+    @Override
+    public long size() throws IOException {
+      return delegate.size();
+    }
+
+    @Override
+    public long position() throws IOException {
+      return delegate.position();
+    }
+
+    @Override
+    public FileChannel position(long newPosition) throws IOException {
+      delegate.position(newPosition);
+      return this;
+    }
+
+    @Override
+    public int read(ByteBuffer dst) throws IOException {
+      return delegate.read(dst);
+    }
+
+    @Override
+    public long read(ByteBuffer[] dsts, int offset, int length) throws IOException {
+      return delegate.read(dsts, offset, length);
+    }
+
+    @Override
+    public long write(ByteBuffer[] srcs, int offset, int length) throws IOException {
+      return delegate.write(srcs, offset, length);
+    }
+
+    @Override
+    public long transferTo(long position, long count, WritableByteChannel target)
+        throws IOException {
+      return delegate.transferTo(position, count, target);
+    }
+
+    @Override
+    public long transferFrom(ReadableByteChannel src, long position, long count)
+        throws IOException {
+      return delegate.transferFrom(src, position, count);
+    }
+
+    @Override
+    public int read(ByteBuffer dst, long position) throws IOException {
+      return delegate.read(dst, position);
+    }
+
+    @Override
+    public int write(ByteBuffer src, long position) throws IOException {
+      return delegate.write(src, position);
+    }
+
+    @Override
+    public MappedByteBuffer map(MapMode mode, long position, long size) throws IOException {
+      return delegate.map(mode, position, size);
+    }
+
+    @Override
+    public FileLock lock(long position, long size, boolean shared) throws IOException {
+      return delegate.lock(position, size, shared);
+    }
+
+    @Override
+    public FileLock tryLock(long position, long size, boolean shared) throws IOException {
+      return delegate.tryLock(position, size, shared);
+    }
+
+    @Override
+    protected void implCloseChannel() throws IOException {
+      delegate.close();
+    }
+  }
+}